@@ -0,0 +1,146 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.BookSnapshot;
+import com.visualizer.BookSnapshotPublisher;
+import com.visualizer.DepthUpdateDecoder;
+import com.visualizer.LadderOrderBook;
+import com.visualizer.OrderBook;
+import com.visualizer.TreeMapOrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applying decoded depth updates to each {@link OrderBook} engine, and
+ * extracting the top N levels both straight from the book and through the
+ * {@link BookSnapshotPublisher} the UI reads from.
+ *
+ * The updates are decoded once in setup, so only the book work is measured.
+ * The book is warmed with the whole update sequence first so it holds a
+ * realistic number of levels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookBenchmark {
+
+    private static final int UPDATES = 4096;
+    private static final int LEVELS_PER_UPDATE = 20;
+
+    @Param({"ladder", "treemap"})
+    public String engine;
+
+    private OrderBook book;
+
+    // Decoded updates, flattened: update i holds levels [starts[i], starts[i + 1])
+    private boolean[] sides;
+    private long[] prices;
+    private long[] quantities;
+    private int[] starts;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        book = engine.equals("ladder") ? new LadderOrderBook() : new TreeMapOrderBook();
+
+        byte[][] frames = Payloads.depthUpdates(UPDATES, LEVELS_PER_UPDATE, 7);
+        DepthUpdateDecoder decoder = new DepthUpdateDecoder(Payloads.PRICE_SCALE, Payloads.QUANTITY_SCALE);
+        int total = UPDATES * LEVELS_PER_UPDATE * 2;
+        sides = new boolean[total];
+        prices = new long[total];
+        quantities = new long[total];
+        starts = new int[UPDATES + 1];
+
+        int level = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            starts[i] = level;
+            decoder.decode(frames[i], 0, frames[i].length);
+            level = flatten(decoder.getBids(), true, level);
+            level = flatten(decoder.getAsks(), false, level);
+        }
+        starts[UPDATES] = level;
+
+        for (int i = 0; i < UPDATES; i++) {
+            apply();
+        }
+    }
+
+    private int flatten(DepthUpdateDecoder.Levels levels, boolean bid, int level) {
+        for (int i = 0; i < levels.size(); i++) {
+            sides[level] = bid;
+            prices[level] = levels.price(i);
+            quantities[level] = levels.quantity(i);
+            level++;
+        }
+        return level;
+    }
+
+    // One update per call, in sequence, as on the ingest thread
+    @Benchmark
+    public long apply() {
+        int update = next;
+        next = (next + 1) & (UPDATES - 1);
+        for (int i = starts[update]; i < starts[update + 1]; i++) {
+            book.update(sides[i], prices[i], quantities[i]);
+        }
+        return book.bestPrice(true);
+    }
+
+    @Benchmark
+    public int top(Top top) {
+        return book.top(true, top.depth, top.prices, top.quantities)
+                + book.top(false, top.depth, top.prices, top.quantities);
+    }
+
+    // What the ingest thread pays per changed update with a UI attached
+    @Benchmark
+    public long publish(Top top) {
+        top.publisher.publish(book, true, next, next);
+        return top.publisher.getVersion();
+    }
+
+    // What a reader pays for a consistent copy
+    @Benchmark
+    public long read(Top top) {
+        top.publisher.read(top.snapshot);
+        return top.snapshot.getVersion();
+    }
+
+    /**
+     * Top-N buffers, so only the extraction benchmarks run per depth.
+     */
+    @State(Scope.Thread)
+    public static class Top {
+
+        @Param({"20", "100", "1000"})
+        public int depth;
+
+        private BookSnapshotPublisher publisher;
+        private BookSnapshot snapshot;
+        private long[] prices;
+        private long[] quantities;
+
+        @Setup
+        public void setUp(BookBenchmark benchmark) {
+            publisher = new BookSnapshotPublisher(depth);
+            publisher.publish(benchmark.book, true, 0, 0);
+            snapshot = publisher.newSnapshot();
+            prices = new long[depth];
+            quantities = new long[depth];
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.visualizer.DepthUpdateDecoder;
+import com.visualizer.OrderBookUpdate;
+import com.visualizer.SharedClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Depth frame decoding: Jackson data binding to {@link OrderBookUpdate}
+ * against the streaming {@link DepthUpdateDecoder} used on the ingest thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthDecodeBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    // Levels per side; the live depth stream sends tens per 1s update
+    @Param({"5", "20", "100"})
+    public int levels;
+
+    private final ObjectMapper mapper = SharedClients.objectMapper();
+    private final DepthUpdateDecoder decoder =
+            new DepthUpdateDecoder(Payloads.PRICE_SCALE, Payloads.QUANTITY_SCALE);
+
+    private byte[][] frames;
+    private String[] texts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        frames = Payloads.depthUpdates(FRAMES, levels, 42);
+        texts = Payloads.text(frames);
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (FRAMES - 1);
+    }
+
+    @Benchmark
+    public OrderBookUpdate bind() throws IOException {
+        byte[] frame = frames[nextIndex()];
+        return mapper.readValue(frame, OrderBookUpdate.class);
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        byte[] frame = frames[nextIndex()];
+        decoder.decode(frame, 0, frame.length);
+        return decoder.getFinalUpdateId();
+    }
+
+    // Text frames are decoded from the String when there is no ingest pipeline
+    @Benchmark
+    public long decodeText() throws IOException {
+        decoder.decode(texts[nextIndex()]);
+        return decoder.getFinalUpdateId();
+    }
+}
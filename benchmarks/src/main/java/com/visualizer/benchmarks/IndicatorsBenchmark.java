@@ -0,0 +1,122 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.VolatilityIndicators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link VolatilityIndicators} calculation, with the periods the
+ * {@link com.visualizer.AnalyticsScheduler} asks for, over a full history of
+ * each size.
+ *
+ * The indicators keep running statistics per requested window, so a
+ * calculation is cheap once its window exists and {@link #addSample()} pays
+ * to keep every window current. Setup requests all windows before measuring,
+ * as the scheduler does on its first pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorsBenchmark {
+
+    private static final int SAMPLES = 4096;
+
+    @Param({"100", "1000", "10000"})
+    public int historySize;
+
+    private VolatilityIndicators indicators;
+    private double[] prices;
+    private double[] volumes;
+    private long time;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(11);
+        prices = new double[SAMPLES];
+        volumes = new double[SAMPLES];
+        double price = Payloads.MID_PRICE;
+        for (int i = 0; i < SAMPLES; i++) {
+            price *= 1 + (random.nextDouble() - 0.5) * 0.001;
+            prices[i] = price;
+            volumes[i] = random.nextDouble() * 2;
+        }
+
+        indicators = new VolatilityIndicators(historySize);
+        for (int i = 0; i < historySize; i++) {
+            addSample();
+        }
+        atr();
+        bollingerBandWidth();
+        priceVelocity();
+        historicalVolatility();
+        vwap();
+        volumeWeightedVolatility();
+        volatilitySpike();
+        volatilityPercentile();
+    }
+
+    @Benchmark
+    public int addSample() {
+        int sample = next;
+        next = (next + 1) & (SAMPLES - 1);
+        time += 1000;
+        indicators.addPriceData(prices[sample], volumes[sample], time);
+        return indicators.size();
+    }
+
+    @Benchmark
+    public double atr() {
+        return indicators.calculateATR(14);
+    }
+
+    @Benchmark
+    public double bollingerBandWidth() {
+        return indicators.calculateBollingerBandWidth(20, 2.0);
+    }
+
+    @Benchmark
+    public double priceVelocity() {
+        return indicators.calculatePriceVelocity(5);
+    }
+
+    @Benchmark
+    public double historicalVolatility() {
+        return indicators.calculateHistoricalVolatility(30);
+    }
+
+    @Benchmark
+    public double vwap() {
+        return indicators.calculateVWAP(100);
+    }
+
+    @Benchmark
+    public double volumeWeightedVolatility() {
+        return indicators.calculateVolumeWeightedVolatility(100);
+    }
+
+    @Benchmark
+    public VolatilityIndicators.VolatilitySpike volatilitySpike() {
+        return indicators.detectVolatilitySpike(5, 20, 1.5);
+    }
+
+    @Benchmark
+    public double volatilityPercentile() {
+        return indicators.calculateVolatilityPercentile(100, 14);
+    }
+}
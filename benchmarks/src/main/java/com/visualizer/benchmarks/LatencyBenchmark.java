@@ -0,0 +1,80 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.visualizer.LatencyHistogram;
+import com.visualizer.LatencyMonitor;
+import com.visualizer.SharedClients;
+import com.visualizer.TradeHandler;
+import com.visualizer.TradeTape;
+import com.visualizer.TradingPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of latency tracking: one histogram record, and a trade frame handled
+ * with tracking on and off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private final ObjectMapper mapper = SharedClients.objectMapper();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final TradeHandler handler = new TradeHandler(
+            new TradingPair("BTC", "USDT", Payloads.PRICE_SCALE, Payloads.QUANTITY_SCALE), new TradeTape());
+
+    private byte[][] frames;
+    private int next;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        frames = Payloads.trades(FRAMES, 42);
+        LatencyMonitor.setEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        LatencyMonitor.setEnabled(true);
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (FRAMES - 1);
+    }
+
+    @Benchmark
+    public long record() {
+        // Spread over a few hundred buckets like real latencies
+        value = (value * 31 + 17) & 0xFFFFF;
+        histogram.record(value);
+        return histogram.getCount();
+    }
+
+    @Benchmark
+    public long handleTrade() {
+        byte[] frame = frames[nextIndex()];
+        handler.handleMessage(frame, 0, frame.length, System.nanoTime(), mapper);
+        return handler.getTape().getSequence();
+    }
+}
@@ -0,0 +1,119 @@
+package com.visualizer.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates Binance-shaped depth and trade frames for the benchmarks, with
+ * a fixed seed so every run measures the same bytes.
+ *
+ * Prices follow a mean-reverting walk around {@link #MID_PRICE} so a book fed
+ * the frames in a loop stays the same shape. Like the live feed, a depth
+ * update touches levels close to the touch more often than deep ones, about
+ * a third of its levels are removals, and numbers carry Binance's eight
+ * decimals.
+ */
+final class Payloads {
+
+    static final double MID_PRICE = 65_000.00;
+    static final double TICK = 0.01;
+    static final int PRICE_SCALE = 2;
+    static final int QUANTITY_SCALE = 5;
+
+    private static final long EVENT_TIME = 1_700_000_000_000L;
+
+    private Payloads() {
+    }
+
+    /**
+     * Consecutive depth updates with {@code levelsPerSide} bids and asks each.
+     */
+    static byte[][] depthUpdates(int count, int levelsPerSide, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[][] frames = new byte[count][];
+        double mid = MID_PRICE;
+        long updateId = 1_000_000;
+
+        StringBuilder json = new StringBuilder(64 + levelsPerSide * 64);
+        for (int i = 0; i < count; i++) {
+            mid = walk(random, mid);
+            long firstUpdateId = updateId + 1;
+            updateId += 1 + random.nextInt(levelsPerSide * 2);
+
+            json.setLength(0);
+            json.append("{\"e\":\"depthUpdate\",\"E\":").append(EVENT_TIME + i * 100L)
+                    .append(",\"s\":\"BTCUSDT\",\"U\":").append(firstUpdateId)
+                    .append(",\"u\":").append(updateId).append(",\"b\":[");
+            appendLevels(json, random, mid, levelsPerSide, true);
+            json.append("],\"a\":[");
+            appendLevels(json, random, mid, levelsPerSide, false);
+            json.append("]}");
+            frames[i] = json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return frames;
+    }
+
+    /**
+     * Trades around the same walk, each with a new trade id.
+     */
+    static byte[][] trades(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[][] frames = new byte[count][];
+        double mid = MID_PRICE;
+
+        StringBuilder json = new StringBuilder(160);
+        for (int i = 0; i < count; i++) {
+            mid = walk(random, mid);
+            long time = EVENT_TIME + i * 20L;
+            boolean buyerMaker = random.nextBoolean();
+            double price = buyerMaker ? mid - TICK : mid + TICK;
+
+            json.setLength(0);
+            json.append("{\"e\":\"trade\",\"E\":").append(time + 1)
+                    .append(",\"s\":\"BTCUSDT\",\"t\":").append(3_000_000_000L + i)
+                    .append(",\"p\":\"").append(decimal(price)).append("\",\"q\":\"").append(decimal(quantity(random)))
+                    .append("\",\"T\":").append(time)
+                    .append(",\"m\":").append(buyerMaker).append(",\"M\":true}");
+            frames[i] = json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return frames;
+    }
+
+    static String[] text(byte[][] frames) {
+        String[] texts = new String[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            texts[i] = new String(frames[i], StandardCharsets.UTF_8);
+        }
+        return texts;
+    }
+
+    private static void appendLevels(StringBuilder json, SplittableRandom random, double mid, int levels, boolean bid) {
+        for (int i = 0; i < levels; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Squared uniform: most changes sit within a few ticks of the touch
+            double u = random.nextDouble();
+            int ticks = 1 + (int) (u * u * 500);
+            double price = bid ? mid - ticks * TICK : mid + ticks * TICK;
+            double quantity = random.nextInt(3) == 0 ? 0 : quantity(random);
+            json.append("[\"").append(decimal(price)).append("\",\"").append(decimal(quantity)).append("\"]");
+        }
+    }
+
+    private static double walk(SplittableRandom random, double mid) {
+        double step = (random.nextInt(3) - 1) * TICK;
+        double pull = (MID_PRICE - mid) * 0.01;
+        return Math.round((mid + step + pull) / TICK) * TICK;
+    }
+
+    private static double quantity(SplittableRandom random) {
+        return Math.round(random.nextDouble() * random.nextDouble() * 2 * 1e5) / 1e5;
+    }
+
+    // Binance sends every number with eight decimals
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.8f", value);
+    }
+}
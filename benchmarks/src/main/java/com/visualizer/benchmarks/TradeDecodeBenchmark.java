@@ -0,0 +1,69 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.visualizer.SharedClients;
+import com.visualizer.Trade;
+import com.visualizer.TradeDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trade frame decoding: Jackson data binding to {@link Trade} against the
+ * streaming {@link TradeDecoder} used on the ingest thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeDecodeBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    private final ObjectMapper mapper = SharedClients.objectMapper();
+    private final TradeDecoder decoder = new TradeDecoder(Payloads.PRICE_SCALE, Payloads.QUANTITY_SCALE);
+
+    private byte[][] frames;
+    private String[] texts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        frames = Payloads.trades(FRAMES, 42);
+        texts = Payloads.text(frames);
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (FRAMES - 1);
+    }
+
+    @Benchmark
+    public Trade bind() throws IOException {
+        return mapper.readValue(frames[nextIndex()], Trade.class);
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        byte[] frame = frames[nextIndex()];
+        decoder.decode(frame, 0, frame.length);
+        return decoder.getPrice();
+    }
+
+    @Benchmark
+    public long decodeText() throws IOException {
+        decoder.decode(texts[nextIndex()]);
+        return decoder.getPrice();
+    }
+}
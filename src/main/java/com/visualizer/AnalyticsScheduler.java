@@ -0,0 +1,342 @@
+package com.visualizer;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs {@link VolatilityIndicators} on a background thread.
+ *
+ * Any thread may add price samples; they are appended to a pending buffer
+ * under a short lock. The buffer holds at most a full history; if ticks fall
+ * further behind, the oldest pending samples are dropped and counted, since
+ * the indicators would have pushed them out anyway. At a fixed cadence the analytics thread swaps the
+ * buffer out, feeds the samples to the indicators, computes every indicator
+ * and hands one immutable {@link VolatilityReadings} to the listener. The UI
+ * thread only ever formats the result.
+ *
+ * The same samples are aggregated into OHLCV bars by a {@link BarAggregator},
+ * whose one-minute bars supply the true-range ATR.
+ *
+ * Schedulers of several pairs may share one executor; the listener can be
+ * swapped at any time, and the latest readings are kept for a new listener
+ * to paint right away.
+ *
+ * Compute time is recorded per indicator.
+ */
+public class AnalyticsScheduler {
+    private static final Logger LOGGER = Logger.getLogger(AnalyticsScheduler.class.getName());
+
+    public static final long DEFAULT_PERIOD_MILLIS = 1000;
+
+    // Bars the per-bar readings are taken from
+    public static final long BAR_READINGS_MILLIS = 60_000;
+
+    /**
+     * The indicators computed on every tick, in display order.
+     */
+    public enum Indicator {
+        ATR,
+        PERCENTILE,
+        VELOCITY,
+        BOLLINGER_WIDTH,
+        SPIKE,
+        HISTORICAL_VOLATILITY,
+        VWAP,
+        VOLUME_WEIGHTED_VOLATILITY,
+        BARS
+    }
+
+    private final VolatilityIndicators indicators;
+    private final BarAggregator bars;
+    private final long periodMillis;
+    private final int maxPending;
+    private ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private ScheduledFuture<?> task;
+
+    private volatile Consumer<VolatilityReadings> listener;
+    private volatile VolatilityReadings lastReadings = VolatilityReadings.EMPTY;
+
+    // Samples handed over from other threads, guarded by pendingLock; a ring once it reaches maxPending
+    private final Object pendingLock = new Object();
+    private double[] pendingPrices;
+    private double[] pendingVolumes;
+    private long[] pendingTimes;
+    private int pendingStart;
+    private int pendingCount;
+    private boolean resetRequested;
+
+    // Analytics thread only
+    private double[] drainPrices;
+    private double[] drainVolumes;
+    private long[] drainTimes;
+    private int drainStart;
+    private long lastSampleTime;
+
+    // Counters
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong samplesIngested = new AtomicLong();
+    private final AtomicLong samplesDropped = new AtomicLong();
+    private final AtomicLong tickErrors = new AtomicLong();
+    private final AtomicLongArray lastComputeNanos = new AtomicLongArray(Indicator.values().length);
+    private final AtomicLongArray maxComputeNanos = new AtomicLongArray(Indicator.values().length);
+    private final AtomicLongArray totalComputeNanos = new AtomicLongArray(Indicator.values().length);
+
+    public AnalyticsScheduler(VolatilityIndicators indicators, Consumer<VolatilityReadings> listener) {
+        this(indicators, new BarAggregator(), DEFAULT_PERIOD_MILLIS, listener);
+    }
+
+    /**
+     * @param bars         must aggregate {@link #BAR_READINGS_MILLIS} time bars
+     * @param periodMillis how often indicators are recomputed
+     * @param listener     receives each tick's readings on the analytics thread
+     */
+    public AnalyticsScheduler(VolatilityIndicators indicators, BarAggregator bars, long periodMillis,
+                              Consumer<VolatilityReadings> listener) {
+        this(indicators, bars, periodMillis, newExecutor(), true, listener);
+    }
+
+    /**
+     * Runs on a shared executor, which {@link #stop()} leaves running.
+     */
+    public AnalyticsScheduler(VolatilityIndicators indicators, BarAggregator bars, long periodMillis,
+                              ScheduledExecutorService executor, Consumer<VolatilityReadings> listener) {
+        this(indicators, bars, periodMillis, executor, false, listener);
+    }
+
+    private AnalyticsScheduler(VolatilityIndicators indicators, BarAggregator bars, long periodMillis,
+                               ScheduledExecutorService executor, boolean ownsExecutor,
+                               Consumer<VolatilityReadings> listener) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Analytics period must be positive: " + periodMillis);
+        }
+        if (bars.getTimeBars(BAR_READINGS_MILLIS) == null) {
+            throw new IllegalArgumentException("Bars must include " + BAR_READINGS_MILLIS + "ms time frame");
+        }
+        this.indicators = indicators;
+        this.bars = bars;
+        this.periodMillis = periodMillis;
+        this.maxPending = indicators.getMaxHistorySize();
+        int capacity = Math.min(256, maxPending);
+        this.pendingPrices = new double[capacity];
+        this.pendingVolumes = new double[capacity];
+        this.pendingTimes = new long[capacity];
+        this.drainPrices = new double[capacity];
+        this.drainVolumes = new double[capacity];
+        this.drainTimes = new long[capacity];
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Single daemon thread for schedulers to run on.
+     */
+    public static ScheduledExecutorService newExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts ticking; may be called again after {@link #stop()}.
+     */
+    public synchronized void start() {
+        if (task == null) {
+            if (ownsExecutor && executor.isShutdown()) {
+                executor = newExecutor();
+            }
+            task = executor.scheduleAtFixedRate(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Replaces the listener; null drops readings until one is set.
+     */
+    public void setListener(Consumer<VolatilityReadings> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a sample for the next tick, e.g. a trade with its quantity and
+     * exchange time. Safe to call from any thread.
+     */
+    public void addSample(double price, double volume, long timestamp) {
+        synchronized (pendingLock) {
+            if (pendingCount == maxPending) {
+                // Overwrite the oldest
+                pendingStart = (pendingStart + 1) % pendingPrices.length;
+                pendingCount--;
+                samplesDropped.incrementAndGet();
+            } else if (pendingCount == pendingPrices.length) {
+                // Grows only until the ring starts wrapping, so pendingStart is still 0
+                int capacity = Math.min(pendingCount * 2, maxPending);
+                pendingPrices = Arrays.copyOf(pendingPrices, capacity);
+                pendingVolumes = Arrays.copyOf(pendingVolumes, capacity);
+                pendingTimes = Arrays.copyOf(pendingTimes, capacity);
+            }
+            int i = (pendingStart + pendingCount) % pendingPrices.length;
+            pendingPrices[i] = price;
+            pendingVolumes[i] = volume;
+            pendingTimes[i] = timestamp;
+            pendingCount++;
+        }
+    }
+
+    /**
+     * Drops all history, e.g. when switching pairs. Samples added after this
+     * call are kept.
+     */
+    public void reset() {
+        synchronized (pendingLock) {
+            pendingStart = 0;
+            pendingCount = 0;
+            resetRequested = true;
+        }
+    }
+
+    private void tick() {
+        try {
+            long tickStart = System.nanoTime();
+            int count = drainPending();
+
+            for (int n = 0, i = drainStart; n < count; n++, i = next(i)) {
+                indicators.addPriceData(drainPrices[i], drainVolumes[i], drainTimes[i]);
+                lastSampleTime = drainTimes[i];
+            }
+            samplesIngested.addAndGet(count);
+
+            long start = System.nanoTime();
+            double atr = indicators.calculateATR(14);
+            start = record(Indicator.ATR, start);
+
+            double percentile = indicators.calculateVolatilityPercentile(100, 14);
+            start = record(Indicator.PERCENTILE, start);
+
+            double velocity = indicators.calculatePriceVelocity(5);
+            start = record(Indicator.VELOCITY, start);
+
+            double bollingerWidth = indicators.calculateBollingerBandWidth(20, 2.0);
+            start = record(Indicator.BOLLINGER_WIDTH, start);
+
+            VolatilityIndicators.VolatilitySpike spike = indicators.detectVolatilitySpike(5, 20, 1.5);
+            start = record(Indicator.SPIKE, start);
+
+            double historicalVolatility = indicators.calculateHistoricalVolatility(30);
+            start = record(Indicator.HISTORICAL_VOLATILITY, start);
+
+            double vwap = indicators.calculateVWAP(100);
+            start = record(Indicator.VWAP, start);
+
+            double volumeWeightedVolatility = indicators.calculateVolumeWeightedVolatility(100);
+            start = record(Indicator.VOLUME_WEIGHTED_VOLATILITY, start);
+
+            // Bars are built per sample; their indicators are kept up to date as bars close
+            for (int n = 0, i = drainStart; n < count; n++, i = next(i)) {
+                bars.onTrade(drainPrices[i], drainVolumes[i], drainTimes[i]);
+            }
+            BarSeries minuteBars = bars.getTimeBars(BAR_READINGS_MILLIS);
+            double barAtr = minuteBars.getAtr();
+            double barBollingerWidth = minuteBars.getBollingerWidth();
+            double barHistoricalVolatility = minuteBars.getHistoricalVolatility();
+            record(Indicator.BARS, start);
+
+            ticks.incrementAndGet();
+            VolatilityReadings readings = new VolatilityReadings(atr, percentile, velocity, bollingerWidth,
+                    historicalVolatility, spike.isSpike, vwap, volumeWeightedVolatility,
+                    barAtr, barBollingerWidth, barHistoricalVolatility, indicators.size(), lastSampleTime,
+                    System.nanoTime() - tickStart);
+            lastReadings = readings;
+
+            Consumer<VolatilityReadings> current = listener;
+            if (current != null) {
+                current.accept(readings);
+            }
+
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule, so keep ticking
+            tickErrors.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Analytics tick failed", e);
+        }
+    }
+
+    // Swaps the pending buffer with the drain buffer and returns its size; it starts at drainStart
+    private int drainPending() {
+        synchronized (pendingLock) {
+            if (resetRequested) {
+                indicators.clear();
+                bars.clear();
+                lastSampleTime = 0;
+                lastReadings = VolatilityReadings.EMPTY;
+                resetRequested = false;
+            }
+
+            double[] prices = pendingPrices;
+            double[] volumes = pendingVolumes;
+            long[] times = pendingTimes;
+            pendingPrices = drainPrices;
+            pendingVolumes = drainVolumes;
+            pendingTimes = drainTimes;
+            drainPrices = prices;
+            drainVolumes = volumes;
+            drainTimes = times;
+
+            drainStart = pendingStart;
+            int count = pendingCount;
+            pendingStart = 0;
+            pendingCount = 0;
+            return count;
+        }
+    }
+
+    private int next(int i) {
+        return i + 1 == drainPrices.length ? 0 : i + 1;
+    }
+
+    private long record(Indicator indicator, long start) {
+        long end = System.nanoTime();
+        long elapsed = end - start;
+        int i = indicator.ordinal();
+        lastComputeNanos.set(i, elapsed);
+        totalComputeNanos.addAndGet(i, elapsed);
+        if (elapsed > maxComputeNanos.get(i)) {
+            maxComputeNanos.set(i, elapsed);
+        }
+        return end;
+    }
+
+    // Getters
+    public long getPeriodMillis() { return periodMillis; }
+    public VolatilityReadings getLastReadings() { return lastReadings; }
+    public long getTickCount() { return ticks.get(); }
+    public long getSamplesIngestedCount() { return samplesIngested.get(); }
+    public long getSamplesDroppedCount() { return samplesDropped.get(); }
+    public long getTickErrorCount() { return tickErrors.get(); }
+    public long getLastComputeNanos(Indicator indicator) { return lastComputeNanos.get(indicator.ordinal()); }
+    public long getMaxComputeNanos(Indicator indicator) { return maxComputeNanos.get(indicator.ordinal()); }
+
+    public long getAverageComputeNanos(Indicator indicator) {
+        long count = ticks.get();
+        return count == 0 ? 0 : totalComputeNanos.get(indicator.ordinal()) / count;
+    }
+}
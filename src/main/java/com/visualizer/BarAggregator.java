@@ -0,0 +1,230 @@
+package com.visualizer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds OHLCV bars over several time frames, trade counts and volumes at
+ * once from a stream of trades.
+ *
+ * Only the finest time frame sees every trade. Coarser time frames must be
+ * multiples of it and are built by folding each closed finer bar into them,
+ * so their cost is per finest bar rather than per trade. Tick and volume
+ * bars cannot be derived that way and take each trade directly; adding one
+ * costs O(1) per trade.
+ *
+ * Empty intervals produce no time bar. Bars close when a trade past their
+ * end arrives, or when {@link #advanceTo(long)} is called with a later time.
+ *
+ * Not thread-safe: feed and read from one thread.
+ */
+public class BarAggregator {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long[] DEFAULT_TIME_FRAMES = {1000, 60_000, 300_000};
+    public static final int DEFAULT_TICK_BAR_SIZE = 100;
+
+    /**
+     * Notified on the feeding thread whenever a bar of any series closes.
+     */
+    public interface BarListener {
+        void onBarClosed(BarSeries series);
+    }
+
+    private final int capacity;
+
+    // Finest time frame, fed by every trade
+    private final BarSeries base;
+
+    // Coarser time frames ascending, fed by closed base bars
+    private BarSeries[] rollups = new BarSeries[0];
+
+    // Tick and volume bars, fed by every trade
+    private BarSeries[] countBars = new BarSeries[0];
+
+    // Earliest close time of any forming time bar
+    private long nextTimeClose = Long.MAX_VALUE;
+
+    private BarListener barListener;
+
+    // Counters
+    private final AtomicLong tradesAggregated = new AtomicLong();
+    private final AtomicLong barsClosed = new AtomicLong();
+
+    /**
+     * 1s, 1m and 5m bars plus 100-trade bars.
+     */
+    public BarAggregator() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIME_FRAMES);
+        addTickBars(DEFAULT_TICK_BAR_SIZE);
+    }
+
+    /**
+     * @param capacity         closed bars retained per series
+     * @param timeFrameMillis  bar lengths; the shortest is the base of the others
+     */
+    public BarAggregator(int capacity, long... timeFrameMillis) {
+        if (timeFrameMillis.length == 0) {
+            throw new IllegalArgumentException("At least one time frame is required");
+        }
+        this.capacity = capacity;
+
+        long[] frames = timeFrameMillis.clone();
+        Arrays.sort(frames);
+        this.base = new BarSeries(BarSeries.Type.TIME, frames[0], capacity);
+        for (int i = 1; i < frames.length; i++) {
+            if (frames[i] == frames[i - 1]) {
+                continue;
+            }
+            if (frames[i] % frames[0] != 0) {
+                throw new IllegalArgumentException("Time frame " + frames[i]
+                        + "ms is not a multiple of the base time frame " + frames[0] + "ms");
+            }
+            rollups = append(rollups, new BarSeries(BarSeries.Type.TIME, frames[i], capacity));
+        }
+    }
+
+    public final BarSeries addTickBars(int trades) {
+        BarSeries series = new BarSeries(BarSeries.Type.TICK, trades, capacity);
+        countBars = append(countBars, series);
+        return series;
+    }
+
+    public BarSeries addVolumeBars(double volume) {
+        BarSeries series = new BarSeries(BarSeries.Type.VOLUME, volume, capacity);
+        countBars = append(countBars, series);
+        return series;
+    }
+
+    /**
+     * Adds one trade. Trades are expected in time order; a late trade is
+     * folded into the bar that is forming.
+     */
+    public void onTrade(double price, double volume, long time) {
+        tradesAggregated.incrementAndGet();
+
+        if (time >= nextTimeClose) {
+            closeTimeBars(time);
+        }
+        boolean starting = !base.isForming();
+        base.add(price, volume, time);
+        if (starting) {
+            nextTimeClose = Math.min(nextTimeClose, base.closeTime());
+        }
+
+        for (BarSeries series : countBars) {
+            if (series.getType() == BarSeries.Type.TICK) {
+                series.add(price, volume, time);
+                if (series.isFull()) {
+                    closeBar(series);
+                }
+            } else {
+                addVolume(series, price, volume, time);
+            }
+        }
+    }
+
+    /**
+     * Closes every time bar that ends at or before {@code time}, e.g. from a
+     * clock while the market is quiet.
+     */
+    public void advanceTo(long time) {
+        if (time >= nextTimeClose) {
+            closeTimeBars(time);
+        }
+    }
+
+    // A trade larger than what is left of the bar is split across bars at the same price
+    private void addVolume(BarSeries series, double price, double volume, long time) {
+        double remaining = volume;
+        while (remaining > 0) {
+            double part = Math.min(remaining, series.remainingVolume());
+            series.add(price, part, time);
+            remaining -= part;
+            if (series.isFull()) {
+                closeBar(series);
+            }
+        }
+    }
+
+    private void closeTimeBars(long time) {
+        if (base.isForming() && time >= base.closeTime()) {
+            closeBar(base);
+            for (BarSeries rollup : rollups) {
+                // A gap may have skipped the end of the coarser bar
+                if (rollup.isForming() && base.startTime(0) >= rollup.closeTime()) {
+                    closeBar(rollup);
+                }
+                rollup.merge(base);
+            }
+        }
+
+        long next = base.isForming() ? base.closeTime() : Long.MAX_VALUE;
+        for (BarSeries rollup : rollups) {
+            if (rollup.isForming() && time >= rollup.closeTime()) {
+                closeBar(rollup);
+            }
+            if (rollup.isForming()) {
+                next = Math.min(next, rollup.closeTime());
+            }
+        }
+        nextTimeClose = next;
+    }
+
+    private void closeBar(BarSeries series) {
+        series.close();
+        barsClosed.incrementAndGet();
+
+        BarListener listener = barListener;
+        if (listener != null) {
+            listener.onBarClosed(series);
+        }
+    }
+
+    /**
+     * Time bars of the given length, or null if not aggregated.
+     */
+    public BarSeries getTimeBars(long millis) {
+        if (base.getSize() == millis) {
+            return base;
+        }
+        for (BarSeries rollup : rollups) {
+            if (rollup.getSize() == millis) return rollup;
+        }
+        return null;
+    }
+
+    /**
+     * All series: time frames ascending, then tick and volume bars in the
+     * order they were added.
+     */
+    public BarSeries[] getSeries() {
+        BarSeries[] all = new BarSeries[1 + rollups.length + countBars.length];
+        all[0] = base;
+        System.arraycopy(rollups, 0, all, 1, rollups.length);
+        System.arraycopy(countBars, 0, all, 1 + rollups.length, countBars.length);
+        return all;
+    }
+
+    public void clear() {
+        for (BarSeries series : getSeries()) {
+            series.clear();
+        }
+        nextTimeClose = Long.MAX_VALUE;
+    }
+
+    public void setBarListener(BarListener barListener) {
+        this.barListener = barListener;
+    }
+
+    private static BarSeries[] append(BarSeries[] array, BarSeries value) {
+        BarSeries[] grown = Arrays.copyOf(array, array.length + 1);
+        grown[array.length] = value;
+        return grown;
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public long getTradesAggregatedCount() { return tradesAggregated.get(); }
+    public long getBarsClosedCount() { return barsClosed.get(); }
+}
@@ -0,0 +1,309 @@
+package com.visualizer;
+
+/**
+ * OHLCV bars of one kind and size, with true ATR, Bollinger Bands and
+ * historical volatility maintained per closed bar.
+ *
+ * Closed bars are stored column by column in primitive rings, so only the
+ * newest {@code capacity} bars are retained. The indicators are updated
+ * once per bar close in O(1) and read in O(1).
+ *
+ * Bars are built by a {@link BarAggregator}. Not thread-safe: build and
+ * read from one thread.
+ */
+public class BarSeries {
+
+    public static final int ATR_PERIOD = 14;
+    public static final int BOLLINGER_PERIOD = 20;
+    public static final double BOLLINGER_MULTIPLIER = 2.0;
+    public static final int VOLATILITY_PERIOD = 30;
+
+    private static final double MILLIS_PER_YEAR = 365.0 * 24 * 60 * 60 * 1000;
+
+    /**
+     * What closes a bar: elapsed time, a number of trades or traded volume.
+     */
+    public enum Type {
+        TIME,
+        TICK,
+        VOLUME
+    }
+
+    private final Type type;
+    private final double size;
+    private final int capacity;
+
+    // Closed bars, one ring per column
+    private final LongRing startTimes;
+    private final LongRing endTimes;
+    private final DoubleRing opens;
+    private final DoubleRing highs;
+    private final DoubleRing lows;
+    private final DoubleRing closes;
+    private final DoubleRing volumes;
+    private final LongRing tradeCounts;
+    private final DoubleRing atrs;
+    private final DoubleRing logReturns;
+
+    // Per-bar indicator state
+    private final RollingMoments closeWindow;
+    private final RollingMoments returnWindow;
+    private double atr;
+    private double atrSeedSum;
+    private int atrSeedCount;
+
+    // The bar being built
+    private boolean forming;
+    private long formingStart;
+    private long formingEnd;
+    private double formingOpen;
+    private double formingHigh;
+    private double formingLow;
+    private double formingClose;
+    private double formingVolume;
+    private long formingTrades;
+
+    /**
+     * @param size     bar length in milliseconds, trades or volume
+     * @param capacity number of closed bars retained
+     */
+    public BarSeries(Type type, double size, int capacity) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Bar size must be positive: " + size);
+        }
+        if (type != Type.VOLUME && size != Math.floor(size)) {
+            throw new IllegalArgumentException(type + " bar size must be whole: " + size);
+        }
+        // The value leaving each indicator window must still be in its ring
+        if (capacity <= Math.max(BOLLINGER_PERIOD, VOLATILITY_PERIOD)) {
+            throw new IllegalArgumentException("Bar capacity too small for indicator windows: " + capacity);
+        }
+        this.type = type;
+        this.size = size;
+        this.capacity = capacity;
+        this.startTimes = new LongRing(capacity);
+        this.endTimes = new LongRing(capacity);
+        this.opens = new DoubleRing(capacity);
+        this.highs = new DoubleRing(capacity);
+        this.lows = new DoubleRing(capacity);
+        this.closes = new DoubleRing(capacity);
+        this.volumes = new DoubleRing(capacity);
+        this.tradeCounts = new LongRing(capacity);
+        this.atrs = new DoubleRing(capacity);
+        this.logReturns = new DoubleRing(capacity);
+        this.closeWindow = new RollingMoments(closes, BOLLINGER_PERIOD);
+        this.returnWindow = new RollingMoments(logReturns, VOLATILITY_PERIOD);
+    }
+
+    // Building, called by BarAggregator
+
+    void add(double price, double volume, long time) {
+        if (!forming) {
+            forming = true;
+            formingStart = type == Type.TIME ? Math.floorDiv(time, (long) size) * (long) size : time;
+            formingOpen = price;
+            formingHigh = price;
+            formingLow = price;
+            formingVolume = 0;
+            formingTrades = 0;
+            formingEnd = Long.MIN_VALUE;
+        } else {
+            formingHigh = Math.max(formingHigh, price);
+            formingLow = Math.min(formingLow, price);
+        }
+        formingClose = price;
+        formingVolume += volume;
+        formingTrades++;
+        formingEnd = Math.max(formingEnd, time);
+    }
+
+    // Folds the newest closed bar of a finer time series into this one
+    void merge(BarSeries finer) {
+        if (!forming) {
+            forming = true;
+            formingStart = Math.floorDiv(finer.startTime(0), (long) size) * (long) size;
+            formingOpen = finer.open(0);
+            formingHigh = finer.high(0);
+            formingLow = finer.low(0);
+            formingVolume = 0;
+            formingTrades = 0;
+            formingEnd = Long.MIN_VALUE;
+        } else {
+            formingHigh = Math.max(formingHigh, finer.high(0));
+            formingLow = Math.min(formingLow, finer.low(0));
+        }
+        formingClose = finer.close(0);
+        formingVolume += finer.volume(0);
+        formingTrades += finer.tradeCount(0);
+        formingEnd = Math.max(formingEnd, finer.endTime(0));
+    }
+
+    void close() {
+        if (!forming) {
+            return;
+        }
+        forming = false;
+
+        boolean hasPrevious = closes.size() > 0;
+        double previousClose = hasPrevious ? closes.back(0) : 0;
+
+        startTimes.push(formingStart);
+        endTimes.push(formingEnd);
+        opens.push(formingOpen);
+        highs.push(formingHigh);
+        lows.push(formingLow);
+        closes.push(formingClose);
+        volumes.push(formingVolume);
+        tradeCounts.push(formingTrades);
+        closeWindow.onPush();
+
+        // True range includes any gap from the previous close
+        double trueRange = formingHigh - formingLow;
+        if (hasPrevious) {
+            trueRange = Math.max(trueRange, Math.max(
+                    Math.abs(formingHigh - previousClose), Math.abs(formingLow - previousClose)));
+        }
+
+        // Wilder's smoothing, seeded with the simple average of the first period
+        if (atrSeedCount < ATR_PERIOD) {
+            atrSeedSum += trueRange;
+            atrSeedCount++;
+            atr = atrSeedCount == ATR_PERIOD ? atrSeedSum / ATR_PERIOD : 0;
+        } else {
+            atr += (trueRange - atr) / ATR_PERIOD;
+        }
+        atrs.push(atr);
+
+        if (hasPrevious && previousClose > 0 && formingClose > 0) {
+            logReturns.push(Math.log(formingClose / previousClose));
+            returnWindow.onPush();
+        }
+    }
+
+    // Volume still needed to fill the forming volume bar
+    double remainingVolume() {
+        return size - (forming ? formingVolume : 0);
+    }
+
+    boolean isFull() {
+        switch (type) {
+            case TICK:
+                return forming && formingTrades >= (long) size;
+            case VOLUME:
+                // Tolerate rounding when a trade is split across bars
+                return forming && formingVolume >= size * (1 - 1e-9);
+            default:
+                return false;
+        }
+    }
+
+    // Time at which the forming time bar closes
+    long closeTime() {
+        return formingStart + (long) size;
+    }
+
+    public void clear() {
+        startTimes.clear();
+        endTimes.clear();
+        opens.clear();
+        highs.clear();
+        lows.clear();
+        closes.clear();
+        volumes.clear();
+        tradeCounts.clear();
+        atrs.clear();
+        logReturns.clear();
+        closeWindow.resync();
+        returnWindow.resync();
+        atr = 0;
+        atrSeedSum = 0;
+        atrSeedCount = 0;
+        forming = false;
+        formingEnd = 0;
+    }
+
+    // Closed bars by age; age 0 is the newest closed bar
+
+    public long startTime(int age) { return startTimes.back(age); }
+    public long endTime(int age) { return endTimes.back(age); }
+    public double open(int age) { return opens.back(age); }
+    public double high(int age) { return highs.back(age); }
+    public double low(int age) { return lows.back(age); }
+    public double close(int age) { return closes.back(age); }
+    public double volume(int age) { return volumes.back(age); }
+    public long tradeCount(int age) { return tradeCounts.back(age); }
+
+    /**
+     * ATR as of the close of the bar {@code age} bars ago, 0 while seeding.
+     */
+    public double atr(int age) { return atrs.back(age); }
+
+    // Indicators as of the newest closed bar
+
+    /**
+     * Average true range over {@link #ATR_PERIOD} bars, 0 until that many
+     * bars have closed.
+     */
+    public double getAtr() {
+        return atr;
+    }
+
+    public double getBollingerMiddle() {
+        return closes.size() < BOLLINGER_PERIOD ? 0 : closeWindow.mean;
+    }
+
+    public double getBollingerUpper() {
+        return getBollingerMiddle() + BOLLINGER_MULTIPLIER * Math.sqrt(closeWindow.variance());
+    }
+
+    public double getBollingerLower() {
+        return getBollingerMiddle() - BOLLINGER_MULTIPLIER * Math.sqrt(closeWindow.variance());
+    }
+
+    /**
+     * (Upper Band - Lower Band) / Middle Band
+     */
+    public double getBollingerWidth() {
+        double middle = getBollingerMiddle();
+        if (middle == 0) return 0;
+        return 2 * BOLLINGER_MULTIPLIER * Math.sqrt(closeWindow.variance()) / middle;
+    }
+
+    /**
+     * Annualized standard deviation of log returns over
+     * {@link #VOLATILITY_PERIOD} bars. Tick and volume bars have no fixed
+     * length, so they are annualized by the average bar length in the window.
+     */
+    public double getHistoricalVolatility() {
+        if (logReturns.size() < VOLATILITY_PERIOD) return 0;
+
+        double barMillis = size;
+        if (type != Type.TIME) {
+            barMillis = (double) (endTimes.back(0) - endTimes.back(VOLATILITY_PERIOD)) / VOLATILITY_PERIOD;
+            if (barMillis <= 0) return 0;
+        }
+        return Math.sqrt(returnWindow.variance() * MILLIS_PER_YEAR / barMillis);
+    }
+
+    // The bar being built; for coarser time bars it excludes the forming finer bar
+
+    public boolean isForming() { return forming; }
+    public long getFormingStart() { return formingStart; }
+    public double getFormingOpen() { return formingOpen; }
+    public double getFormingHigh() { return formingHigh; }
+    public double getFormingLow() { return formingLow; }
+    public double getFormingClose() { return formingClose; }
+    public double getFormingVolume() { return formingVolume; }
+    public long getFormingTradeCount() { return formingTrades; }
+
+    // Getters
+    public Type getType() { return type; }
+    public double getSize() { return size; }
+    public int getCapacity() { return capacity; }
+    public int size() { return closes.size(); }
+
+    /**
+     * Total number of bars ever closed, including ones no longer retained.
+     */
+    public long closedCount() { return closes.pushedCount(); }
+}
@@ -0,0 +1,153 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads depth snapshots from Binance's {@code /api/v3/depth} REST endpoint.
+ *
+ * While recording, each response body is also written to a
+ * {@link FrameJournal} under {@link FrameJournal#SNAPSHOT_STREAM_ID} as the
+ * lowercase symbol, a newline and the body, so {@link ReplaySource} can sync
+ * books without the network.
+ */
+public class BinanceDepthSnapshotSource implements DepthSnapshotSource {
+
+    public static final String DEFAULT_BASE_URL = "https://api.binance.com";
+    public static final int DEFAULT_LIMIT = 1000;
+
+    // Set -Dvisualizer.restUrl=http://localhost:<port> to use e.g. an ExchangeSimulator
+    public static final String BASE_URL_PROPERTY = "visualizer.restUrl";
+
+    private final OkHttpClient client;
+    private final JsonFactory factory = new JsonFactory();
+    private final String baseUrl;
+    private final int limit;
+    private volatile FrameJournal journal;
+
+    public BinanceDepthSnapshotSource() {
+        this(SharedClients.httpClient(), configuredBaseUrl(), DEFAULT_LIMIT);
+    }
+
+    public BinanceDepthSnapshotSource(OkHttpClient client, String baseUrl, int limit) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.limit = limit;
+    }
+
+    /**
+     * REST endpoint from {@link #BASE_URL_PROPERTY}, or Binance's.
+     */
+    public static String configuredBaseUrl() {
+        return System.getProperty(BASE_URL_PROPERTY, DEFAULT_BASE_URL);
+    }
+
+    @Override
+    public DepthSnapshot fetchSnapshot(TradingPair tradingPair) throws IOException {
+        String url = baseUrl + "/api/v3/depth?symbol=" + tradingPair.getSymbol().toUpperCase() + "&limit=" + limit;
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Depth snapshot request failed with HTTP " + response.code() + ": " + url);
+            }
+            FrameJournal recorder = journal;
+            if (recorder == null) {
+                try (JsonParser parser = factory.createParser(body.byteStream())) {
+                    return parse(parser, tradingPair.getPriceScale(), tradingPair.getQuantityScale());
+                }
+            }
+
+            byte[] bytes = body.bytes();
+            record(recorder, tradingPair, bytes);
+            try (JsonParser parser = factory.createParser(bytes)) {
+                return parse(parser, tradingPair.getPriceScale(), tradingPair.getQuantityScale());
+            }
+        }
+    }
+
+    /**
+     * Records every snapshot fetched from now on; null stops recording.
+     */
+    public void record(FrameJournal journal) {
+        this.journal = journal;
+    }
+
+    private static void record(FrameJournal journal, TradingPair tradingPair, byte[] body) {
+        byte[] symbol = tradingPair.getSymbol().getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[symbol.length + 1 + body.length];
+        System.arraycopy(symbol, 0, frame, 0, symbol.length);
+        frame[symbol.length] = '\n';
+        System.arraycopy(body, 0, frame, symbol.length + 1, body.length);
+        // Written by the recording pipeline's thread, never contending with it
+        journal.offer(FrameJournal.SNAPSHOT_STREAM_ID, System.nanoTime(), frame);
+    }
+
+    /**
+     * Parses {"lastUpdateId":..., "bids":[["price","qty"],...], "asks":[...]}.
+     */
+    static DepthSnapshot parse(JsonParser parser, int priceScale, int quantityScale) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Depth snapshot is not a JSON object");
+        }
+
+        DepthSnapshot.Builder builder = new DepthSnapshot.Builder();
+        boolean sawUpdateId = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "lastUpdateId" -> {
+                    builder.lastUpdateId(parser.getLongValue());
+                    sawUpdateId = true;
+                }
+                case "bids" -> readLevels(parser, builder, true, priceScale, quantityScale);
+                case "asks" -> readLevels(parser, builder, false, priceScale, quantityScale);
+                default -> {
+                    if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        if (!sawUpdateId) {
+            throw new IOException("Depth snapshot has no lastUpdateId");
+        }
+        return builder.build();
+    }
+
+    private static void readLevels(JsonParser parser, DepthSnapshot.Builder builder, boolean bid,
+                                   int priceScale, int quantityScale) throws IOException {
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            long price = FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength(), priceScale);
+
+            parser.nextToken();
+            long quantity = FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength(), quantityScale);
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+
+            if (quantity != 0) {
+                builder.add(bid, price, quantity);
+            }
+        }
+    }
+}
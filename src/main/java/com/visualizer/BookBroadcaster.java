@@ -0,0 +1,448 @@
+package com.visualizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes top-N deltas of a set of books to many subscribers without letting
+ * a slow one hold up the others or the book shards.
+ *
+ * Shard threads only flag a book as changed. One publisher thread reads each
+ * changed book, encodes the update once with a {@link BookDeltaEncoder} and
+ * offers the same array to every subscriber of the book. Each subscriber has
+ * a bounded queue, drained by a task on a shared writer pool whenever it has
+ * messages; an idle subscriber holds no thread. When the queue is full
+ * the subscriber is conflated: its backlog is dropped and replaced by one
+ * snapshot of each of its books, which brings it to the latest state with at
+ * most a queue's worth of memory. Snapshots are likewise encoded once per
+ * book version and shared.
+ */
+public class BookBroadcaster implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(BookBroadcaster.class.getName());
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Where a subscriber's messages go, e.g. a WebSocket. {@link #write} and
+     * {@link #flush} are called by one writer task at a time, though not
+     * always on the same thread.
+     */
+    public interface Sink {
+        /** Writes one message, possibly buffered. */
+        void write(byte[] message) throws IOException;
+
+        /** Called when the queue runs empty. */
+        void flush() throws IOException;
+
+        /**
+         * Called once when the subscriber ends. May be called from any thread,
+         * while a write or flush is blocked in another, and must make it
+         * return, e.g. by closing the socket.
+         */
+        void close();
+    }
+
+    private final int depth;
+    private final int queueCapacity;
+
+    // By symbol; books are added before start()
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+
+    private final Thread publisherThread;
+    private final ExecutorService writers;
+    private volatile boolean running = false;
+    private volatile boolean publisherParked = false;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+    private long nextRateSample = System.nanoTime();
+
+    // Counters
+    private final AtomicLong updatesEncoded = new AtomicLong();
+    private final AtomicLong snapshotsEncoded = new AtomicLong();
+    private final AtomicLong bytesEncoded = new AtomicLong();
+    private final AtomicLong conflations = new AtomicLong();
+
+    /**
+     * @param depth         levels per side sent to subscribers
+     * @param queueCapacity messages a subscriber may fall behind by before it
+     *                      is conflated
+     */
+    public BookBroadcaster(int depth, int queueCapacity) {
+        this(depth, queueCapacity, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param writers runs the subscribers' writer tasks, e.g. a virtual thread
+     *                per task; a task may block on a slow sink. Shut down by
+     *                {@link #close()}.
+     */
+    public BookBroadcaster(int depth, int queueCapacity, ExecutorService writers) {
+        if (queueCapacity < 2) {
+            throw new IllegalArgumentException("Queue capacity must be at least 2: " + queueCapacity);
+        }
+        this.depth = depth;
+        this.queueCapacity = queueCapacity;
+        this.writers = writers;
+        this.publisherThread = new Thread(this::publishLoop, "broadcast-publisher");
+        this.publisherThread.setDaemon(true);
+    }
+
+    /**
+     * Broadcasts a book. Takes over its update listener.
+     */
+    public synchronized void add(OrderBookHandler handler) {
+        if (running) {
+            throw new IllegalStateException("Books must be added before start()");
+        }
+        Channel channel = new Channel(handler, new BookDeltaEncoder(handler.getTradingPair(), depth));
+        channels.put(handler.getTradingPair().getSymbol(), channel);
+        handler.setUpdateListener(book -> onBookUpdated(channel));
+    }
+
+    public synchronized void start() {
+        running = true;
+        publisherThread.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(publisherThread);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        writers.shutdown();
+    }
+
+    /**
+     * Starts sending the given books to a sink: first a snapshot of each,
+     * then updates.
+     *
+     * @param name    unique label for the subscriber's metrics
+     * @param symbols symbols of added books
+     * @throws IllegalArgumentException if a symbol was never added
+     */
+    public Subscriber subscribe(String name, List<String> symbols, Sink sink) {
+        List<Channel> wanted = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            Channel channel = channels.get(symbol);
+            if (channel == null) {
+                throw new IllegalArgumentException("Unknown symbol " + symbol);
+            }
+            wanted.add(channel);
+        }
+
+        // Room for a full set of snapshots plus the update that overflowed
+        int capacity = Math.max(queueCapacity, wanted.size() + 1);
+        Subscriber subscriber = new Subscriber(name, List.copyOf(wanted), capacity, sink);
+        subscribers.add(subscriber);
+        joining.add(subscriber);
+        LockSupport.unpark(publisherThread);
+        return subscriber;
+    }
+
+    /**
+     * Stops a subscriber and closes its sink; safe to call more than once and
+     * from any thread.
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+    }
+
+    // Shard threads: flag the book and wake the publisher
+    private void onBookUpdated(Channel channel) {
+        channel.dirty.set(true);
+        if (publisherParked) {
+            LockSupport.unpark(publisherThread);
+        }
+    }
+
+    private void publishLoop() {
+        while (running) {
+            boolean busy = admitSubscribers();
+            for (Channel channel : channels.values()) {
+                if (channel.dirty.getAndSet(false)) {
+                    publish(channel);
+                    busy = true;
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - nextRateSample >= 0) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.sampleRate(now);
+                }
+                nextRateSample = now + RATE_INTERVAL_NANOS;
+            }
+
+            if (!busy) {
+                publisherParked = true;
+                // Re-check after announcing; a late wakeup only costs one idle pass
+                if (joining.isEmpty() && !anyDirty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                publisherParked = false;
+            }
+        }
+    }
+
+    private boolean anyDirty() {
+        for (Channel channel : channels.values()) {
+            if (channel.dirty.get()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Publisher thread: new subscribers start from the state the next update applies to
+    private boolean admitSubscribers() {
+        boolean admitted = false;
+        Subscriber subscriber;
+        while ((subscriber = joining.poll()) != null) {
+            admitted = true;
+            if (subscriber.closed.get()) {
+                continue;
+            }
+            for (Channel channel : subscriber.channels) {
+                subscriber.offer(channel.snapshot(this), true);
+                channel.subscribers.add(subscriber);
+            }
+        }
+        return admitted;
+    }
+
+    // Publisher thread
+    private void publish(Channel channel) {
+        if (!channel.encoder.advance(channel.handler.getSnapshots())) {
+            return;
+        }
+        channel.subscribers.removeIf(subscriber -> subscriber.closed.get());
+        if (channel.subscribers.isEmpty()) {
+            return;
+        }
+
+        // Losing or regaining sync replaces the whole book, so resend it whole
+        boolean whole = channel.encoder.isSyncChanged();
+        byte[] message = whole ? channel.snapshot(this) : channel.encoder.encodeUpdate();
+        if (message == null) {
+            return;
+        }
+        if (!whole) {
+            updatesEncoded.incrementAndGet();
+            bytesEncoded.addAndGet(message.length);
+        }
+
+        for (Subscriber subscriber : channel.subscribers) {
+            if (!subscriber.offer(message, whole)) {
+                conflate(subscriber);
+            }
+        }
+    }
+
+    // Publisher thread: replaces a full backlog with the latest state of each book
+    private void conflate(Subscriber subscriber) {
+        subscriber.queue.clear();
+        subscriber.conflations.incrementAndGet();
+        conflations.incrementAndGet();
+        for (Channel channel : subscriber.channels) {
+            subscriber.offer(channel.snapshot(this), true);
+        }
+        if (subscriber.conflations.get() == 1) {
+            LOGGER.info("🐢 Subscriber " + subscriber.name + " fell " + subscriber.queueCapacity
+                    + " messages behind; conflating to snapshots");
+        }
+    }
+
+    // Getters
+    public int getDepth() { return depth; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public List<Subscriber> getSubscribers() { return subscribers; }
+    public int getSubscriberCount() { return subscribers.size(); }
+    public long getUpdatesEncodedCount() { return updatesEncoded.get(); }
+    public long getSnapshotsEncodedCount() { return snapshotsEncoded.get(); }
+    public long getBytesEncodedCount() { return bytesEncoded.get(); }
+    public long getConflationCount() { return conflations.get(); }
+
+    /**
+     * One book with its encoder and subscribers.
+     */
+    private static final class Channel {
+        final OrderBookHandler handler;
+        final BookDeltaEncoder encoder;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Publisher thread only
+        final List<Subscriber> subscribers = new ArrayList<>();
+        private byte[] snapshot;
+        private long snapshotVersion = -1;
+
+        Channel(OrderBookHandler handler, BookDeltaEncoder encoder) {
+            this.handler = handler;
+            this.encoder = encoder;
+        }
+
+        // Publisher thread: the encoder's current state, encoded at most once per version
+        byte[] snapshot(BookBroadcaster broadcaster) {
+            long version = encoder.getCurrent().getVersion();
+            if (snapshot == null || snapshotVersion != version) {
+                snapshot = encoder.encodeSnapshot();
+                snapshotVersion = version;
+                broadcaster.snapshotsEncoded.incrementAndGet();
+                broadcaster.bytesEncoded.addAndGet(snapshot.length);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * One downstream consumer with its own bounded queue. A writer task is
+     * submitted when a message arrives and no task is pending, and drains the
+     * queue before returning its thread to the pool.
+     */
+    public final class Subscriber {
+        private final String name;
+        private final List<Channel> channels;
+        private final int queueCapacity;
+        private final BlockingQueue<byte[]> queue;
+        private final Sink sink;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Set while a writer task is submitted or running
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Written by the publisher thread
+        private volatile long maxQueueDepth = 0;
+        private volatile double bytesPerSecond = 0;
+        private long rateBytes = 0;
+        private long rateNanos = System.nanoTime();
+
+        // Counters
+        private final AtomicLong conflations = new AtomicLong();
+        private final AtomicLong updatesQueued = new AtomicLong();
+        private final AtomicLong snapshotsQueued = new AtomicLong();
+        private final AtomicLong messagesSent = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+
+        private Subscriber(String name, List<Channel> channels, int queueCapacity, Sink sink) {
+            this.name = name;
+            this.channels = channels;
+            this.queueCapacity = queueCapacity;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.sink = sink;
+        }
+
+        // Publisher thread; never blocks
+        private boolean offer(byte[] message, boolean snapshot) {
+            if (!queue.offer(message)) {
+                return false;
+            }
+            (snapshot ? snapshotsQueued : updatesQueued).incrementAndGet();
+            int depth = queue.size();
+            if (depth > maxQueueDepth) {
+                maxQueueDepth = depth;
+            }
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Only after the broadcaster is closed
+                scheduled.set(false);
+                close();
+            }
+        }
+
+        // Publisher thread, once a second
+        private void sampleRate(long now) {
+            long bytes = bytesSent.get();
+            bytesPerSecond = (bytes - rateBytes) * (double) RATE_INTERVAL_NANOS / Math.max(1, now - rateNanos);
+            rateBytes = bytes;
+            rateNanos = now;
+        }
+
+        // Writer task: batches whatever is queued into one flush
+        private void drain() {
+            try {
+                boolean written = false;
+                byte[] message;
+                while (!closed.get() && (message = queue.poll()) != null) {
+                    sink.write(message);
+                    messagesSent.incrementAndGet();
+                    bytesSent.addAndGet(message.length);
+                    written = true;
+                }
+                if (written && !closed.get()) {
+                    sink.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Subscriber " + name + " write failed", e);
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            // A message offered after the last poll saw the task still scheduled
+            if (!closed.get() && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                queue.clear();
+                sink.close();
+            }
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public boolean isClosed() { return closed.get(); }
+        public int getQueueCapacity() { return queueCapacity; }
+        public int getQueueDepth() { return queue.size(); }
+        public long getMaxQueueDepth() { return maxQueueDepth; }
+        public double getBytesPerSecond() { return bytesPerSecond; }
+        public long getConflationCount() { return conflations.get(); }
+        public long getUpdatesQueuedCount() { return updatesQueued.get(); }
+        public long getSnapshotsQueuedCount() { return snapshotsQueued.get(); }
+        public long getMessagesSentCount() { return messagesSent.get(); }
+        public long getBytesSentCount() { return bytesSent.get(); }
+
+        public List<String> getSymbols() {
+            List<String> symbols = new ArrayList<>(channels.size());
+            for (Channel channel : channels) {
+                symbols.add(channel.handler.getTradingPair().getSymbol());
+            }
+            return symbols;
+        }
+    }
+}
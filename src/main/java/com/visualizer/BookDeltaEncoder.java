@@ -0,0 +1,155 @@
+package com.visualizer;
+
+/**
+ * Turns successive top-N snapshots of one book into JSON messages for
+ * downstream clients: the full top N, or only the levels that changed since
+ * the previous snapshot.
+ *
+ * Prices and quantities are decimal strings, as on Binance. In an update a
+ * zero quantity removes the level, which includes levels that merely fell
+ * out of the top N, so a client applying every update mirrors the top N
+ * exactly. Messages look like
+ * {@code {"type":"update","symbol":"btcusdt","u":42,"E":1700000000000,"synced":true,"bids":[["65000.01","0.5"]],"asks":[]}}.
+ *
+ * Single-threaded; each message is a new array, safe to share between
+ * clients.
+ */
+public class BookDeltaEncoder {
+
+    private final TradingPair tradingPair;
+    private final int depth;
+
+    // What clients were last told, and what they are told next
+    private BookSnapshot previous;
+    private BookSnapshot current;
+    private final StringBuilder json = new StringBuilder(4096);
+
+    /**
+     * @param depth levels per side sent to clients
+     */
+    public BookDeltaEncoder(TradingPair tradingPair, int depth) {
+        this.tradingPair = tradingPair;
+        this.depth = depth;
+        this.previous = new BookSnapshot(depth);
+        this.current = new BookSnapshot(depth);
+    }
+
+    /**
+     * Moves on to the latest snapshot of the book.
+     *
+     * @return false if nothing was published since the last call
+     */
+    public boolean advance(BookSnapshotPublisher publisher) {
+        if (publisher.getVersion() == current.getVersion()) {
+            return false;
+        }
+        BookSnapshot older = previous;
+        previous = current;
+        current = older;
+        publisher.read(current);
+        return true;
+    }
+
+    /**
+     * True if the book went in or out of sync with the last {@link #advance}.
+     */
+    public boolean isSyncChanged() {
+        return current.isSynced() != previous.isSynced();
+    }
+
+    /**
+     * The current top N as a snapshot message.
+     */
+    public byte[] encodeSnapshot() {
+        begin("snapshot");
+        appendSide(true);
+        json.append("],\"asks\":[");
+        appendSide(false);
+        return end();
+    }
+
+    /**
+     * The levels that changed with the last {@link #advance} as an update
+     * message, or null if the top N is unchanged.
+     */
+    public byte[] encodeUpdate() {
+        begin("update");
+        int changes = appendChanges(true);
+        json.append("],\"asks\":[");
+        changes += appendChanges(false);
+        return changes == 0 ? null : end();
+    }
+
+    private void begin(String type) {
+        json.setLength(0);
+        json.append("{\"type\":\"").append(type)
+                .append("\",\"symbol\":\"").append(tradingPair.getSymbol())
+                .append("\",\"u\":").append(current.getLastUpdateId())
+                .append(",\"E\":").append(current.getEventTime())
+                .append(",\"synced\":").append(current.isSynced())
+                .append(",\"bids\":[");
+    }
+
+    private byte[] end() {
+        json.append("]}");
+        // Everything written is ASCII
+        byte[] message = new byte[json.length()];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) json.charAt(i);
+        }
+        return message;
+    }
+
+    private void appendSide(boolean bid) {
+        for (int i = 0; i < current.count(bid); i++) {
+            appendLevel(i, current.price(bid, i), current.quantity(bid, i));
+        }
+    }
+
+    // Walks both sides best first, like a merge of two sorted lists
+    private int appendChanges(boolean bid) {
+        int before = previous.count(bid);
+        int after = current.count(bid);
+        int i = 0;
+        int j = 0;
+        int changes = 0;
+        while (i < before || j < after) {
+            int order = i == before ? 1 : j == after ? -1
+                    : compare(bid, previous.price(bid, i), current.price(bid, j));
+            if (order < 0) {
+                // Only in the previous top N: gone
+                appendLevel(changes++, previous.price(bid, i++), 0);
+            } else if (order > 0) {
+                appendLevel(changes++, current.price(bid, j), current.quantity(bid, j++));
+            } else {
+                if (previous.quantity(bid, i) != current.quantity(bid, j)) {
+                    appendLevel(changes++, current.price(bid, j), current.quantity(bid, j));
+                }
+                i++;
+                j++;
+            }
+        }
+        return changes;
+    }
+
+    // Negative if price a comes first on its side
+    private static int compare(boolean bid, long a, long b) {
+        return bid ? Long.compare(b, a) : Long.compare(a, b);
+    }
+
+    private void appendLevel(int index, long price, long quantity) {
+        if (index > 0) {
+            json.append(',');
+        }
+        json.append("[\"");
+        FixedPoint.append(json, price, tradingPair.getPriceScale());
+        json.append("\",\"");
+        FixedPoint.append(json, quantity, tradingPair.getQuantityScale());
+        json.append("\"]");
+    }
+
+    // Getters
+    public TradingPair getTradingPair() { return tradingPair; }
+    public int getDepth() { return depth; }
+    public BookSnapshot getCurrent() { return current; }
+}
@@ -0,0 +1,208 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Owns one order book per trading pair and spreads the books over a fixed
+ * set of shards, one per core by default.
+ *
+ * Each shard is an {@link IngestPipeline} with its own ring and consumer
+ * thread. A pair's depth frames are copied into its shard's ring and applied
+ * on that shard's thread only, so every book has a single writer and no
+ * locks, and shards share nothing but the snapshot source.
+ *
+ * New pairs go to the shard with the fewest books. The rings are
+ * single-producer: all {@link ManagedBook}s must be fed from one thread, e.g.
+ * the routing thread of one {@link CombinedStreamClient}.
+ */
+public class BookManager {
+    private static final Logger LOGGER = Logger.getLogger(BookManager.class.getName());
+
+    public static final int SHARD_RING_CAPACITY = 1024 * 1024;
+
+    private final Shard[] shards;
+    private final DepthSnapshotSource snapshotSource;
+    private final Map<String, ManagedBook> books = new ConcurrentHashMap<>();
+
+    public BookManager() {
+        this(Runtime.getRuntime().availableProcessors(), new BinanceDepthSnapshotSource(),
+                IngestPipeline.WaitStrategy.BACKOFF);
+    }
+
+    public BookManager(int shardCount, DepthSnapshotSource snapshotSource,
+                       IngestPipeline.WaitStrategy waitStrategy) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.snapshotSource = snapshotSource;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, new IngestPipeline("book-shard-" + i, SHARD_RING_CAPACITY, waitStrategy));
+            shards[i].pipeline.setPollTask(shards[i]::flushSnapshots);
+        }
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            shard.pipeline.start();
+        }
+        LOGGER.info("🚀 Book manager started with " + shards.length + " shards");
+    }
+
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.pipeline.stop();
+        }
+    }
+
+    /**
+     * Returns the book of a pair, creating it on the least loaded shard if
+     * needed. Subscribe the returned book to the pair's depth stream.
+     */
+    public synchronized ManagedBook add(TradingPair tradingPair) {
+        ManagedBook existing = books.get(tradingPair.getSymbol());
+        if (existing != null) {
+            return existing;
+        }
+
+        Shard shard = shards[0];
+        for (Shard candidate : shards) {
+            if (candidate.books.get() < shard.books.get()) {
+                shard = candidate;
+            }
+        }
+
+        OrderBookHandler handler = new OrderBookHandler(tradingPair, new LadderOrderBook(), snapshotSource);
+        ManagedBook book = new ManagedBook(handler, shard);
+        books.put(tradingPair.getSymbol(), book);
+        shard.books.incrementAndGet();
+        shard.handlers.add(handler);
+        return book;
+    }
+
+    /**
+     * Drops the book of a pair. Frames already queued for it are discarded.
+     */
+    public synchronized void remove(TradingPair tradingPair) {
+        ManagedBook book = books.remove(tradingPair.getSymbol());
+        if (book != null) {
+            book.shard.pipeline.unregister(book.tag);
+            book.shard.books.decrementAndGet();
+            book.shard.handlers.remove(book.handler);
+        }
+    }
+
+    /**
+     * Looks up a book by lowercase symbol, e.g. "btcusdt".
+     */
+    public ManagedBook get(String symbol) {
+        return books.get(symbol);
+    }
+
+    public List<ManagedBook> getBooks() {
+        return new ArrayList<>(books.values());
+    }
+
+    // Getters
+    public int getShardCount() { return shards.length; }
+    public Shard getShard(int index) { return shards[index]; }
+    public int getBookCount() { return books.size(); }
+
+    /**
+     * One book, fed as a {@link WebSocketHandler}: frames are queued on the
+     * book's shard and applied there.
+     */
+    public static final class ManagedBook implements WebSocketHandler {
+        private final OrderBookHandler handler;
+        private final Shard shard;
+        private final int tag;
+
+        private ManagedBook(OrderBookHandler handler, Shard shard) {
+            this.handler = handler;
+            this.shard = shard;
+            this.tag = shard.pipeline.register(
+                    (buffer, offset, length, receivedNanos) -> shard.apply(handler, buffer, offset, length, receivedNanos));
+        }
+
+        @Override
+        public void handleMessage(String json, ObjectMapper mapper) {
+            shard.pipeline.publish(tag, json);
+        }
+
+        @Override
+        public void handleMessage(byte[] buffer, int offset, int length, ObjectMapper mapper) {
+            shard.pipeline.publish(tag, buffer, offset, length);
+        }
+
+        @Override
+        public void handleMessage(byte[] buffer, int offset, int length, long receivedNanos, ObjectMapper mapper) {
+            // Keep the socket's stamp so queueing on the shard counts towards the frame's latency
+            shard.pipeline.publish(tag, buffer, offset, length, receivedNanos == 0 ? System.nanoTime() : receivedNanos);
+        }
+
+        public OrderBookHandler getHandler() { return handler; }
+        public TradingPair getTradingPair() { return handler.getTradingPair(); }
+        public int getShardIndex() { return shard.index; }
+    }
+
+    /**
+     * A consumer thread and the books it writes, with its load counters.
+     */
+    public static final class Shard {
+        private final int index;
+        private final IngestPipeline pipeline;
+        private final ObjectMapper mapper = SharedClients.objectMapper();
+
+        // Books on this shard, for flushing snapshots held back between frames
+        private final CopyOnWriteArrayList<OrderBookHandler> handlers = new CopyOnWriteArrayList<>();
+
+        // Counters
+        private final AtomicLong books = new AtomicLong();
+        private final AtomicLong appliedFrames = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final long startedNanos = System.nanoTime();
+
+        private Shard(int index, IngestPipeline pipeline) {
+            this.index = index;
+            this.pipeline = pipeline;
+        }
+
+        // Shard thread, after every poll
+        private void flushSnapshots() {
+            for (OrderBookHandler handler : handlers) {
+                handler.flushSnapshots(false);
+            }
+        }
+
+        // Shard thread
+        private void apply(OrderBookHandler handler, byte[] buffer, int offset, int length, long receivedNanos) {
+            long start = System.nanoTime();
+            handler.handleMessage(buffer, offset, length, receivedNanos, mapper);
+            busyNanos.addAndGet(System.nanoTime() - start);
+            appliedFrames.incrementAndGet();
+        }
+
+        // Getters
+        public int getIndex() { return index; }
+        public IngestPipeline getPipeline() { return pipeline; }
+        public long getBookCount() { return books.get(); }
+        public long getAppliedFrameCount() { return appliedFrames.get(); }
+        public long getBusyNanos() { return busyNanos.get(); }
+
+        /**
+         * Share of wall time since creation the shard thread spent applying frames.
+         */
+        public double getUtilization() {
+            long elapsed = System.nanoTime() - startedNanos;
+            return elapsed <= 0 ? 0 : (double) busyNanos.get() / elapsed;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.visualizer;
+
+/**
+ * Top-N view of an order book at one point in the update sequence.
+ *
+ * Levels are scaled longs (see {@link FixedPoint}), best first. The snapshot
+ * also records the id of the last diff applied to the book, the event time
+ * of that diff, the version of the publication it was copied from and, while
+ * latency tracking is on, the {@link System#nanoTime()} it was published at.
+ *
+ * Instances are mutable and reused: each reader owns its own snapshot and
+ * refills it with {@link BookSnapshotPublisher#read}.
+ */
+public class BookSnapshot {
+
+    private final int capacity;
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final long[] askPrices;
+    private final long[] askQuantities;
+    private int bidCount;
+    private int askCount;
+
+    private boolean synced;
+    private long lastUpdateId;
+    private long eventTime;
+    private long version;
+    private long publishedNanos;
+
+    /**
+     * @param capacity maximum levels kept per side
+     */
+    public BookSnapshot(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Snapshot capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.bidPrices = new long[capacity];
+        this.bidQuantities = new long[capacity];
+        this.askPrices = new long[capacity];
+        this.askQuantities = new long[capacity];
+    }
+
+    /**
+     * Fills this snapshot from the book. Writer side, under the publisher's lock.
+     */
+    void capture(OrderBook book, boolean synced, long lastUpdateId, long eventTime, long version,
+                 long publishedNanos) {
+        this.synced = synced;
+        this.lastUpdateId = lastUpdateId;
+        this.eventTime = eventTime;
+        this.version = version;
+        this.publishedNanos = publishedNanos;
+        if (synced) {
+            bidCount = book.top(true, capacity, bidPrices, bidQuantities);
+            askCount = book.top(false, capacity, askPrices, askQuantities);
+        } else {
+            bidCount = 0;
+            askCount = 0;
+        }
+    }
+
+    /**
+     * Copies another snapshot, truncating to this one's capacity.
+     *
+     * The source may be written concurrently (the caller validates afterwards),
+     * so counts are clamped before they are used as array bounds.
+     */
+    void copyFrom(BookSnapshot source) {
+        synced = source.synced;
+        lastUpdateId = source.lastUpdateId;
+        eventTime = source.eventTime;
+        version = source.version;
+        publishedNanos = source.publishedNanos;
+
+        bidCount = clamp(source.bidCount, Math.min(capacity, source.capacity));
+        askCount = clamp(source.askCount, Math.min(capacity, source.capacity));
+        System.arraycopy(source.bidPrices, 0, bidPrices, 0, bidCount);
+        System.arraycopy(source.bidQuantities, 0, bidQuantities, 0, bidCount);
+        System.arraycopy(source.askPrices, 0, askPrices, 0, askCount);
+        System.arraycopy(source.askQuantities, 0, askQuantities, 0, askCount);
+    }
+
+    private static int clamp(int count, int max) {
+        return count < 0 ? 0 : Math.min(count, max);
+    }
+
+    public int count(boolean bid) {
+        return bid ? bidCount : askCount;
+    }
+
+    public long price(boolean bid, int level) {
+        return bid ? bidPrices[level] : askPrices[level];
+    }
+
+    public long quantity(boolean bid, int level) {
+        return bid ? bidQuantities[level] : askQuantities[level];
+    }
+
+    /**
+     * Highest bid or lowest ask, or 0 when the side is empty.
+     */
+    public long bestPrice(boolean bid) {
+        return count(bid) == 0 ? 0 : price(bid, 0);
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public boolean isSynced() { return synced; }
+    public long getLastUpdateId() { return lastUpdateId; }
+    public long getEventTime() { return eventTime; }
+    public long getVersion() { return version; }
+
+    /**
+     * When the snapshot was published, or 0 if latency tracking was off.
+     */
+    public long getPublishedNanos() { return publishedNanos; }
+
+    @Override
+    public String toString() {
+        return "BookSnapshot{" +
+                "version=" + version +
+                ", lastUpdateId=" + lastUpdateId +
+                ", eventTime=" + eventTime +
+                ", bids=" + bidCount +
+                ", asks=" + askCount +
+                '}';
+    }
+}
@@ -0,0 +1,188 @@
+package com.visualizer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Publishes top-N {@link BookSnapshot}s from the ingest thread to any number
+ * of readers without making either side wait on the other.
+ *
+ * This is a seqlock built on {@link StampedLock}: the single writer copies
+ * the top of the book into a shared snapshot under the write lock, and
+ * readers copy that snapshot into their own with an optimistic read,
+ * retrying if a write overlapped the copy. Readers never take a lock, so a
+ * slow reader (the FX thread, a recorder, a network fan-out) cannot stall
+ * the book, and the book never hands out a half-applied state.
+ *
+ * Books publish {@link #DEFAULT_DEPTH} levels per side; whoever needs more,
+ * like the depth chart, raises it with {@link #setDepth} for as long as it
+ * reads the book. A reader that only looks a few dozen times a second can
+ * also cap how often the book is copied with {@link #setMinCaptureInterval}:
+ * publications in between are held back and the latest one is captured by
+ * {@link #flush} once the interval has passed.
+ */
+public class BookSnapshotPublisher {
+
+    public static final int DEFAULT_DEPTH = 100;
+
+    // Matches the depth of the REST snapshot the book starts from
+    public static final int MAX_DEPTH = 1000;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Replaced by the writer when the depth changes
+    private volatile BookSnapshot shared;
+    private volatile int depth;
+
+    // Latest published version, readable without touching the lock
+    private volatile long version;
+
+    // 0 captures on every publish
+    private volatile long minCaptureIntervalNanos;
+
+    // Writer side: the publication held back by the interval, if any
+    private OrderBook pendingBook;
+    private boolean pendingSynced;
+    private long pendingLastUpdateId;
+    private long pendingEventTime;
+    private long lastCaptureNanos;
+
+    // Counters
+    private final AtomicLong readRetries = new AtomicLong();
+    private final AtomicLong deferredPublications = new AtomicLong();
+
+    public BookSnapshotPublisher() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param depth levels published per side
+     */
+    public BookSnapshotPublisher(int depth) {
+        this.shared = new BookSnapshot(depth);
+        this.depth = depth;
+    }
+
+    /**
+     * Changes the levels published per side from the next {@link #publish}
+     * on. Safe to call from any thread.
+     */
+    public void setDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be positive: " + depth);
+        }
+        this.depth = depth;
+    }
+
+    /**
+     * Captures at most one publication per interval from now on; 0 captures
+     * every one. Safe to call from any thread.
+     */
+    public void setMinCaptureInterval(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Capture interval must not be negative: " + nanos);
+        }
+        this.minCaptureIntervalNanos = nanos;
+    }
+
+    /**
+     * Publishes the current top of the book, or holds it back until
+     * {@link #flush} if the last capture was less than the minimum capture
+     * interval ago. Ingest thread only.
+     *
+     * @return true if readers can see this publication now
+     */
+    public boolean publish(OrderBook book, boolean synced, long lastUpdateId, long eventTime) {
+        long interval = minCaptureIntervalNanos;
+        if (interval > 0 && System.nanoTime() - lastCaptureNanos < interval) {
+            pendingBook = book;
+            pendingSynced = synced;
+            pendingLastUpdateId = lastUpdateId;
+            pendingEventTime = eventTime;
+            deferredPublications.incrementAndGet();
+            return false;
+        }
+        capture(book, synced, lastUpdateId, eventTime);
+        return true;
+    }
+
+    /**
+     * Captures the publication held back by the interval, once the interval
+     * has passed or if {@code force} is set. Ingest thread only; call it
+     * whenever the thread is between frames.
+     *
+     * @return true if something was captured
+     */
+    public boolean flush(boolean force) {
+        OrderBook book = pendingBook;
+        if (book == null || (!force && System.nanoTime() - lastCaptureNanos < minCaptureIntervalNanos)) {
+            return false;
+        }
+        capture(book, pendingSynced, pendingLastUpdateId, pendingEventTime);
+        return true;
+    }
+
+    private void capture(OrderBook book, boolean synced, long lastUpdateId, long eventTime) {
+        long next = version + 1;
+        long now = System.nanoTime();
+        long publishedNanos = LatencyMonitor.isEnabled() ? now : 0;
+        int levels = depth;
+        long stamp = lock.writeLock();
+        try {
+            if (shared.getCapacity() != levels) {
+                shared = new BookSnapshot(levels);
+            }
+            shared.capture(book, synced, lastUpdateId, eventTime, next, publishedNanos);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        version = next;
+        pendingBook = null;
+        lastCaptureNanos = now;
+    }
+
+    /**
+     * Copies the latest snapshot into {@code into}, truncated to its capacity.
+     * Safe to call from any thread, concurrently with {@link #publish}.
+     */
+    public void read(BookSnapshot into) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                into.copyFrom(shared);
+                if (lock.validate(stamp)) {
+                    return;
+                }
+            }
+            readRetries.incrementAndGet();
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Reads only if something was published since {@code into} was filled.
+     *
+     * @return true if {@code into} was refreshed
+     */
+    public boolean readIfChanged(BookSnapshot into) {
+        if (version == into.getVersion()) {
+            return false;
+        }
+        read(into);
+        return true;
+    }
+
+    /**
+     * A snapshot sized to hold everything this publisher publishes.
+     */
+    public BookSnapshot newSnapshot() {
+        return new BookSnapshot(getDepth());
+    }
+
+    // Getters
+    public int getDepth() { return depth; }
+    public long getVersion() { return version; }
+    public long getMinCaptureIntervalNanos() { return minCaptureIntervalNanos; }
+    public long getReadRetryCount() { return readRetries.get(); }
+    public long getDeferredPublicationCount() { return deferredPublications.get(); }
+}
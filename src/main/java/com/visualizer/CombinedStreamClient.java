@@ -0,0 +1,531 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One WebSocket carrying many streams through Binance's combined endpoint
+ * ({@code /stream?streams=btcusdt@depth/ethusdt@trade/...}).
+ *
+ * Every frame is wrapped as {"stream":"<name>","data":{...}}. The client
+ * finds the stream name and the bounds of the data object with a byte scan
+ * and hands the data bytes to that stream's handler, so the payload is only
+ * parsed once, by the handler.
+ *
+ * Streams can be subscribed and unsubscribed at any time; once the socket is
+ * open this is done with SUBSCRIBE/UNSUBSCRIBE messages over the live socket.
+ *
+ * With an {@link IngestPipeline} the reader thread only copies frames into the
+ * pipeline's ring, and routing and handlers run on the pipeline's consumer
+ * thread. Without one, everything runs inline on the reader thread.
+ *
+ * A socket that fails or is closed by the server is reopened with capped
+ * exponential backoff until {@link #stop()}. The new URL carries every current
+ * stream, and depth books resync on the sequence gap.
+ */
+public class CombinedStreamClient extends WebSocketListener {
+    private static final Logger LOGGER = Logger.getLogger(CombinedStreamClient.class.getName());
+
+    public static final String DEFAULT_BASE_URL = "wss://stream.binance.com:9443";
+
+    // Set -Dvisualizer.streamUrl=ws://localhost:<port> to use e.g. an ExchangeSimulator
+    public static final String BASE_URL_PROPERTY = "visualizer.streamUrl";
+
+    private static final byte[] STREAM_KEY = "\"stream\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA_KEY = "\"data\":".getBytes(StandardCharsets.US_ASCII);
+
+    static final long MIN_RECONNECT_DELAY_MILLIS = 250;
+    static final long MAX_RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // Shared by every client; reconnects are rare and only call start()
+    private static final ScheduledExecutorService RECONNECTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stream-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OkHttpClient client;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+    private final IngestPipeline pipeline;
+    // Registered by the first start(), before any socket can deliver a frame
+    private int pipelineTag = -1;
+
+    // Guards subscription changes and the socket reference
+    private final Object lock = new Object();
+    private volatile RouteTable routes = RouteTable.EMPTY;
+    private List<String> urlStreams = List.of();
+    private WebSocket webSocket;
+    private volatile boolean isConnected = false;
+    // True from start() until stop(); a lost socket is only reopened while set
+    private boolean isStarted = false;
+    private int failedAttempts = 0;
+    private final AtomicInteger requestId = new AtomicInteger();
+
+    // Only touched by the OkHttp reader thread, when there is no pipeline
+    private byte[] frameBuffer = new byte[16384];
+
+    // Counters
+    private final AtomicLong routedFrames = new AtomicLong();
+    private final AtomicLong unroutedFrames = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+
+    public CombinedStreamClient() {
+        this(SharedClients.httpClient(), SharedClients.objectMapper(), configuredBaseUrl(), null);
+    }
+
+    public CombinedStreamClient(IngestPipeline pipeline) {
+        this(SharedClients.httpClient(), SharedClients.objectMapper(), configuredBaseUrl(), pipeline);
+    }
+
+    public CombinedStreamClient(OkHttpClient client, ObjectMapper mapper, String baseUrl, IngestPipeline pipeline) {
+        this.client = client;
+        this.mapper = mapper;
+        this.baseUrl = baseUrl;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Stream endpoint from {@link #BASE_URL_PROPERTY}, or Binance's.
+     */
+    public static String configuredBaseUrl() {
+        return System.getProperty(BASE_URL_PROPERTY, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Routes a stream to a handler, subscribing over the socket if it is open.
+     */
+    public void subscribe(String stream, WebSocketHandler handler) {
+        synchronized (lock) {
+            boolean isNew = !routes.contains(stream);
+            routes = routes.with(stream, handler);
+            if (isNew && isConnected) {
+                sendControl("SUBSCRIBE", List.of(stream));
+            }
+        }
+    }
+
+    /**
+     * Stops routing a stream and unsubscribes it over the socket if it is open.
+     */
+    public void unsubscribe(String stream) {
+        synchronized (lock) {
+            if (!routes.contains(stream)) {
+                return;
+            }
+            routes = routes.without(stream);
+            if (isConnected) {
+                sendControl("UNSUBSCRIBE", List.of(stream));
+            }
+        }
+    }
+
+    /**
+     * Records every raw frame of this connection, stream wrapper included,
+     * into the journal. Frames are written on the pipeline's consumer thread,
+     * never on the reader thread.
+     */
+    public void record(FrameJournal journal) {
+        if (pipeline == null) {
+            throw new IllegalStateException("Recording " + baseUrl + " needs an ingest pipeline");
+        }
+        pipeline.setJournal(journal);
+    }
+
+    /**
+     * Opens the socket with every stream subscribed so far in the URL.
+     */
+    public void start() {
+        synchronized (lock) {
+            isStarted = true;
+            if (webSocket != null) {
+                LOGGER.fine("⚠️ Combined stream already started on " + baseUrl);
+                return;
+            }
+
+            if (pipeline != null) {
+                if (pipelineTag < 0) {
+                    pipelineTag = pipeline.register(this::route);
+                }
+                pipeline.start();
+            }
+
+            urlStreams = routes.names();
+            String url = baseUrl + "/stream" + (urlStreams.isEmpty() ? "" : "?streams=" + String.join("/", urlStreams));
+
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
+
+            webSocket = client.newWebSocket(request, this);
+        }
+    }
+
+    /**
+     * Closes the socket. Subscriptions are kept for the next {@link #start()}.
+     */
+    public void stop() {
+        synchronized (lock) {
+            isStarted = false;
+            if (webSocket != null) {
+                webSocket.close(1000, "Client closing connection");
+                webSocket = null;
+                if (isConnected) {
+                    disconnects.incrementAndGet();
+                }
+                isConnected = false;
+                LOGGER.info("🔌 Disconnected from " + baseUrl);
+            }
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        synchronized (lock) {
+            if (webSocket != this.webSocket) {
+                return;
+            }
+            isConnected = true;
+            failedAttempts = 0;
+            connects.incrementAndGet();
+
+            // Reconcile with changes made while the socket was connecting
+            List<String> current = routes.names();
+            List<String> added = new ArrayList<>(current);
+            added.removeAll(urlStreams);
+            List<String> removed = new ArrayList<>(urlStreams);
+            removed.removeAll(current);
+
+            if (!added.isEmpty()) {
+                sendControl("SUBSCRIBE", added);
+            }
+            if (!removed.isEmpty()) {
+                sendControl("UNSUBSCRIBE", removed);
+            }
+        }
+        LOGGER.info("✅ Connected to " + baseUrl + " combined stream");
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        if (!isConnected) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.publish(pipelineTag, text);
+        } else {
+            long receivedNanos = System.nanoTime();
+            ensureCapacity(Utf8.maxEncodedLength(text));
+            int length = Utf8.encode(text, frameBuffer, 0);
+            route(frameBuffer, 0, length, receivedNanos);
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, ByteString bytes) {
+        if (!isConnected) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.publish(pipelineTag, bytes);
+        } else {
+            long receivedNanos = System.nanoTime();
+            int length = bytes.size();
+            ensureCapacity(length);
+            bytes.copyInto(0, frameBuffer, 0, length);
+            route(frameBuffer, 0, length, receivedNanos);
+        }
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        // The server is closing, e.g. Binance's daily disconnect; finish the handshake
+        webSocket.close(code, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+        LOGGER.warning("Connection closed: " + reason);
+        connectionLost(webSocket);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+        LOGGER.log(Level.SEVERE, "WebSocket failure", t);
+        connectionLost(webSocket);
+    }
+
+    // Reader thread of the lost socket
+    private void connectionLost(WebSocket lost) {
+        synchronized (lock) {
+            if (lost != webSocket) {
+                // A socket already replaced or stopped
+                return;
+            }
+            if (isConnected) {
+                disconnects.incrementAndGet();
+            }
+            isConnected = false;
+            webSocket = null;
+            if (!isStarted) {
+                return;
+            }
+
+            long delay = reconnectDelayMillis(failedAttempts++);
+            LOGGER.info("🔄 Reconnecting to " + baseUrl + " in " + delay + "ms");
+            RECONNECTS.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reconnect() {
+        synchronized (lock) {
+            if (isStarted && webSocket == null) {
+                start();
+            }
+        }
+    }
+
+    /**
+     * Delay before the given retry: doubling from {@link #MIN_RECONNECT_DELAY_MILLIS}
+     * up to {@link #MAX_RECONNECT_DELAY_MILLIS}.
+     */
+    static long reconnectDelayMillis(int failedAttempts) {
+        return Math.min(MAX_RECONNECT_DELAY_MILLIS, MIN_RECONNECT_DELAY_MILLIS << Math.min(failedAttempts, 16));
+    }
+
+    /**
+     * Finds the stream name and data object in a combined frame and passes the
+     * data bytes to the stream's handler. Also fed by {@link ReplaySource}.
+     *
+     * @param receivedNanos socket receive stamp, or 0 when unknown
+     */
+    void route(byte[] buffer, int offset, int length, long receivedNanos) {
+        int end = offset + length;
+        int keyIndex = indexOf(buffer, offset, end, STREAM_KEY);
+        if (keyIndex < 0) {
+            // Replies to SUBSCRIBE/UNSUBSCRIBE look like {"result":null,"id":1}
+            LOGGER.fine("Control response from combined stream");
+            return;
+        }
+
+        int nameStart = keyIndex + STREAM_KEY.length;
+        int nameEnd = nameStart;
+        int hash = 0;
+        while (nameEnd < end && buffer[nameEnd] != '"') {
+            hash = 31 * hash + (buffer[nameEnd] & 0xff);
+            nameEnd++;
+        }
+
+        Route route = routes.find(buffer, nameStart, nameEnd - nameStart, hash);
+        if (route == null) {
+            unroutedFrames.incrementAndGet();
+            return;
+        }
+
+        int dataKey = indexOf(buffer, nameEnd, end, DATA_KEY);
+        if (dataKey < 0) {
+            unroutedFrames.incrementAndGet();
+            return;
+        }
+
+        int dataStart = dataKey + DATA_KEY.length;
+        while (dataStart < end && isWhitespace(buffer[dataStart])) {
+            dataStart++;
+        }
+
+        // The data object ends right before the wrapper's closing brace
+        int dataEnd = end - 1;
+        while (dataEnd > dataStart && isWhitespace(buffer[dataEnd])) {
+            dataEnd--;
+        }
+        while (dataEnd > dataStart && isWhitespace(buffer[dataEnd - 1])) {
+            dataEnd--;
+        }
+
+        routedFrames.incrementAndGet();
+        route.handler.handleMessage(buffer, dataStart, dataEnd - dataStart, receivedNanos, mapper);
+    }
+
+    private void sendControl(String method, List<String> streams) {
+        if (webSocket == null) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder(64 + streams.size() * 24);
+        message.append("{\"method\":\"").append(method).append("\",\"params\":[");
+        for (int i = 0; i < streams.size(); i++) {
+            if (i > 0) {
+                message.append(',');
+            }
+            message.append('"').append(streams.get(i)).append('"');
+        }
+        message.append("],\"id\":").append(requestId.incrementAndGet()).append('}');
+
+        webSocket.send(message.toString());
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > frameBuffer.length) {
+            frameBuffer = new byte[Math.max(length, frameBuffer.length * 2)];
+        }
+    }
+
+    private static int indexOf(byte[] buffer, int from, int to, byte[] key) {
+        int last = to - key.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < key.length; j++) {
+                if (buffer[i + j] != key[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    // Getters
+    public boolean isConnected() { return isConnected; }
+    public String getBaseUrl() { return baseUrl; }
+    public IngestPipeline getPipeline() { return pipeline; }
+    public List<String> getStreams() { return routes.names(); }
+    public long getRoutedFrameCount() { return routedFrames.get(); }
+    public long getUnroutedFrameCount() { return unroutedFrames.get(); }
+    public long getConnectCount() { return connects.get(); }
+    public long getDisconnectCount() { return disconnects.get(); }
+
+    /**
+     * Connections opened after the first one.
+     */
+    public long getReconnectCount() {
+        return Math.max(0, connects.get() - 1);
+    }
+
+    private static final class Route {
+        final String name;
+        final byte[] nameBytes;
+        final int hash;
+        final WebSocketHandler handler;
+
+        Route(String name, WebSocketHandler handler) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.handler = handler;
+
+            int h = 0;
+            for (byte b : nameBytes) {
+                h = 31 * h + (b & 0xff);
+            }
+            this.hash = h;
+        }
+
+        boolean matches(byte[] buffer, int offset, int length, int hash) {
+            if (this.hash != hash || nameBytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (nameBytes[i] != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Immutable open-addressing table from stream name bytes to route.
+     * Replaced as a whole on every change so the reader thread never locks.
+     */
+    private static final class RouteTable {
+        static final RouteTable EMPTY = new RouteTable(List.of());
+
+        private final List<Route> entries;
+        private final Route[] slots;
+        private final int mask;
+
+        RouteTable(List<Route> entries) {
+            this.entries = entries;
+            int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 4) - 1) << 1;
+            this.slots = new Route[capacity];
+            this.mask = capacity - 1;
+            for (Route route : entries) {
+                int slot = route.hash & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = route;
+            }
+        }
+
+        Route find(byte[] buffer, int offset, int length, int hash) {
+            int slot = hash & mask;
+            Route route;
+            while ((route = slots[slot]) != null) {
+                if (route.matches(buffer, offset, length, hash)) {
+                    return route;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        boolean contains(String name) {
+            for (Route route : entries) {
+                if (route.name.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        RouteTable with(String name, WebSocketHandler handler) {
+            List<Route> updated = new ArrayList<>(entries.size() + 1);
+            for (Route route : entries) {
+                if (!route.name.equals(name)) {
+                    updated.add(route);
+                }
+            }
+            updated.add(new Route(name, handler));
+            return new RouteTable(updated);
+        }
+
+        RouteTable without(String name) {
+            List<Route> updated = new ArrayList<>(entries.size());
+            for (Route route : entries) {
+                if (!route.name.equals(name)) {
+                    updated.add(route);
+                }
+            }
+            return new RouteTable(updated);
+        }
+
+        List<String> names() {
+            List<String> names = new ArrayList<>(entries.size());
+            for (Route route : entries) {
+                names.add(route.name);
+            }
+            return names;
+        }
+    }
+}
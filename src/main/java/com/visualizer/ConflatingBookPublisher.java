@@ -0,0 +1,248 @@
+package com.visualizer;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves order book updates onto the FX thread at most once per frame.
+ *
+ * The ingest thread only raises a dirty flag when the book changes. An
+ * {@link AnimationTimer}, which runs once per JavaFX pulse, checks the flag,
+ * reads the latest {@link BookSnapshot} without locking and refreshes the
+ * tables. However many diffs arrive between two frames, the UI does the work once,
+ * so a burst on the feed can no longer back up the FX event queue.
+ *
+ * Table rows are reused per rank and only written when their level changed,
+ * and the widgets get the frame's snapshot instead of listening to the lists.
+ *
+ * Frames can be further limited to a maximum refresh rate, set with
+ * {@link #MAX_FPS_PROPERTY}.
+ */
+public class ConflatingBookPublisher {
+
+    /**
+     * Called on the FX thread once per rendered frame. The snapshot is reused
+     * for the next frame and must not be kept.
+     */
+    public interface FrameListener {
+        void onFrame(BookSnapshot snapshot, TradingPair tradingPair);
+    }
+
+    public static final int DEFAULT_MAX_FPS = 30;
+    public static final String MAX_FPS_PROPERTY = "visualizer.maxFps";
+
+    // JavaFX pulses at most 60 times a second
+    static final long PULSE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    // Number of levels shown per side in the tables
+    public static final int TOP_LEVELS = 10;
+
+    private final ObservableList<Order> bidOrders;
+    private final ObservableList<Order> askOrders;
+    private final long minFrameIntervalNanos;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onPulse(now);
+        }
+    };
+
+    private volatile OrderBookHandler source;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private long lastFrameNanos;
+
+    // Reused for every frame, FX thread only; the tables show the top, the depth chart all of it
+    private final BookSnapshot frame = new BookSnapshot(BookSnapshotPublisher.MAX_DEPTH);
+
+    private final CopyOnWriteArrayList<FrameListener> frameListeners = new CopyOnWriteArrayList<>();
+
+    // Counters
+    private final AtomicLong updatesReceived = new AtomicLong();
+    private final AtomicLong framesRendered = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private final AtomicLong rowsChanged = new AtomicLong();
+
+    // Time spent rendering each frame, FX thread only
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+
+    public ConflatingBookPublisher(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
+        this(bidOrders, askOrders, DEFAULT_MAX_FPS);
+    }
+
+    /**
+     * @param maxFps upper bound on table refreshes per second; 0 renders on every pulse
+     */
+    public ConflatingBookPublisher(ObservableList<Order> bidOrders, ObservableList<Order> askOrders, int maxFps) {
+        if (maxFps < 0) {
+            throw new IllegalArgumentException("Max refresh rate must not be negative: " + maxFps);
+        }
+        this.bidOrders = bidOrders;
+        this.askOrders = askOrders;
+        this.minFrameIntervalNanos = maxFps == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxFps;
+    }
+
+    /**
+     * Refresh rate from {@link #MAX_FPS_PROPERTY}, or {@link #DEFAULT_MAX_FPS}.
+     */
+    public static int maxFpsFromProperty() {
+        return Integer.getInteger(MAX_FPS_PROPERTY, DEFAULT_MAX_FPS);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public void addFrameListener(FrameListener listener) {
+        frameListeners.add(listener);
+    }
+
+    public void removeFrameListener(FrameListener listener) {
+        frameListeners.remove(listener);
+    }
+
+    /**
+     * Switches the book being shown. FX thread only.
+     *
+     * Only the shown book publishes its full depth for the chart, and no
+     * more often than frames are rendered; the previous one goes back to the
+     * default depth and to publishing every update.
+     */
+    public void setSource(OrderBookHandler handler) {
+        OrderBookHandler previous = source;
+        if (previous != null) {
+            previous.setUpdateListener(null);
+            previous.getSnapshots().setDepth(BookSnapshotPublisher.DEFAULT_DEPTH);
+            previous.getSnapshots().setMinCaptureInterval(0);
+        }
+
+        source = handler;
+        if (handler != null) {
+            handler.getSnapshots().setDepth(BookSnapshotPublisher.MAX_DEPTH);
+            handler.getSnapshots().setMinCaptureInterval(Math.max(minFrameIntervalNanos, PULSE_INTERVAL_NANOS));
+            handler.setUpdateListener(this::onBookUpdated);
+        }
+        // Paint the new book (or the empty one) on the next frame
+        dirty.set(true);
+    }
+
+    // Ingest thread: just flag the change
+    private void onBookUpdated(OrderBookHandler handler) {
+        if (handler == source) {
+            updatesReceived.incrementAndGet();
+            dirty.set(true);
+        }
+    }
+
+    // FX thread, once per pulse
+    private void onPulse(long now) {
+        if (!dirty.get()) {
+            return;
+        }
+        // Pulses jitter around their interval; half a pulse of slack keeps one that is a little
+        // early from being skipped, which would drop a 30 fps cap to 20 on a 60 Hz display
+        if (now - lastFrameNanos < minFrameIntervalNanos - PULSE_INTERVAL_NANOS / 2) {
+            // Over the refresh budget; the update is picked up by a later pulse
+            framesSkipped.incrementAndGet();
+            return;
+        }
+
+        dirty.set(false);
+        lastFrameNanos = now;
+        long startNanos = System.nanoTime();
+
+        OrderBookHandler handler = source;
+        if (handler == null) {
+            bidOrders.clear();
+            askOrders.clear();
+            framesRendered.incrementAndGet();
+            frameTimes.record(System.nanoTime() - startNanos);
+            return;
+        }
+
+        handler.getSnapshots().read(frame);
+        TradingPair pair = handler.getTradingPair();
+        updateRows(bidOrders, true, pair);
+        updateRows(askOrders, false, pair);
+        framesRendered.incrementAndGet();
+
+        for (FrameListener listener : frameListeners) {
+            listener.onFrame(frame, pair);
+        }
+        frameTimes.record(System.nanoTime() - startNanos);
+        recordLatency(handler.getLatency());
+    }
+
+    // Rendered means the tables and widgets were updated for this pulse
+    private void recordLatency(LatencyTracker latency) {
+        long publishedNanos = frame.getPublishedNanos();
+        if (publishedNanos == 0 || !frame.isSynced() || !LatencyMonitor.isEnabled()) {
+            return;
+        }
+        long renderedNanos = System.nanoTime();
+        latency.record(LatencyTracker.Stage.PUBLISH_TO_RENDER, renderedNanos - publishedNanos);
+        latency.record(LatencyTracker.Stage.EXCHANGE_TO_RENDER,
+                LatencyMonitor.sinceExchange(frame.getEventTime(), renderedNanos));
+    }
+
+    /**
+     * Writes the frame's levels into the existing rows, rank by rank. Rows are
+     * only added or removed when the number of levels changes.
+     */
+    private void updateRows(ObservableList<Order> rows, boolean bid, TradingPair pair) {
+        int count = Math.min(frame.count(bid), TOP_LEVELS);
+
+        // Rows carry their scales, so rows of the previous pair cannot be reused
+        if (!rows.isEmpty() && (rows.get(0).getPriceScale() != pair.getPriceScale()
+                || rows.get(0).getQuantityScale() != pair.getQuantityScale())) {
+            rows.clear();
+        }
+
+        for (int i = 0; i < count; i++) {
+            long price = frame.price(bid, i);
+            long quantity = frame.quantity(bid, i);
+            if (i < rows.size()) {
+                Order row = rows.get(i);
+                if (row.getPriceValue() != price || row.getQuantityValue() != quantity) {
+                    row.set(price, quantity);
+                    rowsChanged.incrementAndGet();
+                }
+            } else {
+                rows.add(new Order(price, quantity, pair.getPriceScale(), pair.getQuantityScale()));
+                rowsChanged.incrementAndGet();
+            }
+        }
+        if (rows.size() > count) {
+            rows.remove(count, rows.size());
+        }
+    }
+
+    // Getters
+    public long getMinFrameIntervalNanos() { return minFrameIntervalNanos; }
+    public long getUpdatesReceivedCount() { return updatesReceived.get(); }
+    public long getFramesRenderedCount() { return framesRendered.get(); }
+    public long getFramesSkippedCount() { return framesSkipped.get(); }
+    public long getRowsChangedCount() { return rowsChanged.get(); }
+    public long getLastRenderedUpdateId() { return frame.getLastUpdateId(); }
+
+    /**
+     * Time each rendered frame took to update the tables and frame listeners.
+     */
+    public LatencyHistogram getFrameTimes() { return frameTimes; }
+
+    /**
+     * Updates that were folded into a later frame instead of getting their own.
+     */
+    public long getConflatedUpdateCount() {
+        return Math.max(0, updatesReceived.get() - framesRendered.get());
+    }
+}
@@ -1,148 +1,340 @@
 package com.visualizer;
 
-import javafx.collections.ListChangeListener;
-import javafx.collections.ObservableList;
-import javafx.scene.chart.AreaChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
-import javafx.scene.layout.VBox;
-import javafx.scene.control.Label;
+import javafx.animation.AnimationTimer;
 import javafx.geometry.Pos;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.text.DecimalFormat;
+
+/**
+ * Cumulative depth chart drawn on a {@link Canvas}.
+ *
+ * Each frame turns the book snapshot into cumulative bid/ask curves in
+ * reusable primitive buffers, downsamples them to about one point per pixel
+ * with {@link Lttb}, and strokes them directly. There are no chart nodes,
+ * so a deep book (hundreds to thousands of levels) costs the same scene
+ * graph work as an empty one.
+ *
+ * The axes ease towards the range of the current book instead of jumping,
+ * and drawing happens at most once per pulse.
+ */
+public class DepthChartView extends VBox implements ConflatingBookPublisher.FrameListener {
+
+    // Plot margins inside the canvas, in pixels
+    private static final double LEFT = 70;
+    private static final double RIGHT = 15;
+    private static final double TOP = 28;
+    private static final double BOTTOM = 32;
+
+    // Fraction of the remaining distance the axes move per pulse
+    private static final double AXIS_EASING = 0.2;
+    private static final int PRICE_TICKS = 6;
+    private static final int SIZE_TICKS = 4;
+
+    private static final Color BACKGROUND = Color.web("#2b2b2b");
+    private static final Color GRID = Color.web("#444444");
+    private static final Color TEXT = Color.web("#bbbbbb");
+    private static final Color BID_LINE = Color.web("#4CAF50");
+    private static final Color BID_FILL = Color.web("#4CAF50", 0.25);
+    private static final Color ASK_LINE = Color.web("#f44336");
+    private static final Color ASK_FILL = Color.web("#f44336", 0.25);
+
+    private final Pane chartPane = new Pane();
+    private final Canvas canvas = new Canvas();
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (redraw) {
+                redraw = stepAxes();
+                draw();
+            }
+        }
+    };
+    private boolean redraw = true;
+
+    // Cumulative curves, x ascending, grown on demand
+    private final Curve bids = new Curve();
+    private final Curve asks = new Curve();
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+    // Downsampled points of the side being drawn
+    private double[] plotX = new double[1024];
+    private double[] plotY = new double[1024];
 
-public class DepthChartView extends VBox {
+    // Axis ranges being shown and the ranges they ease towards
+    private double shownMinPrice, shownMaxPrice, shownMaxSize;
+    private double targetMinPrice, targetMaxPrice, targetMaxSize;
+    private boolean snapAxes = true;
 
-    private final AreaChart<Number, Number> depthChart;
-    private final XYChart.Series<Number, Number> bidSeries;
-    private final XYChart.Series<Number, Number> askSeries;
+    private int priceScale = -1;
+    private DecimalFormat priceFormat = new DecimalFormat("#,##0.00");
+    private final DecimalFormat sizeFormat = new DecimalFormat("#,##0.###");
 
     public DepthChartView() {
-        // Initialize final fields first
-        this.bidSeries = new XYChart.Series<>();
-        this.askSeries = new XYChart.Series<>();
-        this.depthChart = createChart();
+        canvas.widthProperty().bind(chartPane.widthProperty());
+        canvas.heightProperty().bind(chartPane.heightProperty());
+        canvas.widthProperty().addListener((obs, oldValue, newValue) -> redraw = true);
+        canvas.heightProperty().addListener((obs, oldValue, newValue) -> redraw = true);
+        chartPane.getChildren().add(canvas);
+        chartPane.setPrefSize(600, 400);
+        chartPane.getStyleClass().add("depth-chart");
 
         setupLayout();
+        timer.start();
     }
 
-    private AreaChart<Number, Number> createChart() {
-        // Create axes
-        NumberAxis xAxis = new NumberAxis();
-        xAxis.setLabel("Price (USDT)");
-        xAxis.setForceZeroInRange(false);
+    private void setupLayout() {
+        Label headerLabel = new Label("📊 Market Depth");
+        headerLabel.getStyleClass().add("depth-chart-header");
 
-        NumberAxis yAxis = new NumberAxis();
-        yAxis.setLabel("Cumulative Size");
-        yAxis.setForceZeroInRange(true);
+        setAlignment(Pos.CENTER);
+        setSpacing(10);
+        VBox.setVgrow(chartPane, Priority.ALWAYS);
+        getChildren().addAll(headerLabel, chartPane);
+    }
 
-        // Create chart
-        AreaChart<Number, Number> chart = new AreaChart<>(xAxis, yAxis);
-        chart.setTitle("Market Depth");
-        chart.setLegendVisible(true);
-        chart.setCreateSymbols(false);
-        chart.setPrefWidth(600);
-        chart.setPrefHeight(400);
+    @Override
+    public void onFrame(BookSnapshot snapshot, TradingPair tradingPair) {
+        if (tradingPair.getPriceScale() != priceScale) {
+            priceScale = tradingPair.getPriceScale();
+            priceFormat = new DecimalFormat(priceScale == 0 ? "#,##0" : "#,##0." + "0".repeat(priceScale));
+        }
 
-        // Set up series names
-        bidSeries.setName("Bids");
-        askSeries.setName("Asks");
+        bids.load(snapshot, true, tradingPair);
+        asks.load(snapshot, false, tradingPair);
+        updateTargets();
+        redraw = true;
+    }
 
-        chart.getData().addAll(bidSeries, askSeries);
+    private void updateTargets() {
+        if (bids.count == 0 && asks.count == 0) {
+            return;
+        }
 
-        // Apply CSS styles
-        chart.getStyleClass().add("depth-chart");
+        // Center the price axis on the mid so both walls stay in view
+        double bestBid = bids.count > 0 ? bids.x[bids.count - 1] : asks.x[0];
+        double bestAsk = asks.count > 0 ? asks.x[0] : bestBid;
+        double mid = (bestBid + bestAsk) / 2;
+        double lowest = bids.count > 0 ? bids.x[0] : bestBid;
+        double highest = asks.count > 0 ? asks.x[asks.count - 1] : bestAsk;
+        double halfRange = Math.max(Math.max(mid - lowest, highest - mid), mid * 1e-6);
+
+        targetMinPrice = mid - halfRange;
+        targetMaxPrice = mid + halfRange;
+        targetMaxSize = Math.max(bids.total(), asks.total()) * 1.05;
+
+        if (snapAxes) {
+            shownMinPrice = targetMinPrice;
+            shownMaxPrice = targetMaxPrice;
+            shownMaxSize = targetMaxSize;
+            snapAxes = false;
+        }
+    }
 
-        return chart;
+    /**
+     * Moves the shown ranges towards the targets.
+     *
+     * @return true while they have not arrived yet
+     */
+    private boolean stepAxes() {
+        shownMinPrice += (targetMinPrice - shownMinPrice) * AXIS_EASING;
+        shownMaxPrice += (targetMaxPrice - shownMaxPrice) * AXIS_EASING;
+        shownMaxSize += (targetMaxSize - shownMaxSize) * AXIS_EASING;
+
+        double priceTolerance = (targetMaxPrice - targetMinPrice) * 1e-3;
+        double sizeTolerance = targetMaxSize * 1e-3;
+        boolean settled = Math.abs(targetMinPrice - shownMinPrice) <= priceTolerance
+                && Math.abs(targetMaxPrice - shownMaxPrice) <= priceTolerance
+                && Math.abs(targetMaxSize - shownMaxSize) <= sizeTolerance;
+        if (settled) {
+            shownMinPrice = targetMinPrice;
+            shownMaxPrice = targetMaxPrice;
+            shownMaxSize = targetMaxSize;
+        }
+        return !settled;
     }
 
-    private void setupLayout() {
-        Label headerLabel = new Label("📊 Market Depth");
-        headerLabel.getStyleClass().add("depth-chart-header");
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
 
-        setAlignment(Pos.CENTER);
-        setSpacing(10);
-        getChildren().addAll(headerLabel, depthChart);
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, width, height);
+
+        double plotWidth = width - LEFT - RIGHT;
+        double plotHeight = height - TOP - BOTTOM;
+        if (plotWidth < 10 || plotHeight < 10) {
+            return;
+        }
+
+        drawLegend(gc);
+        if ((bids.count == 0 && asks.count == 0) || shownMaxPrice <= shownMinPrice || shownMaxSize <= 0) {
+            return;
+        }
+
+        drawAxes(gc, plotWidth, plotHeight);
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT, TOP, plotWidth, plotHeight);
+        gc.clip();
+        drawSide(gc, bids, true, plotWidth, plotHeight);
+        drawSide(gc, asks, false, plotWidth, plotHeight);
+        gc.restore();
     }
 
-    public void bindToOrderBook(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        // Listen for changes in bid orders
-        bidOrders.addListener((ListChangeListener<Order>) change -> {
-            updateBidSeries(bidOrders);
-        });
+    private void drawLegend(GraphicsContext gc) {
+        gc.setFont(Font.font(12));
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.CENTER);
 
-        // Listen for changes in ask orders
-        askOrders.addListener((ListChangeListener<Order>) change -> {
-            updateAskSeries(askOrders);
-        });
+        gc.setFill(BID_LINE);
+        gc.fillRect(LEFT, 10, 12, 8);
+        gc.fillText("Bids", LEFT + 18, 14);
 
-        // Initial update
-        updateBidSeries(bidOrders);
-        updateAskSeries(askOrders);
+        gc.setFill(ASK_LINE);
+        gc.fillRect(LEFT + 70, 10, 12, 8);
+        gc.fillText("Asks", LEFT + 88, 14);
     }
 
-    private void updateBidSeries(ObservableList<Order> bidOrders) {
-        List<XYChart.Data<Number, Number>> bidData = new ArrayList<>();
+    private void drawAxes(GraphicsContext gc, double plotWidth, double plotHeight) {
+        gc.setStroke(GRID);
+        gc.setLineWidth(1);
+        gc.setFill(TEXT);
+        gc.setFont(Font.font(11));
+
+        // Price axis
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        for (int i = 0; i <= PRICE_TICKS; i++) {
+            double price = shownMinPrice + (shownMaxPrice - shownMinPrice) * i / PRICE_TICKS;
+            double x = snap(LEFT + plotWidth * i / PRICE_TICKS);
+            gc.strokeLine(x, TOP, x, TOP + plotHeight);
+            gc.fillText(priceFormat.format(price), x, TOP + plotHeight + 6);
+        }
 
-        if (!bidOrders.isEmpty()) {
-            double cumulativeSize = 0.0;
+        // Cumulative size axis
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        for (int i = 0; i <= SIZE_TICKS; i++) {
+            double size = shownMaxSize * i / SIZE_TICKS;
+            double y = snap(TOP + plotHeight - plotHeight * i / SIZE_TICKS);
+            gc.strokeLine(LEFT, y, LEFT + plotWidth, y);
+            gc.fillText(sizeFormat.format(size), LEFT - 6, y);
+        }
+    }
 
-            // Bids should be processed in descending price order (highest to lowest)
-            List<Order> sortedBids = new ArrayList<>(bidOrders);
-            // Since bidOrders are already sorted from highest to lowest, we keep that order
+    private void drawSide(GraphicsContext gc, Curve curve, boolean bid, double plotWidth, double plotHeight) {
+        if (curve.count == 0) {
+            return;
+        }
 
-            for (Order order : sortedBids) {
-                try {
-                    double price = Double.parseDouble(order.getPrice());
-                    double quantity = Double.parseDouble(order.getQuantity());
-                    cumulativeSize += quantity;
+        // Roughly one point per pixel of the side's share of the axis
+        int threshold = Math.max(3, (int) plotWidth);
+        if (plotX.length < Math.min(curve.count, threshold)) {
+            plotX = new double[curve.count];
+            plotY = new double[curve.count];
+        }
+        int points = Lttb.downsample(curve.x, curve.y, curve.count, threshold, plotX, plotY);
 
-                    bidData.add(new XYChart.Data<>(price, cumulativeSize));
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing bid order: " + e.getMessage());
-                }
-            }
+        double priceRange = shownMaxPrice - shownMinPrice;
+        double baseline = TOP + plotHeight;
+        for (int i = 0; i < points; i++) {
+            plotX[i] = LEFT + (plotX[i] - shownMinPrice) / priceRange * plotWidth;
+            plotY[i] = baseline - plotY[i] / shownMaxSize * plotHeight;
+        }
 
-            // Reverse to show cumulative depth correctly (from left to right)
-            Collections.reverse(bidData);
+        // Bids step down towards the touch, asks step up away from it
+        gc.beginPath();
+        if (bid) {
+            gc.moveTo(LEFT, baseline);
+            gc.lineTo(LEFT, plotY[0]);
+            gc.lineTo(plotX[0], plotY[0]);
+            for (int i = 1; i < points; i++) {
+                gc.lineTo(plotX[i - 1], plotY[i]);
+                gc.lineTo(plotX[i], plotY[i]);
+            }
+            gc.lineTo(plotX[points - 1], baseline);
+        } else {
+            gc.moveTo(plotX[0], baseline);
+            gc.lineTo(plotX[0], plotY[0]);
+            for (int i = 1; i < points; i++) {
+                gc.lineTo(plotX[i], plotY[i - 1]);
+                gc.lineTo(plotX[i], plotY[i]);
+            }
+            gc.lineTo(LEFT + plotWidth, plotY[points - 1]);
+            gc.lineTo(LEFT + plotWidth, baseline);
         }
+        gc.closePath();
 
-        bidSeries.getData().clear();
-        bidSeries.getData().addAll(bidData);
+        gc.setFill(bid ? BID_FILL : ASK_FILL);
+        gc.fill();
+        gc.setStroke(bid ? BID_LINE : ASK_LINE);
+        gc.setLineWidth(1.5);
+        gc.stroke();
     }
 
-    private void updateAskSeries(ObservableList<Order> askOrders) {
-        List<XYChart.Data<Number, Number>> askData = new ArrayList<>();
+    // Align 1px lines to the pixel grid
+    private static double snap(double coordinate) {
+        return Math.floor(coordinate) + 0.5;
+    }
+
+    public void clear() {
+        bids.count = 0;
+        asks.count = 0;
+        snapAxes = true;
+        redraw = true;
+    }
+
+    public void stop() {
+        timer.stop();
+    }
 
-        if (!askOrders.isEmpty()) {
-            double cumulativeSize = 0.0;
+    /**
+     * One side's cumulative depth as doubles, ordered by ascending price.
+     */
+    private static final class Curve {
+        double[] x = new double[1024];
+        double[] y = new double[1024];
+        int count;
+
+        void load(BookSnapshot snapshot, boolean bid, TradingPair tradingPair) {
+            count = snapshot.count(bid);
+            if (x.length < count) {
+                x = new double[count];
+                y = new double[count];
+            }
 
-            // Asks should be processed in ascending price order (lowest to highest)
-            List<Order> sortedAsks = new ArrayList<>(askOrders);
-            // Since askOrders are already sorted from lowest to highest, we keep that order
+            double priceUnit = FixedPoint.pow10(tradingPair.getPriceScale());
+            double quantityUnit = FixedPoint.pow10(tradingPair.getQuantityScale());
 
-            for (Order order : sortedAsks) {
-                try {
-                    double price = Double.parseDouble(order.getPrice());
-                    double quantity = Double.parseDouble(order.getQuantity());
-                    cumulativeSize += quantity;
+            long cumulative = 0; // Scaled like the quantities
+            for (int level = 0; level < count; level++) {
+                cumulative += snapshot.quantity(bid, level);
 
-                    askData.add(new XYChart.Data<>(price, cumulativeSize));
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing ask order: " + e.getMessage());
-                }
+                // Snapshots are best first; bids are stored in reverse so x ascends
+                int index = bid ? count - 1 - level : level;
+                x[index] = snapshot.price(bid, level) / priceUnit;
+                y[index] = cumulative / quantityUnit;
             }
         }
 
-        askSeries.getData().clear();
-        askSeries.getData().addAll(askData);
-    }
-
-    public void clear() {
-        bidSeries.getData().clear();
-        askSeries.getData().clear();
+        double total() {
+            if (count == 0) {
+                return 0;
+            }
+            // The deepest level holds the running total
+            return Math.max(y[0], y[count - 1]);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package com.visualizer;
+
+import java.util.Arrays;
+
+/**
+ * Buffers decoded depth diffs in primitive arrays while a book waits for its
+ * snapshot. Frames are replayed in arrival order once the snapshot is loaded.
+ */
+public class DepthDiffBuffer {
+
+    private final int maxFrames;
+
+    // Per-frame headers
+    private long[] firstUpdateIds = new long[64];
+    private long[] finalUpdateIds = new long[64];
+    private long[] eventTimes = new long[64];
+    private int[] levelStarts = new int[64];
+    private int[] bidCounts = new int[64];
+    private int[] askCounts = new int[64];
+    private int frameCount;
+
+    // Levels of all frames, each frame's bids followed by its asks
+    private long[] prices = new long[1024];
+    private long[] quantities = new long[1024];
+    private int levelCount;
+
+    public DepthDiffBuffer(int maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Copies the frame currently held by the decoder.
+     *
+     * @return false if the buffer is full and the frame was not stored
+     */
+    public boolean add(DepthUpdateDecoder decoder) {
+        if (frameCount == maxFrames) {
+            return false;
+        }
+
+        DepthUpdateDecoder.Levels bids = decoder.getBids();
+        DepthUpdateDecoder.Levels asks = decoder.getAsks();
+
+        if (frameCount == firstUpdateIds.length) {
+            int capacity = Math.min(frameCount * 2, maxFrames);
+            firstUpdateIds = Arrays.copyOf(firstUpdateIds, capacity);
+            finalUpdateIds = Arrays.copyOf(finalUpdateIds, capacity);
+            eventTimes = Arrays.copyOf(eventTimes, capacity);
+            levelStarts = Arrays.copyOf(levelStarts, capacity);
+            bidCounts = Arrays.copyOf(bidCounts, capacity);
+            askCounts = Arrays.copyOf(askCounts, capacity);
+        }
+
+        int needed = levelCount + bids.size() + asks.size();
+        if (needed > prices.length) {
+            int capacity = Math.max(prices.length * 2, needed);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+
+        firstUpdateIds[frameCount] = decoder.getFirstUpdateId();
+        finalUpdateIds[frameCount] = decoder.getFinalUpdateId();
+        eventTimes[frameCount] = decoder.getEventTime();
+        levelStarts[frameCount] = levelCount;
+        bidCounts[frameCount] = bids.size();
+        askCounts[frameCount] = asks.size();
+        frameCount++;
+
+        for (int i = 0; i < bids.size(); i++) {
+            prices[levelCount] = bids.price(i);
+            quantities[levelCount++] = bids.quantity(i);
+        }
+        for (int i = 0; i < asks.size(); i++) {
+            prices[levelCount] = asks.price(i);
+            quantities[levelCount++] = asks.quantity(i);
+        }
+        return true;
+    }
+
+    /**
+     * Applies the levels of buffered frame {@code index} to the book.
+     */
+    public void apply(int index, OrderBook book) {
+        int level = levelStarts[index];
+        int bidEnd = level + bidCounts[index];
+        int askEnd = bidEnd + askCounts[index];
+
+        for (; level < bidEnd; level++) {
+            book.update(true, prices[level], quantities[level]);
+        }
+        for (; level < askEnd; level++) {
+            book.update(false, prices[level], quantities[level]);
+        }
+    }
+
+    /**
+     * Drops the oldest {@code count} frames, keeping the rest in order.
+     */
+    public void removeFirst(int count) {
+        if (count >= frameCount) {
+            clear();
+            return;
+        }
+
+        int levelShift = levelStarts[count];
+        int remainingFrames = frameCount - count;
+        System.arraycopy(firstUpdateIds, count, firstUpdateIds, 0, remainingFrames);
+        System.arraycopy(finalUpdateIds, count, finalUpdateIds, 0, remainingFrames);
+        System.arraycopy(eventTimes, count, eventTimes, 0, remainingFrames);
+        System.arraycopy(levelStarts, count, levelStarts, 0, remainingFrames);
+        System.arraycopy(bidCounts, count, bidCounts, 0, remainingFrames);
+        System.arraycopy(askCounts, count, askCounts, 0, remainingFrames);
+        for (int i = 0; i < remainingFrames; i++) {
+            levelStarts[i] -= levelShift;
+        }
+        frameCount = remainingFrames;
+
+        int remainingLevels = levelCount - levelShift;
+        System.arraycopy(prices, levelShift, prices, 0, remainingLevels);
+        System.arraycopy(quantities, levelShift, quantities, 0, remainingLevels);
+        levelCount = remainingLevels;
+    }
+
+    public void clear() {
+        frameCount = 0;
+        levelCount = 0;
+    }
+
+    // Getters
+    public int size() { return frameCount; }
+    public boolean isEmpty() { return frameCount == 0; }
+    public long getFirstUpdateId(int index) { return firstUpdateIds[index]; }
+    public long getFinalUpdateId(int index) { return finalUpdateIds[index]; }
+    public long getEventTime(int index) { return eventTimes[index]; }
+}
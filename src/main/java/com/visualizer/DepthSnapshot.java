@@ -0,0 +1,89 @@
+package com.visualizer;
+
+import java.util.Arrays;
+
+/**
+ * Full depth snapshot from the REST API, with levels as scaled longs.
+ *
+ * {@code lastUpdateId} is the id of the last diff already contained in the
+ * snapshot; diffs up to and including it must be dropped.
+ */
+public class DepthSnapshot {
+
+    private final long lastUpdateId;
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final long[] askPrices;
+    private final long[] askQuantities;
+
+    public DepthSnapshot(long lastUpdateId,
+                         long[] bidPrices, long[] bidQuantities,
+                         long[] askPrices, long[] askQuantities) {
+        this.lastUpdateId = lastUpdateId;
+        this.bidPrices = bidPrices;
+        this.bidQuantities = bidQuantities;
+        this.askPrices = askPrices;
+        this.askQuantities = askQuantities;
+    }
+
+    /**
+     * Replaces the contents of the book with this snapshot.
+     */
+    public void loadInto(OrderBook book) {
+        book.clear();
+        for (int i = 0; i < bidPrices.length; i++) {
+            book.update(true, bidPrices[i], bidQuantities[i]);
+        }
+        for (int i = 0; i < askPrices.length; i++) {
+            book.update(false, askPrices[i], askQuantities[i]);
+        }
+    }
+
+    // Getters
+    public long getLastUpdateId() { return lastUpdateId; }
+    public int getBidCount() { return bidPrices.length; }
+    public int getAskCount() { return askPrices.length; }
+
+    @Override
+    public String toString() {
+        return "DepthSnapshot{" +
+                "lastUpdateId=" + lastUpdateId +
+                ", bids=" + bidPrices.length +
+                ", asks=" + askPrices.length +
+                '}';
+    }
+
+    /**
+     * Growable arrays used while parsing a snapshot.
+     */
+    static class Builder {
+        private long lastUpdateId;
+        private final long[][] prices = {new long[256], new long[256]};
+        private final long[][] quantities = {new long[256], new long[256]};
+        private final int[] counts = new int[2];
+
+        Builder lastUpdateId(long lastUpdateId) {
+            this.lastUpdateId = lastUpdateId;
+            return this;
+        }
+
+        Builder add(boolean bid, long price, long quantity) {
+            int side = bid ? 0 : 1;
+            int count = counts[side];
+            if (count == prices[side].length) {
+                prices[side] = Arrays.copyOf(prices[side], count * 2);
+                quantities[side] = Arrays.copyOf(quantities[side], count * 2);
+            }
+            prices[side][count] = price;
+            quantities[side][count] = quantity;
+            counts[side]++;
+            return this;
+        }
+
+        DepthSnapshot build() {
+            return new DepthSnapshot(lastUpdateId,
+                    Arrays.copyOf(prices[0], counts[0]), Arrays.copyOf(quantities[0], counts[0]),
+                    Arrays.copyOf(prices[1], counts[1]), Arrays.copyOf(quantities[1], counts[1]));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.visualizer;
+
+import java.io.IOException;
+
+/**
+ * Source of full depth snapshots used to (re)synchronize a book.
+ * The exchange REST API in production; any local stand-in elsewhere.
+ */
+public interface DepthSnapshotSource {
+    DepthSnapshot fetchSnapshot(TradingPair tradingPair) throws IOException;
+}
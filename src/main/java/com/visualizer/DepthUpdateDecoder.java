@@ -0,0 +1,174 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for Binance depth update frames.
+ *
+ * Reads the frame token by token with Jackson's {@link JsonParser} instead of
+ * binding it to {@link OrderBookUpdate}. Prices and quantities are parsed
+ * straight from the parser's text buffer into fixed-point longs (see
+ * {@link FixedPoint}) held in reusable arrays, so a frame costs no per-level
+ * objects.
+ *
+ * The decoder is not thread-safe: one instance per ingest thread. The level
+ * buffers are only valid until the next call to {@code decode}.
+ */
+public class DepthUpdateDecoder {
+
+    private final JsonFactory factory;
+    private final int priceScale;
+    private final int quantityScale;
+
+    // Header fields of the last decoded frame
+    private long eventTime;
+    private long firstUpdateId;
+    private long finalUpdateId;
+
+    private final Levels bids = new Levels();
+    private final Levels asks = new Levels();
+
+    public DepthUpdateDecoder(int priceScale, int quantityScale) {
+        this(new JsonFactory(), priceScale, quantityScale);
+    }
+
+    public DepthUpdateDecoder(JsonFactory factory, int priceScale, int quantityScale) {
+        this.factory = factory;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+    }
+
+    /**
+     * Decodes a frame received as text.
+     *
+     * @return true if the frame was a depth update, false for anything else
+     */
+    public boolean decode(String json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * Decodes a frame straight from its UTF-8 bytes.
+     *
+     * @return true if the frame was a depth update, false for anything else
+     */
+    public boolean decode(byte[] buffer, int offset, int length) throws IOException {
+        try (JsonParser parser = factory.createParser(buffer, offset, length)) {
+            return decode(parser);
+        }
+    }
+
+    private boolean decode(JsonParser parser) throws IOException {
+        reset();
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+
+        boolean sawLevels = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            // Field names are canonicalized by Jackson, so this does not allocate
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "E" -> eventTime = parser.getLongValue();
+                case "U" -> firstUpdateId = parser.getLongValue();
+                case "u" -> finalUpdateId = parser.getLongValue();
+                case "b" -> {
+                    readLevels(parser, bids);
+                    sawLevels = true;
+                }
+                case "a" -> {
+                    readLevels(parser, asks);
+                    sawLevels = true;
+                }
+                default -> {
+                    if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return sawLevels;
+    }
+
+    private void readLevels(JsonParser parser, Levels levels) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        // Each level is ["price", "quantity"]
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            long price = parseText(parser, priceScale);
+
+            parser.nextToken();
+            long quantity = parseText(parser, quantityScale);
+
+            // Ignore any trailing elements in the level array
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+
+            levels.add(price, quantity);
+        }
+    }
+
+    private static long parseText(JsonParser parser, int scale) throws IOException {
+        return FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+    }
+
+    private void reset() {
+        eventTime = 0;
+        firstUpdateId = 0;
+        finalUpdateId = 0;
+        bids.count = 0;
+        asks.count = 0;
+    }
+
+    // Getters
+    public long getEventTime() { return eventTime; }
+    public long getFirstUpdateId() { return firstUpdateId; }
+    public long getFinalUpdateId() { return finalUpdateId; }
+
+    public int getPriceScale() { return priceScale; }
+    public int getQuantityScale() { return quantityScale; }
+
+    public Levels getBids() { return bids; }
+    public Levels getAsks() { return asks; }
+
+    /**
+     * Scaled price/quantity pairs of one side of the last decoded frame.
+     * A quantity of zero means the level was removed.
+     */
+    public static class Levels {
+        private int count;
+        private long[] prices = new long[64];
+        private long[] quantities = new long[64];
+
+        private void add(long price, long quantity) {
+            if (count == prices.length) {
+                prices = Arrays.copyOf(prices, count * 2);
+                quantities = Arrays.copyOf(quantities, count * 2);
+            }
+            prices[count] = price;
+            quantities[count] = quantity;
+            count++;
+        }
+
+        public int size() { return count; }
+        public long price(int i) { return prices[i]; }
+        public long quantity(int i) { return quantities[i]; }
+    }
+}
@@ -0,0 +1,716 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local stand-in for the Binance market-data endpoints, for load testing the
+ * feed path without the exchange.
+ *
+ * One port serves the WebSocket streams, raw ({@code /ws/btcusdt@depth}) and
+ * combined ({@code /stream?streams=...}, with SUBSCRIBE/UNSUBSCRIBE over the
+ * socket), and the REST depth snapshot ({@code /api/v3/depth?symbol=BTCUSDT}).
+ * Point the app at it with {@code -Dvisualizer.streamUrl=ws://localhost:<port>}
+ * and {@code -Dvisualizer.restUrl=http://localhost:<port>}.
+ *
+ * A feed thread keeps one book per symbol, moves its mid price with a
+ * mean-reverting walk and emits depth updates with valid U/u sequencing and
+ * trades at the touch, at the configured rate and burst size. An injected
+ * gap drops an update's frame but not its ids, so the client has to resync
+ * from the snapshot endpoint, which always serves the current book.
+ *
+ * Each message is encoded once and written to every subscriber on the feed
+ * thread, so a slow client slows the whole feed, like a full TCP window would.
+ */
+public class ExchangeSimulator implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ExchangeSimulator.class.getName());
+
+    private static final String[] BASE_ASSETS = {"BTC", "ETH", "BNB", "SOL", "XRP", "ADA", "DOGE", "AVAX"};
+    private static final int PRICE_SCALE = 2;
+    private static final int QUANTITY_SCALE = 5;
+
+    private final Config config;
+    private final ServerSocket serverSocket;
+    private final Market[] markets;
+    private final Map<String, Market> marketsBySymbol = new HashMap<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final ObjectMapper mapper = SharedClients.objectMapper();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+
+    private final Thread acceptThread;
+    private final Thread feedThread;
+    private volatile boolean running = false;
+
+    // Feed thread
+    private final SplittableRandom random;
+    private final StringBuilder data = new StringBuilder(4096);
+    private final StringBuilder wrapped = new StringBuilder(4096);
+    private long[] updatePrices = new long[64];
+    private long[] updateQuantities = new long[64];
+    private boolean[] updateSides = new boolean[64];
+    private int nextMarket;
+
+    // Counters
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong gaps = new AtomicLong();
+    private final AtomicLong snapshotsServed = new AtomicLong();
+    private final AtomicLong droppedConnections = new AtomicLong();
+
+    public ExchangeSimulator(Config config) throws IOException {
+        this.config = config;
+        this.random = new SplittableRandom(config.seed);
+        this.serverSocket = new ServerSocket(config.port, 128, InetAddress.getLoopbackAddress());
+
+        this.markets = new Market[config.symbols];
+        for (int i = 0; i < config.symbols; i++) {
+            String base = i < BASE_ASSETS.length ? BASE_ASSETS[i] : "SIM" + i;
+            // Every seeded level sits above zero
+            long mid = i == 0 ? 6_500_000 : config.bookDepth + 100 + random.nextLong(100_000);
+            markets[i] = new Market(new TradingPair(base, "USDT", PRICE_SCALE, QUANTITY_SCALE), mid,
+                    config.bookDepth, random);
+            marketsBySymbol.put(markets[i].symbol, markets[i]);
+        }
+
+        this.acceptThread = new Thread(this::acceptLoop, "exchange-sim-accept");
+        this.acceptThread.setDaemon(true);
+        this.feedThread = new Thread(this::feedLoop, "exchange-sim-feed");
+        this.feedThread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        acceptThread.start();
+        feedThread.start();
+        LOGGER.info("🧪 Exchange simulator on port " + getPort() + ": " + config.symbols + " symbols at "
+                + config.messagesPerSecond + " msgs/s");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Simulator socket close failed", e);
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        LockSupport.unpark(feedThread);
+    }
+
+    private void feedLoop() {
+        long startNanos = System.nanoTime();
+        long sent = 0;
+        double nanosPerMessage = 1e9 / config.messagesPerSecond;
+
+        while (running) {
+            long wait = startNanos + (long) (sent * nanosPerMessage) - System.nanoTime();
+            if (wait > 0) {
+                // Bursts go out back to back; the socket is written when the feed idles
+                for (Connection connection : connections) {
+                    connection.flush();
+                }
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+
+            long eventTime = System.currentTimeMillis();
+            for (int i = 0; i < config.burstSize; i++) {
+                Market market = markets[nextMarket];
+                nextMarket = (nextMarket + 1) % markets.length;
+                if (random.nextDouble() < config.tradeShare) {
+                    emitTrade(market, eventTime);
+                } else {
+                    emitDepthUpdate(market, eventTime);
+                }
+            }
+            sent += config.burstSize;
+        }
+    }
+
+    private void emitDepthUpdate(Market market, long eventTime) {
+        long firstUpdateId;
+        long finalUpdateId;
+        int changes;
+        synchronized (market) {
+            market.walk(random);
+            changes = 0;
+
+            // Levels the mid moved through would cross the book
+            long bestBid;
+            while ((bestBid = market.book.bestPrice(true)) != 0 && bestBid >= market.mid) {
+                changes = change(market, changes, true, bestBid, 0);
+            }
+            long bestAsk;
+            while ((bestAsk = market.book.bestPrice(false)) != 0 && bestAsk <= market.mid) {
+                changes = change(market, changes, false, bestAsk, 0);
+            }
+
+            for (int i = 0; i < config.levelsPerUpdate; i++) {
+                boolean bid = random.nextBoolean();
+                // Squared uniform: most changes sit within a few ticks of the touch
+                double u = random.nextDouble();
+                long ticks = 1 + (long) (u * u * config.bookDepth);
+                long price = bid ? market.mid - ticks : market.mid + ticks;
+                if (price <= 0) {
+                    continue;
+                }
+                long quantity = random.nextInt(3) == 0 ? 0 : market.quantity(random);
+                changes = change(market, changes, bid, price, quantity);
+            }
+
+            firstUpdateId = market.lastUpdateId + 1;
+            market.lastUpdateId += Math.max(changes, 1);
+            finalUpdateId = market.lastUpdateId;
+        }
+
+        messages.incrementAndGet();
+        if (config.gapProbability > 0 && random.nextDouble() < config.gapProbability) {
+            gaps.incrementAndGet();
+            return;
+        }
+
+        data.setLength(0);
+        data.append("{\"e\":\"depthUpdate\",\"E\":").append(eventTime)
+                .append(",\"s\":\"").append(market.upperSymbol)
+                .append("\",\"U\":").append(firstUpdateId)
+                .append(",\"u\":").append(finalUpdateId).append(",\"b\":[");
+        appendChanges(changes, true);
+        data.append("],\"a\":[");
+        appendChanges(changes, false);
+        data.append("]}");
+        publish(market.depthStream);
+    }
+
+    private void emitTrade(Market market, long eventTime) {
+        long price;
+        long tradeId;
+        boolean buyerMaker = random.nextBoolean();
+        synchronized (market) {
+            price = market.book.bestPrice(buyerMaker);
+            if (price == 0) {
+                price = market.mid;
+            }
+            tradeId = ++market.tradeId;
+        }
+
+        messages.incrementAndGet();
+        data.setLength(0);
+        data.append("{\"e\":\"trade\",\"E\":").append(eventTime)
+                .append(",\"s\":\"").append(market.upperSymbol)
+                .append("\",\"t\":").append(tradeId).append(",\"p\":\"");
+        FixedPoint.append(data, price, PRICE_SCALE);
+        data.append("\",\"q\":\"");
+        FixedPoint.append(data, market.quantity(random), QUANTITY_SCALE);
+        data.append("\",\"T\":").append(eventTime)
+                .append(",\"m\":").append(buyerMaker).append(",\"M\":true}");
+        publish(market.tradeStream);
+    }
+
+    // Records a level change in the pending update and applies it to the book
+    private int change(Market market, int index, boolean bid, long price, long quantity) {
+        if (index == updatePrices.length) {
+            updatePrices = Arrays.copyOf(updatePrices, index * 2);
+            updateQuantities = Arrays.copyOf(updateQuantities, index * 2);
+            updateSides = Arrays.copyOf(updateSides, index * 2);
+        }
+        updateSides[index] = bid;
+        updatePrices[index] = price;
+        updateQuantities[index] = quantity;
+        market.book.update(bid, price, quantity);
+        return index + 1;
+    }
+
+    private void appendChanges(int changes, boolean bid) {
+        boolean first = true;
+        for (int i = 0; i < changes; i++) {
+            if (updateSides[i] != bid) {
+                continue;
+            }
+            if (!first) {
+                data.append(',');
+            }
+            first = false;
+            data.append("[\"");
+            FixedPoint.append(data, updatePrices[i], PRICE_SCALE);
+            data.append("\",\"");
+            FixedPoint.append(data, updateQuantities[i], QUANTITY_SCALE);
+            data.append("\"]");
+        }
+    }
+
+    // Sends the message in data to every subscriber, encoding each form at most once
+    private void publish(String stream) {
+        byte[] raw = null;
+        byte[] combined = null;
+        for (Connection connection : connections) {
+            if (!connection.streams.contains(stream)) {
+                continue;
+            }
+            byte[] payload;
+            if (connection.combined) {
+                if (combined == null) {
+                    wrapped.setLength(0);
+                    wrapped.append("{\"stream\":\"").append(stream).append("\",\"data\":").append(data).append('}');
+                    combined = wrapped.toString().getBytes(StandardCharsets.UTF_8);
+                }
+                payload = combined;
+            } else {
+                if (raw == null) {
+                    raw = data.toString().getBytes(StandardCharsets.UTF_8);
+                }
+                payload = raw;
+            }
+            if (connection.send(LocalHttp.TEXT, payload, payload.length)) {
+                framesSent.incrementAndGet();
+                bytesSent.addAndGet(payload.length);
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(() -> serve(socket), "exchange-sim-conn-" + connectionIds.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.WARNING, "Simulator accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            LocalHttp.Request request = LocalHttp.readRequest(in);
+
+            if (request.isWebSocket()) {
+                openWebSocket(socket, in, out, request.path, request.params, request.headers.get("sec-websocket-key"));
+            } else if (request.path.equals("/api/v3/depth")) {
+                serveSnapshot(out, request.params);
+                socket.close();
+            } else {
+                LocalHttp.respond(out, 404, "{\"code\":-1,\"msg\":\"Not found.\"}");
+                socket.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Simulator connection ended", e);
+            LocalHttp.closeQuietly(socket);
+        }
+    }
+
+    private void serveSnapshot(OutputStream out, Map<String, String> params) throws IOException {
+        String symbol = params.getOrDefault("symbol", "").toLowerCase(Locale.ROOT);
+        Market market = marketsBySymbol.get(symbol);
+        if (market == null) {
+            LocalHttp.respond(out, 400, "{\"code\":-1121,\"msg\":\"Invalid symbol.\"}");
+            return;
+        }
+        int limit;
+        try {
+            limit = Math.min(5000, Math.max(1, Integer.parseInt(params.getOrDefault("limit", "100"))));
+        } catch (NumberFormatException e) {
+            LocalHttp.respond(out, 400, "{\"code\":-1100,\"msg\":\"Illegal characters found in parameter 'limit'.\"}");
+            return;
+        }
+
+        long[] prices = new long[limit];
+        long[] quantities = new long[limit];
+        StringBuilder json = new StringBuilder(64 + limit * 64);
+        synchronized (market) {
+            json.append("{\"lastUpdateId\":").append(market.lastUpdateId).append(",\"bids\":[");
+            appendLevels(json, prices, quantities, market.book.top(true, limit, prices, quantities));
+            json.append("],\"asks\":[");
+            appendLevels(json, prices, quantities, market.book.top(false, limit, prices, quantities));
+            json.append("]}");
+        }
+        snapshotsServed.incrementAndGet();
+        LocalHttp.respond(out, 200, json.toString());
+    }
+
+    private static void appendLevels(StringBuilder json, long[] prices, long[] quantities, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("[\"");
+            FixedPoint.append(json, prices[i], PRICE_SCALE);
+            json.append("\",\"");
+            FixedPoint.append(json, quantities[i], QUANTITY_SCALE);
+            json.append("\"]");
+        }
+    }
+
+    private void openWebSocket(Socket socket, InputStream in, OutputStream out, String path,
+                               Map<String, String> params, String key) throws IOException {
+        Connection connection;
+        if (path.equals("/stream")) {
+            connection = new Connection(socket, out, true);
+            String streams = params.get("streams");
+            if (streams != null && !streams.isEmpty()) {
+                connection.streams.addAll(List.of(streams.split("/")));
+            }
+        } else if (path.startsWith("/ws/")) {
+            connection = new Connection(socket, out, false);
+            connection.streams.add(path.substring(4));
+        } else {
+            LocalHttp.respond(out, 404, "{\"code\":-1,\"msg\":\"Not found.\"}");
+            socket.close();
+            return;
+        }
+
+        LocalHttp.acceptWebSocket(out, key);
+        connections.add(connection);
+        LOGGER.info("🔗 Simulator client connected to " + path + " with " + connection.streams.size() + " streams");
+
+        try {
+            readFrames(connection, in);
+        } finally {
+            connections.remove(connection);
+            connection.close();
+        }
+    }
+
+    // Only control messages and SUBSCRIBE/UNSUBSCRIBE are expected
+    private void readFrames(Connection connection, InputStream in) throws IOException {
+        while (running) {
+            LocalHttp.Frame frame = LocalHttp.readFrame(in);
+            switch (frame.opcode) {
+                case LocalHttp.TEXT -> onControlMessage(connection, frame.payload);
+                case LocalHttp.PING -> connection.sendNow(LocalHttp.PONG, frame.payload);
+                case LocalHttp.CLOSE -> {
+                    connection.sendNow(LocalHttp.CLOSE, frame.payload);
+                    return;
+                }
+                default -> {
+                    // Pongs and anything else need no answer
+                }
+            }
+        }
+    }
+
+    // {"method":"SUBSCRIBE","params":["btcusdt@depth"],"id":1}
+    private void onControlMessage(Connection connection, byte[] payload) throws IOException {
+        JsonNode message = mapper.readTree(payload);
+        String method = message.path("method").asText();
+        List<String> streams = new ArrayList<>();
+        for (JsonNode param : message.path("params")) {
+            streams.add(param.asText());
+        }
+
+        if (method.equals("SUBSCRIBE")) {
+            connection.streams.addAll(streams);
+        } else if (method.equals("UNSUBSCRIBE")) {
+            connection.streams.removeAll(streams);
+        }
+        String reply = "{\"result\":null,\"id\":" + message.path("id").asLong() + "}";
+        connection.sendNow(LocalHttp.TEXT, reply.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public String getStreamUrl() { return "ws://localhost:" + getPort(); }
+    public String getRestUrl() { return "http://localhost:" + getPort(); }
+    public Config getConfig() { return config; }
+    public int getConnectionCount() { return connections.size(); }
+    public long getMessageCount() { return messages.get(); }
+    public long getFramesSentCount() { return framesSent.get(); }
+    public long getBytesSentCount() { return bytesSent.get(); }
+    public long getGapCount() { return gaps.get(); }
+    public long getSnapshotsServedCount() { return snapshotsServed.get(); }
+    public long getDroppedConnectionCount() { return droppedConnections.get(); }
+
+    /**
+     * Trading pairs served, with the scales the simulator quotes in.
+     */
+    public List<TradingPair> getTradingPairs() {
+        List<TradingPair> pairs = new ArrayList<>(markets.length);
+        for (Market market : markets) {
+            pairs.add(market.tradingPair);
+        }
+        return pairs;
+    }
+
+    /**
+     * Runs a simulator until killed, configured with -Dvisualizer.sim.* properties.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Config config = Config.fromSystemProperties();
+        ExchangeSimulator simulator = new ExchangeSimulator(config);
+        simulator.start();
+
+        System.out.println("🧪 Exchange simulator running");
+        System.out.println("   -Dvisualizer.streamUrl=" + simulator.getStreamUrl());
+        System.out.println("   -Dvisualizer.restUrl=" + simulator.getRestUrl());
+
+        long lastMessages = 0;
+        while (true) {
+            Thread.sleep(1000);
+            long total = simulator.getMessageCount();
+            System.out.printf("SIM | %,d msgs/s | %d clients | %,d frames | %,d gaps | %,d snapshots%n",
+                    total - lastMessages, simulator.getConnectionCount(), simulator.getFramesSentCount(),
+                    simulator.getGapCount(), simulator.getSnapshotsServedCount());
+            lastMessages = total;
+        }
+    }
+
+    /**
+     * Load profile of a simulator.
+     */
+    public static final class Config {
+        private int port = 0;
+        private int symbols = 1;
+        private double messagesPerSecond = 1_000;
+        private int burstSize = 1;
+        private int bookDepth = 1_000;
+        private int levelsPerUpdate = 10;
+        private double tradeShare = 0.3;
+        private double gapProbability = 0;
+        private long seed = 42;
+
+        /**
+         * Port to listen on; 0 picks a free one.
+         */
+        public Config port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Config symbols(int symbols) {
+            if (symbols < 1) {
+                throw new IllegalArgumentException("Need at least one symbol: " + symbols);
+            }
+            this.symbols = symbols;
+            return this;
+        }
+
+        /**
+         * Average messages per second over all symbols, trades included.
+         */
+        public Config messagesPerSecond(double messagesPerSecond) {
+            if (messagesPerSecond <= 0) {
+                throw new IllegalArgumentException("Message rate must be positive: " + messagesPerSecond);
+            }
+            this.messagesPerSecond = messagesPerSecond;
+            return this;
+        }
+
+        /**
+         * Messages sent back to back before pausing; the average rate is kept.
+         */
+        public Config burstSize(int burstSize) {
+            if (burstSize < 1) {
+                throw new IllegalArgumentException("Burst size must be positive: " + burstSize);
+            }
+            this.burstSize = burstSize;
+            return this;
+        }
+
+        /**
+         * Ticks from the mid price that quoted levels spread over, per side.
+         */
+        public Config bookDepth(int bookDepth) {
+            if (bookDepth < 1) {
+                throw new IllegalArgumentException("Book depth must be positive: " + bookDepth);
+            }
+            this.bookDepth = bookDepth;
+            return this;
+        }
+
+        public Config levelsPerUpdate(int levelsPerUpdate) {
+            if (levelsPerUpdate < 1) {
+                throw new IllegalArgumentException("Levels per update must be positive: " + levelsPerUpdate);
+            }
+            this.levelsPerUpdate = levelsPerUpdate;
+            return this;
+        }
+
+        /**
+         * Share of messages that are trades rather than depth updates.
+         */
+        public Config tradeShare(double tradeShare) {
+            this.tradeShare = tradeShare;
+            return this;
+        }
+
+        /**
+         * Chance that a depth update is left out of the stream.
+         */
+        public Config gapProbability(double gapProbability) {
+            this.gapProbability = gapProbability;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        static Config fromSystemProperties() {
+            return new Config()
+                    .port(Integer.getInteger("visualizer.sim.port", 8090))
+                    .symbols(Integer.getInteger("visualizer.sim.symbols", 1))
+                    .messagesPerSecond(Double.parseDouble(System.getProperty("visualizer.sim.rate", "1000")))
+                    .burstSize(Integer.getInteger("visualizer.sim.burst", 1))
+                    .bookDepth(Integer.getInteger("visualizer.sim.depth", 1_000))
+                    .levelsPerUpdate(Integer.getInteger("visualizer.sim.levels", 10))
+                    .tradeShare(Double.parseDouble(System.getProperty("visualizer.sim.tradeShare", "0.3")))
+                    .gapProbability(Double.parseDouble(System.getProperty("visualizer.sim.gaps", "0")))
+                    .seed(Long.getLong("visualizer.sim.seed", 42));
+        }
+    }
+
+    /**
+     * One symbol's book and sequence state, guarded by its own monitor.
+     */
+    private static final class Market {
+        final TradingPair tradingPair;
+        final String symbol;
+        final String upperSymbol;
+        final String depthStream;
+        final String tradeStream;
+        final OrderBook book = new TreeMapOrderBook();
+        final long anchor;
+        long mid;
+        long lastUpdateId;
+        long tradeId;
+
+        Market(TradingPair tradingPair, long mid, int depth, SplittableRandom random) {
+            this.tradingPair = tradingPair;
+            this.symbol = tradingPair.getSymbol();
+            this.upperSymbol = symbol.toUpperCase(Locale.ROOT);
+            this.depthStream = tradingPair.getDepthStream();
+            this.tradeStream = tradingPair.getTradeStream();
+            this.anchor = mid;
+            this.mid = mid;
+            this.lastUpdateId = 1_000_000 + random.nextInt(1_000_000);
+
+            for (long tick = 1; tick <= depth; tick++) {
+                if (mid - tick > 0) {
+                    book.update(true, mid - tick, quantity(random));
+                }
+                book.update(false, mid + tick, quantity(random));
+            }
+        }
+
+        // One tick at a time, pulled back towards where it started
+        void walk(SplittableRandom random) {
+            long step = random.nextInt(3) - 1;
+            if (random.nextInt(100) == 0) {
+                step += Long.signum(anchor - mid);
+            }
+            mid = Math.max(1, mid + step);
+        }
+
+        long quantity(SplittableRandom random) {
+            double u = random.nextDouble();
+            return 1 + (long) (u * u * 2 * FixedPoint.pow10(QUANTITY_SCALE));
+        }
+    }
+
+    /**
+     * A WebSocket client and the streams it is subscribed to.
+     */
+    private final class Connection {
+        final Socket socket;
+        final OutputStream out;
+        final boolean combined;
+        final Set<String> streams = ConcurrentHashMap.newKeySet();
+        private final byte[] header = new byte[10];
+        private boolean dirty = false;
+        private boolean closed = false;
+
+        Connection(Socket socket, OutputStream out, boolean combined) {
+            this.socket = socket;
+            this.out = out;
+            this.combined = combined;
+        }
+
+        // Feed thread: buffered until the end of the burst
+        synchronized boolean send(int opcode, byte[] payload, int length) {
+            if (closed) {
+                return false;
+            }
+            try {
+                writeFrame(opcode, payload, length);
+                dirty = true;
+                return true;
+            } catch (IOException e) {
+                drop(e);
+                return false;
+            }
+        }
+
+        synchronized void sendNow(int opcode, byte[] payload) throws IOException {
+            if (!closed) {
+                writeFrame(opcode, payload, payload.length);
+                out.flush();
+            }
+        }
+
+        // Feed thread
+        synchronized void flush() {
+            if (!dirty || closed) {
+                return;
+            }
+            dirty = false;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                drop(e);
+            }
+        }
+
+        private void writeFrame(int opcode, byte[] payload, int length) throws IOException {
+            LocalHttp.writeFrame(out, header, opcode, payload, 0, length);
+        }
+
+        private void drop(IOException e) {
+            droppedConnections.incrementAndGet();
+            LOGGER.log(Level.FINE, "Dropping simulator client", e);
+            close();
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.remove(this);
+            LocalHttp.closeQuietly(socket);
+        }
+    }
+}
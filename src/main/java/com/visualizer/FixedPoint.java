@@ -0,0 +1,135 @@
+package com.visualizer;
+
+import java.math.BigDecimal;
+
+/**
+ * Helpers for fixed-point decimals stored as scaled longs.
+ *
+ * A value with scale 2 stores 65000.01 as 6500001. Prices and quantities are
+ * parsed once at ingest with the symbol's tick/lot precision and only turned
+ * back into text when rendered.
+ */
+public final class FixedPoint {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        long value = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = value;
+            value *= 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+
+    // A value above this, or equal to it before a digit above 7, overflows with one more digit
+    private static final long MAX_BEFORE_DIGIT = Long.MAX_VALUE / 10;
+
+    /**
+     * Parses a plain decimal such as "65000.01000000" into a long with the
+     * given scale. Fraction digits beyond the scale must be zero, as they are
+     * for prices and sizes on the symbol's tick/lot grid; anything else means
+     * the scale is wrong, and rounding would turn a small size into a
+     * removed level.
+     *
+     * @throws NumberFormatException if the text is not a decimal, has nonzero
+     *                               digits beyond the scale or does not fit a long
+     */
+    public static long parse(char[] text, int start, int length, int scale) {
+        int end = start + length;
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Empty decimal");
+        }
+
+        long value = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c == '.') {
+                if (fractionDigits >= 0) {
+                    throw new NumberFormatException("Multiple decimal points in " + new String(text, start, length));
+                }
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == scale) {
+                        if (c != '0') {
+                            throw new NumberFormatException("More than " + scale + " decimals in "
+                                    + new String(text, start, length));
+                        }
+                        continue; // Trailing zero beyond our precision
+                    }
+                    fractionDigits++;
+                }
+                int digit = c - '0';
+                if (value >= MAX_BEFORE_DIGIT && (value > MAX_BEFORE_DIGIT || digit > 7)) {
+                    throw new NumberFormatException("Decimal out of range: " + new String(text, start, length));
+                }
+                value = value * 10 + digit;
+            } else {
+                throw new NumberFormatException("Invalid decimal: " + new String(text, start, length));
+            }
+        }
+
+        int missingDigits = scale - Math.max(fractionDigits, 0);
+        if (value > Long.MAX_VALUE / POWERS_OF_TEN[missingDigits]) {
+            throw new NumberFormatException("Decimal out of range: " + new String(text, start, length));
+        }
+        value *= POWERS_OF_TEN[missingDigits];
+
+        return negative ? -value : value;
+    }
+
+    public static long parse(String text, int scale) {
+        return parse(text.toCharArray(), 0, text.length(), scale);
+    }
+
+    public static double toDouble(long value, int scale) {
+        return (double) value / POWERS_OF_TEN[scale];
+    }
+
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    /**
+     * Formats the value with exactly {@code scale} fraction digits.
+     */
+    public static String toString(long value, int scale) {
+        StringBuilder builder = new StringBuilder(24);
+        append(builder, value, scale);
+        return builder.toString();
+    }
+
+    public static void append(StringBuilder builder, long value, int scale) {
+        if (value < 0) {
+            builder.append('-');
+            value = -value;
+        }
+
+        long divisor = POWERS_OF_TEN[scale];
+        builder.append(value / divisor);
+
+        if (scale > 0) {
+            builder.append('.');
+            long fraction = value % divisor;
+            for (int i = scale - 1; i >= 0; i--) {
+                builder.append((char) ('0' + (fraction / POWERS_OF_TEN[i]) % 10));
+            }
+        }
+    }
+}
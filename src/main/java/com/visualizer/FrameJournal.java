@@ -0,0 +1,413 @@
+package com.visualizer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of raw market-data frames in memory-mapped segment
+ * files, for replaying exactly what the feed sent.
+ *
+ * Each record is a 16 byte header (payload length, stream id, receive time
+ * in epoch nanos) followed by the payload, padded to 8 bytes. The payload is
+ * copied straight from the caller's buffer into the mapped segment, so a
+ * write is a memory copy and never a system call. A segment is rolled when
+ * the next record does not fit or the segment has covered its time span.
+ * The next segment is created ahead of time and finished segments are
+ * flushed and trimmed to size on a background thread.
+ *
+ * Next to each segment an index file holds one (receive time, position)
+ * entry per {@link #INDEX_INTERVAL} bytes of records, so a reader can seek
+ * by time without scanning the segment.
+ *
+ * Meant for a single writer, e.g. the consumer thread of the
+ * {@link IngestPipeline} being recorded, and it never makes that thread
+ * wait: frames from other threads, such as the occasional depth snapshot,
+ * are handed over with {@link #offer} and written before the writer's next
+ * frame, and if the next segment is not ready when one is full the frame
+ * is dropped and counted instead of waiting for it.
+ */
+public class FrameJournal implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(FrameJournal.class.getName());
+
+    public static final long DEFAULT_SEGMENT_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // Depth snapshots recorded by BinanceDepthSnapshotSource; pipeline tags are never negative
+    public static final int SNAPSHOT_STREAM_ID = -1;
+
+    static final int MAGIC = 0x4A524E4C;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 16;
+    static final int INDEX_INTERVAL = 64 * 1024;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final String DATA_SUFFIX = ".journal";
+    static final String INDEX_SUFFIX = ".index";
+
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final long segmentNanos;
+
+    // Converts System.nanoTime() receive stamps to wall-clock time
+    private final long epochOffsetNanos;
+
+    private final ExecutorService roller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-roller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Writer thread, or close() once the writer is out
+    private Segment current;
+    private Future<Segment> next;
+    private long nextSequence;
+
+    // Set by close(); a write in progress is waited out through writing
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean writing = false;
+
+    // Frames from other threads, written by the writer before its next frame
+    private final ConcurrentLinkedQueue<OfferedFrame> offered = new ConcurrentLinkedQueue<>();
+
+    // Counters
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong segmentsRolled = new AtomicLong();
+    private final AtomicLong unpreparedRolls = new AtomicLong();
+    private final AtomicLong unpreparedDrops = new AtomicLong();
+    private final AtomicLong oversizedFrames = new AtomicLong();
+    private final AtomicLong emptyFrames = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+
+    public FrameJournal(Path directory, String name) throws IOException {
+        this(directory, name, DEFAULT_SEGMENT_BYTES, DEFAULT_SEGMENT_MILLIS);
+    }
+
+    /**
+     * @param segmentBytes  size at which a segment is rolled, at most 2 GiB
+     * @param segmentMillis time span after which a segment is rolled
+     */
+    public FrameJournal(Path directory, String name, long segmentBytes, long segmentMillis) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER_SIZE + INDEX_INTERVAL || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentBytes);
+        }
+        if (segmentMillis <= 0) {
+            throw new IllegalArgumentException("Segment span must be positive: " + segmentMillis);
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = (int) segmentBytes;
+        this.segmentNanos = TimeUnit.MILLISECONDS.toNanos(segmentMillis);
+        this.epochOffsetNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+        Files.createDirectories(directory);
+        this.nextSequence = lastSequence(directory, name) + 1;
+        this.current = Segment.create(directory, name, nextSequence++, this.segmentBytes);
+        prepareNext();
+        LOGGER.info("📼 Recording frames to " + current.dataPath);
+    }
+
+    /**
+     * Records one frame. Writer thread only.
+     *
+     * Empty frames are not recorded: a zero length marks the end of a
+     * segment's records.
+     *
+     * @param streamId     identifies the stream on replay, e.g. a pipeline tag
+     * @param receivedNanos receive time as {@link System#nanoTime()}
+     * @return false if the frame was not recorded
+     */
+    public boolean append(int streamId, long receivedNanos, byte[] buffer, int offset, int length) {
+        writing = true;
+        try {
+            if (closed.get()) {
+                return false;
+            }
+            writeOffered();
+            return write(streamId, receivedNanos, buffer, offset, length);
+        } finally {
+            writing = false;
+        }
+    }
+
+    /**
+     * Hands a frame recorded on another thread to the writer, which writes
+     * it ahead of its next frame. The array is kept, not copied. Safe to
+     * call from any thread.
+     *
+     * @return false if the journal is closed
+     */
+    public boolean offer(int streamId, long receivedNanos, byte[] frame) {
+        if (closed.get()) {
+            return false;
+        }
+        offered.add(new OfferedFrame(streamId, receivedNanos, frame));
+        return true;
+    }
+
+    private void writeOffered() {
+        OfferedFrame frame;
+        while ((frame = offered.poll()) != null) {
+            write(frame.streamId, frame.receivedNanos, frame.bytes, 0, frame.bytes.length);
+        }
+    }
+
+    private boolean write(int streamId, long receivedNanos, byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            emptyFrames.incrementAndGet();
+            return false;
+        }
+        int recordSize = align(RECORD_HEADER_SIZE + length);
+        if (recordSize > segmentBytes - SEGMENT_HEADER_SIZE) {
+            oversizedFrames.incrementAndGet();
+            return false;
+        }
+
+        long epochNanos = receivedNanos + epochOffsetNanos;
+        if (!current.started) {
+            current.start(epochNanos);
+        } else if (current.remaining() < recordSize || epochNanos - current.startEpochNanos >= segmentNanos) {
+            if (!next.isDone()) {
+                // Never wait for the roller: keep filling the current segment, or drop if it is full
+                unpreparedRolls.incrementAndGet();
+                if (current.remaining() < recordSize) {
+                    unpreparedDrops.incrementAndGet();
+                    return false;
+                }
+            } else if (!roll(epochNanos)) {
+                return false;
+            }
+        }
+
+        current.write(streamId, epochNanos, buffer, offset, length, recordSize);
+        framesWritten.incrementAndGet();
+        bytesWritten.addAndGet(recordSize);
+        return true;
+    }
+
+    // Only called once the next segment is ready, so get() returns at once
+    private boolean roll(long epochNanos) {
+        Segment prepared;
+        try {
+            prepared = next.get();
+        } catch (ExecutionException e) {
+            writeErrors.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Journal segment preparation failed", e.getCause());
+            prepareNext();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Segment finished = current;
+        roller.execute(() -> finish(finished));
+        current = prepared;
+        prepareNext();
+        current.start(epochNanos);
+        segmentsRolled.incrementAndGet();
+        return true;
+    }
+
+    private void prepareNext() {
+        long sequence = nextSequence++;
+        next = roller.submit(() -> Segment.create(directory, name, sequence, segmentBytes));
+    }
+
+    private void finish(Segment segment) {
+        try {
+            segment.finish();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Cannot finish journal segment " + segment.dataPath, e);
+        }
+    }
+
+    /**
+     * Writes frames still offered, flushes and trims the current segment and
+     * deletes the unused prepared one. Safe to call from any thread; later
+     * appends are ignored.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Never trim a segment under a write in progress; appends from now on see closed
+        while (writing) {
+            Thread.onSpinWait();
+        }
+        writeOffered();
+
+        Segment last = current;
+        Future<Segment> pending = next;
+        roller.execute(() -> {
+            finish(last);
+            try {
+                pending.get().finish();
+            } catch (InterruptedException | ExecutionException | IOException e) {
+                LOGGER.log(Level.FINE, "Unused journal segment not cleaned up", e);
+            }
+        });
+        roller.shutdown();
+        try {
+            roller.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Path dataPath(Path directory, String name, long sequence) {
+        return directory.resolve(String.format("%s-%08d%s", name, sequence, DATA_SUFFIX));
+    }
+
+    static Path indexPath(Path directory, String name, long sequence) {
+        return directory.resolve(String.format("%s-%08d%s", name, sequence, INDEX_SUFFIX));
+    }
+
+    /**
+     * Sequence number of a segment file of this journal, or -1.
+     */
+    static long sequenceOf(Path file, String name) {
+        String fileName = file.getFileName().toString();
+        String prefix = name + "-";
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(DATA_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - DATA_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long lastSequence(Path directory, String name) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> sequenceOf(file, name)).max().orElse(0);
+        }
+    }
+
+    static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    // Getters
+    public Path getDirectory() { return directory; }
+    public String getName() { return name; }
+    public long getFramesWrittenCount() { return framesWritten.get(); }
+    public long getBytesWrittenCount() { return bytesWritten.get(); }
+    public long getSegmentsRolledCount() { return segmentsRolled.get(); }
+    public long getUnpreparedRollCount() { return unpreparedRolls.get(); }
+    public long getUnpreparedDropCount() { return unpreparedDrops.get(); }
+    public long getOversizedFrameCount() { return oversizedFrames.get(); }
+    public long getEmptyFrameCount() { return emptyFrames.get(); }
+    public long getWriteErrorCount() { return writeErrors.get(); }
+
+    private static final class OfferedFrame {
+        final int streamId;
+        final long receivedNanos;
+        final byte[] bytes;
+
+        OfferedFrame(int streamId, long receivedNanos, byte[] bytes) {
+            this.streamId = streamId;
+            this.receivedNanos = receivedNanos;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * One data file and its index, both mapped at full size while written.
+     */
+    private static final class Segment {
+        final Path dataPath;
+        final Path indexPath;
+        final FileChannel dataChannel;
+        final FileChannel indexChannel;
+        final MappedByteBuffer data;
+        final MappedByteBuffer index;
+
+        boolean started = false;
+        long startEpochNanos;
+        int position = SEGMENT_HEADER_SIZE;
+        int nextIndexAt = SEGMENT_HEADER_SIZE;
+        int indexCount;
+
+        private Segment(Path dataPath, Path indexPath, int size) throws IOException {
+            this.dataPath = dataPath;
+            this.indexPath = indexPath;
+            this.dataChannel = FileChannel.open(dataPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.indexChannel = FileChannel.open(indexPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) (size / INDEX_INTERVAL + 2) * INDEX_ENTRY_SIZE);
+        }
+
+        static Segment create(Path directory, String name, long sequence, int size) throws IOException {
+            return new Segment(dataPath(directory, name, sequence), indexPath(directory, name, sequence), size);
+        }
+
+        void start(long epochNanos) {
+            started = true;
+            startEpochNanos = epochNanos;
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putLong(8, epochNanos);
+        }
+
+        int remaining() {
+            return data.capacity() - position;
+        }
+
+        void write(int streamId, long epochNanos, byte[] buffer, int offset, int length, int recordSize) {
+            if (position >= nextIndexAt) {
+                int entry = indexCount * INDEX_ENTRY_SIZE;
+                index.putLong(entry, epochNanos);
+                index.putLong(entry + 8, position);
+                indexCount++;
+                nextIndexAt = position + INDEX_INTERVAL;
+            }
+
+            data.putInt(position + 4, streamId);
+            data.putLong(position + 8, epochNanos);
+            data.put(position + RECORD_HEADER_SIZE, buffer, offset, length);
+            // The length goes in last; a zero length marks the end of the records
+            data.putInt(position, length);
+            position += recordSize;
+        }
+
+        // Background thread: flush, trim to the bytes written and release
+        void finish() throws IOException {
+            if (!started) {
+                dataChannel.close();
+                indexChannel.close();
+                Files.deleteIfExists(dataPath);
+                Files.deleteIfExists(indexPath);
+                return;
+            }
+            data.force();
+            index.force();
+            dataChannel.truncate(position);
+            indexChannel.truncate((long) indexCount * INDEX_ENTRY_SIZE);
+            dataChannel.close();
+            indexChannel.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.visualizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads the frames of a {@link FrameJournal} in order, across segments, and
+ * seeks by receive time through the segment indexes.
+ *
+ * Segments are mapped read-only one at a time and each frame is copied into
+ * a reused buffer before it is handed out. A segment whose header was never
+ * written, e.g. the one prepared in advance when the recording process died
+ * without closing the journal, is read as empty. Not thread-safe.
+ */
+public class FrameJournalReader implements AutoCloseable {
+
+    /**
+     * Receives each frame. The buffer is reused once the call returns.
+     */
+    public interface FrameVisitor {
+        void onFrame(int streamId, long epochNanos, byte[] buffer, int offset, int length);
+    }
+
+    private final Path directory;
+    private final String name;
+    private final List<Long> sequences;
+
+    // Segment currently mapped
+    private int segmentIndex = -1;
+    private MappedByteBuffer data;
+    private int position;
+
+    private byte[] frameBuffer = new byte[16384];
+    private long framesRead;
+
+    public FrameJournalReader(Path directory, String name) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        try (Stream<Path> files = Files.list(directory)) {
+            this.sequences = files.map(file -> FrameJournal.sequenceOf(file, name))
+                    .filter(sequence -> sequence >= 0)
+                    .sorted(Comparator.naturalOrder())
+                    .toList();
+        }
+        if (!sequences.isEmpty()) {
+            openSegment(0);
+        }
+    }
+
+    /**
+     * Hands the next frame to the visitor.
+     *
+     * @return false at the end of the journal
+     */
+    public boolean next(FrameVisitor visitor) throws IOException {
+        while (data != null) {
+            if (position + FrameJournal.RECORD_HEADER_SIZE <= data.limit()) {
+                int length = data.getInt(position);
+                if (length > 0) {
+                    int streamId = data.getInt(position + 4);
+                    long epochNanos = data.getLong(position + 8);
+                    if (length > frameBuffer.length) {
+                        frameBuffer = new byte[Math.max(length, frameBuffer.length * 2)];
+                    }
+                    data.get(position + FrameJournal.RECORD_HEADER_SIZE, frameBuffer, 0, length);
+                    position += FrameJournal.align(FrameJournal.RECORD_HEADER_SIZE + length);
+                    framesRead++;
+
+                    visitor.onFrame(streamId, epochNanos, frameBuffer, 0, length);
+                    return true;
+                }
+            }
+            // End of this segment's records
+            if (segmentIndex + 1 >= sequences.size()) {
+                return false;
+            }
+            openSegment(segmentIndex + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Positions the reader at the first frame received at or after the given
+     * time. Finds the segment from the segment start times, then the nearest
+     * earlier index entry, then scans at most one index interval.
+     */
+    public void seek(long epochNanos) throws IOException {
+        if (sequences.isEmpty()) {
+            return;
+        }
+
+        // Last started segment starting at or before the target
+        int target = 0;
+        for (int i = 1; i < sequences.size(); i++) {
+            long start = segmentStart(sequences.get(i));
+            if (start == 0) {
+                continue;
+            }
+            if (start > epochNanos) {
+                break;
+            }
+            target = i;
+        }
+        openSegment(target);
+        position = indexedPosition(sequences.get(target), epochNanos);
+
+        // Scan forward to the first frame at or after the target
+        while (data != null) {
+            while (position + FrameJournal.RECORD_HEADER_SIZE <= data.limit()) {
+                int length = data.getInt(position);
+                if (length <= 0 || data.getLong(position + 8) >= epochNanos) {
+                    if (length > 0) {
+                        return;
+                    }
+                    break;
+                }
+                position += FrameJournal.align(FrameJournal.RECORD_HEADER_SIZE + length);
+            }
+            if (segmentIndex + 1 >= sequences.size()) {
+                return;
+            }
+            openSegment(segmentIndex + 1);
+        }
+    }
+
+    /**
+     * Receive time of the first frame of the journal, or -1 if it is empty.
+     */
+    public long getStartEpochNanos() throws IOException {
+        for (long sequence : sequences) {
+            long start = segmentStart(sequence);
+            if (start != 0) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private void openSegment(int index) throws IOException {
+        Path path = FrameJournal.dataPath(directory, name, sequences.get(index));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        segmentIndex = index;
+        position = FrameJournal.SEGMENT_HEADER_SIZE;
+
+        if (data.limit() < FrameJournal.SEGMENT_HEADER_SIZE || data.getInt(0) == 0 || data.getLong(8) == 0) {
+            // Created but never started: no records
+            position = data.limit();
+        } else if (data.getInt(0) != FrameJournal.MAGIC) {
+            throw new IOException("Not a frame journal segment: " + path);
+        }
+    }
+
+    // 0 for a segment that was never started
+    private long segmentStart(long sequence) throws IOException {
+        Path path = FrameJournal.dataPath(directory, name, sequence);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FrameJournal.SEGMENT_HEADER_SIZE);
+            channel.read(header, 0);
+            return header.getLong(8);
+        }
+    }
+
+    // Position of the last index entry before the target, by binary search
+    private int indexedPosition(long sequence, long epochNanos) throws IOException {
+        Path path = FrameJournal.indexPath(directory, name, sequence);
+        if (!Files.exists(path)) {
+            return FrameJournal.SEGMENT_HEADER_SIZE;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int low = 0;
+            int high = (int) (channel.size() / FrameJournal.INDEX_ENTRY_SIZE) - 1;
+            int found = FrameJournal.SEGMENT_HEADER_SIZE;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int entry = mid * FrameJournal.INDEX_ENTRY_SIZE;
+                long position = index.getLong(entry + 8);
+                // An entry never written, when the journal was not closed cleanly
+                if (position == 0 || index.getLong(entry) >= epochNanos) {
+                    high = mid - 1;
+                } else {
+                    found = (int) position;
+                    low = mid + 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    @Override
+    public void close() {
+        data = null;
+    }
+
+    // Getters
+    public int getSegmentCount() { return sequences.size(); }
+    public long getFramesReadCount() { return framesRead; }
+}
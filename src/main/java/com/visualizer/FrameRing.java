@@ -0,0 +1,169 @@
+package com.visualizer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated single-producer/single-consumer ring of variable-length frames.
+ *
+ * Each record is a 16 byte header (payload length, tag, receive timestamp)
+ * followed by the payload, padded to 8 bytes. A record never wraps: when it
+ * does not fit before the end of the array, a padding marker fills the rest
+ * and the record starts again at index 0.
+ *
+ * The producer claims space, writes the payload in place and commits; the
+ * consumer reads records in place and frees them after its callback returns.
+ * The only cross-thread traffic is the release/acquire of the head and tail
+ * positions, so neither side ever locks. When the ring is full the producer
+ * gets a failed claim rather than waiting.
+ */
+public class FrameRing {
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    static final int HEADER_SIZE = 16;
+    private static final int PADDING = -1;
+
+    public interface FrameHandler {
+        void onFrame(int tag, long receivedNanos, byte[] buffer, int offset, int length);
+    }
+
+    private final byte[] buffer;
+    private final int capacity;
+    private final int mask;
+    private final int maxPayload;
+
+    // Consumer position, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Producer position, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    // Producer-local state
+    private long headCache;
+    private long claimStart = -1;
+
+    // Consumer-local high-water mark, read by anyone
+    private volatile long maxOccupancy;
+
+    /**
+     * @param capacity size of the ring in bytes, a power of two
+     */
+    public FrameRing(int capacity) {
+        if (capacity < 1024 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two >= 1024: " + capacity);
+        }
+        this.buffer = new byte[capacity];
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        // A record may need to skip the tail end of the array, so cap it at half
+        this.maxPayload = capacity / 2 - HEADER_SIZE;
+    }
+
+    /**
+     * Reserves room for a payload of up to {@code maxLength} bytes.
+     * Producer thread only.
+     *
+     * @return offset in {@link #buffer()} to write the payload at, or -1 if
+     * the ring is full or the frame can never fit
+     */
+    public int claim(int maxLength) {
+        if (maxLength > maxPayload) {
+            return -1;
+        }
+
+        int recordSize = align(HEADER_SIZE + maxLength);
+        long position = tail.get();
+        int index = (int) (position & mask);
+        int contiguous = capacity - index;
+        int needed = recordSize <= contiguous ? recordSize : contiguous + recordSize;
+
+        if (position + needed - headCache > capacity) {
+            headCache = head.getAcquire();
+            if (position + needed - headCache > capacity) {
+                return -1;
+            }
+        }
+
+        if (recordSize > contiguous) {
+            // Not published until commit, so the consumer cannot see it yet
+            INT.set(buffer, index, PADDING);
+            position += contiguous;
+            index = 0;
+        }
+
+        claimStart = position;
+        return index + HEADER_SIZE;
+    }
+
+    /**
+     * Publishes the claimed record with its actual payload length.
+     * Producer thread only.
+     */
+    public void commit(int tag, long receivedNanos, int length) {
+        int index = (int) (claimStart & mask);
+        LONG.set(buffer, index + 8, receivedNanos);
+        INT.set(buffer, index + 4, tag);
+        INT.set(buffer, index, length);
+
+        tail.setRelease(claimStart + align(HEADER_SIZE + length));
+        claimStart = -1;
+    }
+
+    /**
+     * Hands up to {@code limit} records to the handler, in order.
+     * Consumer thread only.
+     *
+     * @return number of records consumed
+     */
+    public int poll(FrameHandler handler, int limit) {
+        long position = head.get();
+        long available = tail.getAcquire();
+
+        long occupancy = available - position;
+        if (occupancy > maxOccupancy) {
+            maxOccupancy = occupancy;
+        }
+
+        int count = 0;
+        while (position < available && count < limit) {
+            int index = (int) (position & mask);
+            int length = (int) INT.get(buffer, index);
+
+            if (length == PADDING) {
+                position += capacity - index;
+                head.setRelease(position);
+                continue;
+            }
+
+            int tag = (int) INT.get(buffer, index + 4);
+            long receivedNanos = (long) LONG.get(buffer, index + 8);
+            try {
+                handler.onFrame(tag, receivedNanos, buffer, index + HEADER_SIZE, length);
+            } finally {
+                // Free the record only once the handler is done with it
+                position += align(HEADER_SIZE + length);
+                head.setRelease(position);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public int getMaxPayload() { return maxPayload; }
+    public long getOccupancy() { return tail.get() - head.get(); }
+    public long getMaxOccupancy() { return maxOccupancy; }
+    public boolean isEmpty() { return tail.getAcquire() == head.get(); }
+}
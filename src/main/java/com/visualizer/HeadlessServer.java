@@ -0,0 +1,354 @@
+package com.visualizer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps order books for a fixed list of pairs without JavaFX, e.g. as a
+ * systemd service, and serves them to local clients so any number of GUIs
+ * and tools share one upstream connection.
+ *
+ * The books are fed by one {@link CombinedStreamClient} and applied on a
+ * {@link BookManager}'s shards, exactly as in the app. One port on the
+ * loopback interface serves:
+ * <ul>
+ *   <li>{@code GET /books}: whether the upstream socket is connected, and every
+ *       symbol with its sync state and last event time</li>
+ *   <li>{@code GET /books/<symbol>}: the top N as a snapshot message</li>
+ *   <li>{@code GET /metrics}: the {@link MetricsRegistry} in Prometheus format</li>
+ *   <li>{@code /ws/<symbol>[,<symbol>...]}: a WebSocket that gets a snapshot
+ *       message per symbol, then update messages (see {@link BookDeltaEncoder})</li>
+ * </ul>
+ *
+ * WebSocket clients are fed by a {@link BookBroadcaster}, so a slow client
+ * is sent fresh snapshots instead of holding up the rest. A dropped upstream
+ * socket is reopened by the stream client and the books resync; until then
+ * {@code /books} reports {@code "connected":false} and the books stand still.
+ */
+public class HeadlessServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(HeadlessServer.class.getName());
+
+    public static final String SYMBOLS_PROPERTY = "visualizer.symbols";
+    public static final String PORT_PROPERTY = "visualizer.serverPort";
+    public static final String DEPTH_PROPERTY = "visualizer.serverDepth";
+    public static final String QUEUE_PROPERTY = "visualizer.serverQueue";
+
+    public static final int DEFAULT_PORT = 8091;
+    public static final int DEFAULT_DEPTH = 20;
+
+    private final CombinedStreamClient streamClient;
+    private final BookManager bookManager;
+    private final BookBroadcaster broadcaster;
+    private final MetricsRegistry metrics;
+    private final int depth;
+
+    // By symbol; fixed once constructed
+    private final Map<String, OrderBookHandler> books = new LinkedHashMap<>();
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+    // Reads each connection's request, then its WebSocket control frames
+    private final ExecutorService clients = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "headless-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = false;
+
+    private final AtomicInteger clientIds = new AtomicInteger();
+
+    // Counters
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param port          port to listen on, or 0 for any free one
+     * @param depth         levels per side served to clients
+     * @param queueCapacity messages a client may fall behind by, see {@link BookBroadcaster}
+     */
+    public HeadlessServer(List<TradingPair> tradingPairs, int port, int depth, int queueCapacity) throws IOException {
+        this(tradingPairs, port, new BookBroadcaster(depth, queueCapacity),
+                new CombinedStreamClient(new IngestPipeline("market-data")), new BookManager(), new MetricsRegistry());
+    }
+
+    public HeadlessServer(List<TradingPair> tradingPairs, int port, BookBroadcaster broadcaster,
+                          CombinedStreamClient streamClient, BookManager bookManager, MetricsRegistry metrics)
+            throws IOException {
+        if (tradingPairs.isEmpty()) {
+            throw new IllegalArgumentException("Headless server needs at least one pair");
+        }
+        int depth = broadcaster.getDepth();
+        if (depth < 1 || depth > BookSnapshotPublisher.DEFAULT_DEPTH) {
+            throw new IllegalArgumentException("Depth must be 1 to " + BookSnapshotPublisher.DEFAULT_DEPTH + ": " + depth);
+        }
+        this.streamClient = streamClient;
+        this.bookManager = bookManager;
+        this.broadcaster = broadcaster;
+        this.metrics = metrics;
+        this.depth = depth;
+
+        for (TradingPair tradingPair : tradingPairs) {
+            BookManager.ManagedBook book = bookManager.add(tradingPair);
+            books.put(tradingPair.getSymbol(), book.getHandler());
+            broadcaster.add(book.getHandler());
+            streamClient.subscribe(tradingPair.getDepthStream(), book);
+        }
+
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.acceptThread = new Thread(this::acceptLoop, "headless-accept");
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        metrics.registerJvm();
+        VisualizerMetrics.register(metrics, streamClient);
+        VisualizerMetrics.register(metrics, streamClient.getPipeline());
+        VisualizerMetrics.register(metrics, bookManager);
+        for (OrderBookHandler book : books.values()) {
+            VisualizerMetrics.register(metrics, book);
+        }
+        VisualizerMetrics.register(metrics, broadcaster);
+        metrics.counter("visualizer_server_requests_total", "HTTP and WebSocket requests received.",
+                requests::get);
+    }
+
+    /**
+     * Opens the upstream connection and starts serving.
+     */
+    public void start() {
+        running = true;
+        bookManager.start();
+        streamClient.start();
+        broadcaster.start();
+        acceptThread.start();
+        LOGGER.info("🖥️ Headless server on port " + getPort() + " with " + books.size() + " books, top "
+                + depth + " levels");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Server socket close failed", e);
+        }
+        broadcaster.close();
+        // Closing the sockets above ends the readers
+        clients.shutdown();
+        streamClient.stop();
+        streamClient.getPipeline().stop();
+        bookManager.stop();
+        metrics.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                String name = "client-" + clientIds.incrementAndGet();
+                try {
+                    clients.execute(() -> serve(socket, name));
+                } catch (RejectedExecutionException e) {
+                    // Only once closed
+                    LocalHttp.closeQuietly(socket);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.WARNING, "Headless server accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket, String name) {
+        try {
+            InputStream in = socket.getInputStream();
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            LocalHttp.Request request = LocalHttp.readRequest(in);
+            requests.incrementAndGet();
+
+            if (request.isWebSocket() && request.path.startsWith("/ws/")) {
+                openWebSocket(socket, in, out, request, name);
+                return;
+            }
+            if (request.path.equals("/books")) {
+                LocalHttp.respond(out, 200, listBooks());
+            } else if (request.path.startsWith("/books/")) {
+                OrderBookHandler book = books.get(request.path.substring(7).toLowerCase(Locale.ROOT));
+                if (book == null) {
+                    LocalHttp.respond(out, 404, "{\"error\":\"Unknown symbol\"}");
+                } else {
+                    byte[] snapshot = snapshotOf(book);
+                    LocalHttp.respond(out, 200, "application/json", snapshot, snapshot.length);
+                }
+            } else if (request.path.equals("/metrics")) {
+                LocalHttp.TextResponse response = new LocalHttp.TextResponse(16 * 1024);
+                metrics.writeTo(response.body());
+                response.send(out, 200, MetricsServer.CONTENT_TYPE);
+            } else {
+                LocalHttp.respond(out, 404, "{\"error\":\"Not found\"}");
+            }
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Headless client ended", e);
+            LocalHttp.closeQuietly(socket);
+        }
+    }
+
+    private String listBooks() {
+        StringBuilder json = new StringBuilder("{\"connected\":").append(streamClient.isConnected())
+                .append(",\"reconnects\":").append(streamClient.getReconnectCount())
+                .append(",\"books\":[");
+        for (OrderBookHandler book : books.values()) {
+            OrderBookSynchronizer synchronizer = book.getSynchronizer();
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            json.append("{\"symbol\":\"").append(book.getTradingPair().getSymbol())
+                    .append("\",\"synced\":").append(synchronizer.isSynced())
+                    .append(",\"u\":").append(synchronizer.getLastUpdateId())
+                    .append(",\"E\":").append(synchronizer.getLastEventTime())
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    // Request threads encode their own snapshot; the broadcaster's encoders are not shared
+    private byte[] snapshotOf(OrderBookHandler book) {
+        BookDeltaEncoder encoder = new BookDeltaEncoder(book.getTradingPair(), depth);
+        encoder.advance(book.getSnapshots());
+        return encoder.encodeSnapshot();
+    }
+
+    private void openWebSocket(Socket socket, InputStream in, OutputStream out, LocalHttp.Request request,
+                               String name) throws IOException {
+        List<String> symbols = new ArrayList<>();
+        for (String symbol : request.path.substring(4).split(",")) {
+            String key = symbol.trim().toLowerCase(Locale.ROOT);
+            if (!books.containsKey(key)) {
+                LocalHttp.respond(out, 404, "{\"error\":\"Unknown symbol " + symbol.trim() + "\"}");
+                socket.close();
+                return;
+            }
+            symbols.add(key);
+        }
+
+        LocalHttp.acceptWebSocket(out, request.headers.get("sec-websocket-key"));
+        Client client = new Client(socket, out);
+        BookBroadcaster.Subscriber subscriber = broadcaster.subscribe(name, symbols, client);
+        VisualizerMetrics.register(metrics, subscriber);
+        LOGGER.info("🔗 Headless " + name + " connected for " + String.join(",", symbols));
+
+        try {
+            while (running && !subscriber.isClosed()) {
+                LocalHttp.Frame frame = LocalHttp.readFrame(in);
+                if (frame.opcode == LocalHttp.PING) {
+                    client.sendControl(LocalHttp.PONG, frame.payload);
+                } else if (frame.opcode == LocalHttp.CLOSE) {
+                    client.sendControl(LocalHttp.CLOSE, frame.payload);
+                    break;
+                }
+            }
+        } finally {
+            broadcaster.unsubscribe(subscriber);
+            VisualizerMetrics.unregister(metrics, subscriber);
+        }
+    }
+
+    // Getters
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public int getDepth() { return depth; }
+    public CombinedStreamClient getStreamClient() { return streamClient; }
+    public BookManager getBookManager() { return bookManager; }
+    public BookBroadcaster getBroadcaster() { return broadcaster; }
+    public MetricsRegistry getMetrics() { return metrics; }
+    public List<OrderBookHandler> getBooks() { return new ArrayList<>(books.values()); }
+    public long getRequestCount() { return requests.get(); }
+
+    /**
+     * Runs a server until killed. Pairs come from -Dvisualizer.symbols, e.g.
+     * "BTC/USDT:2:5,ETH/USDT:2:4"; see {@link TradingPair#parse}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<TradingPair> tradingPairs = new ArrayList<>();
+        for (String spec : System.getProperty(SYMBOLS_PROPERTY, "BTC/USDT:2:5").split(",")) {
+            if (!spec.isBlank()) {
+                tradingPairs.add(TradingPair.parse(spec));
+            }
+        }
+
+        HeadlessServer server = new HeadlessServer(tradingPairs, Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT),
+                Integer.getInteger(DEPTH_PROPERTY, DEFAULT_DEPTH),
+                Integer.getInteger(QUEUE_PROPERTY, BookBroadcaster.DEFAULT_QUEUE_CAPACITY));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "headless-shutdown"));
+        server.start();
+
+        System.out.println("🖥️ Headless server running on http://localhost:" + server.getPort() + "/books");
+        BookBroadcaster broadcaster = server.getBroadcaster();
+        while (true) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            int synced = 0;
+            for (OrderBookHandler book : server.getBooks()) {
+                synced += book.getSynchronizer().isSynced() ? 1 : 0;
+            }
+            System.out.printf("HEADLESS | %d/%d books synced | %d clients | %,d updates | %,d conflations%n",
+                    synced, server.books.size(), broadcaster.getSubscriberCount(),
+                    broadcaster.getUpdatesEncodedCount(), broadcaster.getConflationCount());
+        }
+    }
+
+    /**
+     * One downstream WebSocket. Messages are written by its broadcast writer
+     * task, control replies by its reader thread.
+     */
+    private static final class Client implements BookBroadcaster.Sink {
+        private final Socket socket;
+        private final OutputStream out;
+        private final byte[] header = new byte[10];
+
+        Client(Socket socket, OutputStream out) {
+            this.socket = socket;
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(byte[] message) throws IOException {
+            LocalHttp.writeFrame(out, header, LocalHttp.TEXT, message, 0, message.length);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        synchronized void sendControl(int opcode, byte[] payload) throws IOException {
+            LocalHttp.writeFrame(out, header, opcode, payload, 0, payload.length);
+            out.flush();
+        }
+
+        // Not synchronized: a writer stuck on a full socket must not keep it open
+        @Override
+        public void close() {
+            LocalHttp.closeQuietly(socket);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.visualizer;
+
+import okio.ByteString;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Two-stage ingest: the socket reader thread only copies frame bytes into a
+ * preallocated {@link FrameRing}, and a dedicated consumer thread parses them
+ * and applies them to the books.
+ *
+ * A slow parse or a burst therefore queues up in the ring instead of stopping
+ * OkHttp from draining the socket. When the ring is full the frame is dropped
+ * and counted; for depth streams the resulting sequence gap makes the book
+ * resync.
+ *
+ * A {@link FrameJournal} can be attached to record every frame exactly as
+ * received. It is written on the consumer thread, straight from the ring,
+ * before the frame is dispatched.
+ *
+ * The ring is single-producer: frames must be published from one thread,
+ * which is the case for the reader thread of one socket. Use one pipeline
+ * per connection.
+ */
+public class IngestPipeline {
+    private static final Logger LOGGER = Logger.getLogger(IngestPipeline.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * How the consumer thread waits while the ring is empty.
+     */
+    public enum WaitStrategy {
+        /** Spin on the ring; lowest latency, burns a core. */
+        BUSY_SPIN,
+        /** Yield the core between polls. */
+        YIELDING,
+        /** Spin, then yield, then park for 50µs at a time. */
+        BACKOFF,
+        /** Park until the producer signals a new frame. */
+        BLOCKING
+    }
+
+    /**
+     * Receives frames on the consumer thread. The buffer is reused once the
+     * call returns.
+     */
+    public interface FrameConsumer {
+        void onFrame(byte[] buffer, int offset, int length, long receivedNanos);
+    }
+
+    private final String name;
+    private final FrameRing ring;
+    private final WaitStrategy waitStrategy;
+    // A tag is a slot in the consumer table plus how many times that slot was reused
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int MAX_GENERATION = Integer.MAX_VALUE >>> SLOT_BITS;
+
+    // Replaced as a whole on every change, indexed by slot
+    private volatile Registration[] consumers = new Registration[0];
+
+    // Slots of removed consumers and their generation counts, guarded by this
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int[] generations = new int[0];
+
+    private volatile FrameJournal journal;
+
+    // Run by the consumer thread after every poll
+    private volatile Runnable pollTask;
+
+    private final Thread consumerThread;
+    private volatile boolean running = false;
+    private volatile boolean consumerParked = false;
+
+    // Counters
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong consumedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong oversizedFrames = new AtomicLong();
+    private final AtomicLong consumerWaits = new AtomicLong();
+    private final AtomicLong consumerWakeups = new AtomicLong();
+    private final AtomicLong consumerErrors = new AtomicLong();
+    private volatile long maxQueueDelayNanos;
+
+    public IngestPipeline(String name) {
+        this(name, DEFAULT_CAPACITY, WaitStrategy.BACKOFF);
+    }
+
+    public IngestPipeline(String name, int capacity, WaitStrategy waitStrategy) {
+        this.name = name;
+        this.ring = new FrameRing(capacity);
+        this.waitStrategy = waitStrategy;
+        this.consumerThread = new Thread(this::runConsumer, name + "-ingest");
+        this.consumerThread.setDaemon(true);
+    }
+
+    /**
+     * Adds a consumer and returns the tag to publish its frames with.
+     * Slots of removed consumers are reused under a new tag, so frames still
+     * queued for a removed consumer cannot reach its successor.
+     */
+    public synchronized int register(FrameConsumer consumer) {
+        Registration[] updated;
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = consumers.length;
+            if (slot > SLOT_MASK) {
+                throw new IllegalStateException("Pipeline " + name + " has no free consumer slot");
+            }
+            updated = Arrays.copyOf(consumers, slot + 1);
+            generations = Arrays.copyOf(generations, slot + 1);
+        } else {
+            slot = freeSlots.poll();
+            updated = consumers.clone();
+            generations[slot] = (generations[slot] + 1) & MAX_GENERATION;
+        }
+        int tag = generations[slot] << SLOT_BITS | slot;
+        updated[slot] = new Registration(tag, consumer);
+        consumers = updated;
+        return tag;
+    }
+
+    /**
+     * Removes a consumer. Frames still queued with its tag are skipped.
+     */
+    public synchronized void unregister(int tag) {
+        int slot = tag & SLOT_MASK;
+        Registration registration = slot < consumers.length ? consumers[slot] : null;
+        if (registration == null || registration.tag != tag) {
+            return;
+        }
+        Registration[] updated = consumers.clone();
+        updated[slot] = null;
+        consumers = updated;
+        freeSlots.add(slot);
+    }
+
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            consumerThread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(consumerThread);
+    }
+
+    /**
+     * Records frames from now on, tagged with their consumer's tag as the
+     * stream id; null stops recording. A journal must not be shared between
+     * pipelines.
+     */
+    public void setJournal(FrameJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Runs a task on the consumer thread after every poll of the ring, busy
+     * or idle, e.g. to catch up on work held back while frames were
+     * arriving. It must be cheap when there is nothing to do; null removes it.
+     */
+    public void setPollTask(Runnable pollTask) {
+        this.pollTask = pollTask;
+    }
+
+    /**
+     * Copies a text frame into the ring as UTF-8. Producer thread only.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean publish(int tag, String text) {
+        long receivedNanos = System.nanoTime();
+        int offset = claim(Utf8.maxEncodedLength(text));
+        if (offset < 0) {
+            return false;
+        }
+        int length = Utf8.encode(text, ring.buffer(), offset);
+        commit(tag, receivedNanos, length);
+        return true;
+    }
+
+    /**
+     * Copies a binary frame into the ring. Producer thread only.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean publish(int tag, ByteString bytes) {
+        long receivedNanos = System.nanoTime();
+        int length = bytes.size();
+        int offset = claim(length);
+        if (offset < 0) {
+            return false;
+        }
+        bytes.copyInto(0, ring.buffer(), offset, length);
+        commit(tag, receivedNanos, length);
+        return true;
+    }
+
+    /**
+     * Copies a frame given as raw bytes into the ring. Producer thread only.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean publish(int tag, byte[] buffer, int offset, int length) {
+        return publish(tag, buffer, offset, length, System.nanoTime());
+    }
+
+    /**
+     * Copies a frame that was received earlier, keeping its receive stamp,
+     * e.g. one handed on from another pipeline. Producer thread only.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean publish(int tag, byte[] buffer, int offset, int length, long receivedNanos) {
+        int position = claim(length);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(buffer, offset, ring.buffer(), position, length);
+        commit(tag, receivedNanos, length);
+        return true;
+    }
+
+    private int claim(int maxLength) {
+        int offset = ring.claim(maxLength);
+        if (offset < 0) {
+            if (maxLength > ring.getMaxPayload()) {
+                oversizedFrames.incrementAndGet();
+                LOGGER.warning("Frame of up to " + maxLength + " bytes does not fit pipeline " + name);
+            } else {
+                droppedFrames.incrementAndGet();
+            }
+        }
+        return offset;
+    }
+
+    private void commit(int tag, long receivedNanos, int length) {
+        ring.commit(tag, receivedNanos, length);
+        publishedFrames.incrementAndGet();
+
+        if (consumerParked) {
+            consumerWakeups.incrementAndGet();
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    private void runConsumer() {
+        FrameRing.FrameHandler dispatcher = this::dispatch;
+        int idleSpins = 0;
+
+        while (running) {
+            int count = ring.poll(dispatcher, BATCH_SIZE);
+            Runnable task = pollTask;
+            if (task != null) {
+                runPollTask(task);
+            }
+            if (count > 0) {
+                idleSpins = 0;
+            } else {
+                waitForFrames(idleSpins++);
+            }
+        }
+    }
+
+    private void runPollTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            consumerErrors.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Poll task failed on pipeline " + name, e);
+        }
+    }
+
+    private void dispatch(int tag, long receivedNanos, byte[] buffer, int offset, int length) {
+        long queueDelay = System.nanoTime() - receivedNanos;
+        if (queueDelay > maxQueueDelayNanos) {
+            maxQueueDelayNanos = queueDelay;
+        }
+
+        FrameJournal recorder = journal;
+        if (recorder != null) {
+            recorder.append(tag, receivedNanos, buffer, offset, length);
+        }
+
+        Registration[] registrations = consumers;
+        int slot = tag & SLOT_MASK;
+        Registration registration = slot < registrations.length ? registrations[slot] : null;
+        if (registration != null && registration.tag == tag) {
+            try {
+                registration.consumer.onFrame(buffer, offset, length, receivedNanos);
+            } catch (RuntimeException e) {
+                consumerErrors.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Frame consumer failed on pipeline " + name, e);
+            }
+        }
+        consumedFrames.incrementAndGet();
+    }
+
+    private void waitForFrames(int idleSpins) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> Thread.yield();
+            case BACKOFF -> {
+                if (idleSpins < 100) {
+                    Thread.onSpinWait();
+                } else if (idleSpins < 200) {
+                    Thread.yield();
+                } else {
+                    consumerWaits.incrementAndGet();
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+            case BLOCKING -> {
+                consumerWaits.incrementAndGet();
+                consumerParked = true;
+                // Re-check after announcing, and never sleep for long in case a wakeup raced us
+                if (ring.isEmpty() && running) {
+                    LockSupport.parkNanos(1_000_000);
+                }
+                consumerParked = false;
+            }
+        }
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public WaitStrategy getWaitStrategy() { return waitStrategy; }
+    public int getCapacity() { return ring.getCapacity(); }
+    public long getOccupancy() { return ring.getOccupancy(); }
+    public long getMaxOccupancy() { return ring.getMaxOccupancy(); }
+    public long getPublishedFrameCount() { return publishedFrames.get(); }
+    public long getConsumedFrameCount() { return consumedFrames.get(); }
+    public long getDroppedFrameCount() { return droppedFrames.get(); }
+    public long getOversizedFrameCount() { return oversizedFrames.get(); }
+    public long getConsumerWaitCount() { return consumerWaits.get(); }
+    public long getConsumerWakeupCount() { return consumerWakeups.get(); }
+    public long getConsumerErrorCount() { return consumerErrors.get(); }
+    public long getMaxQueueDelayNanos() { return maxQueueDelayNanos; }
+    public FrameJournal getJournal() { return journal; }
+
+    private static final class Registration {
+        final int tag;
+        final FrameConsumer consumer;
+
+        Registration(int tag, FrameConsumer consumer) {
+            this.tag = tag;
+            this.consumer = consumer;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import javafx.collections.ObservableList;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class JavaFXMain extends Application {
@@ -13,12 +16,34 @@ public class JavaFXMain extends Application {
     private static final Logger LOGGER = Logger.getLogger(JavaFXMain.class.getName());
 
     private OrderBookView orderBookView;
-    private WebSocketClient currentWebSocketClient;
+
+    // One socket for every stream the app watches; frames are parsed off the reader thread
+    private final CombinedStreamClient streamClient = new CombinedStreamClient(new IngestPipeline("market-data",
+            IngestPipeline.DEFAULT_CAPACITY, IngestPipeline.WaitStrategy.BLOCKING));
+
+    // Shared by every book; records its snapshots along with the frames
+    private final BinanceDepthSnapshotSource snapshotSource = new BinanceDepthSnapshotSource();
+
+    // Books are applied on shard threads, off the routing thread. Only the few pairs the cache keeps
+    // live have books, so a shard per three of them is plenty, and idle shards park instead of spinning
+    private static final int SHARD_COUNT = Math.min(2, (PairCache.DEFAULT_MAX_SESSIONS + 2) / 3);
+    private final BookManager bookManager = new BookManager(SHARD_COUNT, snapshotSource,
+            IngestPipeline.WaitStrategy.BLOCKING);
+
+    // Recently viewed pairs stay live so switching back is instant
+    private final PairCache pairCache = new PairCache(streamClient, bookManager);
+
+    // Set -Dvisualizer.journal=<dir> to record every raw frame for replay
+    private FrameJournal journal;
+
+    // Always exported over JMX; set -Dvisualizer.metricsPort=<port> to serve /metrics too
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private MetricsServer metricsServer;
 
     @Override
     public void start(Stage stage) {
         // Create initial trading pair
-        TradingPair initialPair = new TradingPair("BTC", "USDT");
+        TradingPair initialPair = new TradingPair("BTC", "USDT", 2, 5);
 
         // Create the order book view
         orderBookView = new OrderBookView(initialPair);
@@ -36,58 +61,85 @@ public class JavaFXMain extends Application {
 
         // Handle window close event to cleanup connections
         stage.setOnCloseRequest(event -> {
-            stopCurrentWebSocketConnection();
+            streamClient.stop();
+            pairCache.close();
+            bookManager.stop();
+            if (journal != null) {
+                journal.close();
+            }
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            metrics.close();
+            if (LatencyMonitor.isEnabled()) {
+                LOGGER.info("⏱️ Latency per stream and stage:\n" + LatencyMonitor.report());
+            }
+            orderBookView.cleanup();
             Platform.exit();
             System.exit(0);
         });
 
         stage.show();
 
-        // Start initial WebSocket connection
-        startWebSocketConnection(initialPair);
+        // Subscribe the initial pair as a favorite and open the shared connection
+        startRecording();
+        startMetrics();
+        bookManager.start();
+        pairCache.pin(initialPair);
+        orderBookView.showSession(pairCache.view(initialPair));
+        streamClient.start();
     }
 
     private void onPairChanged(TradingPair newPair, ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        // Stop current WebSocket connection
-        stopCurrentWebSocketConnection();
-
-        // Small delay to ensure clean disconnection
-        Platform.runLater(() -> {
-            try {
-                Thread.sleep(100); // Brief pause for clean disconnection
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        // A cached pair is already live; a new one is subscribed on the open socket
+        orderBookView.showSession(pairCache.view(newPair));
 
-            // Start new WebSocket connection for the selected pair
-            startWebSocketConnection(newPair);
-
-            // Log instead of printing to console
-            LOGGER.info("🔄 Switched to trading pair: " + newPair.getDisplayName());
-        });
+        // Log instead of printing to console
+        LOGGER.info("🔄 Switched to trading pair: " + newPair.getDisplayName());
     }
 
-    private void startWebSocketConnection(TradingPair tradingPair) {
-        Platform.runLater(() -> {
-            currentWebSocketClient = new WebSocketClient(
-                    tradingPair.getWebSocketUrl(),
-                    new OrderBookHandler(
-                            orderBookView.getBidOrders(),
-                            orderBookView.getAskOrders()
-                    )
-            );
+    private void startRecording() {
+        String directory = System.getProperty("visualizer.journal");
+        if (directory == null) {
+            return;
+        }
+        try {
+            journal = new FrameJournal(Path.of(directory), "market-data");
+            streamClient.record(journal);
+            snapshotSource.record(journal);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot record frames to " + directory, e);
+        }
+    }
 
-            // Set the client reference in the view
-            orderBookView.setCurrentWebSocketClient(currentWebSocketClient);
+    private void startMetrics() {
+        metrics.registerJvm();
+        VisualizerMetrics.register(metrics, streamClient);
+        VisualizerMetrics.register(metrics, streamClient.getPipeline());
+        VisualizerMetrics.register(metrics, bookManager);
+        VisualizerMetrics.register(metrics, pairCache);
+        VisualizerMetrics.register(metrics, orderBookView.getPublisher());
+        pairCache.setSessionListener(new PairCache.SessionListener() {
+            @Override
+            public void onSessionOpened(PairCache.PairSession session) {
+                VisualizerMetrics.register(metrics, session);
+            }
 
-            currentWebSocketClient.start();
+            @Override
+            public void onSessionClosed(PairCache.PairSession session) {
+                VisualizerMetrics.unregister(metrics, session.getTradingPair());
+            }
         });
-    }
 
-    private void stopCurrentWebSocketConnection() {
-        if (currentWebSocketClient != null && currentWebSocketClient.isConnected()) {
-            currentWebSocketClient.stop();
-            currentWebSocketClient = null;
+        int port = MetricsServer.configuredPort();
+        if (port < 0) {
+            return;
+        }
+        try {
+            metricsServer = new MetricsServer(metrics, port);
+            metricsServer.start();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot serve metrics on port " + port, e);
         }
     }
 
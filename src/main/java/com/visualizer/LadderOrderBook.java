@@ -0,0 +1,355 @@
+package com.visualizer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link OrderBook} built on tick-indexed price ladders.
+ *
+ * Each side keeps a window of {@code capacity} consecutive prices around its
+ * touch in a {@code long[]} of quantities plus a bitset of occupied levels.
+ * Prices map to slots by {@code price & (capacity - 1)}, so the window is a
+ * ring: re-centering only touches the levels that enter or leave it. Updates
+ * inside the window are O(1), finding the next level is a bitset word scan,
+ * and top-N iteration walks contiguous memory.
+ *
+ * Levels outside the window live in a sparse TreeMap. The window is kept
+ * positioned so that the best level is always inside it and nothing in the
+ * sparse map is better than the window.
+ *
+ * Prices are expected in the symbol's tick precision, so one slot is one tick.
+ */
+public class LadderOrderBook implements OrderBook {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Ladder bids;
+    private final Ladder asks;
+
+    public LadderOrderBook() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of ticks kept in each side's window, a power of two of at least 64
+     */
+    public LadderOrderBook(int capacity) {
+        if (capacity < 64 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ladder capacity must be a power of two >= 64: " + capacity);
+        }
+        this.bids = new Ladder(true, capacity);
+        this.asks = new Ladder(false, capacity);
+    }
+
+    @Override
+    public void update(boolean bid, long price, long quantity) {
+        (bid ? bids : asks).update(price, quantity);
+    }
+
+    @Override
+    public long bestPrice(boolean bid) {
+        return (bid ? bids : asks).best;
+    }
+
+    @Override
+    public long quantityAt(boolean bid, long price) {
+        return (bid ? bids : asks).quantityAt(price);
+    }
+
+    @Override
+    public int levelCount(boolean bid) {
+        Ladder ladder = bid ? bids : asks;
+        return ladder.windowCount + ladder.sparse.size();
+    }
+
+    @Override
+    public int top(boolean bid, int maxLevels, long[] prices, long[] quantities) {
+        return (bid ? bids : asks).top(maxLevels, prices, quantities);
+    }
+
+    @Override
+    public void clear() {
+        bids.clear();
+        asks.clear();
+    }
+
+    /**
+     * One side of the book. Bids count "better" as higher, asks as lower.
+     */
+    private static final class Ladder {
+        private final boolean bid;
+        private final int capacity;
+        private final long mask;
+
+        private final long[] quantities;
+        private final long[] occupied;
+        private final TreeMap<Long, Long> sparse = new TreeMap<>();
+
+        private long base;        // Lowest price covered by the window
+        private int windowCount;  // Occupied levels inside the window
+        private long best;        // Best price inside the window, 0 if none
+
+        Ladder(boolean bid, int capacity) {
+            this.bid = bid;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.quantities = new long[capacity];
+            this.occupied = new long[capacity >>> 6];
+        }
+
+        void update(long price, long quantity) {
+            if (windowCount == 0 && sparse.isEmpty()) {
+                if (quantity == 0) {
+                    return;
+                }
+                base = targetBase(price);
+            }
+
+            if (inWindow(price)) {
+                setInWindow(price, quantity);
+            } else if (quantity == 0) {
+                sparse.remove(price);
+            } else if (isBetterThanWindow(price)) {
+                // A new touch beyond the window: move the window over it
+                recenter(targetBase(price));
+                setInWindow(price, quantity);
+            } else {
+                sparse.put(price, quantity);
+            }
+
+            // Keep the touch away from the window edges
+            long touch = best != 0 ? best : sparseBest();
+            if (touch != 0 && !inBand(touch)) {
+                recenter(targetBase(touch));
+            }
+        }
+
+        long quantityAt(long price) {
+            if (inWindow(price)) {
+                return quantities[(int) (price & mask)];
+            }
+            return sparse.getOrDefault(price, 0L);
+        }
+
+        int top(int maxLevels, long[] prices, long[] quantitiesOut) {
+            int count = 0;
+
+            // Walk the window from the touch outwards
+            long price = best;
+            while (price != 0 && count < maxLevels) {
+                prices[count] = price;
+                quantitiesOut[count] = quantities[(int) (price & mask)];
+                count++;
+                price = bid ? findHighest(base, price - 1) : findLowest(price + 1, base + capacity - 1);
+            }
+
+            // Then the far levels, which are all worse than the window
+            if (count < maxLevels && !sparse.isEmpty()) {
+                Map<Long, Long> far = bid
+                        ? sparse.headMap(base, false).descendingMap()
+                        : sparse.tailMap(base + capacity, true);
+                Iterator<Map.Entry<Long, Long>> iterator = far.entrySet().iterator();
+                while (count < maxLevels && iterator.hasNext()) {
+                    Map.Entry<Long, Long> entry = iterator.next();
+                    prices[count] = entry.getKey();
+                    quantitiesOut[count] = entry.getValue();
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        void clear() {
+            Arrays.fill(quantities, 0);
+            Arrays.fill(occupied, 0);
+            sparse.clear();
+            windowCount = 0;
+            best = 0;
+        }
+
+        private void setInWindow(long price, long quantity) {
+            int slot = (int) (price & mask);
+            boolean wasOccupied = quantities[slot] != 0;
+            quantities[slot] = quantity;
+
+            if (quantity != 0) {
+                if (!wasOccupied) {
+                    occupied[slot >>> 6] |= 1L << slot;
+                    windowCount++;
+                }
+                if (best == 0 || isBetter(price, best)) {
+                    best = price;
+                }
+            } else if (wasOccupied) {
+                occupied[slot >>> 6] &= ~(1L << slot);
+                windowCount--;
+                if (price == best) {
+                    best = windowCount == 0 ? 0
+                            : bid ? findHighest(base, price - 1) : findLowest(price + 1, base + capacity - 1);
+                }
+            }
+        }
+
+        /**
+         * Moves the window to start at {@code newBase}, spilling levels that
+         * leave it into the sparse map and pulling in levels that enter it.
+         */
+        private void recenter(long newBase) {
+            if (newBase == base) {
+                return;
+            }
+
+            long oldBase = base;
+            long shift = Math.abs(newBase - oldBase);
+
+            // Spill levels that fall out of the window
+            long leaveFrom = shift >= capacity ? oldBase : (newBase > oldBase ? oldBase : newBase + capacity);
+            long leaveTo = shift >= capacity ? oldBase + capacity : (newBase > oldBase ? newBase : oldBase + capacity);
+            for (long price = leaveFrom; price < leaveTo && windowCount > 0; price++) {
+                int slot = (int) (price & mask);
+                if (quantities[slot] != 0) {
+                    sparse.put(price, quantities[slot]);
+                    quantities[slot] = 0;
+                    occupied[slot >>> 6] &= ~(1L << slot);
+                    windowCount--;
+                }
+            }
+
+            base = newBase;
+
+            // Pull in far levels that are now covered
+            if (!sparse.isEmpty()) {
+                Iterator<Map.Entry<Long, Long>> iterator =
+                        sparse.subMap(newBase, true, newBase + capacity, false).entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Long> entry = iterator.next();
+                    int slot = (int) (entry.getKey() & mask);
+                    quantities[slot] = entry.getValue();
+                    occupied[slot >>> 6] |= 1L << slot;
+                    windowCount++;
+                    iterator.remove();
+                }
+            }
+
+            best = windowCount == 0 ? 0
+                    : bid ? findHighest(base, base + capacity - 1) : findLowest(base, base + capacity - 1);
+        }
+
+        // Bids sit at 3/4 of the window (depth below them), asks at 1/4
+        private long targetBase(long touch) {
+            return bid ? touch - (capacity - (capacity >>> 2)) : touch - (capacity >>> 2);
+        }
+
+        private boolean inBand(long touch) {
+            long offset = touch - base;
+            int edge = capacity >>> 4;
+            return bid
+                    ? offset >= (capacity >>> 1) && offset < capacity - edge
+                    : offset > edge && offset <= (capacity >>> 1);
+        }
+
+        private long sparseBest() {
+            if (sparse.isEmpty()) {
+                return 0;
+            }
+            return bid ? sparse.lastKey() : sparse.firstKey();
+        }
+
+        private boolean inWindow(long price) {
+            return price >= base && price < base + capacity;
+        }
+
+        private boolean isBetterThanWindow(long price) {
+            return bid ? price >= base + capacity : price < base;
+        }
+
+        private boolean isBetter(long price, long other) {
+            return bid ? price > other : price < other;
+        }
+
+        /**
+         * Highest occupied price in [from, to], both inside the window, or 0.
+         */
+        private long findHighest(long from, long to) {
+            if (from > to) {
+                return 0;
+            }
+            int fromSlot = (int) (from & mask);
+            int toSlot = (int) (to & mask);
+
+            if (fromSlot <= toSlot) {
+                int slot = highestSetBit(fromSlot, toSlot);
+                return slot < 0 ? 0 : to - (toSlot - slot);
+            }
+
+            // The range wraps around the end of the ring
+            int slot = highestSetBit(0, toSlot);
+            if (slot >= 0) {
+                return to - (toSlot - slot);
+            }
+            slot = highestSetBit(fromSlot, capacity - 1);
+            return slot < 0 ? 0 : from + (slot - fromSlot);
+        }
+
+        /**
+         * Lowest occupied price in [from, to], both inside the window, or 0.
+         */
+        private long findLowest(long from, long to) {
+            if (from > to) {
+                return 0;
+            }
+            int fromSlot = (int) (from & mask);
+            int toSlot = (int) (to & mask);
+
+            if (fromSlot <= toSlot) {
+                int slot = lowestSetBit(fromSlot, toSlot);
+                return slot < 0 ? 0 : from + (slot - fromSlot);
+            }
+
+            // The range wraps around the end of the ring
+            int slot = lowestSetBit(fromSlot, capacity - 1);
+            if (slot >= 0) {
+                return from + (slot - fromSlot);
+            }
+            slot = lowestSetBit(0, toSlot);
+            return slot < 0 ? 0 : to - (toSlot - slot);
+        }
+
+        private int highestSetBit(int fromSlot, int toSlot) {
+            int fromWord = fromSlot >>> 6;
+            for (int w = toSlot >>> 6; w >= fromWord; w--) {
+                long word = occupied[w];
+                if (w == toSlot >>> 6) {
+                    word &= -1L >>> (63 - (toSlot & 63));
+                }
+                if (w == fromWord) {
+                    word &= -1L << (fromSlot & 63);
+                }
+                if (word != 0) {
+                    return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+                }
+            }
+            return -1;
+        }
+
+        private int lowestSetBit(int fromSlot, int toSlot) {
+            int toWord = toSlot >>> 6;
+            for (int w = fromSlot >>> 6; w <= toWord; w++) {
+                long word = occupied[w];
+                if (w == fromSlot >>> 6) {
+                    word &= -1L << (fromSlot & 63);
+                }
+                if (w == toWord) {
+                    word &= -1L >>> (63 - (toSlot & 63));
+                }
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return -1;
+        }
+    }
+}
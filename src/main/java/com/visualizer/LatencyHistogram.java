@@ -0,0 +1,144 @@
+package com.visualizer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond latencies, in the spirit of
+ * HdrHistogram.
+ *
+ * Values below {@link #SUB_BUCKETS} are counted exactly; above that every
+ * power of two is split into {@code SUB_BUCKETS / 2} linear buckets, so any
+ * recorded value is reported within about 3% of its true value. Values are
+ * clamped to {@link #MAX_VALUE_NANOS}. Recording is an index computation and
+ * a few ordered stores, with no allocation, lock or fence.
+ *
+ * Meant for one writer thread; readers on other threads see counts that may
+ * trail the writer by a few values. A second writer can lose counts but
+ * never corrupts the histogram.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    // About 18 minutes; anything slower is a stall, not a latency
+    public static final long MAX_VALUE_NANOS = (1L << 40) - 1;
+
+    private static final int BUCKET_COUNT = index(MAX_VALUE_NANOS) + 1;
+
+    // Totals live after the buckets so every write is an ordered store, never a fence
+    private static final int COUNT = BUCKET_COUNT;
+    private static final int SUM = BUCKET_COUNT + 1;
+    private static final int MAX = BUCKET_COUNT + 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT + 3);
+
+    /**
+     * Records one latency; negative values, e.g. from clock skew, count as 0.
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE_NANOS);
+        int index = index(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        counts.lazySet(COUNT, counts.get(COUNT) + 1);
+        counts.lazySet(SUM, counts.get(SUM) + value);
+        if (value > counts.get(MAX)) {
+            counts.lazySet(MAX, value);
+        }
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Keep the top SUB_BUCKET_BITS bits of the value
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    // Largest value counted in a bucket
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = (index & (HALF - 1)) + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Smallest recorded value that the given percentage of values are at or
+     * below, to bucket precision; 0 when empty.
+     *
+     * @param percentile 0 to 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] value = new long[1];
+        getValuesAtPercentiles(new double[]{percentile}, value);
+        return value[0];
+    }
+
+    /**
+     * Fills {@code into} with the value at each of the given percentiles, which
+     * must be ascending, in one pass over the buckets and without allocating.
+     */
+    public void getValuesAtPercentiles(double[] percentiles, long[] into) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        long max = getMax();
+
+        int next = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && next < percentiles.length && total > 0; i++) {
+            seen += counts.get(i);
+            while (next < percentiles.length && seen >= rank(percentiles[next], total)) {
+                into[next++] = Math.min(highestValue(i), max);
+            }
+        }
+        // Empty, or buckets the writer emptied while we read
+        while (next < percentiles.length) {
+            into[next++] = total == 0 ? 0 : max;
+        }
+    }
+
+    private static long rank(double percentile, long total) {
+        return Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+    }
+
+    /**
+     * Starts over. Values recorded concurrently may be lost or half counted.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.lazySet(i, 0);
+        }
+    }
+
+    // Getters
+    public long getCount() { return counts.get(COUNT); }
+    public long getMax() { return counts.get(MAX); }
+    public long getSum() { return counts.get(SUM); }
+
+    public double getMean() {
+        long n = counts.get(COUNT);
+        return n == 0 ? 0 : (double) counts.get(SUM) / n;
+    }
+
+    /**
+     * Count, mean, median, p99, p99.9 and max in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                getCount(), micros(getMean()), micros(getValueAtPercentile(50)), micros(getValueAtPercentile(99)),
+                micros(getValueAtPercentile(99.9)), micros(getMax()));
+    }
+
+    private static double micros(double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.visualizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the per-stream {@link LatencyTracker}s and the switch for
+ * latency tracking as a whole.
+ *
+ * Tracking is on unless the {@code visualizer.latency} system property is
+ * "false", and can be flipped at runtime with {@link #setEnabled}. While it is
+ * off the handlers skip their clock reads and histograms entirely.
+ *
+ * Frames are stamped with {@link System#nanoTime()}; stages measured against
+ * the exchange's millisecond event times convert those stamps to wall-clock
+ * time, so they also include any offset between the two clocks.
+ */
+public final class LatencyMonitor {
+
+    public static final String ENABLED_PROPERTY = "visualizer.latency";
+
+    // Wall-clock time minus the monotonic clock, taken once at startup
+    private static final long EPOCH_OFFSET_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+    private static final Map<String, LatencyTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled =
+            !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+
+    private LatencyMonitor() {
+    }
+
+    /**
+     * The tracker of a stream, created on first use. Handlers look theirs up
+     * once and keep it.
+     */
+    public static LatencyTracker tracker(String stream) {
+        return TRACKERS.computeIfAbsent(stream, LatencyTracker::new);
+    }
+
+    public static List<LatencyTracker> getTrackers() {
+        List<LatencyTracker> trackers = new ArrayList<>(TRACKERS.values());
+        trackers.sort(Comparator.comparing(LatencyTracker::getStream));
+        return trackers;
+    }
+
+    /**
+     * Nanoseconds from an exchange event time in epoch milliseconds to a
+     * {@link System#nanoTime()} stamp.
+     */
+    public static long sinceExchange(long exchangeMillis, long nanos) {
+        return nanos + EPOCH_OFFSET_NANOS - TimeUnit.MILLISECONDS.toNanos(exchangeMillis);
+    }
+
+    public static void resetAll() {
+        for (LatencyTracker tracker : TRACKERS.values()) {
+            tracker.reset();
+        }
+    }
+
+    /**
+     * One line per stream and stage that recorded anything.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        for (LatencyTracker tracker : getTrackers()) {
+            tracker.getRecordedStages().forEach((stage, histogram) -> report
+                    .append(String.format("%-20s %-20s %s%n", tracker.getStream(), stage, histogram)));
+        }
+        return report.toString();
+    }
+
+    public static void setEnabled(boolean enabled) {
+        LatencyMonitor.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,75 @@
+package com.visualizer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency histograms of one stream, e.g. "btcusdt@depth", one per stage a
+ * frame goes through on its way from the exchange to the screen.
+ *
+ * Ingest stages are recorded on the thread that applies the stream's frames
+ * and render stages on the FX thread, so each histogram has a single writer.
+ */
+public class LatencyTracker {
+
+    /**
+     * Time spent between two stamps of a frame.
+     */
+    public enum Stage {
+        /** Exchange event time (E, or T for trades) to socket receive; wall clock, millisecond resolution. */
+        EXCHANGE_TO_RECEIVE,
+        /** Socket receive to decoded, including any wait in an ingest ring. */
+        RECEIVE_TO_PARSE,
+        /** Decoded to applied to the book or tape. */
+        PARSE_TO_APPLY,
+        /** Applied to the snapshot readers see. */
+        APPLY_TO_PUBLISH,
+        /** Published snapshot to the FX frame that drew it. */
+        PUBLISH_TO_RENDER,
+        /** Exchange event time to the FX frame that drew it; wall clock, millisecond resolution. */
+        EXCHANGE_TO_RENDER
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final String stream;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    public LatencyTracker(String stream) {
+        this.stream = stream;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Histograms of the stages that recorded anything, in pipeline order.
+     */
+    public Map<Stage, LatencyHistogram> getRecordedStages() {
+        Map<Stage, LatencyHistogram> recorded = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES) {
+            if (get(stage).getCount() > 0) {
+                recorded.put(stage, get(stage));
+            }
+        }
+        return recorded;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    public String getStream() {
+        return stream;
+    }
+}
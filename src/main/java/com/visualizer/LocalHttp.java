@@ -0,0 +1,325 @@
+package com.visualizer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Just enough HTTP/1.1 and RFC 6455 for the local endpoints, the
+ * {@link ExchangeSimulator} and the {@link HeadlessServer}: one request per
+ * connection, which a WebSocket upgrade keeps open.
+ */
+final class LocalHttp {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    // WebSocket opcodes
+    static final int TEXT = 0x1;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    // Clients only send control messages
+    private static final int MAX_CLIENT_FRAME = 1 << 20;
+
+    private LocalHttp() {
+    }
+
+    /**
+     * Request line, query parameters and headers, with lowercase header names.
+     */
+    static final class Request {
+        final String method;
+        final String path;
+        final Map<String, String> params;
+        final Map<String, String> headers;
+
+        private Request(String method, String path, Map<String, String> params, Map<String, String> headers) {
+            this.method = method;
+            this.path = path;
+            this.params = params;
+            this.headers = headers;
+        }
+
+        boolean isWebSocket() {
+            return "websocket".equalsIgnoreCase(headers.get("upgrade"));
+        }
+    }
+
+    /**
+     * A response rendered as ASCII text into buffers that are reused from one
+     * response to the next, for endpoints that answer often enough that
+     * garbage matters. One thread at a time.
+     */
+    static final class TextResponse {
+        private final StringBuilder body;
+        private final StringBuilder header = new StringBuilder(256);
+        private byte[] bytes;
+
+        TextResponse(int capacity) {
+            this.body = new StringBuilder(capacity);
+            this.bytes = new byte[capacity];
+        }
+
+        /**
+         * The emptied body, to render the next response into.
+         */
+        StringBuilder body() {
+            body.setLength(0);
+            return body;
+        }
+
+        /**
+         * Sends the body, with any non-ASCII character replaced by '?'.
+         */
+        void send(OutputStream out, int status, String contentType) throws IOException {
+            int bodyLength = body.length();
+            header.setLength(0);
+            header.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+                    .append("Content-Type: ").append(contentType).append("\r\n")
+                    .append("Content-Length: ").append(bodyLength).append("\r\n")
+                    .append("Connection: close\r\n\r\n");
+
+            int total = header.length() + bodyLength;
+            if (total > bytes.length) {
+                bytes = new byte[Math.max(total, bytes.length * 2)];
+            }
+            int position = copyAscii(header, bytes, 0);
+            copyAscii(body, bytes, position);
+            out.write(bytes, 0, total);
+            out.flush();
+        }
+
+        private static int copyAscii(CharSequence text, byte[] into, int offset) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                into[offset++] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * A client frame, unmasked.
+     */
+    static final class Frame {
+        final int opcode;
+        final byte[] payload;
+
+        private Frame(int opcode, byte[] payload) {
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+    }
+
+    static Request readRequest(InputStream in) throws IOException {
+        String[] parts = readLine(in).split(" ");
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+
+        String target = parts.length > 1 ? parts[1] : "/";
+        int query = target.indexOf('?');
+        return new Request(parts[0], query < 0 ? target : target.substring(0, query),
+                parseQuery(query < 0 ? "" : target.substring(query + 1)), headers);
+    }
+
+    /**
+     * Reads a request into {@code buffer} up to the end of its headers, or
+     * as much as fits, without parsing it. Returns the bytes read.
+     */
+    static int readHead(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+            if (endsHeaders(buffer, length)) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Whether a head read by {@link #readHead} starts with {@code requestLine},
+     * e.g. "GET /metrics", followed by a space or a query string.
+     */
+    static boolean startsWith(byte[] head, int length, byte[] requestLine) {
+        if (length <= requestLine.length
+                || !Arrays.equals(head, 0, requestLine.length, requestLine, 0, requestLine.length)) {
+            return false;
+        }
+        byte next = head[requestLine.length];
+        return next == ' ' || next == '?';
+    }
+
+    static void respond(OutputStream out, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        respond(out, status, "application/json", body, body.length);
+    }
+
+    static void respond(OutputStream out, int status, String contentType, byte[] body, int length)
+            throws IOException {
+        String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Completes the WebSocket handshake of an upgrade request.
+     */
+    static void acceptWebSocket(OutputStream out, String key) throws IOException {
+        String accept = Base64.getEncoder().encodeToString(sha1(key + WEBSOCKET_GUID));
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * Reads the next client frame; fragments are not reassembled.
+     */
+    static Frame readFrame(InputStream in) throws IOException {
+        int first = readByte(in);
+        int second = readByte(in);
+        long length = second & 0x7F;
+        if (length == 126) {
+            length = (readByte(in) << 8) | readByte(in);
+        } else if (length == 127) {
+            length = 0;
+            for (int i = 0; i < 8; i++) {
+                length = (length << 8) | readByte(in);
+            }
+        }
+        if (length > MAX_CLIENT_FRAME) {
+            throw new IOException("Client frame too large: " + length);
+        }
+
+        byte[] mask = new byte[4];
+        if ((second & 0x80) != 0 && in.readNBytes(mask, 0, 4) < 4) {
+            throw new EOFException();
+        }
+        byte[] payload = in.readNBytes((int) length);
+        if (payload.length < length) {
+            throw new EOFException();
+        }
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] ^= mask[i & 3];
+        }
+        return new Frame(first & 0x0F, payload);
+    }
+
+    /**
+     * Writes one unmasked server frame, using {@code header} (10 bytes) as scratch.
+     */
+    static void writeFrame(OutputStream out, byte[] header, int opcode, byte[] payload, int offset, int length)
+            throws IOException {
+        header[0] = (byte) (0x80 | opcode);
+        int size;
+        if (length < 126) {
+            header[1] = (byte) length;
+            size = 2;
+        } else if (length < 65536) {
+            header[1] = 126;
+            header[2] = (byte) (length >>> 8);
+            header[3] = (byte) length;
+            size = 4;
+        } else {
+            header[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                header[2 + i] = (byte) ((long) length >>> (56 - 8 * i));
+            }
+            size = 10;
+        }
+        out.write(header, 0, size);
+        out.write(payload, offset, length);
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            default -> "Error";
+        };
+    }
+
+    private static boolean endsHeaders(byte[] buffer, int length) {
+        for (int i = Math.max(3, length - 64); i < length; i++) {
+            if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        int b;
+        while ((b = readByte(in)) != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static byte[] sha1(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
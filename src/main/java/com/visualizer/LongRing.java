@@ -0,0 +1,54 @@
+package com.visualizer;
+
+/**
+ * Fixed-capacity ring of longs. Pushing onto a full ring overwrites the
+ * oldest value. Not thread-safe.
+ */
+public class LongRing {
+
+    private final long[] values;
+    private final int capacity;
+    private long pushed;
+
+    public LongRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be positive: " + capacity);
+        }
+        this.values = new long[capacity];
+        this.capacity = capacity;
+    }
+
+    public void push(long value) {
+        values[(int) (pushed % capacity)] = value;
+        pushed++;
+    }
+
+    /**
+     * Value {@code age} pushes ago; {@code back(0)} is the newest.
+     */
+    public long back(int age) {
+        if (age < 0 || age >= size()) {
+            throw new IndexOutOfBoundsException("Age " + age + " outside ring of size " + size());
+        }
+        return values[(int) ((pushed - 1 - age) % capacity)];
+    }
+
+    public void clear() {
+        pushed = 0;
+    }
+
+    public int size() {
+        return (int) Math.min(pushed, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Total number of values ever pushed, including overwritten ones.
+     */
+    public long pushedCount() {
+        return pushed;
+    }
+}
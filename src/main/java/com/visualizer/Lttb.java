@@ -0,0 +1,82 @@
+package com.visualizer;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a polyline.
+ *
+ * Keeps the first and last points and, for every bucket in between, the
+ * point that forms the largest triangle with the previously kept point and
+ * the average of the next bucket. The overall shape of the curve (steps,
+ * walls, spikes) survives even when thousands of points are reduced to
+ * roughly one per pixel.
+ *
+ * Works on caller-owned primitive arrays and never allocates.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * Downsamples the first {@code count} points of {@code x}/{@code y} to at
+     * most {@code threshold} points. Points must be ordered by x.
+     *
+     * @return number of points written to {@code outX}/{@code outY}
+     */
+    public static int downsample(double[] x, double[] y, int count, int threshold, double[] outX, double[] outY) {
+        if (threshold >= count || threshold < 3) {
+            System.arraycopy(x, 0, outX, 0, count);
+            System.arraycopy(y, 0, outY, 0, count);
+            return count;
+        }
+
+        // Buckets between the fixed first and last points
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+
+        int written = 0;
+        int selected = 0;
+        outX[written] = x[0];
+        outY[written] = y[0];
+        written++;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket is the third corner of the triangle
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, count);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextLength = nextEnd - nextStart;
+            averageX /= nextLength;
+            averageY /= nextLength;
+
+            // Pick the point of this bucket with the largest triangle
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double selectedX = x[selected];
+            double selectedY = y[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedX - averageX) * (y[i] - selectedY)
+                        - (selectedX - x[i]) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            outX[written] = x[maxIndex];
+            outY[written] = y[maxIndex];
+            written++;
+            selected = maxIndex;
+        }
+
+        outX[written] = x[count - 1];
+        outY[written] = y[count - 1];
+        written++;
+        return written;
+    }
+}
@@ -2,13 +2,16 @@ package com.visualizer;
 
 public class Main {
     public static void main(String[] args) {
-        // Trade stream (executed orders)
-        String tradeStream = "wss://stream.binance.com:9443/ws/btcusdt@trade";
-        WebSocketClient tradeClient = new WebSocketClient(tradeStream, new TradeHandler());
+        TradingPair btcUsdt = new TradingPair("BTC", "USDT", 2, 5);
+
+        // Trade stream (executed orders); -Dvisualizer.streamUrl points both at another endpoint
+        String tradeStream = btcUsdt.getTradeWebSocketUrl();
+        WebSocketClient tradeClient = new WebSocketClient(tradeStream, new TradeHandler(btcUsdt));
 
         // Order book stream (bids/asks)
-        String orderBookStream = "wss://stream.binance.com:9443/ws/btcusdt@depth";
-        WebSocketClient orderBookClient = new WebSocketClient(orderBookStream, new OrderBookHandler());
+        String orderBookStream = btcUsdt.getWebSocketUrl();
+        WebSocketClient orderBookClient = new WebSocketClient(orderBookStream,
+                new OrderBookHandler(btcUsdt));
 
         // Start both
         tradeClient.start();
@@ -1,8 +1,6 @@
 package com.visualizer;
 
 import javafx.animation.FadeTransition;
-import javafx.collections.ListChangeListener;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
@@ -11,11 +9,9 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.util.Duration;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.DecimalFormat;
 
-public class MarketInfoWidget extends VBox {
+public class MarketInfoWidget extends VBox implements ConflatingBookPublisher.FrameListener {
 
     private final Label bestBidLabel;
     private final Label bestAskLabel;
@@ -26,8 +22,9 @@ public class MarketInfoWidget extends VBox {
     private final DecimalFormat priceFormat;
     private final DecimalFormat percentFormat;
 
-    private BigDecimal currentBestBid = BigDecimal.ZERO;
-    private BigDecimal currentBestAsk = BigDecimal.ZERO;
+    // Scaled longs (see FixedPoint); 0 means no price
+    private long currentBestBid = 0;
+    private long currentBestAsk = 0;
 
     public MarketInfoWidget() {
         // Initialize formatters
@@ -112,42 +109,25 @@ public class MarketInfoWidget extends VBox {
         return label;
     }
 
-    public void bindToOrderBook(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        // Listen for changes in bid orders
-        bidOrders.addListener((ListChangeListener<Order>) change -> {
-            updateMarketInfo(bidOrders, askOrders);
-        });
-
-        // Listen for changes in ask orders
-        askOrders.addListener((ListChangeListener<Order>) change -> {
-            updateMarketInfo(bidOrders, askOrders);
-        });
-
-        // Initial update
-        updateMarketInfo(bidOrders, askOrders);
-    }
-
-    private void updateMarketInfo(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
+    @Override
+    public void onFrame(BookSnapshot snapshot, TradingPair tradingPair) {
         try {
-            BigDecimal newBestBid = BigDecimal.ZERO;
-            BigDecimal newBestAsk = BigDecimal.ZERO;
-
-            // Get best bid (highest bid price)
-            if (!bidOrders.isEmpty()) {
-                newBestBid = new BigDecimal(bidOrders.get(0).getPrice());
-            }
-
-            // Get best ask (lowest ask price)
-            if (!askOrders.isEmpty()) {
-                newBestAsk = new BigDecimal(askOrders.get(0).getPrice());
+            // Best bid is the highest bid, best ask the lowest ask; 0 when the side is empty
+            long newBestBid = snapshot.bestPrice(true);
+            long newBestAsk = snapshot.bestPrice(false);
+            int priceScale = tradingPair.getPriceScale();
+
+            // Nothing to redraw or flash if the touch did not move
+            if (newBestBid == currentBestBid && newBestAsk == currentBestAsk) {
+                return;
             }
 
             // Update labels with animation if values changed
-            updateBidLabel(newBestBid);
-            updateAskLabel(newBestAsk);
+            updateBidLabel(newBestBid, priceScale);
+            updateAskLabel(newBestAsk, priceScale);
 
             // Calculate and update derived values
-            updateDerivedValues(newBestBid, newBestAsk);
+            updateDerivedValues(newBestBid, newBestAsk, priceScale);
 
             // Store current values
             currentBestBid = newBestBid;
@@ -158,12 +138,12 @@ public class MarketInfoWidget extends VBox {
         }
     }
 
-    private void updateBidLabel(BigDecimal newBid) {
-        if (newBid.compareTo(BigDecimal.ZERO) > 0) {
-            bestBidLabel.setText("$" + priceFormat.format(newBid));
+    private void updateBidLabel(long newBid, int priceScale) {
+        if (newBid > 0) {
+            bestBidLabel.setText("$" + priceFormat.format(FixedPoint.toDouble(newBid, priceScale)));
 
             // Add flash animation if value changed
-            if (!newBid.equals(currentBestBid)) {
+            if (newBid != currentBestBid) {
                 flashLabel(bestBidLabel, "flash-green");
             }
         } else {
@@ -171,12 +151,12 @@ public class MarketInfoWidget extends VBox {
         }
     }
 
-    private void updateAskLabel(BigDecimal newAsk) {
-        if (newAsk.compareTo(BigDecimal.ZERO) > 0) {
-            bestAskLabel.setText("$" + priceFormat.format(newAsk));
+    private void updateAskLabel(long newAsk, int priceScale) {
+        if (newAsk > 0) {
+            bestAskLabel.setText("$" + priceFormat.format(FixedPoint.toDouble(newAsk, priceScale)));
 
             // Add flash animation if value changed
-            if (!newAsk.equals(currentBestAsk)) {
+            if (newAsk != currentBestAsk) {
                 flashLabel(bestAskLabel, "flash-red");
             }
         } else {
@@ -184,22 +164,22 @@ public class MarketInfoWidget extends VBox {
         }
     }
 
-    private void updateDerivedValues(BigDecimal bestBid, BigDecimal bestAsk) {
-        if (bestBid.compareTo(BigDecimal.ZERO) > 0 && bestAsk.compareTo(BigDecimal.ZERO) > 0) {
-            // Calculate mid price
-            BigDecimal midPrice = bestBid.add(bestAsk).divide(new BigDecimal("2"), 2, RoundingMode.HALF_UP);
+    private void updateDerivedValues(long bestBid, long bestAsk, int priceScale) {
+        if (bestBid > 0 && bestAsk > 0) {
+            // Calculate mid price (kept doubled to stay in integers)
+            long doubledMidPrice = bestBid + bestAsk;
+            double midPrice = FixedPoint.toDouble(doubledMidPrice, priceScale) / 2;
             midPriceLabel.setText("$" + priceFormat.format(midPrice));
 
             // Calculate spread
-            BigDecimal spread = bestAsk.subtract(bestBid);
-            spreadLabel.setText("$" + priceFormat.format(spread));
+            long spread = bestAsk - bestBid;
+            spreadLabel.setText("$" + priceFormat.format(FixedPoint.toDouble(spread, priceScale)));
 
             // Calculate spread percentage
-            BigDecimal spreadPercent = spread.divide(midPrice, 6, RoundingMode.HALF_UP);
-            spreadPercentLabel.setText(percentFormat.format(spreadPercent));
+            double percentValue = 2.0 * spread / doubledMidPrice;
+            spreadPercentLabel.setText(percentFormat.format(percentValue));
 
             // Color code spread percentage
-            double percentValue = spreadPercent.doubleValue();
             if (percentValue < 0.001) { // < 0.1%
                 spreadPercentLabel.getStyleClass().removeAll("spread-wide", "spread-normal");
                 spreadPercentLabel.getStyleClass().add("spread-tight");
@@ -249,7 +229,7 @@ public class MarketInfoWidget extends VBox {
         spreadLabel.setText("--");
         spreadPercentLabel.setText("--");
 
-        currentBestBid = BigDecimal.ZERO;
-        currentBestAsk = BigDecimal.ZERO;
+        currentBestBid = 0;
+        currentBestAsk = 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,468 @@
+package com.visualizer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Counters, gauges and latency summaries of the running app, exported as
+ * JMX MBeans and in the Prometheus text format (see {@link MetricsServer}).
+ *
+ * A metric reads a component's own counter when it is exported, so
+ * registering one costs nothing on the hot path. Metrics with the same name
+ * form a family and share its type and help text; they differ by their
+ * labels, given as name/value pairs. In JMX each set of labels is one MBean,
+ * e.g. {@code com.visualizer:type=Metrics,symbol=btcusdt}, with one attribute
+ * per metric; summaries become a count, a max and one attribute per quantile.
+ *
+ * Series names are rendered once at registration and scrapes render into a
+ * caller-owned buffer, so exporting allocates next to nothing.
+ */
+public class MetricsRegistry {
+    private static final Logger LOGGER = Logger.getLogger(MetricsRegistry.class.getName());
+
+    public static final String DOMAIN = "com.visualizer";
+
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY;
+
+        private final String text = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILE_ATTRIBUTES = {"p50", "p90", "p99", "p999"};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MBeanServer mbeanServer;
+
+    // Guarded by this
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    private final Map<String, MetricsBean> beans = new HashMap<>();
+    private final long[] quantileValues = new long[QUANTILES.length];
+
+    public MetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * @param mbeanServer where to register the MBeans, or null for no JMX
+     */
+    public MetricsRegistry(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
+    /**
+     * Registers a monotonically increasing count; by convention its name
+     * ends in {@code _total}.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        add(new Metric(name, Type.COUNTER, labels, value, null, null), help);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        add(new Metric(name, Type.GAUGE, labels, null, value, null), help);
+    }
+
+    /**
+     * Registers a nanosecond histogram, exported in seconds as quantiles,
+     * sum and count.
+     */
+    public void summary(String name, String help, LatencyHistogram histogram, String... labels) {
+        add(new Metric(name, Type.SUMMARY, labels, null, null, histogram), help);
+    }
+
+    private synchronized void add(Metric metric, String help) {
+        Family family = families.computeIfAbsent(metric.name, name -> new Family(name, help, metric.type));
+        if (family.type != metric.type) {
+            throw new IllegalArgumentException(metric.name + " is a " + family.type.text + ", not a " + metric.type.text);
+        }
+        for (Metric existing : family.metrics) {
+            if (existing.labelText.equals(metric.labelText)) {
+                throw new IllegalArgumentException("Metric already registered: " + metric.series);
+            }
+        }
+        family.metrics.add(metric);
+
+        if (mbeanServer != null) {
+            beans.computeIfAbsent(metric.labelText, key -> new MetricsBean(metric.labels)).add(metric);
+        }
+    }
+
+    /**
+     * Removes every metric that has the given label, e.g. all metrics of a
+     * symbol that is no longer watched.
+     *
+     * @return the number of metrics removed
+     */
+    public synchronized int remove(String labelName, String labelValue) {
+        int removed = 0;
+        Iterator<Family> familyIterator = families.values().iterator();
+        while (familyIterator.hasNext()) {
+            Family family = familyIterator.next();
+            Iterator<Metric> iterator = family.metrics.iterator();
+            while (iterator.hasNext()) {
+                Metric metric = iterator.next();
+                if (metric.hasLabel(labelName, labelValue)) {
+                    iterator.remove();
+                    removeFromBean(metric);
+                    removed++;
+                }
+            }
+            if (family.metrics.isEmpty()) {
+                familyIterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    private void removeFromBean(Metric metric) {
+        MetricsBean bean = beans.get(metric.labelText);
+        if (bean != null && bean.remove(metric)) {
+            beans.remove(metric.labelText);
+        }
+    }
+
+    /**
+     * Unregisters every MBean. The metrics can still be scraped.
+     */
+    public synchronized void close() {
+        for (MetricsBean bean : beans.values()) {
+            bean.unregister();
+        }
+        beans.clear();
+    }
+
+    /**
+     * Appends every metric in the Prometheus text exposition format.
+     */
+    public synchronized void writeTo(StringBuilder out) {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Metric metric : family.metrics) {
+                metric.writeTo(out, quantileValues);
+            }
+        }
+    }
+
+    /**
+     * Registers garbage collection, heap, allocation and thread metrics of
+     * this JVM.
+     */
+    public void registerJvm() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            counter("jvm_gc_collections_total", "Garbage collections.",
+                    collector::getCollectionCount, "gc", collector.getName());
+            counter("jvm_gc_collection_milliseconds_total", "Time spent in garbage collections.",
+                    collector::getCollectionTime, "gc", collector.getName());
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm_memory_heap_used_bytes", "Heap in use.", () -> memory.getHeapMemoryUsage().getUsed());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge("jvm_threads", "Live threads.", threads::getThreadCount);
+        if (threads instanceof com.sun.management.ThreadMXBean allocations
+                && allocations.isThreadAllocatedMemorySupported()) {
+            allocations.setThreadAllocatedMemoryEnabled(true);
+            // Threads that died take their bytes with them; rate() treats the drop as a reset
+            counter("jvm_allocated_bytes_total", "Bytes allocated by live threads.", () -> {
+                long total = 0;
+                for (long bytes : allocations.getThreadAllocatedBytes(allocations.getAllThreadIds())) {
+                    total += Math.max(0, bytes);
+                }
+                return total;
+            });
+        }
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void appendSeconds(StringBuilder out, long nanos) {
+        out.append(nanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Metrics sharing a name.
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final List<Metric> metrics = new ArrayList<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help.replace("\\", "\\\\").replace("\n", "\\n");
+            this.type = type;
+        }
+    }
+
+    /**
+     * One series, or for a summary its quantile, sum and count series.
+     */
+    private static final class Metric {
+        private final String name;
+        private final Type type;
+        private final String[] labels;
+        private final String labelText;
+        private final LongSupplier longValue;
+        private final DoubleSupplier doubleValue;
+        private final LatencyHistogram histogram;
+
+        // Rendered once: the series name with its labels, and a space
+        private final String series;
+        private final String[] quantileSeries;
+        private final String sumSeries;
+        private final String countSeries;
+
+        private Metric(String name, Type type, String[] labels, LongSupplier longValue, DoubleSupplier doubleValue,
+                       LatencyHistogram histogram) {
+            if (!NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid metric name: " + name);
+            }
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels must be name/value pairs: " + String.join(",", labels));
+            }
+
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < labels.length; i += 2) {
+                if (!NAME.matcher(labels[i]).matches() || labels[i].equals("type") || labels[i].equals("quantile")) {
+                    throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+                }
+                text.append(i == 0 ? "" : ",").append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+
+            this.name = name;
+            this.type = type;
+            this.labels = labels.clone();
+            this.labelText = text.toString();
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+            this.histogram = histogram;
+
+            this.series = seriesName(name, labelText, null);
+            this.quantileSeries = new String[QUANTILES.length];
+            for (int i = 0; i < QUANTILES.length; i++) {
+                quantileSeries[i] = seriesName(name, labelText, "quantile=\"" + QUANTILES[i] + '"');
+            }
+            this.sumSeries = seriesName(name + "_sum", labelText, null);
+            this.countSeries = seriesName(name + "_count", labelText, null);
+        }
+
+        private static String seriesName(String name, String labelText, String extraLabel) {
+            String all = extraLabel == null ? labelText : labelText.isEmpty() ? extraLabel : labelText + "," + extraLabel;
+            return (all.isEmpty() ? name : name + "{" + all + "}") + " ";
+        }
+
+        private boolean hasLabel(String labelName, String labelValue) {
+            for (int i = 0; i < labels.length; i += 2) {
+                if (labels[i].equals(labelName) && labels[i + 1].equals(labelValue)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeTo(StringBuilder out, long[] quantileValues) {
+            switch (type) {
+                case COUNTER -> out.append(series).append(longValue.getAsLong()).append('\n');
+                case GAUGE -> out.append(series).append(doubleValue.getAsDouble()).append('\n');
+                case SUMMARY -> {
+                    histogram.getValuesAtPercentiles(PERCENTILES, quantileValues);
+                    for (int i = 0; i < QUANTILES.length; i++) {
+                        out.append(quantileSeries[i]);
+                        appendSeconds(out, quantileValues[i]);
+                        out.append('\n');
+                    }
+                    out.append(sumSeries);
+                    appendSeconds(out, histogram.getSum());
+                    out.append('\n');
+                    out.append(countSeries).append(histogram.getCount()).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * The metrics of one label set as MBean attributes.
+     */
+    private final class MetricsBean implements DynamicMBean {
+        private final ObjectName objectName;
+        // Attribute name to its metric and, for summaries, what to read from it
+        private final Map<String, Metric> attributes = new LinkedHashMap<>();
+        private final Map<String, Integer> quantiles = new HashMap<>();
+        private MBeanInfo info;
+        private boolean registered;
+
+        private MetricsBean(String[] labels) {
+            StringBuilder name = new StringBuilder(DOMAIN).append(":type=Metrics");
+            for (int i = 0; i < labels.length; i += 2) {
+                name.append(',').append(labels[i]).append('=').append(quoteIfNeeded(labels[i + 1]));
+            }
+            ObjectName parsed = null;
+            try {
+                parsed = new ObjectName(name.toString());
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "No MBean for metrics " + name, e);
+            }
+            this.objectName = parsed;
+        }
+
+        private static String quoteIfNeeded(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (",=:\"*?\n".indexOf(value.charAt(i)) >= 0) {
+                    return ObjectName.quote(value);
+                }
+            }
+            return value.isEmpty() ? ObjectName.quote(value) : value;
+        }
+
+        // Under the registry lock
+        private void add(Metric metric) {
+            if (metric.type == Type.SUMMARY) {
+                attributes.put(metric.name + "_count", metric);
+                attributes.put(metric.name + "_max", metric);
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    attributes.put(metric.name + "_" + QUANTILE_ATTRIBUTES[i], metric);
+                    quantiles.put(metric.name + "_" + QUANTILE_ATTRIBUTES[i], i);
+                }
+            } else {
+                attributes.put(metric.name, metric);
+            }
+            info = null;
+            register();
+        }
+
+        // Under the registry lock; true once the bean is empty and unregistered
+        private boolean remove(Metric metric) {
+            attributes.values().removeIf(existing -> existing == metric);
+            info = null;
+            if (attributes.isEmpty()) {
+                unregister();
+                return true;
+            }
+            return false;
+        }
+
+        private void register() {
+            if (registered || objectName == null) {
+                return;
+            }
+            try {
+                mbeanServer.registerMBean(this, objectName);
+                registered = true;
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "Cannot register MBean " + objectName, e);
+            }
+        }
+
+        private void unregister() {
+            if (!registered) {
+                return;
+            }
+            try {
+                mbeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.log(Level.FINE, "Cannot unregister MBean " + objectName, e);
+            }
+            registered = false;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            synchronized (MetricsRegistry.this) {
+                Metric metric = attributes.get(attribute);
+                if (metric == null) {
+                    throw new AttributeNotFoundException(attribute);
+                }
+                return switch (metric.type) {
+                    case COUNTER -> metric.longValue.getAsLong();
+                    case GAUGE -> metric.doubleValue.getAsDouble();
+                    case SUMMARY -> summaryValue(metric.histogram, attribute);
+                };
+            }
+        }
+
+        private Object summaryValue(LatencyHistogram histogram, String attribute) {
+            if (attribute.endsWith("_count")) {
+                return histogram.getCount();
+            }
+            long nanos = attribute.endsWith("_max") ? histogram.getMax()
+                    : histogram.getValueAtPercentile(PERCENTILES[quantiles.get(attribute)]);
+            return nanos / NANOS_PER_SECOND;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                try {
+                    list.add(new Attribute(name, getAttribute(name)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the MBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            // Metrics have no operations
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            synchronized (MetricsRegistry.this) {
+                if (info == null) {
+                    List<MBeanAttributeInfo> infos = new ArrayList<>();
+                    attributes.forEach((name, metric) -> infos.add(new MBeanAttributeInfo(name,
+                            metric.type == Type.COUNTER || name.endsWith("_count") ? "long" : "double",
+                            families.get(metric.name).help, true, false, false)));
+                    info = new MBeanInfo(MetricsBean.class.getName(), "Order book visualizer metrics",
+                            infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+                }
+                return info;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.visualizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves a {@link MetricsRegistry} at {@code GET /metrics} in the Prometheus
+ * text format, on the loopback interface.
+ *
+ * One daemon thread accepts and answers scrapes one at a time and renders
+ * every response into the same {@link LocalHttp.TextResponse}, so a scrape
+ * allocates little beyond its socket. Scrapes are rare and small; anything
+ * else gets a 404.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsServer.class.getName());
+
+    public static final String PORT_PROPERTY = "visualizer.metricsPort";
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final byte[] METRICS_REQUEST = "GET /metrics".getBytes(StandardCharsets.US_ASCII);
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private final MetricsRegistry registry;
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private volatile boolean running = false;
+
+    // Scrape thread
+    private final byte[] request = new byte[8192];
+    private final LocalHttp.TextResponse response = new LocalHttp.TextResponse(64 * 1024);
+
+    // Counters
+    private final AtomicLong scrapes = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private volatile long lastScrapeNanos;
+
+    /**
+     * @param port port to listen on, or 0 for any free one
+     */
+    public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.serverSocket = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+        this.thread = new Thread(this::acceptLoop, "metrics-server");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Port from {@link #PORT_PROPERTY}, or -1 when metrics should not be served.
+     */
+    public static int configuredPort() {
+        return Integer.getInteger(PORT_PROPERTY, -1);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+        LOGGER.info("📈 Serving metrics on http://localhost:" + getPort() + "/metrics");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Metrics socket close failed", e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                serve(socket);
+            } catch (SocketTimeoutException e) {
+                rejectedRequests.incrementAndGet();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.FINE, "Metrics scrape failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        int length = LocalHttp.readHead(socket.getInputStream(), request);
+        OutputStream out = socket.getOutputStream();
+
+        if (!LocalHttp.startsWith(request, length, METRICS_REQUEST)) {
+            rejectedRequests.incrementAndGet();
+            response.body().append("Not found\n");
+            response.send(out, 404, CONTENT_TYPE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Metric names, labels and help texts are ASCII
+        registry.writeTo(response.body());
+        response.send(out, 200, CONTENT_TYPE);
+        lastScrapeNanos = System.nanoTime() - start;
+        scrapes.incrementAndGet();
+    }
+
+    // Getters
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public long getScrapeCount() { return scrapes.get(); }
+    public long getRejectedRequestCount() { return rejectedRequests.get(); }
+
+    /**
+     * How long the last scrape took to render and send.
+     */
+    public long getLastScrapeNanos() { return lastScrapeNanos; }
+}
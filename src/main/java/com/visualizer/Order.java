@@ -1,14 +1,46 @@
 package com.visualizer;
 
-public class Order {
-    private final String price;
-    private final String quantity;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleLongProperty;
 
-    public Order(String price, String quantity) {
-        this.price = price;
-        this.quantity = quantity;
+/**
+ * One row of an order book table. Price and quantity are fixed-point longs
+ * (see {@link FixedPoint}); text is only produced when a table cell asks for it.
+ *
+ * Rows are reused per rank: the publisher writes the level now at that rank
+ * into the same row every frame, so a cell only hears about the values that
+ * actually changed.
+ */
+public final class Order {
+    private final LongProperty price = new SimpleLongProperty(this, "price");
+    private final LongProperty quantity = new SimpleLongProperty(this, "quantity");
+    private final int priceScale;
+    private final int quantityScale;
+
+    public Order(long price, long quantity, int priceScale, int quantityScale) {
+        this.price.set(price);
+        this.quantity.set(quantity);
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+    }
+
+    /**
+     * Moves this row to a new level. Properties only fire when their value differs.
+     */
+    public void set(long newPrice, long newQuantity) {
+        price.set(newPrice);
+        quantity.set(newQuantity);
     }
 
-    public String getPrice() { return price; }
-    public String getQuantity() { return quantity; }
+    // Render-time text for the table columns
+    public String getPrice() { return FixedPoint.toString(price.get(), priceScale); }
+    public String getQuantity() { return FixedPoint.toString(quantity.get(), quantityScale); }
+
+    public LongProperty priceProperty() { return price; }
+    public LongProperty quantityProperty() { return quantity; }
+
+    public long getPriceValue() { return price.get(); }
+    public long getQuantityValue() { return quantity.get(); }
+    public int getPriceScale() { return priceScale; }
+    public int getQuantityScale() { return quantityScale; }
 }
@@ -0,0 +1,38 @@
+package com.visualizer;
+
+/**
+ * Order book engine holding one side of price levels per {@code bid} flag.
+ *
+ * Prices and quantities are fixed-point longs (see {@link FixedPoint}) in the
+ * symbol's tick and lot precision. A quantity of zero removes the level and a
+ * price of zero means "no level". Implementations are single-writer and not
+ * thread-safe.
+ */
+public interface OrderBook {
+
+    /**
+     * Sets the quantity at a price level, removing it when quantity is zero.
+     */
+    void update(boolean bid, long price, long quantity);
+
+    /**
+     * Highest bid or lowest ask, or 0 when the side is empty.
+     */
+    long bestPrice(boolean bid);
+
+    /**
+     * Quantity resting at the price, or 0 when there is no level.
+     */
+    long quantityAt(boolean bid, long price);
+
+    int levelCount(boolean bid);
+
+    /**
+     * Copies up to {@code maxLevels} levels from the touch outwards.
+     *
+     * @return the number of levels copied
+     */
+    int top(boolean bid, int maxLevels, long[] prices, long[] quantities);
+
+    void clear();
+}
@@ -1,98 +1,220 @@
 package com.visualizer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
 
-import java.math.BigDecimal;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class OrderBookHandler implements WebSocketHandler {
 
-    private final ObservableList<Order> bidOrders;
-    private final ObservableList<Order> askOrders;
+    /**
+     * Notified on the ingest thread after a new snapshot was published.
+     * Implementations should only flag the change and return; readers pull
+     * the levels themselves from {@link #getSnapshots()}.
+     */
+    public interface UpdateListener {
+        void onBookUpdated(OrderBookHandler handler);
+    }
+
+    private final TradingPair tradingPair;
+
+    // Prints the touch on every update when running without a UI
+    private final boolean consoleMode;
+
+    // Book engine; prices and sizes are scaled longs
+    private final OrderBook book;
+
+    // Reused for every frame instead of binding to OrderBookUpdate
+    private final DepthUpdateDecoder decoder;
+
+    // Snapshot + diff sequencing; the book is only shown once it is in sync
+    private final OrderBookSynchronizer synchronizer;
+
+    // Top-N views of the book for readers on other threads
+    private final BookSnapshotPublisher snapshots = new BookSnapshotPublisher();
+    private boolean publishedSynced = false;
+
+    // Stage latencies of the depth stream, shared with whoever renders the book
+    private final LatencyTracker latency;
 
-    // Maintain sorted order books
-    // TreeMap keeps entries sorted by key
-    private final TreeMap<BigDecimal, String> bids = new TreeMap<>(Collections.reverseOrder()); // Descending (highest first)
-    private final TreeMap<BigDecimal, String> asks = new TreeMap<>(); // Ascending (lowest first)
+    private volatile UpdateListener updateListener;
+
+    // Counters
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong parseErrors = new AtomicLong();
 
     // Console-only constructor
-    public OrderBookHandler() {
-        this(null, null);
+    public OrderBookHandler(TradingPair tradingPair) {
+        this(tradingPair, new LadderOrderBook(), new BinanceDepthSnapshotSource(), true);
+    }
+
+    public OrderBookHandler(TradingPair tradingPair, OrderBook book) {
+        this(tradingPair, book, new BinanceDepthSnapshotSource());
     }
 
-    // JavaFX constructor
-    public OrderBookHandler(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        this.bidOrders = bidOrders;
-        this.askOrders = askOrders;
+    public OrderBookHandler(TradingPair tradingPair, OrderBook book, DepthSnapshotSource snapshotSource) {
+        this(tradingPair, book, snapshotSource, false);
+    }
+
+    private OrderBookHandler(TradingPair tradingPair, OrderBook book, DepthSnapshotSource snapshotSource,
+                             boolean consoleMode) {
+        this.tradingPair = tradingPair;
+        this.book = book;
+        this.consoleMode = consoleMode;
+        this.decoder = new DepthUpdateDecoder(tradingPair.getPriceScale(), tradingPair.getQuantityScale());
+        this.synchronizer = new OrderBookSynchronizer(tradingPair, book, snapshotSource);
+        this.latency = LatencyMonitor.tracker(tradingPair.getDepthStream());
     }
 
     @Override
     public void handleMessage(String json, ObjectMapper mapper) {
+        messages.incrementAndGet();
         try {
-            OrderBookUpdate update = mapper.readValue(json, OrderBookUpdate.class);
-
-            // Process bid updates
-            for (List<String> entry : update.getBids()) {
-                BigDecimal price = new BigDecimal(entry.get(0));
-                String quantity = entry.get(1);
-
-                if ("0.00000000".equals(quantity) || "0".equals(quantity)) {
-                    // Remove this price level
-                    bids.remove(price);
-                } else {
-                    // Add or update this price level
-                    bids.put(price, quantity);
-                }
+            if (decoder.decode(json) && apply(0)) {
+                publishUpdate();
             }
+        } catch (Exception e) {
+            parseErrors.incrementAndGet();
+            System.err.println("⚠️ Failed to parse order book JSON: " + e.getMessage());
+        }
+    }
 
-            // Process ask updates
-            for (List<String> entry : update.getAsks()) {
-                BigDecimal price = new BigDecimal(entry.get(0));
-                String quantity = entry.get(1);
-
-                if ("0.00000000".equals(quantity) || "0".equals(quantity)) {
-                    // Remove this price level
-                    asks.remove(price);
-                } else {
-                    // Add or update this price level
-                    asks.put(price, quantity);
-                }
-            }
+    @Override
+    public void handleMessage(byte[] buffer, int offset, int length, ObjectMapper mapper) {
+        handleMessage(buffer, offset, length, 0, mapper);
+    }
 
-            if (bidOrders == null || askOrders == null) {
-                // 👉 Console mode - show ACTUAL best bid/ask
-                String bestBid = bids.isEmpty() ? "-" :
-                        String.format("Bid: %s @ %s", bids.firstEntry().getValue(), bids.firstKey());
-
-                String bestAsk = asks.isEmpty() ? "-" :
-                        String.format("Ask: %s @ %s", asks.firstEntry().getValue(), asks.firstKey());
-
-                System.out.printf("ORDERBOOK | %-50s | %-50s%n", bestBid, bestAsk);
-
-            } else {
-                // 👉 JavaFX mode - update tables with properly sorted data
-                Platform.runLater(() -> {
-                    // Convert to Order objects (top 10)
-                    List<Order> topBids = bids.entrySet().stream()
-                            .limit(10)
-                            .map(entry -> new Order(entry.getKey().toString(), entry.getValue()))
-                            .collect(Collectors.toList());
-
-                    List<Order> topAsks = asks.entrySet().stream()
-                            .limit(10)
-                            .map(entry -> new Order(entry.getKey().toString(), entry.getValue()))
-                            .collect(Collectors.toList());
-
-                    bidOrders.setAll(topBids);
-                    askOrders.setAll(topAsks);
-                });
+    @Override
+    public void handleMessage(byte[] buffer, int offset, int length, long receivedNanos, ObjectMapper mapper) {
+        messages.incrementAndGet();
+        try {
+            if (decoder.decode(buffer, offset, length) && apply(receivedNanos)) {
+                publishUpdate();
             }
-
         } catch (Exception e) {
+            parseErrors.incrementAndGet();
             System.err.println("⚠️ Failed to parse order book JSON: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Applies the decoded diff and publishes a snapshot if readers would see a change
+    private boolean apply(long receivedNanos) {
+        boolean tracked = receivedNanos != 0 && LatencyMonitor.isEnabled();
+        long parsedNanos = tracked ? System.nanoTime() : 0;
+
+        boolean changed = synchronizer.onDiff(decoder);
+        boolean synced = synchronizer.isSynced();
+
+        // Losing sync clears the book, so readers get an empty snapshot as well
+        if (changed || synced != publishedSynced) {
+            long appliedNanos = tracked ? System.nanoTime() : 0;
+            boolean published = snapshots.publish(book, synced, synchronizer.getLastUpdateId(),
+                    synchronizer.getLastEventTime());
+            publishedSynced = synced;
+
+            // Only diffs that reached a synced book went through every stage
+            if (published && tracked && changed && synced) {
+                long publishedNanos = System.nanoTime();
+                latency.record(LatencyTracker.Stage.EXCHANGE_TO_RECEIVE,
+                        LatencyMonitor.sinceExchange(decoder.getEventTime(), receivedNanos));
+                latency.record(LatencyTracker.Stage.RECEIVE_TO_PARSE, parsedNanos - receivedNanos);
+                latency.record(LatencyTracker.Stage.PARSE_TO_APPLY, appliedNanos - parsedNanos);
+                latency.record(LatencyTracker.Stage.APPLY_TO_PUBLISH, publishedNanos - appliedNanos);
+            }
+            // A held back snapshot is announced when flushSnapshots captures it
+            return published;
+        }
+        return false;
+    }
+
+    // Called after the synchronizer applied a diff to the book
+    private void publishUpdate() {
+        if (consoleMode) {
+            printTouch();
+        }
+
+        UpdateListener listener = updateListener;
+        if (listener != null) {
+            listener.onBookUpdated(this);
+        }
+    }
+
+    private void printTouch() {
+        int priceScale = tradingPair.getPriceScale();
+        int quantityScale = tradingPair.getQuantityScale();
+
+        // 👉 Console mode - show ACTUAL best bid/ask
+        long bestBidPrice = book.bestPrice(true);
+        String bestBid = bestBidPrice == 0 ? "-" :
+                String.format("Bid: %s @ %s",
+                        FixedPoint.toString(book.quantityAt(true, bestBidPrice), quantityScale),
+                        FixedPoint.toString(bestBidPrice, priceScale));
+
+        long bestAskPrice = book.bestPrice(false);
+        String bestAsk = bestAskPrice == 0 ? "-" :
+                String.format("Ask: %s @ %s",
+                        FixedPoint.toString(book.quantityAt(false, bestAskPrice), quantityScale),
+                        FixedPoint.toString(bestAskPrice, priceScale));
+
+        System.out.printf("ORDERBOOK | %-50s | %-50s%n", bestBid, bestAsk);
+    }
+
+    /**
+     * Empties the book and waits for a new snapshot. Ingest thread only.
+     */
+    public void reset() {
+        synchronizer.reset();
+        snapshots.publish(book, false, 0, 0);
+        snapshots.flush(true);
+        publishedSynced = false;
+        publishUpdate();
+    }
+
+    /**
+     * Captures and announces a snapshot the publisher held back, once its
+     * capture interval has passed or if {@code force} is set. Ingest thread
+     * only, between frames.
+     */
+    public void flushSnapshots(boolean force) {
+        if (snapshots.flush(force)) {
+            publishUpdate();
+        }
+    }
+
+    public void setUpdateListener(UpdateListener updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    public TradingPair getTradingPair() {
+        return tradingPair;
+    }
+
+    /**
+     * Lock-free top-of-book snapshots, safe to read from any thread.
+     */
+    public BookSnapshotPublisher getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * The live book. Only safe to touch from the ingest thread.
+     */
+    public OrderBook getBook() {
+        return book;
+    }
+
+    public OrderBookSynchronizer getSynchronizer() {
+        return synchronizer;
+    }
+
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
+    public long getMessageCount() {
+        return messages.get();
+    }
+
+    public long getParseErrorCount() {
+        return parseErrors.get();
+    }
+}
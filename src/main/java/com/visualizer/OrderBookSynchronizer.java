@@ -0,0 +1,259 @@
+package com.visualizer;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps an {@link OrderBook} in sync with the depth stream using Binance's
+ * snapshot + diff protocol:
+ *
+ * 1. Buffer diffs from the stream and request a REST snapshot.
+ * 2. Load the snapshot, drop buffered diffs with {@code u <= lastUpdateId}.
+ * 3. The first applied diff must have {@code U <= lastUpdateId + 1 <= u}.
+ * 4. Every later diff must continue the sequence ({@code U == previous u + 1}).
+ *
+ * Any gap in the sequence discards the book and starts over from step 1.
+ *
+ * All methods except the getters must be called from the ingest thread.
+ * Snapshots are fetched on a background executor and handed over to the
+ * ingest thread on its next diff. Without a snapshot source nothing is
+ * fetched and snapshots must be handed in with {@link #offerSnapshot}, as
+ * {@link ReplaySource} does with recorded ones.
+ */
+public class OrderBookSynchronizer {
+
+    private static final Logger LOGGER = Logger.getLogger(OrderBookSynchronizer.class.getName());
+
+    private static final int MAX_BUFFERED_FRAMES = 10_000;
+    static final long MIN_SNAPSHOT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "depth-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public enum State {
+        UNSYNCED,
+        AWAITING_SNAPSHOT,
+        SYNCED
+    }
+
+    private final TradingPair tradingPair;
+    private final OrderBook book;
+    private final DepthSnapshotSource snapshotSource;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+
+    private final DepthDiffBuffer buffer = new DepthDiffBuffer(MAX_BUFFERED_FRAMES);
+    private final AtomicReference<DepthSnapshot> pendingSnapshot = new AtomicReference<>();
+    private volatile boolean snapshotInFlight = false;
+    private long lastSnapshotRequestNanos;
+
+    private volatile State state = State.UNSYNCED;
+    private volatile long lastUpdateId;
+    private volatile long lastEventTime;
+
+    // Counters
+    private final AtomicLong gapCount = new AtomicLong();
+    private final AtomicLong resyncCount = new AtomicLong();
+    private final AtomicLong staleDiffCount = new AtomicLong();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong snapshotFailureCount = new AtomicLong();
+
+    public OrderBookSynchronizer(TradingPair tradingPair, OrderBook book, DepthSnapshotSource snapshotSource) {
+        this(tradingPair, book, snapshotSource, SNAPSHOT_EXECUTOR);
+    }
+
+    public OrderBookSynchronizer(TradingPair tradingPair, OrderBook book,
+                                 DepthSnapshotSource snapshotSource, Executor executor) {
+        this(tradingPair, book, snapshotSource, executor, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time for throttling snapshot requests, in
+     *                  nanoseconds; {@code System::nanoTime} outside tests
+     */
+    OrderBookSynchronizer(TradingPair tradingPair, OrderBook book, DepthSnapshotSource snapshotSource,
+                          Executor executor, LongSupplier nanoClock) {
+        this.tradingPair = tradingPair;
+        this.book = book;
+        this.snapshotSource = snapshotSource;
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Feeds the diff currently held by the decoder.
+     *
+     * @return true if the book changed and is in sync
+     */
+    public boolean onDiff(DepthUpdateDecoder decoder) {
+        if (state == State.SYNCED) {
+            long firstUpdateId = decoder.getFirstUpdateId();
+            long finalUpdateId = decoder.getFinalUpdateId();
+
+            if (finalUpdateId <= lastUpdateId) {
+                staleDiffCount.incrementAndGet();
+                return false;
+            }
+            if (firstUpdateId > lastUpdateId + 1) {
+                gapCount.incrementAndGet();
+                resync("sequence gap: expected " + (lastUpdateId + 1) + " but got " + firstUpdateId);
+                buffer.add(decoder);
+                return false;
+            }
+
+            applyLevels(true, decoder.getBids());
+            applyLevels(false, decoder.getAsks());
+            lastUpdateId = finalUpdateId;
+            lastEventTime = decoder.getEventTime();
+            return true;
+        }
+
+        if (state == State.UNSYNCED) {
+            state = State.AWAITING_SNAPSHOT;
+        }
+
+        if (!buffer.add(decoder)) {
+            // The snapshot is taking too long; keep only the newest diff
+            LOGGER.warning("Depth buffer full for " + tradingPair.getDisplayName() + ", dropping buffered diffs");
+            buffer.clear();
+            buffer.add(decoder);
+        }
+
+        DepthSnapshot snapshot = pendingSnapshot.getAndSet(null);
+        if (snapshot == null) {
+            requestSnapshot();
+            return false;
+        }
+        return applySnapshot(snapshot);
+    }
+
+    /**
+     * Hands over a snapshot obtained elsewhere; it is used on the next diff
+     * if the book is waiting for one.
+     */
+    public void offerSnapshot(DepthSnapshot snapshot) {
+        pendingSnapshot.set(snapshot);
+    }
+
+    /**
+     * Drops the book, buffered diffs and any pending snapshot, as if no diff
+     * had been seen yet.
+     */
+    public void reset() {
+        book.clear();
+        buffer.clear();
+        pendingSnapshot.set(null);
+        lastUpdateId = 0;
+        lastEventTime = 0;
+        state = State.UNSYNCED;
+    }
+
+    /**
+     * Loads the snapshot and replays the buffered diffs on top of it.
+     */
+    private boolean applySnapshot(DepthSnapshot snapshot) {
+        snapshot.loadInto(book);
+        snapshotCount.incrementAndGet();
+        lastUpdateId = snapshot.getLastUpdateId();
+        state = State.SYNCED;
+        boolean appliedAny = false;
+
+        for (int i = 0; i < buffer.size(); i++) {
+            long firstUpdateId = buffer.getFirstUpdateId(i);
+            long finalUpdateId = buffer.getFinalUpdateId(i);
+
+            if (finalUpdateId <= lastUpdateId) {
+                staleDiffCount.incrementAndGet();
+                continue;
+            }
+            if (firstUpdateId > lastUpdateId + 1) {
+                buffer.removeFirst(i);
+                if (appliedAny) {
+                    gapCount.incrementAndGet();
+                    resync("sequence gap in buffered diffs: expected " + (lastUpdateId + 1) + " but got " + firstUpdateId);
+                } else {
+                    // The snapshot is older than the diffs we have; keep them and fetch again
+                    resync("snapshot " + lastUpdateId + " is older than buffered diff " + firstUpdateId);
+                }
+                return false;
+            }
+
+            buffer.apply(i, book);
+            appliedAny = true;
+            lastUpdateId = finalUpdateId;
+            lastEventTime = buffer.getEventTime(i);
+        }
+
+        buffer.clear();
+        LOGGER.info("📘 " + tradingPair.getDisplayName() + " book synced at update " + lastUpdateId);
+        return true;
+    }
+
+    /**
+     * Throws the book away and goes back to waiting for a snapshot.
+     * Diffs already in the buffer are kept for the next replay.
+     */
+    private void resync(String reason) {
+        resyncCount.incrementAndGet();
+        LOGGER.warning("Resyncing " + tradingPair.getDisplayName() + " book, " + reason);
+
+        book.clear();
+        state = State.AWAITING_SNAPSHOT;
+        requestSnapshot();
+    }
+
+    private void requestSnapshot() {
+        if (snapshotSource == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (snapshotInFlight
+                || (lastSnapshotRequestNanos != 0 && now - lastSnapshotRequestNanos < MIN_SNAPSHOT_INTERVAL_NANOS)) {
+            return;
+        }
+
+        snapshotInFlight = true;
+        lastSnapshotRequestNanos = now;
+
+        executor.execute(() -> {
+            try {
+                pendingSnapshot.set(snapshotSource.fetchSnapshot(tradingPair));
+            } catch (IOException | RuntimeException e) {
+                snapshotFailureCount.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Depth snapshot failed for " + tradingPair.getDisplayName(), e);
+            } finally {
+                snapshotInFlight = false;
+            }
+        });
+    }
+
+    private void applyLevels(boolean bid, DepthUpdateDecoder.Levels levels) {
+        for (int i = 0; i < levels.size(); i++) {
+            // A zero quantity removes the level
+            book.update(bid, levels.price(i), levels.quantity(i));
+        }
+    }
+
+    // Getters
+    public State getState() { return state; }
+    public boolean isSynced() { return state == State.SYNCED; }
+    public long getLastUpdateId() { return lastUpdateId; }
+    public long getLastEventTime() { return lastEventTime; }
+    public long getGapCount() { return gapCount.get(); }
+    public long getResyncCount() { return resyncCount.get(); }
+    public long getStaleDiffCount() { return staleDiffCount.get(); }
+    public long getSnapshotCount() { return snapshotCount.get(); }
+    public long getSnapshotFailureCount() { return snapshotFailureCount.get(); }
+    public int getBufferedDiffCount() { return buffer.size(); }
+}
@@ -1,13 +1,15 @@
 package com.visualizer;
 
+import javafx.animation.PauseTransition;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 
 public class OrderBookTableView extends VBox {
 
@@ -67,16 +69,19 @@ public class OrderBookTableView extends VBox {
     private void createColumns(boolean isBidTable) {
         String priceColumnStyle = isBidTable ? "bid-price-column" : "ask-price-column";
 
-        TableColumn<Order, String> priceCol = new TableColumn<>(); // Empty header
-        priceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        // Bind straight to the row properties instead of looking them up reflectively
+        TableColumn<Order, Number> priceCol = new TableColumn<>(); // Empty header
+        priceCol.setCellValueFactory(data -> data.getValue().priceProperty());
+        priceCol.setCellFactory(column -> new LevelCell(true));
         priceCol.setPrefWidth(190);
         priceCol.getStyleClass().add(priceColumnStyle);
         priceCol.setResizable(false);
         priceCol.setSortable(false);
         priceCol.setReorderable(false);
 
-        TableColumn<Order, String> qtyCol = new TableColumn<>(); // Empty header
-        qtyCol.setCellValueFactory(new PropertyValueFactory<>("quantity"));
+        TableColumn<Order, Number> qtyCol = new TableColumn<>(); // Empty header
+        qtyCol.setCellValueFactory(data -> data.getValue().quantityProperty());
+        qtyCol.setCellFactory(column -> new LevelCell(false));
         qtyCol.setPrefWidth(190);
         qtyCol.getStyleClass().add("quantity-column");
         qtyCol.setResizable(false);
@@ -106,4 +111,53 @@ public class OrderBookTableView extends VBox {
     public ObservableList<Order> getItems() {
         return tableView.getItems();
     }
-}
\ No newline at end of file
+
+    /**
+     * Formats a scaled long for its row and briefly flashes when the value
+     * at the same rank goes up or down.
+     */
+    private static final class LevelCell extends TableCell<Order, Number> {
+        private static final Duration FLASH_DURATION = Duration.millis(300);
+
+        private final boolean priceColumn;
+        private final PauseTransition flashTimer = new PauseTransition(FLASH_DURATION);
+
+        // What this cell showed last, to tell a changed value from a reused cell
+        private int lastIndex = -1;
+        private long lastValue;
+
+        LevelCell(boolean priceColumn) {
+            this.priceColumn = priceColumn;
+            flashTimer.setOnFinished(e -> getStyleClass().removeAll("cell-flash-up", "cell-flash-down"));
+        }
+
+        @Override
+        protected void updateItem(Number item, boolean empty) {
+            super.updateItem(item, empty);
+
+            Order row = empty || getIndex() >= getTableView().getItems().size()
+                    ? null : getTableView().getItems().get(getIndex());
+            if (item == null || row == null) {
+                setText(null);
+                lastIndex = -1;
+                return;
+            }
+
+            long value = item.longValue();
+            int scale = priceColumn ? row.getPriceScale() : row.getQuantityScale();
+            setText(FixedPoint.toString(value, scale));
+
+            if (getIndex() == lastIndex && value != lastValue) {
+                flash(value > lastValue);
+            }
+            lastIndex = getIndex();
+            lastValue = value;
+        }
+
+        private void flash(boolean up) {
+            getStyleClass().removeAll("cell-flash-up", "cell-flash-down");
+            getStyleClass().add(up ? "cell-flash-up" : "cell-flash-down");
+            flashTimer.playFromStart();
+        }
+    }
+}
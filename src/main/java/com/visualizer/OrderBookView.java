@@ -18,10 +18,13 @@ public class OrderBookView extends VBox {
     private TradingPair currentTradingPair;
     private Label headerLabel;
     private ComboBox<TradingPair> pairSelector;
-    private WebSocketClient currentWebSocketClient;
     private DepthChartView depthChartView;
     private MarketInfoWidget marketInfoWidget;
     private VolatilityWidget volatilityWidget;
+    private TradeTapeView tradeTapeView;
+
+    // Refreshes the tables from the live book at most once per frame
+    private final ConflatingBookPublisher publisher;
 
     // Callback interface for notifying about pair changes
     public interface PairChangeListener {
@@ -34,14 +37,16 @@ public class OrderBookView extends VBox {
         this.currentTradingPair = initialTradingPair;
         this.bidOrders = FXCollections.observableArrayList();
         this.askOrders = FXCollections.observableArrayList();
+        this.publisher = new ConflatingBookPublisher(bidOrders, askOrders, ConflatingBookPublisher.maxFpsFromProperty());
         this.depthChartView = new DepthChartView();
         this.marketInfoWidget = new MarketInfoWidget();
         this.volatilityWidget = new VolatilityWidget();
+        this.tradeTapeView = new TradeTapeView();
 
         initializeView();
-        bindDepthChart();
-        bindMarketInfo();
-        bindVolatilityWidget();
+        bindWidgets();
+
+        publisher.start();
     }
 
     private void initializeView() {
@@ -70,10 +75,15 @@ public class OrderBookView extends VBox {
         widgetsSection.setAlignment(Pos.TOP_CENTER);
         widgetsSection.getChildren().addAll(marketInfoWidget, volatilityWidget);
 
+        // Depth chart with the trade tape beside it
+        HBox chartSection = new HBox(15);
+        chartSection.getChildren().addAll(depthChartView, tradeTapeView);
+        HBox.setHgrow(depthChartView, Priority.ALWAYS);
+
         // Create right side with widgets on top and large depth chart below
         VBox rightSide = new VBox(20);
         rightSide.setAlignment(Pos.TOP_CENTER);
-        rightSide.getChildren().addAll(widgetsSection, depthChartView);
+        rightSide.getChildren().addAll(widgetsSection, chartSection);
 
         // Create main content area
         HBox mainContent = new HBox(30);
@@ -84,7 +94,7 @@ public class OrderBookView extends VBox {
         HBox.setHgrow(rightSide, Priority.ALWAYS);
 
         // Make the depth chart expand within the right side
-        VBox.setVgrow(depthChartView, Priority.ALWAYS);
+        VBox.setVgrow(chartSection, Priority.ALWAYS);
 
         // Main layout
         setPadding(new Insets(25));
@@ -119,16 +129,17 @@ public class OrderBookView extends VBox {
     private ComboBox<TradingPair> createPairSelector() {
         // Popular trading pairs
         ObservableList<TradingPair> tradingPairs = FXCollections.observableArrayList(
-                new TradingPair("BTC", "USDT"),
-                new TradingPair("ETH", "USDT"),
-                new TradingPair("BNB", "USDT"),
-                new TradingPair("ADA", "USDT"),
-                new TradingPair("SOL", "USDT"),
-                new TradingPair("XRP", "USDT"),
-                new TradingPair("DOT", "USDT"),
-                new TradingPair("AVAX", "USDT"),
-                new TradingPair("MATIC", "USDT"),
-                new TradingPair("LINK", "USDT")
+                // Scales follow each symbol's tick size / lot size on Binance
+                new TradingPair("BTC", "USDT", 2, 5),
+                new TradingPair("ETH", "USDT", 2, 4),
+                new TradingPair("BNB", "USDT", 2, 3),
+                new TradingPair("ADA", "USDT", 4, 1),
+                new TradingPair("SOL", "USDT", 2, 3),
+                new TradingPair("XRP", "USDT", 4, 1),
+                new TradingPair("DOT", "USDT", 3, 2),
+                new TradingPair("AVAX", "USDT", 2, 2),
+                new TradingPair("MATIC", "USDT", 4, 1),
+                new TradingPair("LINK", "USDT", 2, 2)
         );
 
         ComboBox<TradingPair> selector = new ComboBox<>(tradingPairs);
@@ -149,20 +160,10 @@ public class OrderBookView extends VBox {
     }
 
     private void changeTradingPair(TradingPair newPair) {
-        // Stop current WebSocket connection
-        if (currentWebSocketClient != null) {
-            // Note: WebSocketClient doesn't have a stop method in your current implementation
-            // You might want to add one or handle this differently
-        }
-
-        // Clear existing data
-        bidOrders.clear();
-        askOrders.clear();
-
-        // Clear depth chart, market info, and volatility widget
+        // Tables, tape and indicators are replaced by the new pair's session on the
+        // next frame; only the chart axes and touch are reset so they do not ease over
         depthChartView.clear();
         marketInfoWidget.clear();
-        volatilityWidget.clear();
 
         // Update current pair
         currentTradingPair = newPair;
@@ -187,43 +188,56 @@ public class OrderBookView extends VBox {
         return section;
     }
 
-    private void bindDepthChart() {
-        // Bind the depth chart to order book data
-        depthChartView.bindToOrderBook(bidOrders, askOrders);
-    }
-
-    private void bindMarketInfo() {
-        // Bind the market info widget to order book data
-        marketInfoWidget.bindToOrderBook(bidOrders, askOrders);
-    }
-
-    private void bindVolatilityWidget() {
-        // Bind the volatility widget to order book data
-        volatilityWidget.bindToOrderBook(bidOrders, askOrders);
+    private void bindWidgets() {
+        // Widgets read each rendered frame's snapshot instead of listening to the table lists.
+        // The volatility widget shows the pair's analytics instead, see showSession.
+        publisher.addFrameListener(depthChartView);
+        publisher.addFrameListener(marketInfoWidget);
     }
 
     // Getters
     public ObservableList<Order> getBidOrders() { return bidOrders; }
     public ObservableList<Order> getAskOrders() { return askOrders; }
     public TradingPair getTradingPair() { return currentTradingPair; }
+    public ConflatingBookPublisher getPublisher() { return publisher; }
+    public VolatilityWidget getVolatilityWidget() { return volatilityWidget; }
+
+    /**
+     * Shows the given book in the tables and widgets. FX thread only.
+     */
+    public void showBook(OrderBookHandler handler) {
+        publisher.setSource(handler);
+    }
+
+    /**
+     * Shows the given trades in the trade tape. FX thread only.
+     */
+    public void showTrades(TradeHandler handler) {
+        tradeTapeView.setTape(handler.getTape(), handler.getTradingPair());
+    }
+
+    /**
+     * Shows a live pair: its book, trades and indicators are painted from
+     * their current state on the next frame. FX thread only.
+     */
+    public void showSession(PairCache.PairSession session) {
+        showBook(session.getBook());
+        showTrades(session.getTrades());
+        volatilityWidget.show(session.getAnalytics());
+    }
 
     // Setter for pair change listener
     public void setPairChangeListener(PairChangeListener listener) {
         this.pairChangeListener = listener;
     }
 
-    // Method to set current WebSocket client (for cleanup)
-    public void setCurrentWebSocketClient(WebSocketClient client) {
-        this.currentWebSocketClient = client;
-    }
-
     // Cleanup method to stop all widgets when view is destroyed
     public void cleanup() {
+        publisher.stop();
+        depthChartView.stop();
+        tradeTapeView.stop();
         if (volatilityWidget != null) {
             volatilityWidget.stop();
         }
-        if (currentWebSocketClient != null) {
-            // Add proper WebSocket cleanup here when available
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.visualizer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Keeps recently viewed pairs live in the background so switching back to
+ * one shows a synced book, its recent trades and warm indicators at once.
+ *
+ * Each cached pair is a {@link PairSession}: its book on the
+ * {@link BookManager}, its trade tape and its analytics, all subscribed on
+ * the shared stream client. Pinned favorites are never evicted. Other
+ * sessions are evicted least recently viewed first while the cache holds
+ * more sessions than its budget, or subscribes more streams than the
+ * connection budget allows. All rings in a session have a fixed capacity,
+ * so the session budget bounds memory.
+ *
+ * Methods are called on the FX thread.
+ */
+public class PairCache {
+    private static final Logger LOGGER = Logger.getLogger(PairCache.class.getName());
+
+    /**
+     * Notified on the FX thread when a pair goes live and when it is closed.
+     */
+    public interface SessionListener {
+        void onSessionOpened(PairSession session);
+
+        void onSessionClosed(PairSession session);
+    }
+
+    public static final int DEFAULT_MAX_SESSIONS = 5;
+
+    // Binance allows 1024 streams per connection
+    public static final int DEFAULT_MAX_STREAMS = 1024;
+
+    private static final int STREAMS_PER_SESSION = 2;
+
+    private final CombinedStreamClient streamClient;
+    private final BookManager bookManager;
+    private final int maxSessions;
+    private final int maxStreams;
+
+    // All sessions share one analytics thread
+    private final ScheduledExecutorService analyticsExecutor = AnalyticsScheduler.newExecutor();
+
+    // Least recently viewed first
+    private final LinkedHashMap<String, PairSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> pinned = ConcurrentHashMap.newKeySet();
+    private PairSession current;
+    private SessionListener sessionListener;
+
+    // Counters
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PairCache(CombinedStreamClient streamClient, BookManager bookManager) {
+        this(streamClient, bookManager, DEFAULT_MAX_SESSIONS, DEFAULT_MAX_STREAMS);
+    }
+
+    /**
+     * @param maxSessions pairs kept live, not counting pinned ones
+     * @param maxStreams  streams the cache may subscribe on the connection
+     */
+    public PairCache(CombinedStreamClient streamClient, BookManager bookManager, int maxSessions, int maxStreams) {
+        if (maxSessions < 1 || maxStreams < STREAMS_PER_SESSION) {
+            throw new IllegalArgumentException("Pair cache budget too small: " + maxSessions
+                    + " sessions, " + maxStreams + " streams");
+        }
+        this.streamClient = streamClient;
+        this.bookManager = bookManager;
+        this.maxSessions = maxSessions;
+        this.maxStreams = maxStreams;
+    }
+
+    /**
+     * Returns the live session of a pair, opening it if it is not cached,
+     * and makes it the viewed one.
+     */
+    public PairSession view(TradingPair tradingPair) {
+        PairSession session = sessions.get(tradingPair.getSymbol());
+        if (session != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            session = open(tradingPair);
+            sessions.put(tradingPair.getSymbol(), session);
+        }
+        current = session;
+        evict();
+        return session;
+    }
+
+    /**
+     * Keeps a pair live regardless of when it was last viewed.
+     */
+    public void pin(TradingPair tradingPair) {
+        pinned.add(tradingPair.getSymbol());
+        if (!sessions.containsKey(tradingPair.getSymbol())) {
+            sessions.put(tradingPair.getSymbol(), open(tradingPair));
+            evict();
+        }
+    }
+
+    public void unpin(TradingPair tradingPair) {
+        pinned.remove(tradingPair.getSymbol());
+        evict();
+    }
+
+    public void close() {
+        for (PairSession session : sessions.values()) {
+            close(session);
+        }
+        sessions.clear();
+        current = null;
+        analyticsExecutor.shutdownNow();
+    }
+
+    private PairSession open(TradingPair tradingPair) {
+        PairSession session = new PairSession(tradingPair, bookManager.add(tradingPair),
+                new TradeHandler(tradingPair, new TradeTape()),
+                new AnalyticsScheduler(new VolatilityIndicators(1000), new BarAggregator(),
+                        AnalyticsScheduler.DEFAULT_PERIOD_MILLIS, analyticsExecutor, null));
+
+        session.trades.setTradeListener(session::onTrade);
+        session.analytics.start();
+        streamClient.subscribe(tradingPair.getDepthStream(), session.book);
+        streamClient.subscribe(tradingPair.getTradeStream(), session.trades);
+
+        if (sessionListener != null) {
+            sessionListener.onSessionOpened(session);
+        }
+        LOGGER.info("📂 Opened " + tradingPair.getDisplayName() + " session");
+        return session;
+    }
+
+    private void close(PairSession session) {
+        TradingPair tradingPair = session.tradingPair;
+        streamClient.unsubscribe(tradingPair.getDepthStream());
+        streamClient.unsubscribe(tradingPair.getTradeStream());
+        session.trades.setTradeListener(null);
+        session.analytics.stop();
+        bookManager.remove(tradingPair);
+        if (sessionListener != null) {
+            sessionListener.onSessionClosed(session);
+        }
+    }
+
+    // Evicts unpinned sessions, least recently viewed first, until within budget
+    private void evict() {
+        Iterator<PairSession> iterator = sessions.values().iterator();
+        while (overBudget() && iterator.hasNext()) {
+            PairSession session = iterator.next();
+            if (session == current || pinned.contains(session.tradingPair.getSymbol())) {
+                continue;
+            }
+            iterator.remove();
+            close(session);
+            evictions.incrementAndGet();
+            LOGGER.info("🧹 Evicted " + session.tradingPair.getDisplayName() + " session");
+        }
+    }
+
+    private boolean overBudget() {
+        int unpinned = 0;
+        for (String symbol : sessions.keySet()) {
+            if (!pinned.contains(symbol)) {
+                unpinned++;
+            }
+        }
+        return unpinned > maxSessions || sessions.size() * STREAMS_PER_SESSION > maxStreams;
+    }
+
+    /**
+     * Set before the first pair is opened to hear about every session.
+     */
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    /**
+     * Cached pairs, least recently viewed first.
+     */
+    public List<TradingPair> getTradingPairs() {
+        List<TradingPair> pairs = new ArrayList<>(sessions.size());
+        for (PairSession session : sessions.values()) {
+            pairs.add(session.tradingPair);
+        }
+        return pairs;
+    }
+
+    // Getters
+    public PairSession getCurrent() { return current; }
+    public int getSessionCount() { return sessions.size(); }
+    public int getMaxSessions() { return maxSessions; }
+    public int getMaxStreams() { return maxStreams; }
+    public boolean isPinned(TradingPair tradingPair) { return pinned.contains(tradingPair.getSymbol()); }
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    /**
+     * Everything kept live for one pair.
+     */
+    public static final class PairSession {
+        private final TradingPair tradingPair;
+        private final BookManager.ManagedBook book;
+        private final TradeHandler trades;
+        private final AnalyticsScheduler analytics;
+
+        private PairSession(TradingPair tradingPair, BookManager.ManagedBook book, TradeHandler trades,
+                            AnalyticsScheduler analytics) {
+            this.tradingPair = tradingPair;
+            this.book = book;
+            this.trades = trades;
+            this.analytics = analytics;
+        }
+
+        // Ingest thread: every trade is one sample, stamped with its exchange time
+        private void onTrade(TradingPair pair, long price, long quantity, long tradeTime, boolean buyerMaker) {
+            analytics.addSample(FixedPoint.toDouble(price, pair.getPriceScale()),
+                    FixedPoint.toDouble(quantity, pair.getQuantityScale()), tradeTime);
+        }
+
+        public TradingPair getTradingPair() { return tradingPair; }
+        public OrderBookHandler getBook() { return book.getHandler(); }
+        public TradeHandler getTrades() { return trades; }
+        public AnalyticsScheduler getAnalytics() { return analytics; }
+    }
+}
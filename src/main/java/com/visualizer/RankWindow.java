@@ -0,0 +1,106 @@
+package com.visualizer;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the last {@code capacity} positive values that answers
+ * "how many values are below x" in O(log n).
+ *
+ * Values are quantized into logarithmic buckets (each bucket is 0.1% wider
+ * than the previous one) and counted in a Fenwick tree over the buckets.
+ * Adding, evicting and ranking each walk the tree once, regardless of how
+ * many values the window holds. Two values in the same bucket cannot be told
+ * apart, so a rank is exact up to a relative difference of 0.1%.
+ *
+ * Values from 1e-12 to 1e12 are resolved; anything outside is clamped to the
+ * first or last bucket. Not thread-safe.
+ */
+public class RankWindow {
+
+    private static final double MIN_VALUE = 1e-12;
+    private static final double MAX_VALUE = 1e12;
+    private static final double BUCKET_GROWTH = 1.001;
+    private static final double LOG_GROWTH = Math.log(BUCKET_GROWTH);
+    private static final int BUCKETS = (int) Math.ceil(Math.log(MAX_VALUE / MIN_VALUE) / LOG_GROWTH) + 1;
+
+    // Fenwick tree of counts per bucket, 1-based
+    private final int[] tree = new int[BUCKETS + 1];
+
+    // Bucket of each value in the window, oldest evicted first
+    private final int[] window;
+    private final int capacity;
+    private long added;
+
+    public RankWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.window = new int[capacity];
+    }
+
+    /**
+     * Adds a value, evicting the oldest one once the window is full.
+     */
+    public void add(double value) {
+        int slot = (int) (added % capacity);
+        if (added >= capacity) {
+            update(window[slot], -1);
+        }
+        int bucket = bucket(value);
+        window[slot] = bucket;
+        update(bucket, 1);
+        added++;
+    }
+
+    /**
+     * Number of values in the window that are below {@code value}.
+     */
+    public int countBelow(double value) {
+        return prefix(bucket(value) - 1);
+    }
+
+    /**
+     * Share of the window below {@code value}, in percent; 0 when empty.
+     */
+    public double percentileOf(double value) {
+        int size = size();
+        return size == 0 ? 0 : 100.0 * countBelow(value) / size;
+    }
+
+    public int size() {
+        return (int) Math.min(added, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        Arrays.fill(tree, 0);
+        added = 0;
+    }
+
+    private static int bucket(double value) {
+        if (!(value > MIN_VALUE)) {
+            return 0;
+        }
+        int bucket = (int) (Math.log(value / MIN_VALUE) / LOG_GROWTH);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private void update(int bucket, int delta) {
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Count of values in buckets [0, bucket]
+    private int prefix(int bucket) {
+        int sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,332 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Feeds frames recorded in a {@link FrameJournal} to the same handlers a live
+ * client feeds, so books, tapes and everything listening to them behave as
+ * they did when the frames arrived. Needs no network and no JavaFX.
+ *
+ * Combined-stream frames are routed by stream name exactly like
+ * {@link CombinedStreamClient}; frames of a single-stream recording can be
+ * bound to a handler by stream id instead. Books added with
+ * {@link #addBook} fetch no snapshots: the recorded ones are handed to them
+ * at the point in the stream where they arrived live, so a replay always
+ * builds the same books.
+ *
+ * Frames are delivered as fast as possible, or paced by their receive times
+ * at real time or any multiple of it. Seeking forward fast-forwards through
+ * the frames in between; seeking back rewinds the books and replays from the
+ * start, since a book can only be rebuilt from a snapshot and the diffs after
+ * it. Other handlers keep what they already saw. With no books the journal
+ * index is used to jump straight to the target.
+ *
+ * Handlers run on the replay thread, or on the caller's thread with
+ * {@link #step()} and {@link #run()}. Subscribe everything before starting.
+ */
+public class ReplaySource {
+    private static final Logger LOGGER = Logger.getLogger(ReplaySource.class.getName());
+
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+    public static final double REAL_TIME = 1;
+
+    private static final long NO_SEEK = Long.MIN_VALUE;
+
+    // Behind schedule by more than this counts as a late frame
+    private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final FrameJournalReader reader;
+    private final ObjectMapper mapper = SharedClients.objectMapper();
+    private final JsonFactory factory = new JsonFactory();
+    private final FrameJournalReader.FrameVisitor visitor = this::onFrame;
+
+    // Routes combined frames; never connected
+    private final CombinedStreamClient router = new CombinedStreamClient(
+            SharedClients.httpClient(), mapper, "replay", null);
+    private WebSocketHandler[] rawStreams = new WebSocketHandler[0];
+    private final Map<String, OrderBookHandler> books = new HashMap<>();
+
+    private volatile double speed;
+    private volatile long pendingSeek = NO_SEEK;
+    private volatile boolean stopRequested = false;
+    private volatile long positionEpochNanos = -1;
+    private volatile Thread thread;
+
+    // Replay thread: pacing origin, reset on speed changes and seeks
+    private double pacedSpeed;
+    private long baseEpochNanos = -1;
+    private long baseNanos;
+    private long fastForwardUntil = NO_SEEK;
+
+    // Counters
+    private final AtomicLong replayedFrames = new AtomicLong();
+    private final AtomicLong replayedSnapshots = new AtomicLong();
+    private final AtomicLong lateFrames = new AtomicLong();
+    private final AtomicLong seeks = new AtomicLong();
+    private final AtomicLong rewinds = new AtomicLong();
+
+    /**
+     * @param speed {@link #AS_FAST_AS_POSSIBLE}, {@link #REAL_TIME} or a
+     *              multiple of real time, e.g. 10 for ten times faster
+     */
+    public ReplaySource(FrameJournalReader reader, double speed) {
+        this.reader = reader;
+        this.speed = speed;
+    }
+
+    /**
+     * Routes a stream of combined frames to a handler, as
+     * {@link CombinedStreamClient#subscribe} does.
+     */
+    public void subscribe(String stream, WebSocketHandler handler) {
+        router.subscribe(stream, handler);
+    }
+
+    /**
+     * Hands every frame recorded under a stream id to a handler as is, e.g.
+     * the frames of a single-stream {@link WebSocketClient}.
+     */
+    public void subscribe(int streamId, WebSocketHandler handler) {
+        if (streamId < 0) {
+            throw new IllegalArgumentException("Stream id must not be negative: " + streamId);
+        }
+        if (streamId >= rawStreams.length) {
+            rawStreams = Arrays.copyOf(rawStreams, streamId + 1);
+        }
+        rawStreams[streamId] = handler;
+    }
+
+    /**
+     * Creates a book for a pair, subscribed to its depth stream and synced
+     * from the recorded snapshots only.
+     */
+    public OrderBookHandler addBook(TradingPair tradingPair) {
+        OrderBookHandler handler = new OrderBookHandler(tradingPair, new LadderOrderBook(), null);
+        books.put(tradingPair.getSymbol(), handler);
+        subscribe(tradingPair.getDepthStream(), handler);
+        return handler;
+    }
+
+    /**
+     * Replays on a thread of its own until the end of the journal or {@link #stop()}.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            LOGGER.fine("⚠️ Replay already started");
+            return;
+        }
+        stopRequested = false;
+        thread = new Thread(() -> {
+            try {
+                run();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Replay failed", e);
+            }
+        }, "replay");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("⏯️ Replaying " + reader.getSegmentCount() + " journal segments at "
+                + (speed <= 0 ? "full speed" : speed + "x"));
+    }
+
+    public synchronized void stop() {
+        stopRequested = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    /**
+     * Replays on the calling thread until the end of the journal or {@link #stop()}.
+     */
+    public void run() throws IOException {
+        while (!stopRequested && step()) {
+            // Every frame is delivered by step(); snapshots held back for a reader's frame rate follow
+            flushBooks(false);
+        }
+        flushBooks(true);
+    }
+
+    /**
+     * Delivers the next frame on the calling thread, after waiting for its
+     * time unless replaying as fast as possible.
+     *
+     * @return false at the end of the journal
+     */
+    public boolean step() throws IOException {
+        long target = pendingSeek;
+        if (target != NO_SEEK) {
+            pendingSeek = NO_SEEK;
+            seekTo(target);
+        }
+        return reader.next(visitor);
+    }
+
+    /**
+     * Continues from the first frame received at or after the given time.
+     * Takes effect before the next frame; safe to call from any thread.
+     */
+    public void seek(long epochNanos) {
+        pendingSeek = epochNanos;
+        Thread replayThread = thread;
+        if (replayThread != null) {
+            LockSupport.unpark(replayThread);
+        }
+    }
+
+    /**
+     * Changes the pace from the next frame on; safe to call from any thread.
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+        Thread replayThread = thread;
+        if (replayThread != null) {
+            LockSupport.unpark(replayThread);
+        }
+    }
+
+    private void seekTo(long target) throws IOException {
+        seeks.incrementAndGet();
+        baseEpochNanos = -1;
+
+        if (books.isEmpty()) {
+            reader.seek(target);
+            fastForwardUntil = NO_SEEK;
+            return;
+        }
+
+        if (target < positionEpochNanos) {
+            rewinds.incrementAndGet();
+            for (OrderBookHandler book : books.values()) {
+                book.reset();
+            }
+            reader.seek(Long.MIN_VALUE);
+        }
+        fastForwardUntil = target;
+    }
+
+    private void onFrame(int streamId, long epochNanos, byte[] buffer, int offset, int length) {
+        positionEpochNanos = epochNanos;
+
+        if (fastForwardUntil != NO_SEEK) {
+            if (epochNanos < fastForwardUntil) {
+                deliver(streamId, buffer, offset, length);
+                return;
+            }
+            fastForwardUntil = NO_SEEK;
+        }
+
+        pace(epochNanos);
+        deliver(streamId, buffer, offset, length);
+    }
+
+    // Waits until the frame is due at the current speed
+    private void pace(long epochNanos) {
+        double current = speed;
+        if (current <= 0) {
+            return;
+        }
+        if (baseEpochNanos < 0 || current != pacedSpeed) {
+            baseEpochNanos = epochNanos;
+            baseNanos = System.nanoTime();
+            pacedSpeed = current;
+            return;
+        }
+
+        long due = baseNanos + (long) ((epochNanos - baseEpochNanos) / current);
+        long wait = due - System.nanoTime();
+        if (wait <= 0) {
+            if (wait < -LATE_NANOS) {
+                lateFrames.incrementAndGet();
+            }
+            return;
+        }
+        // Nothing arrives until the frame is due, so show what is held back now
+        flushBooks(true);
+
+        // A seek, speed change or stop cuts the wait short
+        while (wait > 0 && !stopRequested && pendingSeek == NO_SEEK && speed == current) {
+            LockSupport.parkNanos(wait);
+            wait = due - System.nanoTime();
+        }
+    }
+
+    private void flushBooks(boolean force) {
+        for (OrderBookHandler book : books.values()) {
+            book.flushSnapshots(force);
+        }
+    }
+
+    private void deliver(int streamId, byte[] buffer, int offset, int length) {
+        replayedFrames.incrementAndGet();
+        if (streamId == FrameJournal.SNAPSHOT_STREAM_ID) {
+            offerSnapshot(buffer, offset, length);
+            return;
+        }
+
+        WebSocketHandler handler = streamId >= 0 && streamId < rawStreams.length ? rawStreams[streamId] : null;
+        if (handler != null) {
+            handler.handleMessage(buffer, offset, length, mapper);
+        } else {
+            // Recorded receive times are from another clock, so replays are not tracked
+            router.route(buffer, offset, length, 0);
+        }
+    }
+
+    // A recorded snapshot is the symbol, a newline and the REST response body
+    private void offerSnapshot(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        int newline = offset;
+        while (newline < end && buffer[newline] != '\n') {
+            newline++;
+        }
+        if (newline == end) {
+            return;
+        }
+
+        OrderBookHandler book = books.get(new String(buffer, offset, newline - offset, StandardCharsets.US_ASCII));
+        if (book == null) {
+            return;
+        }
+
+        TradingPair tradingPair = book.getTradingPair();
+        try (JsonParser parser = factory.createParser(buffer, newline + 1, end - newline - 1)) {
+            book.getSynchronizer().offerSnapshot(BinanceDepthSnapshotSource.parse(parser,
+                    tradingPair.getPriceScale(), tradingPair.getQuantityScale()));
+            replayedSnapshots.incrementAndGet();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Bad recorded snapshot for " + tradingPair.getDisplayName(), e);
+        }
+    }
+
+    // Getters
+    public double getSpeed() { return speed; }
+    public boolean isRunning() { return thread != null && thread.isAlive(); }
+    public FrameJournalReader getReader() { return reader; }
+
+    /**
+     * Receive time of the last frame delivered, or -1 before the first.
+     */
+    public long getPositionEpochNanos() { return positionEpochNanos; }
+
+    public long getReplayedFrameCount() { return replayedFrames.get(); }
+    public long getReplayedSnapshotCount() { return replayedSnapshots.get(); }
+    public long getUnroutedFrameCount() { return router.getUnroutedFrameCount(); }
+    public long getLateFrameCount() { return lateFrames.get(); }
+    public long getSeekCount() { return seeks.get(); }
+    public long getRewindCount() { return rewinds.get(); }
+}
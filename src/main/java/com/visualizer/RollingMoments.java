@@ -0,0 +1,71 @@
+package com.visualizer;
+
+/**
+ * Mean and population variance of the newest {@code period} values of a
+ * ring, maintained with Welford's update and its inverse for removals.
+ */
+final class RollingMoments {
+
+    // Running values are rebuilt from the ring this often to stop drift
+    static final int MIN_RESYNC_INTERVAL = 4096;
+
+    final DoubleRing source;
+    final int period;
+    final int resyncInterval;
+    double mean;
+    double m2;
+    int count;
+    int sinceResync;
+
+    RollingMoments(DoubleRing source, int period) {
+        this.source = source;
+        this.period = period;
+        this.resyncInterval = Math.max(period, MIN_RESYNC_INTERVAL);
+        resync();
+    }
+
+    // Called after a value was pushed onto the source
+    void onPush() {
+        if (count == period) {
+            remove(source.back(period));
+        }
+        add(source.back(0));
+        if (++sinceResync >= resyncInterval) {
+            resync();
+        }
+    }
+
+    private void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    private void remove(double value) {
+        if (count == 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        count--;
+        double delta = value - mean;
+        mean -= delta / count;
+        m2 -= delta * (value - mean);
+    }
+
+    double variance() {
+        return count < 2 ? 0 : Math.max(0, m2 / count);
+    }
+
+    void resync() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        for (int age = Math.min(period, source.size()) - 1; age >= 0; age--) {
+            add(source.back(age));
+        }
+        sinceResync = 0;
+    }
+}
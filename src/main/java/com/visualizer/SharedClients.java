@@ -0,0 +1,27 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide HTTP client and JSON mapper.
+ *
+ * Every socket and REST call goes through the same OkHttpClient so they share
+ * one dispatcher, one connection pool and one set of threads.
+ */
+public final class SharedClients {
+
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private SharedClients() {
+    }
+
+    public static OkHttpClient httpClient() {
+        return HTTP_CLIENT;
+    }
+
+    public static ObjectMapper objectMapper() {
+        return OBJECT_MAPPER;
+    }
+}
@@ -0,0 +1,120 @@
+package com.visualizer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming decoder for Binance trade frames.
+ *
+ * Reads the fields of {@link Trade} token by token and parses price and
+ * quantity straight into fixed-point longs (see {@link FixedPoint}), so a
+ * trade costs no objects. Not thread-safe: one instance per ingest thread.
+ */
+public class TradeDecoder {
+
+    private final JsonFactory factory;
+    private final int priceScale;
+    private final int quantityScale;
+
+    // Fields of the last decoded trade
+    private long eventTime;
+    private long tradeId;
+    private long price;
+    private long quantity;
+    private long tradeTime;
+    private boolean buyerMaker;
+
+    public TradeDecoder(int priceScale, int quantityScale) {
+        this(new JsonFactory(), priceScale, quantityScale);
+    }
+
+    public TradeDecoder(JsonFactory factory, int priceScale, int quantityScale) {
+        this.factory = factory;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+    }
+
+    /**
+     * Decodes a frame received as text.
+     *
+     * @return true if the frame was a trade, false for anything else
+     */
+    public boolean decode(String json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * Decodes a frame straight from its UTF-8 bytes.
+     *
+     * @return true if the frame was a trade, false for anything else
+     */
+    public boolean decode(byte[] buffer, int offset, int length) throws IOException {
+        try (JsonParser parser = factory.createParser(buffer, offset, length)) {
+            return decode(parser);
+        }
+    }
+
+    private boolean decode(JsonParser parser) throws IOException {
+        eventTime = 0;
+        tradeId = 0;
+        price = 0;
+        quantity = 0;
+        tradeTime = 0;
+        buyerMaker = false;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+
+        boolean sawPrice = false;
+        boolean sawQuantity = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            // Field names are canonicalized by Jackson, so this does not allocate
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "E" -> eventTime = parser.getLongValue();
+                case "t" -> tradeId = parser.getLongValue();
+                case "T" -> tradeTime = parser.getLongValue();
+                case "m" -> buyerMaker = value == JsonToken.VALUE_TRUE;
+                case "p" -> {
+                    price = parseText(parser, priceScale);
+                    sawPrice = true;
+                }
+                case "q" -> {
+                    quantity = parseText(parser, quantityScale);
+                    sawQuantity = true;
+                }
+                default -> {
+                    if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return sawPrice && sawQuantity;
+    }
+
+    private static long parseText(JsonParser parser, int scale) throws IOException {
+        return FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+    }
+
+    // Getters
+    public long getEventTime() { return eventTime; }
+    public long getTradeId() { return tradeId; }
+    public long getPrice() { return price; }
+    public long getQuantity() { return quantity; }
+    public long getTradeTime() { return tradeTime; }
+    public boolean isBuyerMaker() { return buyerMaker; }
+
+    public int getPriceScale() { return priceScale; }
+    public int getQuantityScale() { return quantityScale; }
+}
@@ -2,23 +2,151 @@ package com.visualizer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class TradeHandler implements WebSocketHandler {
+
+    /**
+     * Notified on the ingest thread for every trade. Prices and quantities
+     * are scaled longs in the pair's precision.
+     */
+    public interface TradeListener {
+        void onTrade(TradingPair tradingPair, long price, long quantity, long tradeTime, boolean buyerMaker);
+    }
+
+    private final TradingPair tradingPair;
+
+    // Prints every trade when running without a UI
+    private final boolean consoleMode;
+
+    // Recent trades for the tape view, null in console mode
+    private final TradeTape tape;
+
+    // Reused for every frame instead of binding to Trade
+    private final TradeDecoder decoder;
+
+    // Stage latencies of the trade stream, shared with the tape view
+    private final LatencyTracker latency;
+
+    private volatile TradeListener tradeListener;
+
+    // Counters
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong parseErrors = new AtomicLong();
+
+    // Console-only constructor
+    public TradeHandler(TradingPair tradingPair) {
+        this(tradingPair, null, true);
+    }
+
+    public TradeHandler(TradingPair tradingPair, TradeTape tape) {
+        this(tradingPair, tape, false);
+    }
+
+    private TradeHandler(TradingPair tradingPair, TradeTape tape, boolean consoleMode) {
+        this.tradingPair = tradingPair;
+        this.tape = tape;
+        this.consoleMode = consoleMode;
+        this.decoder = new TradeDecoder(tradingPair.getPriceScale(), tradingPair.getQuantityScale());
+        this.latency = LatencyMonitor.tracker(tradingPair.getTradeStream());
+    }
+
     @Override
     public void handleMessage(String json, ObjectMapper mapper) {
+        messages.incrementAndGet();
         try {
-            Trade trade = mapper.readValue(json, Trade.class);
-
-            // Format trade info (right side of terminal)
-            String output = String.format(
-                    "TRADE     | Price: %-10s Qty: %-10s Maker: %s",
-                    trade.getPrice(), trade.getQuantity(), trade.isMarketMaker()
-            );
+            if (decoder.decode(json)) {
+                publishTrade(0);
+            }
+        } catch (Exception e) {
+            parseErrors.incrementAndGet();
+            System.err.println("⚠️ Failed to parse trade JSON: " + e.getMessage());
+        }
+    }
 
-            // Print aligned
-            System.out.printf("%100s%n", output);
+    @Override
+    public void handleMessage(byte[] buffer, int offset, int length, ObjectMapper mapper) {
+        handleMessage(buffer, offset, length, 0, mapper);
+    }
 
+    @Override
+    public void handleMessage(byte[] buffer, int offset, int length, long receivedNanos, ObjectMapper mapper) {
+        messages.incrementAndGet();
+        try {
+            if (decoder.decode(buffer, offset, length)) {
+                publishTrade(receivedNanos);
+            }
         } catch (Exception e) {
+            parseErrors.incrementAndGet();
             System.err.println("⚠️ Failed to parse trade JSON: " + e.getMessage());
         }
     }
+
+    private void publishTrade(long receivedNanos) {
+        boolean tracked = receivedNanos != 0 && LatencyMonitor.isEnabled();
+        long parsedNanos = tracked ? System.nanoTime() : 0;
+
+        if (consoleMode) {
+            printTrade();
+        }
+
+        if (tape != null) {
+            tape.append(decoder.getPrice(), decoder.getQuantity(), decoder.getTradeTime(),
+                    decoder.getTradeId(), decoder.isBuyerMaker());
+        }
+        long appliedNanos = tracked ? System.nanoTime() : 0;
+
+        // For trades, publishing is handing them to the listeners, e.g. the bars
+        TradeListener listener = tradeListener;
+        if (listener != null) {
+            listener.onTrade(tradingPair, decoder.getPrice(), decoder.getQuantity(),
+                    decoder.getTradeTime(), decoder.isBuyerMaker());
+        }
+
+        if (tracked) {
+            long publishedNanos = System.nanoTime();
+            latency.record(LatencyTracker.Stage.EXCHANGE_TO_RECEIVE,
+                    LatencyMonitor.sinceExchange(decoder.getTradeTime(), receivedNanos));
+            latency.record(LatencyTracker.Stage.RECEIVE_TO_PARSE, parsedNanos - receivedNanos);
+            latency.record(LatencyTracker.Stage.PARSE_TO_APPLY, appliedNanos - parsedNanos);
+            latency.record(LatencyTracker.Stage.APPLY_TO_PUBLISH, publishedNanos - appliedNanos);
+        }
+    }
+
+    private void printTrade() {
+        // Format trade info (right side of terminal)
+        String output = String.format(
+                "TRADE     | Price: %-10s Qty: %-10s Maker: %s",
+                FixedPoint.toString(decoder.getPrice(), tradingPair.getPriceScale()),
+                FixedPoint.toString(decoder.getQuantity(), tradingPair.getQuantityScale()),
+                decoder.isBuyerMaker()
+        );
+
+        // Print aligned
+        System.out.printf("%100s%n", output);
+    }
+
+    public void setTradeListener(TradeListener tradeListener) {
+        this.tradeListener = tradeListener;
+    }
+
+    public TradingPair getTradingPair() {
+        return tradingPair;
+    }
+
+    public TradeTape getTape() {
+        return tape;
+    }
+
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
+    public long getMessageCount() {
+        return messages.get();
+    }
+
+    public long getParseErrorCount() {
+        return parseErrors.get();
+    }
 }
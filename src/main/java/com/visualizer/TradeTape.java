@@ -0,0 +1,136 @@
+package com.visualizer;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size ring of the most recent trades, stored as primitive columns.
+ *
+ * One ingest thread appends; any number of readers copy the newest trades
+ * out without locking. The writer fills a slot and then advances a volatile
+ * sequence, so everything below the sequence is visible to readers. A
+ * reader that fell a full lap behind could see a slot being overwritten,
+ * so it re-checks the sequence after copying and drops trades that may have
+ * been lapped. Fences keep the slot writes after the previous sequence
+ * store, and the copy's reads before the re-check, as in a seqlock.
+ */
+public class TradeTape {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int capacity;
+    private final long[] prices;
+    private final long[] quantities;
+    private final long[] tradeTimes;
+    private final long[] tradeIds;
+    private final boolean[] buyerMakers;
+
+    // Number of trades ever appended
+    private volatile long sequence;
+
+    public TradeTape() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TradeTape(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Tape capacity must be at least 2: " + capacity);
+        }
+        this.capacity = capacity;
+        this.prices = new long[capacity];
+        this.quantities = new long[capacity];
+        this.tradeTimes = new long[capacity];
+        this.tradeIds = new long[capacity];
+        this.buyerMakers = new boolean[capacity];
+    }
+
+    /**
+     * Appends a trade, overwriting the oldest one when full. Writer thread only.
+     */
+    public void append(long price, long quantity, long tradeTime, long tradeId, boolean buyerMaker) {
+        long next = sequence;
+        // Readers that see this slot overwritten must also see sequence == next
+        VarHandle.storeStoreFence();
+        int slot = (int) (next % capacity);
+        prices[slot] = price;
+        quantities[slot] = quantity;
+        tradeTimes[slot] = tradeTime;
+        tradeIds[slot] = tradeId;
+        buyerMakers[slot] = buyerMaker;
+        sequence = next + 1;
+    }
+
+    /**
+     * Copies up to {@code into.capacity()} of the newest trades, newest first.
+     * Safe to call from any thread.
+     */
+    public void copyLatest(View into) {
+        long end = sequence;
+        long start = Math.max(0, Math.max(end - into.capacity, end - capacity));
+
+        int count = 0;
+        for (long index = end - 1; index >= start; index--) {
+            int slot = (int) (index % capacity);
+            into.prices[count] = prices[slot];
+            into.quantities[count] = quantities[slot];
+            into.tradeTimes[count] = tradeTimes[slot];
+            into.tradeIds[count] = tradeIds[slot];
+            into.buyerMakers[count] = buyerMakers[slot];
+            count++;
+        }
+
+        // The writer may have lapped the oldest copied slots meanwhile; the slot
+        // it is filling next belongs to index sequence - capacity
+        VarHandle.acquireFence();
+        long oldestSafe = sequence + 1 - capacity;
+        if (start < oldestSafe) {
+            count -= (int) Math.min(count, oldestSafe - start);
+        }
+        into.count = count;
+        into.sequence = end;
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public long getSequence() { return sequence; }
+
+    /**
+     * Reader-owned copy of the newest trades, newest first.
+     */
+    public static class View {
+        private final int capacity;
+        private final long[] prices;
+        private final long[] quantities;
+        private final long[] tradeTimes;
+        private final long[] tradeIds;
+        private final boolean[] buyerMakers;
+        private int count;
+        private long sequence = -1;
+
+        public View(int capacity) {
+            this.capacity = capacity;
+            this.prices = new long[capacity];
+            this.quantities = new long[capacity];
+            this.tradeTimes = new long[capacity];
+            this.tradeIds = new long[capacity];
+            this.buyerMakers = new boolean[capacity];
+        }
+
+        public int size() { return count; }
+        public long price(int i) { return prices[i]; }
+        public long quantity(int i) { return quantities[i]; }
+        public long tradeTime(int i) { return tradeTimes[i]; }
+        public long tradeId(int i) { return tradeIds[i]; }
+        public boolean buyerMaker(int i) { return buyerMakers[i]; }
+
+        /**
+         * Tape sequence this view was copied at, -1 before the first copy.
+         */
+        public long getSequence() { return sequence; }
+        public int getCapacity() { return capacity; }
+
+        public void clear() {
+            count = 0;
+            sequence = -1;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.visualizer;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Pos;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolling list of the latest trades, drawn on a {@link Canvas}.
+ *
+ * Once per pulse the view copies the newest trades out of the
+ * {@link TradeTape} and redraws only if the tape moved. However many
+ * trades arrive, the cost is bounded by the number of visible rows, and no
+ * nodes are created per trade.
+ */
+public class TradeTapeView extends VBox {
+
+    private static final double ROW_HEIGHT = 18;
+    private static final double HEADER_HEIGHT = 22;
+    private static final int MAX_ROWS = 64;
+
+    private static final Color BACKGROUND = Color.web("#2b2b2b");
+    private static final Color HEADER = Color.web("#bbbbbb");
+    private static final Color BUY = Color.web("#4CAF50");
+    private static final Color SELL = Color.web("#f44336");
+    private static final Color TIME = Color.web("#888888");
+    private static final Font FONT = Font.font("Monospaced", 12);
+
+    private final Pane canvasPane = new Pane();
+    private final Canvas canvas = new Canvas();
+    private final TradeTape.View view = new TradeTape.View(MAX_ROWS);
+    private final StringBuilder text = new StringBuilder(16);
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            refresh();
+        }
+    };
+
+    private volatile TradeTape tape;
+    private TradingPair tradingPair;
+    private LatencyTracker latency;
+    private boolean redraw = true;
+
+    // Offset of local time from UTC, for the time column
+    private final long zoneOffsetMillis = TimeUnit.SECONDS.toMillis(
+            ZoneId.systemDefault().getRules().getOffset(java.time.Instant.now()).getTotalSeconds());
+
+    public TradeTapeView() {
+        canvas.widthProperty().bind(canvasPane.widthProperty());
+        canvas.heightProperty().bind(canvasPane.heightProperty());
+        canvas.widthProperty().addListener((obs, oldValue, newValue) -> redraw = true);
+        canvas.heightProperty().addListener((obs, oldValue, newValue) -> redraw = true);
+        canvasPane.getChildren().add(canvas);
+        canvasPane.setPrefSize(260, 400);
+
+        Label headerLabel = new Label("🧾 Trades");
+        headerLabel.getStyleClass().add("depth-chart-header");
+
+        setAlignment(Pos.TOP_CENTER);
+        setSpacing(10);
+        setPrefWidth(260);
+        VBox.setVgrow(canvasPane, Priority.ALWAYS);
+        getChildren().addAll(headerLabel, canvasPane);
+
+        timer.start();
+    }
+
+    /**
+     * Shows the trades of another tape. FX thread only.
+     */
+    public void setTape(TradeTape tape, TradingPair tradingPair) {
+        this.tape = tape;
+        this.tradingPair = tradingPair;
+        this.latency = tradingPair == null ? null : LatencyMonitor.tracker(tradingPair.getTradeStream());
+        view.clear();
+        redraw = true;
+    }
+
+    private void refresh() {
+        TradeTape current = tape;
+        boolean moved = false;
+        if (current != null && current.getSequence() != view.getSequence()) {
+            current.copyLatest(view);
+            redraw = true;
+            moved = true;
+        }
+        if (redraw) {
+            redraw = false;
+            draw();
+        }
+        if (moved && latency != null && view.size() > 0 && LatencyMonitor.isEnabled()) {
+            latency.record(LatencyTracker.Stage.EXCHANGE_TO_RENDER,
+                    LatencyMonitor.sinceExchange(view.tradeTime(0), System.nanoTime()));
+        }
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, width, height);
+
+        gc.setFont(FONT);
+        gc.setTextBaseline(VPos.CENTER);
+        double priceX = width * 0.42;
+        double sizeX = width - 8;
+
+        gc.setFill(HEADER);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText("TIME", 8, HEADER_HEIGHT / 2);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.fillText("PRICE", priceX + 40, HEADER_HEIGHT / 2);
+        gc.fillText("SIZE", sizeX, HEADER_HEIGHT / 2);
+
+        if (tradingPair == null) {
+            return;
+        }
+
+        int rows = Math.min(view.size(), (int) ((height - HEADER_HEIGHT) / ROW_HEIGHT));
+        for (int i = 0; i < rows; i++) {
+            double y = HEADER_HEIGHT + ROW_HEIGHT * i + ROW_HEIGHT / 2;
+
+            gc.setFill(TIME);
+            gc.setTextAlign(TextAlignment.LEFT);
+            gc.fillText(formatTime(view.tradeTime(i)), 8, y);
+
+            // The maker was the buyer, so the aggressor sold
+            gc.setFill(view.buyerMaker(i) ? SELL : BUY);
+            gc.setTextAlign(TextAlignment.RIGHT);
+            gc.fillText(format(view.price(i), tradingPair.getPriceScale()), priceX + 40, y);
+            gc.fillText(format(view.quantity(i), tradingPair.getQuantityScale()), sizeX, y);
+        }
+    }
+
+    private String format(long value, int scale) {
+        text.setLength(0);
+        FixedPoint.append(text, value, scale);
+        return text.toString();
+    }
+
+    // HH:mm:ss.SSS in local time, without going through java.time per row
+    private String formatTime(long epochMillis) {
+        long millisOfDay = Math.floorMod(epochMillis + zoneOffsetMillis, TimeUnit.DAYS.toMillis(1));
+        text.setLength(0);
+        appendPadded(millisOfDay / 3_600_000, 2);
+        text.append(':');
+        appendPadded(millisOfDay / 60_000 % 60, 2);
+        text.append(':');
+        appendPadded(millisOfDay / 1000 % 60, 2);
+        text.append('.');
+        appendPadded(millisOfDay % 1000, 3);
+        return text.toString();
+    }
+
+    private void appendPadded(long value, int digits) {
+        for (long limit = FixedPoint.pow10(digits - 1); limit > 1 && value < limit; limit /= 10) {
+            text.append('0');
+        }
+        text.append(value);
+    }
+
+    public void clear() {
+        setTape(null, null);
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+}
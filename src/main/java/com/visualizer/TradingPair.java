@@ -6,20 +6,67 @@ public class TradingPair {
     private final String symbol;
     private final String displayName;
 
-    public TradingPair(String baseAsset, String quoteAsset) {
+    // Decimal places of the tick size and lot size (fixed-point scales)
+    private final int priceScale;
+    private final int quantityScale;
+
+    public TradingPair(String baseAsset, String quoteAsset, int priceScale, int quantityScale) {
         this.baseAsset = baseAsset.toUpperCase();
         this.quoteAsset = quoteAsset.toUpperCase();
         this.symbol = (baseAsset + quoteAsset).toLowerCase();
         this.displayName = baseAsset.toUpperCase() + "/" + quoteAsset.toUpperCase();
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+    }
+
+    /**
+     * Parses "BASE/QUOTE:priceScale:quantityScale", e.g. "BTC/USDT:2:5".
+     *
+     * The scales are required: the ladder book indexes one slot per scaled
+     * price unit, so a scale finer than the symbol's tick spreads the book
+     * far beyond the ladder's window.
+     */
+    public static TradingPair parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        String[] assets = parts[0].split("/");
+        if (assets.length != 2 || assets[0].isBlank() || assets[1].isBlank() || parts.length != 3) {
+            throw new IllegalArgumentException("Expected BASE/QUOTE:priceScale:quantityScale: " + spec);
+        }
+        return new TradingPair(assets[0].trim(), assets[1].trim(), Integer.parseInt(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()));
     }
 
     public String getBaseAsset() { return baseAsset; }
     public String getQuoteAsset() { return quoteAsset; }
     public String getSymbol() { return symbol; }
     public String getDisplayName() { return displayName; }
+    public int getPriceScale() { return priceScale; }
+    public int getQuantityScale() { return quantityScale; }
+
+    // Stream names as used by the combined /stream endpoint
+    public String getDepthStream() {
+        return symbol + "@depth";
+    }
+
+    public String getTradeStream() {
+        return symbol + "@trade";
+    }
 
+    // Raw single-stream URLs on the configured endpoint (see CombinedStreamClient.BASE_URL_PROPERTY)
     public String getWebSocketUrl() {
-        return "wss://stream.binance.com:9443/ws/" + symbol + "@depth";
+        return getWebSocketUrl(CombinedStreamClient.configuredBaseUrl());
+    }
+
+    public String getWebSocketUrl(String baseUrl) {
+        return WebSocketClient.streamUrl(baseUrl, getDepthStream());
+    }
+
+    public String getTradeWebSocketUrl() {
+        return getTradeWebSocketUrl(CombinedStreamClient.configuredBaseUrl());
+    }
+
+    public String getTradeWebSocketUrl(String baseUrl) {
+        return WebSocketClient.streamUrl(baseUrl, getTradeStream());
     }
 
     @Override
@@ -0,0 +1,66 @@
+package com.visualizer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reference {@link OrderBook} backed by two sorted TreeMaps.
+ *
+ * Simple and obviously correct, at the cost of a boxed entry per level.
+ * Other engines are expected to behave exactly like this one.
+ */
+public class TreeMapOrderBook implements OrderBook {
+
+    // TreeMap keeps entries sorted by key
+    private final TreeMap<Long, Long> bids = new TreeMap<>(Collections.reverseOrder()); // Descending (highest first)
+    private final TreeMap<Long, Long> asks = new TreeMap<>(); // Ascending (lowest first)
+
+    @Override
+    public void update(boolean bid, long price, long quantity) {
+        TreeMap<Long, Long> book = bid ? bids : asks;
+        if (quantity == 0) {
+            // Remove this price level
+            book.remove(price);
+        } else {
+            // Add or update this price level
+            book.put(price, quantity);
+        }
+    }
+
+    @Override
+    public long bestPrice(boolean bid) {
+        TreeMap<Long, Long> book = bid ? bids : asks;
+        return book.isEmpty() ? 0 : book.firstKey();
+    }
+
+    @Override
+    public long quantityAt(boolean bid, long price) {
+        return (bid ? bids : asks).getOrDefault(price, 0L);
+    }
+
+    @Override
+    public int levelCount(boolean bid) {
+        return (bid ? bids : asks).size();
+    }
+
+    @Override
+    public int top(boolean bid, int maxLevels, long[] prices, long[] quantities) {
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : (bid ? bids : asks).entrySet()) {
+            if (count == maxLevels) {
+                break;
+            }
+            prices[count] = entry.getKey();
+            quantities[count] = entry.getValue();
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        bids.clear();
+        asks.clear();
+    }
+}
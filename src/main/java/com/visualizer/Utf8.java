@@ -0,0 +1,49 @@
+package com.visualizer;
+
+/**
+ * Allocation-free UTF-8 encoding of frame text into caller-owned buffers.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Upper bound of the encoded size of {@code text}.
+     */
+    public static int maxEncodedLength(String text) {
+        return text.length() * 3;
+    }
+
+    /**
+     * Encodes {@code text} at {@code offset}; the buffer must have room for
+     * {@link #maxEncodedLength(String)} bytes.
+     *
+     * @return number of bytes written
+     */
+    public static int encode(String text, byte[] buffer, int offset) {
+        int length = text.length();
+        int position = offset;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return position - offset;
+    }
+}
@@ -0,0 +1,180 @@
+package com.visualizer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers the app's components with a {@link MetricsRegistry}.
+ *
+ * Everything is read from the components' own counters and gauges. Values
+ * owned by another thread, such as book level counts, are read without
+ * synchronization and may be a moment old.
+ */
+public final class VisualizerMetrics {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private VisualizerMetrics() {
+    }
+
+    public static void register(MetricsRegistry registry, CombinedStreamClient client) {
+        registry.counter("visualizer_connection_reconnects_total", "Stream connections opened after the first.",
+                client::getReconnectCount);
+        registry.counter("visualizer_connection_disconnects_total", "Stream connections closed or failed.",
+                client::getDisconnectCount);
+        registry.counter("visualizer_connection_routed_frames_total", "Combined frames handed to a stream handler.",
+                client::getRoutedFrameCount);
+        registry.counter("visualizer_connection_unrouted_frames_total", "Combined frames for no subscribed stream.",
+                client::getUnroutedFrameCount);
+    }
+
+    public static void register(MetricsRegistry registry, IngestPipeline pipeline) {
+        String name = pipeline.getName();
+        registry.counter("visualizer_pipeline_frames_total", "Frames consumed from the ingest ring.",
+                pipeline::getConsumedFrameCount, "pipeline", name);
+        registry.counter("visualizer_pipeline_dropped_frames_total", "Frames dropped because the ring was full.",
+                pipeline::getDroppedFrameCount, "pipeline", name);
+        registry.counter("visualizer_pipeline_errors_total", "Frames whose consumer threw.",
+                pipeline::getConsumerErrorCount, "pipeline", name);
+        registry.gauge("visualizer_pipeline_queue_bytes", "Bytes queued in the ingest ring.",
+                pipeline::getOccupancy, "pipeline", name);
+        registry.gauge("visualizer_pipeline_queue_max_bytes", "Most bytes ever queued in the ingest ring.",
+                pipeline::getMaxOccupancy, "pipeline", name);
+        registry.gauge("visualizer_pipeline_queue_capacity_bytes", "Size of the ingest ring.",
+                pipeline::getCapacity, "pipeline", name);
+        registry.gauge("visualizer_pipeline_max_queue_delay_seconds", "Longest time a frame waited in the ring.",
+                () -> pipeline.getMaxQueueDelayNanos() / NANOS_PER_SECOND, "pipeline", name);
+    }
+
+    public static void register(MetricsRegistry registry, BookManager bookManager) {
+        for (int i = 0; i < bookManager.getShardCount(); i++) {
+            BookManager.Shard shard = bookManager.getShard(i);
+            String index = String.valueOf(shard.getIndex());
+            registry.counter("visualizer_shard_applied_frames_total", "Depth frames applied by the shard.",
+                    shard::getAppliedFrameCount, "shard", index);
+            registry.gauge("visualizer_shard_books", "Books owned by the shard.",
+                    shard::getBookCount, "shard", index);
+            registry.gauge("visualizer_shard_utilization", "Share of time the shard thread spent applying frames.",
+                    shard::getUtilization, "shard", index);
+            register(registry, shard.getPipeline());
+        }
+    }
+
+    public static void register(MetricsRegistry registry, PairCache pairCache) {
+        registry.counter("visualizer_pair_cache_hits_total", "Pair switches served from the cache.",
+                pairCache::getHitCount);
+        registry.counter("visualizer_pair_cache_misses_total", "Pair switches that opened a new session.",
+                pairCache::getMissCount);
+        registry.counter("visualizer_pair_cache_evictions_total", "Sessions evicted from the cache.",
+                pairCache::getEvictionCount);
+        registry.gauge("visualizer_pair_cache_sessions", "Pairs kept live.", pairCache::getSessionCount);
+    }
+
+    public static void register(MetricsRegistry registry, ConflatingBookPublisher publisher) {
+        registry.summary("visualizer_fx_frame_seconds", "Time to render one order book frame on the FX thread.",
+                publisher.getFrameTimes());
+        registry.counter("visualizer_fx_frames_rendered_total", "Order book frames rendered.",
+                publisher::getFramesRenderedCount);
+        registry.counter("visualizer_fx_updates_conflated_total", "Book updates folded into a later frame.",
+                publisher::getConflatedUpdateCount);
+    }
+
+    /**
+     * Registers a live pair: its streams, its book and the latency of every
+     * stage. Everything is labelled with the pair's symbol, so
+     * {@link #unregister} removes it all.
+     */
+    public static void register(MetricsRegistry registry, PairCache.PairSession session) {
+        register(registry, session.getBook());
+        register(registry, session.getTrades());
+    }
+
+    /**
+     * Registers a book's depth stream, sync state, level counts and stage
+     * latencies, labelled with its symbol.
+     */
+    public static void register(MetricsRegistry registry, OrderBookHandler book) {
+        String symbol = book.getTradingPair().getSymbol();
+        registry.counter("visualizer_stream_messages_total", "Messages received on a stream.",
+                book::getMessageCount, "symbol", symbol, "stream", "depth");
+        registry.counter("visualizer_stream_parse_errors_total", "Messages that could not be parsed.",
+                book::getParseErrorCount, "symbol", symbol, "stream", "depth");
+
+        OrderBookSynchronizer synchronizer = book.getSynchronizer();
+        registry.counter("visualizer_book_sequence_gaps_total", "Depth update id gaps that forced a resync.",
+                synchronizer::getGapCount, "symbol", symbol);
+        registry.counter("visualizer_book_resyncs_total", "Times the book was rebuilt from a snapshot.",
+                synchronizer::getResyncCount, "symbol", symbol);
+        registry.counter("visualizer_book_snapshot_failures_total", "Depth snapshots that could not be fetched.",
+                synchronizer::getSnapshotFailureCount, "symbol", symbol);
+        registry.gauge("visualizer_book_synced", "1 while the book is in sync with the stream.",
+                () -> synchronizer.isSynced() ? 1 : 0, "symbol", symbol);
+        registry.gauge("visualizer_book_levels", "Price levels in the book.",
+                () -> book.getBook().levelCount(true), "symbol", symbol, "side", "bid");
+        registry.gauge("visualizer_book_levels", "Price levels in the book.",
+                () -> book.getBook().levelCount(false), "symbol", symbol, "side", "ask");
+
+        registerLatency(registry, symbol, "depth", book.getLatency());
+    }
+
+    /**
+     * Registers a trade stream and its stage latencies, labelled with its symbol.
+     */
+    public static void register(MetricsRegistry registry, TradeHandler trades) {
+        String symbol = trades.getTradingPair().getSymbol();
+        registry.counter("visualizer_stream_messages_total", "Messages received on a stream.",
+                trades::getMessageCount, "symbol", symbol, "stream", "trade");
+        registry.counter("visualizer_stream_parse_errors_total", "Messages that could not be parsed.",
+                trades::getParseErrorCount, "symbol", symbol, "stream", "trade");
+
+        registerLatency(registry, symbol, "trade", trades.getLatency());
+    }
+
+    private static void registerLatency(MetricsRegistry registry, String symbol, String stream,
+                                        LatencyTracker tracker) {
+        for (LatencyTracker.Stage stage : LatencyTracker.Stage.values()) {
+            registry.summary("visualizer_latency_seconds", "Time a frame spent in one stage of the pipeline.",
+                    tracker.get(stage), "symbol", symbol, "stream", stream, "stage", stage.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public static void register(MetricsRegistry registry, BookBroadcaster broadcaster) {
+        registry.gauge("visualizer_broadcast_subscribers", "Subscribers receiving book updates.",
+                broadcaster::getSubscriberCount);
+        registry.counter("visualizer_broadcast_encoded_updates_total", "Update messages encoded, once per book.",
+                broadcaster::getUpdatesEncodedCount);
+        registry.counter("visualizer_broadcast_encoded_snapshots_total", "Snapshot messages encoded, once per book version.",
+                broadcaster::getSnapshotsEncodedCount);
+        registry.counter("visualizer_broadcast_encoded_bytes_total", "Bytes of messages encoded.",
+                broadcaster::getBytesEncodedCount);
+        registry.counter("visualizer_broadcast_conflations_total", "Times a slow subscriber's backlog was replaced by snapshots.",
+                broadcaster::getConflationCount);
+    }
+
+    /**
+     * Registers one broadcast subscriber, labelled with its name.
+     */
+    public static void register(MetricsRegistry registry, BookBroadcaster.Subscriber subscriber) {
+        String name = subscriber.getName();
+        registry.gauge("visualizer_subscriber_queue_messages", "Messages waiting in the subscriber's queue.",
+                subscriber::getQueueDepth, "client", name);
+        registry.gauge("visualizer_subscriber_queue_max_messages", "Most messages ever waiting in the subscriber's queue.",
+                subscriber::getMaxQueueDepth, "client", name);
+        registry.counter("visualizer_subscriber_conflations_total", "Times the subscriber fell a full queue behind.",
+                subscriber::getConflationCount, "client", name);
+        registry.counter("visualizer_subscriber_messages_total", "Messages written to the subscriber.",
+                subscriber::getMessagesSentCount, "client", name);
+        registry.counter("visualizer_subscriber_sent_bytes_total", "Bytes written to the subscriber.",
+                subscriber::getBytesSentCount, "client", name);
+        registry.gauge("visualizer_subscriber_bytes_per_second", "Bytes written to the subscriber over the last second.",
+                subscriber::getBytesPerSecond, "client", name);
+    }
+
+    public static void unregister(MetricsRegistry registry, TradingPair tradingPair) {
+        registry.remove("symbol", tradingPair.getSymbol());
+    }
+
+    public static void unregister(MetricsRegistry registry, BookBroadcaster.Subscriber subscriber) {
+        registry.remove("client", subscriber.getName());
+    }
+}
@@ -1,265 +1,381 @@
 package com.visualizer;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
-import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-
+import java.util.Arrays;
+
+/**
+ * Streaming volatility indicators over a bounded price history.
+ *
+ * Prices, volumes, timestamps, true ranges and returns are kept in
+ * primitive rings. Each window length that is asked for gets its own running
+ * statistic (rolling sums for ATR, VWAP and volume-weighted volatility, a
+ * sliding Welford mean/variance for Bollinger width and historical
+ * volatility), created on first use and then updated in O(1) per sample. Reads are O(1) as well, so the history can hold
+ * hundreds of thousands of samples.
+ *
+ * Running statistics are recomputed from the ring every few thousand
+ * updates to stop floating-point drift from accumulating.
+ * The tests check this class against a BigDecimal reference that
+ * recomputes every value from the full history.
+ *
+ * Not thread-safe: add and read from one thread.
+ */
 public class VolatilityIndicators {
 
-    // Price data storage
-    private final Queue<PriceData> priceHistory = new ConcurrentLinkedQueue<>();
+    // Annualization assumes one sample per minute
+    private static final double PERIODS_PER_YEAR = 525600;
+
     private final int maxHistorySize;
-    private final MathContext mathContext = new MathContext(8, RoundingMode.HALF_UP);
+    private final DoubleRing prices;
+    private final LongRing timestamps;
+    private final DoubleRing trueRanges;
+    private final DoubleRing returns;
+
+    // Volume columns: per sample, and per return (weighted by the volume of the later sample)
+    private final DoubleRing volumes;
+    private final DoubleRing priceVolumes;
+    private final DoubleRing returnVolumes;
+    private final DoubleRing weightedReturns;
+    private final DoubleRing weightedSquaredReturns;
+
+    // Running statistics per requested ring and window length
+    private RollingSum[] sums = new RollingSum[0];
+    private RollingMoments[] priceWindows = new RollingMoments[0];
+    private RollingMoments[] returnWindows = new RollingMoments[0];
+    private AtrHistory[] atrHistories = new AtrHistory[0];
 
     public VolatilityIndicators(int maxHistorySize) {
+        if (maxHistorySize < 2) {
+            throw new IllegalArgumentException("History must hold at least two samples: " + maxHistorySize);
+        }
         this.maxHistorySize = maxHistorySize;
+        this.prices = new DoubleRing(maxHistorySize);
+        this.timestamps = new LongRing(maxHistorySize);
+        this.trueRanges = new DoubleRing(maxHistorySize);
+        this.returns = new DoubleRing(maxHistorySize);
+        this.volumes = new DoubleRing(maxHistorySize);
+        this.priceVolumes = new DoubleRing(maxHistorySize);
+        this.returnVolumes = new DoubleRing(maxHistorySize);
+        this.weightedReturns = new DoubleRing(maxHistorySize);
+        this.weightedSquaredReturns = new DoubleRing(maxHistorySize);
     }
 
     /**
-     * Add new price data point
+     * Add new price data point without a volume (counts as a volume of 1)
      */
-    public void addPriceData(BigDecimal price, long timestamp, BigDecimal volume) {
-        priceHistory.offer(new PriceData(price, timestamp, volume));
-
-        // Keep history within bounds
-        while (priceHistory.size() > maxHistorySize) {
-            priceHistory.poll();
-        }
+    public void addPriceData(double price, long timestamp) {
+        addPriceData(price, 1, timestamp);
     }
 
     /**
-     * 1. ATR (Average True Range) - Most popular volatility indicator
-     * Measures average price movement over N periods
+     * Add new price data point, e.g. a trade with its quantity and exchange time
      */
-    public BigDecimal calculateATR(int periods) {
-        if (priceHistory.size() < periods + 1) return BigDecimal.ZERO;
-
-        List<PriceData> data = new ArrayList<>(priceHistory);
-        BigDecimal atrSum = BigDecimal.ZERO;
-
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (i > 0) {
-                PriceData current = data.get(i);
-                PriceData previous = data.get(i - 1);
+    public void addPriceData(double price, double volume, long timestamp) {
+        if (prices.size() > 0) {
+            double previous = prices.back(0);
+            // Single price per sample, so the true range is just the move from the previous one
+            double returnRate = previous != 0 ? price / previous - 1 : 0;
+            trueRanges.push(Math.abs(price - previous));
+            returns.push(returnRate);
+            returnVolumes.push(volume);
+            weightedReturns.push(volume * returnRate);
+            weightedSquaredReturns.push(volume * returnRate * returnRate);
+
+            for (RollingMoments window : returnWindows) {
+                window.onPush();
+            }
+        }
 
-                // True Range = max(high-low, |high-prevClose|, |low-prevClose|)
-                // For crypto, we'll use current price as both high/low/close
-                BigDecimal tr1 = BigDecimal.ZERO; // high - low (0 for single price)
-                BigDecimal tr2 = current.price.subtract(previous.price).abs();
-                BigDecimal tr3 = tr2; // Same as tr2 for single price point
+        prices.push(price);
+        volumes.push(volume);
+        priceVolumes.push(price * volume);
+        timestamps.push(timestamp);
 
-                BigDecimal trueRange = tr2; // Simplified for single price data
-                atrSum = atrSum.add(trueRange);
-            }
+        // Sums skip rings that did not get a value this time
+        for (RollingSum window : sums) {
+            window.sync();
+        }
+        for (RollingMoments window : priceWindows) {
+            window.onPush();
+        }
+        for (AtrHistory history : atrHistories) {
+            history.onPush();
         }
+    }
 
-        return atrSum.divide(BigDecimal.valueOf(periods), mathContext);
+    /**
+     * 1. ATR (Average True Range) - average absolute move over N periods
+     */
+    public double calculateATR(int periods) {
+        if (prices.size() < periods + 1) return 0;
+        return sum(trueRanges, periods).sum / periods;
     }
 
     /**
-     * 2. Bollinger Band Width - Measures volatility expansion/contraction
-     * Width = (Upper Band - Lower Band) / Middle Band
+     * 2. Bollinger Band Width - (Upper Band - Lower Band) / Middle Band
      */
-    public BigDecimal calculateBollingerBandWidth(int periods, double stdDevMultiplier) {
-        if (priceHistory.size() < periods) return BigDecimal.ZERO;
+    public double calculateBollingerBandWidth(int periods, double stdDevMultiplier) {
+        if (prices.size() < periods) return 0;
 
-        List<PriceData> data = new ArrayList<>(priceHistory);
-        List<BigDecimal> recentPrices = data.subList(Math.max(0, data.size() - periods), data.size())
-                .stream()
-                .map(pd -> pd.price)
-                .toList();
+        RollingMoments window = priceWindow(periods);
+        double sma = window.mean;
+        if (sma == 0) return 0;
 
-        BigDecimal sma = calculateSMA(recentPrices);
-        BigDecimal stdDev = calculateStandardDeviation(recentPrices, sma);
+        double stdDev = Math.sqrt(window.variance());
+        return 2 * stdDevMultiplier * stdDev / sma;
+    }
 
-        BigDecimal upperBand = sma.add(stdDev.multiply(BigDecimal.valueOf(stdDevMultiplier)));
-        BigDecimal lowerBand = sma.subtract(stdDev.multiply(BigDecimal.valueOf(stdDevMultiplier)));
+    /**
+     * 3. Price Velocity - price change per second over N periods
+     */
+    public double calculatePriceVelocity(int periods) {
+        if (prices.size() < periods + 1) return 0;
 
-        if (sma.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
+        long timeChange = timestamps.back(0) - timestamps.back(periods);
+        if (timeChange == 0) return 0;
 
-        return upperBand.subtract(lowerBand).divide(sma, mathContext);
+        return (prices.back(0) - prices.back(periods)) / (timeChange / 1000.0);
     }
 
     /**
-     * 3. Price Velocity - Rate of price change
+     * 4. Historical Volatility - annualized standard deviation of returns
      */
-    public BigDecimal calculatePriceVelocity(int periods) {
-        if (priceHistory.size() < periods + 1) return BigDecimal.ZERO;
-
-        List<PriceData> data = new ArrayList<>(priceHistory);
-        PriceData current = data.get(data.size() - 1);
-        PriceData past = data.get(data.size() - 1 - periods);
+    public double calculateHistoricalVolatility(int periods) {
+        if (prices.size() < periods + 1) return 0;
+        return Math.sqrt(returnWindow(periods).variance() * PERIODS_PER_YEAR);
+    }
 
-        BigDecimal priceChange = current.price.subtract(past.price);
-        long timeChange = current.timestamp - past.timestamp;
+    /**
+     * VWAP - volume-weighted average price over the last N samples
+     */
+    public double calculateVWAP(int periods) {
+        if (prices.size() < periods) return 0;
 
-        if (timeChange == 0) return BigDecimal.ZERO;
+        double volume = sum(volumes, periods).sum;
+        if (volume <= 0) return 0;
 
-        // Return price change per second
-        return priceChange.divide(BigDecimal.valueOf(timeChange / 1000.0), mathContext);
+        return sum(priceVolumes, periods).sum / volume;
     }
 
     /**
-     * 4. Historical Volatility - Annualized volatility based on returns
+     * Volume-weighted volatility - standard deviation of the last N returns,
+     * each weighted by the volume that produced it (not annualized)
      */
-    public BigDecimal calculateHistoricalVolatility(int periods) {
-        if (priceHistory.size() < periods + 1) return BigDecimal.ZERO;
-
-        List<PriceData> data = new ArrayList<>(priceHistory);
-        List<BigDecimal> returns = new ArrayList<>();
-
-        // Calculate returns
-        for (int i = data.size() - periods; i < data.size(); i++) {
-            if (i > 0) {
-                BigDecimal currentPrice = data.get(i).price;
-                BigDecimal previousPrice = data.get(i - 1).price;
-
-                if (previousPrice.compareTo(BigDecimal.ZERO) != 0) {
-                    BigDecimal returnRate = currentPrice.divide(previousPrice, mathContext)
-                            .subtract(BigDecimal.ONE);
-                    returns.add(returnRate);
-                }
-            }
-        }
-
-        if (returns.isEmpty()) return BigDecimal.ZERO;
+    public double calculateVolumeWeightedVolatility(int periods) {
+        if (prices.size() < periods + 1) return 0;
 
-        BigDecimal meanReturn = returns.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(returns.size()), mathContext);
+        double weight = sum(returnVolumes, periods).sum;
+        if (weight <= 0) return 0;
 
-        BigDecimal variance = returns.stream()
-                .map(r -> r.subtract(meanReturn).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(returns.size()), mathContext);
-
-        // Annualized volatility (assuming 1-minute periods, 525600 minutes per year)
-        return sqrt(variance.multiply(BigDecimal.valueOf(525600)));
+        double mean = sum(weightedReturns, periods).sum / weight;
+        double meanOfSquares = sum(weightedSquaredReturns, periods).sum / weight;
+        return Math.sqrt(Math.max(0, meanOfSquares - mean * mean));
     }
 
     /**
-     * 5. Volatility Spike Detector - Identifies sudden volatility increases
+     * 5. Volatility Spike Detector - short-term ATR well above long-term ATR
      */
     public VolatilitySpike detectVolatilitySpike(int shortPeriod, int longPeriod, double threshold) {
-        if (priceHistory.size() < longPeriod) {
-            return new VolatilitySpike(false, BigDecimal.ZERO, BigDecimal.ZERO);
+        if (prices.size() < longPeriod) {
+            return new VolatilitySpike(false, 0, 0);
         }
 
-        BigDecimal shortTermATR = calculateATR(shortPeriod);
-        BigDecimal longTermATR = calculateATR(longPeriod);
-
-        if (longTermATR.compareTo(BigDecimal.ZERO) == 0) {
+        double shortTermATR = calculateATR(shortPeriod);
+        double longTermATR = calculateATR(longPeriod);
+        if (longTermATR == 0) {
             return new VolatilitySpike(false, shortTermATR, longTermATR);
         }
 
-        BigDecimal ratio = shortTermATR.divide(longTermATR, mathContext);
-        boolean isSpike = ratio.compareTo(BigDecimal.valueOf(threshold)) > 0;
-
-        return new VolatilitySpike(isSpike, shortTermATR, longTermATR);
+        return new VolatilitySpike(shortTermATR / longTermATR > threshold, shortTermATR, longTermATR);
     }
 
     /**
-     * 6. Volatility Percentile - Where current volatility ranks historically
+     * 6. Volatility Percentile - share of the ATRs seen over the last
+     * {@code lookbackPeriods} samples that are below the current ATR, in percent.
+     *
+     * Ranks are O(log n) and the lookback may be longer than the price
+     * history, since only the quantized ATRs are kept for it.
      */
-    public BigDecimal calculateVolatilityPercentile(int lookbackPeriods, int currentPeriods) {
-        if (priceHistory.size() < lookbackPeriods) return BigDecimal.ZERO;
-
-        List<BigDecimal> historicalATRs = new ArrayList<>();
-        List<PriceData> data = new ArrayList<>(priceHistory);
-
-        // Calculate ATR for each possible period in lookback window
-        for (int i = currentPeriods; i < Math.min(data.size(), lookbackPeriods); i++) {
-            List<PriceData> subset = data.subList(i - currentPeriods, i);
-            BigDecimal atr = calculateATRForSubset(subset);
-            if (atr.compareTo(BigDecimal.ZERO) > 0) {
-                historicalATRs.add(atr);
-            }
-        }
-
-        if (historicalATRs.isEmpty()) return BigDecimal.ZERO;
-
-        BigDecimal currentATR = calculateATR(currentPeriods);
-        Collections.sort(historicalATRs);
+    public double calculateVolatilityPercentile(int lookbackPeriods, int currentPeriods) {
+        if (prices.size() < Math.min(lookbackPeriods, maxHistorySize)) return 0;
+        return atrHistory(currentPeriods, lookbackPeriods).percentile(calculateATR(currentPeriods));
+    }
 
-        long countBelow = historicalATRs.stream()
-                .mapToLong(atr -> atr.compareTo(currentATR) < 0 ? 1 : 0)
-                .sum();
+    public int size() {
+        return prices.size();
+    }
 
-        return BigDecimal.valueOf(countBelow)
-                .divide(BigDecimal.valueOf(historicalATRs.size()), mathContext)
-                .multiply(BigDecimal.valueOf(100));
+    public int getMaxHistorySize() {
+        return maxHistorySize;
     }
 
-    // Helper methods
-    private BigDecimal calculateSMA(List<BigDecimal> prices) {
-        if (prices.isEmpty()) return BigDecimal.ZERO;
-        return prices.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(prices.size()), mathContext);
+    public void clear() {
+        prices.clear();
+        timestamps.clear();
+        trueRanges.clear();
+        returns.clear();
+        volumes.clear();
+        priceVolumes.clear();
+        returnVolumes.clear();
+        weightedReturns.clear();
+        weightedSquaredReturns.clear();
+        sums = new RollingSum[0];
+        priceWindows = new RollingMoments[0];
+        returnWindows = new RollingMoments[0];
+        atrHistories = new AtrHistory[0];
     }
 
-    private BigDecimal calculateStandardDeviation(List<BigDecimal> prices, BigDecimal mean) {
-        if (prices.size() < 2) return BigDecimal.ZERO;
+    // Window lookup; there are only a handful of distinct lengths, so a scan is fine
 
-        BigDecimal variance = prices.stream()
-                .map(price -> price.subtract(mean).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(prices.size()), mathContext);
+    private RollingSum sum(DoubleRing source, int periods) {
+        for (RollingSum window : sums) {
+            if (window.source == source && window.period == periods) return window;
+        }
+        RollingSum window = new RollingSum(source, checkPeriod(periods));
+        sums = append(sums, window);
+        return window;
+    }
 
-        return sqrt(variance);
+    private RollingMoments priceWindow(int periods) {
+        for (RollingMoments window : priceWindows) {
+            if (window.period == periods) return window;
+        }
+        RollingMoments window = new RollingMoments(prices, checkPeriod(periods));
+        priceWindows = append(priceWindows, window);
+        return window;
     }
 
-    private BigDecimal sqrt(BigDecimal value) {
-        // Simple Newton's method for square root
-        if (value.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
+    private RollingMoments returnWindow(int periods) {
+        for (RollingMoments window : returnWindows) {
+            if (window.period == periods) return window;
+        }
+        RollingMoments window = new RollingMoments(returns, checkPeriod(periods));
+        returnWindows = append(returnWindows, window);
+        return window;
+    }
 
-        BigDecimal x = value;
-        BigDecimal prev;
-        do {
-            prev = x;
-            x = x.add(value.divide(x, mathContext)).divide(BigDecimal.valueOf(2), mathContext);
-        } while (x.subtract(prev).abs().compareTo(BigDecimal.valueOf(0.0001)) > 0);
+    private AtrHistory atrHistory(int periods, int lookback) {
+        for (AtrHistory history : atrHistories) {
+            if (history.period == periods && history.lookback == lookback) return history;
+        }
+        AtrHistory history = new AtrHistory(checkPeriod(periods), lookback);
+        atrHistories = append(atrHistories, history);
+        return history;
+    }
 
-        return x;
+    private int checkPeriod(int periods) {
+        // The value leaving a window must still be in the ring
+        if (periods < 1 || periods >= maxHistorySize) {
+            throw new IllegalArgumentException("Window of " + periods + " does not fit history of " + maxHistorySize);
+        }
+        return periods;
     }
 
-    private BigDecimal calculateATRForSubset(List<PriceData> subset) {
-        if (subset.size() < 2) return BigDecimal.ZERO;
+    private static <T> T[] append(T[] array, T value) {
+        T[] grown = Arrays.copyOf(array, array.length + 1);
+        grown[array.length] = value;
+        return grown;
+    }
 
-        BigDecimal sum = BigDecimal.ZERO;
-        for (int i = 1; i < subset.size(); i++) {
-            BigDecimal trueRange = subset.get(i).price.subtract(subset.get(i-1).price).abs();
-            sum = sum.add(trueRange);
+    /**
+     * Sum of the newest {@code period} values of a ring.
+     */
+    private static final class RollingSum {
+        final DoubleRing source;
+        final int period;
+        final int resyncInterval;
+        double sum;
+        int count;
+        int sinceResync;
+        long seen;
+
+        RollingSum(DoubleRing source, int period) {
+            this.source = source;
+            this.period = period;
+            this.resyncInterval = Math.max(period, RollingMoments.MIN_RESYNC_INTERVAL);
+            resync();
         }
 
-        return sum.divide(BigDecimal.valueOf(subset.size() - 1), mathContext);
+        // Takes in the value pushed onto the source since the last call, if any
+        void sync() {
+            if (source.pushedCount() == seen) {
+                return;
+            }
+            seen = source.pushedCount();
+
+            sum += source.back(0);
+            if (count < period) {
+                count++;
+            } else {
+                sum -= source.back(period);
+            }
+            if (++sinceResync >= resyncInterval) {
+                resync();
+            }
+        }
+
+        void resync() {
+            seen = source.pushedCount();
+            count = Math.min(period, source.size());
+            sum = 0;
+            for (int age = 0; age < count; age++) {
+                sum += source.back(age);
+            }
+            sinceResync = 0;
+        }
     }
 
-    // Data classes
-    public static class PriceData {
-        public final BigDecimal price;
-        public final long timestamp;
-        public final BigDecimal volume;
+    /**
+     * ATRs of one window length over the last {@code lookback} samples,
+     * ranked with a {@link RankWindow}.
+     */
+    private final class AtrHistory {
+        final int period;
+        final int lookback;
+        final RankWindow ranks;
+
+        AtrHistory(int period, int lookback) {
+            this.period = period;
+            this.lookback = lookback;
+            this.ranks = new RankWindow(lookback);
+            sum(trueRanges, period);
+            backfill();
+        }
+
+        // Replays the true ranges already in the ring, oldest first
+        private void backfill() {
+            double sum = 0;
+            for (int age = trueRanges.size() - 1, seen = 0; age >= 0; age--, seen++) {
+                sum += trueRanges.back(age);
+                if (seen >= period) {
+                    sum -= trueRanges.back(age + period);
+                }
+                if (seen >= period - 1 && sum > 0) {
+                    ranks.add(sum / period);
+                }
+            }
+        }
+
+        void onPush() {
+            double atr = calculateATR(period);
+            if (atr > 0) {
+                ranks.add(atr);
+            }
+        }
 
-        public PriceData(BigDecimal price, long timestamp, BigDecimal volume) {
-            this.price = price;
-            this.timestamp = timestamp;
-            this.volume = volume;
+        double percentile(double current) {
+            return ranks.percentileOf(current);
         }
     }
 
     public static class VolatilitySpike {
         public final boolean isSpike;
-        public final BigDecimal shortTermVolatility;
-        public final BigDecimal longTermVolatility;
+        public final double shortTermVolatility;
+        public final double longTermVolatility;
 
-        public VolatilitySpike(boolean isSpike, BigDecimal shortTerm, BigDecimal longTerm) {
+        public VolatilitySpike(boolean isSpike, double shortTerm, double longTerm) {
             this.isSpike = isSpike;
             this.shortTermVolatility = shortTerm;
             this.longTermVolatility = longTerm;
         }
     }
-}
\ No newline at end of file
+}
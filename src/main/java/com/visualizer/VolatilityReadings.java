@@ -0,0 +1,70 @@
+package com.visualizer;
+
+/**
+ * Immutable set of indicator values computed in one analytics tick.
+ * Small enough to hand to the FX thread as is.
+ */
+public final class VolatilityReadings {
+
+    public static final VolatilityReadings EMPTY = new VolatilityReadings(0, 0, 0, 0, 0, false, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    public final double atr;
+    public final double volatilityPercentile;
+    public final double priceVelocity;
+    public final double bollingerWidth;
+    public final double historicalVolatility;
+    public final boolean volatilitySpike;
+    public final double vwap;
+    public final double volumeWeightedVolatility;
+
+    // From one-minute OHLCV bars
+    public final double barAtr;
+    public final double barBollingerWidth;
+    public final double barHistoricalVolatility;
+
+    // Samples the readings were computed from
+    public final int sampleCount;
+    public final long lastSampleTime;
+
+    // Wall time the whole tick took to compute
+    public final long computeNanos;
+
+    public VolatilityReadings(double atr, double volatilityPercentile, double priceVelocity,
+                              double bollingerWidth, double historicalVolatility, boolean volatilitySpike,
+                              double vwap, double volumeWeightedVolatility,
+                              double barAtr, double barBollingerWidth, double barHistoricalVolatility,
+                              int sampleCount, long lastSampleTime, long computeNanos) {
+        this.atr = atr;
+        this.volatilityPercentile = volatilityPercentile;
+        this.priceVelocity = priceVelocity;
+        this.bollingerWidth = bollingerWidth;
+        this.historicalVolatility = historicalVolatility;
+        this.volatilitySpike = volatilitySpike;
+        this.vwap = vwap;
+        this.volumeWeightedVolatility = volumeWeightedVolatility;
+        this.barAtr = barAtr;
+        this.barBollingerWidth = barBollingerWidth;
+        this.barHistoricalVolatility = barHistoricalVolatility;
+        this.sampleCount = sampleCount;
+        this.lastSampleTime = lastSampleTime;
+        this.computeNanos = computeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "VolatilityReadings{" +
+                "atr=" + atr +
+                ", percentile=" + volatilityPercentile +
+                ", velocity=" + priceVelocity +
+                ", bollingerWidth=" + bollingerWidth +
+                ", historicalVolatility=" + historicalVolatility +
+                ", spike=" + volatilitySpike +
+                ", vwap=" + vwap +
+                ", volumeWeightedVolatility=" + volumeWeightedVolatility +
+                ", barAtr=" + barAtr +
+                ", barBollingerWidth=" + barBollingerWidth +
+                ", barHistoricalVolatility=" + barHistoricalVolatility +
+                ", samples=" + sampleCount +
+                '}';
+    }
+}
@@ -1,24 +1,18 @@
 package com.visualizer;
 
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import javafx.animation.Timeline;
-import javafx.animation.KeyFrame;
-import javafx.util.Duration;
 
-import java.math.BigDecimal;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class VolatilityWidget extends VBox {
 
-    private final VolatilityIndicators volatilityCalculator;
-    private final AtomicReference<BigDecimal> currentPrice = new AtomicReference<>(BigDecimal.ZERO);
+    // Indicators are computed on the analytics thread of each pair; this widget only displays them
+    private AnalyticsScheduler analytics;
 
     // UI Components
     private Label atrLabel;
@@ -33,14 +27,15 @@ public class VolatilityWidget extends VBox {
     private Label volatilitySpikeValue;
     private Label historicalVolLabel;
     private Label historicalVolValue;
-
-    // Update timeline
-    private Timeline updateTimeline;
+    private Label vwapLabel;
+    private Label vwapValue;
+    private Label volumeWeightedVolLabel;
+    private Label volumeWeightedVolValue;
+    private Label barAtrLabel;
+    private Label barAtrValue;
 
     public VolatilityWidget() {
-        this.volatilityCalculator = new VolatilityIndicators(1000); // Keep 1000 data points
         initializeWidget();
-        startUpdateTimer();
     }
 
     private void initializeWidget() {
@@ -73,6 +68,18 @@ public class VolatilityWidget extends VBox {
         historicalVolLabel = (Label) ((VBox) histVolBox.getChildren().get(0)).getChildren().get(0);
         historicalVolValue = (Label) ((VBox) histVolBox.getChildren().get(0)).getChildren().get(1);
 
+        VBox vwapBox = createMetricBox("VWAP (100)", "0.00");
+        vwapLabel = (Label) ((VBox) vwapBox.getChildren().get(0)).getChildren().get(0);
+        vwapValue = (Label) ((VBox) vwapBox.getChildren().get(0)).getChildren().get(1);
+
+        VBox volumeWeightedVolBox = createMetricBox("Vol-Wtd Vol", "0.000%");
+        volumeWeightedVolLabel = (Label) ((VBox) volumeWeightedVolBox.getChildren().get(0)).getChildren().get(0);
+        volumeWeightedVolValue = (Label) ((VBox) volumeWeightedVolBox.getChildren().get(0)).getChildren().get(1);
+
+        VBox barAtrBox = createMetricBox("True ATR (1m)", "0.00");
+        barAtrLabel = (Label) ((VBox) barAtrBox.getChildren().get(0)).getChildren().get(0);
+        barAtrValue = (Label) ((VBox) barAtrBox.getChildren().get(0)).getChildren().get(1);
+
         // Arrange metrics in a grid
         GridPane metricsGrid = new GridPane();
         metricsGrid.setHgap(10);
@@ -90,6 +97,11 @@ public class VolatilityWidget extends VBox {
         metricsGrid.add(spikeBox, 1, 1);
         metricsGrid.add(histVolBox, 2, 1);
 
+        // Third row - trade volume and bar based
+        metricsGrid.add(vwapBox, 0, 2);
+        metricsGrid.add(volumeWeightedVolBox, 1, 2);
+        metricsGrid.add(barAtrBox, 2, 2);
+
         // Main container
         VBox container = new VBox(15);
         container.getChildren().addAll(headerLabel, metricsGrid);
@@ -122,86 +134,59 @@ public class VolatilityWidget extends VBox {
         return box;
     }
 
-    public void bindToOrderBook(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        // Listen for order book changes to extract price data
-        bidOrders.addListener((javafx.collections.ListChangeListener<? super Order>) change -> {
-            updateFromOrderBook(bidOrders, askOrders);
-        });
-
-        askOrders.addListener((javafx.collections.ListChangeListener<? super Order>) change -> {
-            updateFromOrderBook(bidOrders, askOrders);
-        });
+    /**
+     * Shows the readings of another pair's analytics, starting with its
+     * latest ones. FX thread only.
+     */
+    public void show(AnalyticsScheduler analytics) {
+        if (this.analytics != null) {
+            this.analytics.setListener(null);
+        }
+        this.analytics = analytics;
+        if (analytics != null) {
+            // Readings already queued from the previous pair are dropped
+            analytics.setListener(readings -> Platform.runLater(() -> {
+                if (this.analytics == analytics) {
+                    showReadings(readings);
+                }
+            }));
+            showReadings(analytics.getLastReadings());
+        }
     }
 
-    private void updateFromOrderBook(ObservableList<Order> bidOrders, ObservableList<Order> askOrders) {
-        if (!bidOrders.isEmpty() && !askOrders.isEmpty()) {
-            try {
-                BigDecimal bestBid = new BigDecimal(bidOrders.get(0).getPrice());
-                BigDecimal bestAsk = new BigDecimal(askOrders.get(0).getPrice());
-                BigDecimal midPrice = bestBid.add(bestAsk).divide(BigDecimal.valueOf(2));
+    // FX thread: format the readings of the last analytics tick
+    private void showReadings(VolatilityReadings readings) {
+        try {
+            atrValue.setText(String.format("%.4f", readings.atr));
+            updateATRColor(readings.atr);
 
-                // Add price data point
-                long timestamp = System.currentTimeMillis();
-                BigDecimal volume = BigDecimal.ONE; // We don't have volume data from order book
-                volatilityCalculator.addPriceData(midPrice, timestamp, volume);
+            volatilityPercentileValue.setText(String.format("%.0f%%", readings.volatilityPercentile));
+            updatePercentileColor(readings.volatilityPercentile);
 
-                currentPrice.set(midPrice);
+            priceVelocityValue.setText(String.format("%.2f/s", readings.priceVelocity));
+            updateVelocityColor(readings.priceVelocity);
 
-            } catch (Exception e) {
-                System.err.println("Error updating volatility from order book: " + e.getMessage());
-            }
-        }
-    }
+            bollingerWidthValue.setText(String.format("%.4f", readings.bollingerWidth));
+            updateBollingerColor(readings.bollingerWidth);
 
-    private void startUpdateTimer() {
-        updateTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateVolatilityMetrics()));
-        updateTimeline.setCycleCount(Timeline.INDEFINITE);
-        updateTimeline.play();
-    }
+            volatilitySpikeValue.setText(readings.volatilitySpike ? "SPIKE!" : "Normal");
+            updateSpikeColor(readings.volatilitySpike);
 
-    private void updateVolatilityMetrics() {
-        Platform.runLater(() -> {
-            try {
-                // Calculate ATR (14 periods)
-                BigDecimal atr = volatilityCalculator.calculateATR(14);
-                atrValue.setText(String.format("%.4f", atr.doubleValue()));
-                updateATRColor(atr);
-
-                // Calculate Volatility Percentile
-                BigDecimal percentile = volatilityCalculator.calculateVolatilityPercentile(100, 14);
-                volatilityPercentileValue.setText(String.format("%.0f%%", percentile.doubleValue()));
-                updatePercentileColor(percentile);
-
-                // Calculate Price Velocity
-                BigDecimal velocity = volatilityCalculator.calculatePriceVelocity(5);
-                priceVelocityValue.setText(String.format("%.2f/s", velocity.doubleValue()));
-                updateVelocityColor(velocity);
-
-                // Calculate Bollinger Band Width
-                BigDecimal bbWidth = volatilityCalculator.calculateBollingerBandWidth(20, 2.0);
-                bollingerWidthValue.setText(String.format("%.4f", bbWidth.doubleValue()));
-                updateBollingerColor(bbWidth);
-
-                // Detect Volatility Spike
-                VolatilityIndicators.VolatilitySpike spike =
-                        volatilityCalculator.detectVolatilitySpike(5, 20, 1.5);
-                volatilitySpikeValue.setText(spike.isSpike ? "SPIKE!" : "Normal");
-                updateSpikeColor(spike.isSpike);
-
-                // Calculate Historical Volatility
-                BigDecimal histVol = volatilityCalculator.calculateHistoricalVolatility(30);
-                historicalVolValue.setText(String.format("%.2f%%", histVol.doubleValue() * 100));
-                updateHistVolColor(histVol);
-
-            } catch (Exception e) {
-                System.err.println("Error updating volatility metrics: " + e.getMessage());
-            }
-        });
+            historicalVolValue.setText(String.format("%.2f%%", readings.historicalVolatility * 100));
+            updateHistVolColor(readings.historicalVolatility);
+
+            vwapValue.setText(String.format("%.2f", readings.vwap));
+            volumeWeightedVolValue.setText(String.format("%.3f%%", readings.volumeWeightedVolatility * 100));
+            barAtrValue.setText(String.format("%.4f", readings.barAtr));
+
+        } catch (Exception e) {
+            System.err.println("Error updating volatility metrics: " + e.getMessage());
+        }
     }
 
     // Color coding methods
-    private void updateATRColor(BigDecimal atr) {
-        double value = atr.doubleValue();
+    private void updateATRColor(double atr) {
+        double value = atr;
         if (value > 100) {
             atrValue.getStyleClass().removeAll("volatility-low", "volatility-medium", "volatility-high");
             atrValue.getStyleClass().add("volatility-high");
@@ -214,8 +199,8 @@ public class VolatilityWidget extends VBox {
         }
     }
 
-    private void updatePercentileColor(BigDecimal percentile) {
-        double value = percentile.doubleValue();
+    private void updatePercentileColor(double percentile) {
+        double value = percentile;
         if (value > 80) {
             volatilityPercentileValue.getStyleClass().removeAll("volatility-low", "volatility-medium", "volatility-high");
             volatilityPercentileValue.getStyleClass().add("volatility-high");
@@ -228,8 +213,8 @@ public class VolatilityWidget extends VBox {
         }
     }
 
-    private void updateVelocityColor(BigDecimal velocity) {
-        double absValue = velocity.abs().doubleValue();
+    private void updateVelocityColor(double velocity) {
+        double absValue = Math.abs(velocity);
         if (absValue > 10) {
             priceVelocityValue.getStyleClass().removeAll("volatility-low", "volatility-medium", "volatility-high");
             priceVelocityValue.getStyleClass().add("volatility-high");
@@ -242,8 +227,8 @@ public class VolatilityWidget extends VBox {
         }
     }
 
-    private void updateBollingerColor(BigDecimal bbWidth) {
-        double value = bbWidth.doubleValue();
+    private void updateBollingerColor(double bbWidth) {
+        double value = bbWidth;
         if (value > 0.1) {
             bollingerWidthValue.getStyleClass().removeAll("volatility-low", "volatility-medium", "volatility-high");
             bollingerWidthValue.getStyleClass().add("volatility-high");
@@ -266,8 +251,8 @@ public class VolatilityWidget extends VBox {
         }
     }
 
-    private void updateHistVolColor(BigDecimal histVol) {
-        double value = histVol.doubleValue();
+    private void updateHistVolColor(double histVol) {
+        double value = histVol;
         if (value > 0.5) {
             historicalVolValue.getStyleClass().removeAll("volatility-low", "volatility-medium", "volatility-high");
             historicalVolValue.getStyleClass().add("volatility-high");
@@ -281,6 +266,8 @@ public class VolatilityWidget extends VBox {
     }
 
     public void clear() {
+        show(null);
+
         Platform.runLater(() -> {
             atrValue.setText("0.00");
             volatilityPercentileValue.setText("0%");
@@ -288,12 +275,18 @@ public class VolatilityWidget extends VBox {
             bollingerWidthValue.setText("0.00");
             volatilitySpikeValue.setText("Normal");
             historicalVolValue.setText("0.00%");
+            vwapValue.setText("0.00");
+            volumeWeightedVolValue.setText("0.000%");
+            barAtrValue.setText("0.00");
         });
     }
 
+    // The analytics belong to the pair's session, so they are only detached here
     public void stop() {
-        if (updateTimeline != null) {
-            updateTimeline.stop();
-        }
+        show(null);
+    }
+
+    public AnalyticsScheduler getAnalytics() {
+        return analytics;
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.visualizer;
 
 import okhttp3.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okio.ByteString;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,14 +17,40 @@ public class WebSocketClient extends WebSocketListener {
     private final ObjectMapper mapper;
     private final String url;
     private final WebSocketHandler handler;
+    private final IngestPipeline pipeline;
+    private final int pipelineTag;
     private WebSocket webSocket;
     private boolean isConnected = false;
 
+    // Reused for binary frames; only touched by the OkHttp reader thread
+    private byte[] frameBuffer = new byte[8192];
+
     public WebSocketClient(String url, WebSocketHandler handler) {
-        this.client = new OkHttpClient();
-        this.mapper = new ObjectMapper();
+        this(url, handler, null);
+    }
+
+    /**
+     * With a pipeline, frames are copied into its ring on the reader thread and
+     * the handler runs on the pipeline's consumer thread.
+     */
+    public WebSocketClient(String url, WebSocketHandler handler, IngestPipeline pipeline) {
+        // The consumer captures locals only, so this does not escape the constructor
+        ObjectMapper mapper = SharedClients.objectMapper();
+        this.client = SharedClients.httpClient();
+        this.mapper = mapper;
         this.url = url;
         this.handler = handler;
+        this.pipeline = pipeline;
+        this.pipelineTag = pipeline == null ? -1
+                : pipeline.register((buffer, offset, length, receivedNanos) ->
+                        handler.handleMessage(buffer, offset, length, receivedNanos, mapper));
+    }
+
+    /**
+     * URL of a single raw stream, e.g. {@code wss://stream.binance.com:9443/ws/btcusdt@depth}.
+     */
+    public static String streamUrl(String baseUrl, String stream) {
+        return baseUrl + "/ws/" + stream;
     }
 
     /**
@@ -35,6 +62,10 @@ public class WebSocketClient extends WebSocketListener {
             return;
         }
 
+        if (pipeline != null) {
+            pipeline.start();
+        }
+
         Request request = new Request.Builder()
                 .url(url)
                 .build();
@@ -42,6 +73,17 @@ public class WebSocketClient extends WebSocketListener {
         webSocket = client.newWebSocket(request, this);
     }
 
+    /**
+     * Records every raw frame of this connection into the journal. Frames are
+     * written on the pipeline's consumer thread, never on the reader thread.
+     */
+    public void record(FrameJournal journal) {
+        if (pipeline == null) {
+            throw new IllegalStateException("Recording " + url + " needs an ingest pipeline");
+        }
+        pipeline.setJournal(journal);
+    }
+
     /**
      * Stops the WebSocket connection.
      */
@@ -61,11 +103,34 @@ public class WebSocketClient extends WebSocketListener {
 
     @Override
     public void onMessage(WebSocket webSocket, String text) {
-        if (isConnected) {
+        if (!isConnected) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.publish(pipelineTag, text);
+        } else {
             handler.handleMessage(text, mapper);
         }
     }
 
+    @Override
+    public void onMessage(WebSocket webSocket, ByteString bytes) {
+        if (!isConnected) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.publish(pipelineTag, bytes);
+        } else {
+            long receivedNanos = System.nanoTime();
+            int length = bytes.size();
+            if (length > frameBuffer.length) {
+                frameBuffer = new byte[Math.max(length, frameBuffer.length * 2)];
+            }
+            bytes.copyInto(0, frameBuffer, 0, length);
+            handler.handleMessage(frameBuffer, 0, length, receivedNanos, mapper);
+        }
+    }
+
     @Override
     public void onClosed(WebSocket webSocket, int code, String reason) {
         isConnected = false;
@@ -2,9 +2,29 @@ package com.visualizer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Interface for handling messages from Binance WebSocket.
  */
 public interface WebSocketHandler {
     void handleMessage(String json, ObjectMapper mapper);
+
+    /**
+     * Handles a frame given as raw UTF-8 bytes. The buffer is reused by the
+     * caller, so implementations must not keep a reference to it.
+     * Handlers that can decode bytes directly should override this.
+     */
+    default void handleMessage(byte[] buffer, int offset, int length, ObjectMapper mapper) {
+        handleMessage(new String(buffer, offset, length, StandardCharsets.UTF_8), mapper);
+    }
+
+    /**
+     * Handles a frame together with the {@link System#nanoTime()} at which it
+     * came off the socket, for latency tracking; 0 when unknown, e.g. in a
+     * replay. Handlers that track latency should override this.
+     */
+    default void handleMessage(byte[] buffer, int offset, int length, long receivedNanos, ObjectMapper mapper) {
+        handleMessage(buffer, offset, length, mapper);
+    }
 }
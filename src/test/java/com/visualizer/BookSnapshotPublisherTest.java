@@ -0,0 +1,56 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSnapshotPublisherTest {
+
+    @Test
+    void holdsBackPublicationsWithinTheCaptureIntervalUntilFlushed() {
+        OrderBook book = new TreeMapOrderBook();
+        BookSnapshotPublisher publisher = new BookSnapshotPublisher(10);
+        BookSnapshot snapshot = publisher.newSnapshot();
+
+        book.update(true, 1000, 1);
+        assertTrue(publisher.publish(book, true, 1, 0));
+        publisher.setMinCaptureInterval(TimeUnit.HOURS.toNanos(1));
+
+        book.update(true, 1001, 2);
+        assertFalse(publisher.publish(book, true, 2, 0));
+        book.update(true, 1002, 3);
+        assertFalse(publisher.publish(book, true, 3, 0));
+        assertFalse(publisher.flush(false));
+
+        publisher.read(snapshot);
+        assertEquals(1, snapshot.getLastUpdateId());
+        assertEquals(1, snapshot.count(true));
+        assertEquals(2, publisher.getDeferredPublicationCount());
+
+        // The latest state is captured, not the first one held back
+        assertTrue(publisher.flush(true));
+        publisher.read(snapshot);
+        assertEquals(3, snapshot.getLastUpdateId());
+        assertEquals(3, snapshot.count(true));
+        assertFalse(publisher.flush(true));
+    }
+
+    @Test
+    void capturesEveryPublicationAgainOnceTheIntervalIsCleared() {
+        OrderBook book = new TreeMapOrderBook();
+        BookSnapshotPublisher publisher = new BookSnapshotPublisher(10);
+        publisher.setMinCaptureInterval(TimeUnit.HOURS.toNanos(1));
+        assertTrue(publisher.publish(book, false, 0, 0));
+        book.update(false, 2000, 1);
+        assertFalse(publisher.publish(book, true, 5, 0));
+
+        publisher.setMinCaptureInterval(0);
+        assertTrue(publisher.flush(false));
+        assertTrue(publisher.publish(book, true, 6, 0));
+        assertEquals(3, publisher.getVersion());
+    }
+}
@@ -0,0 +1,47 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    @Test
+    void parsesToTheScale() {
+        assertEquals(6_500_001, FixedPoint.parse("65000.01", 2));
+        assertEquals(6_500_000, FixedPoint.parse("65000", 2));
+        assertEquals(6_500_010, FixedPoint.parse("65000.1", 2));
+        assertEquals(-150, FixedPoint.parse("-1.5", 2));
+        assertEquals(0, FixedPoint.parse("0.00000000", 5));
+    }
+
+    @Test
+    void acceptsTrailingZerosBeyondTheScale() {
+        assertEquals(6_500_001, FixedPoint.parse("65000.01000000", 2));
+    }
+
+    @Test
+    void rejectsNonzeroDigitsBeyondTheScale() {
+        // Truncating would turn this size into 0, i.e. a removed level
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("0.00000100", 5));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("65000.015", 2));
+    }
+
+    @Test
+    void rejectsValuesThatDoNotFitALong() {
+        assertEquals(Long.MAX_VALUE / 100 * 100, FixedPoint.parse(Long.MAX_VALUE / 100 + ".00", 2));
+        assertEquals(Long.MAX_VALUE, FixedPoint.parse(String.valueOf(Long.MAX_VALUE), 0));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("9223372036854775808", 0));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("99999999999999999999", 0));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse(Long.MAX_VALUE / 10 + "", 2));
+    }
+
+    @Test
+    void rejectsMalformedText() {
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("-", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("1.2.3", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("1e5", 2));
+    }
+}
@@ -0,0 +1,221 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes journals with {@link FrameJournal} and reads them back with
+ * {@link FrameJournalReader}.
+ */
+class FrameJournalTest {
+
+    private static final String NAME = "test";
+
+    // Small segments with room for a few index entries each
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+    private static final long SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int FRAME_SIZE = 1000;
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void skipsEmptyFramesWithoutEndingTheSegment() throws IOException {
+        try (FrameJournal journal = new FrameJournal(directory, NAME)) {
+            assertTrue(append(journal, 1, 1_000, "a"));
+            assertFalse(append(journal, 1, 2_000, ""));
+            assertTrue(append(journal, 1, 3_000, "b"));
+            assertEquals(1, journal.getEmptyFrameCount());
+        }
+
+        assertEquals(List.of("1:a", "1:b"), readAll());
+    }
+
+    @Test
+    void writesOfferedFramesBeforeTheWritersNextFrameAndOnClose() throws IOException {
+        try (FrameJournal journal = new FrameJournal(directory, NAME)) {
+            assertTrue(append(journal, 1, 1_000, "a"));
+            assertTrue(journal.offer(FrameJournal.SNAPSHOT_STREAM_ID, 1_500, bytes("snapshot")));
+            assertTrue(append(journal, 1, 2_000, "b"));
+            assertTrue(journal.offer(FrameJournal.SNAPSHOT_STREAM_ID, 2_500, bytes("last")));
+        }
+
+        assertEquals(List.of("1:a", "-1:snapshot", "1:b", "-1:last"), readAll());
+    }
+
+    @Test
+    void ignoresFramesAfterClose() throws IOException {
+        FrameJournal journal = new FrameJournal(directory, NAME);
+        assertTrue(append(journal, 1, 1_000, "a"));
+        journal.close();
+
+        assertFalse(append(journal, 1, 2_000, "b"));
+        assertFalse(journal.offer(1, 2_000, bytes("c")));
+        assertEquals(List.of("1:a"), readAll());
+    }
+
+    @Test
+    void rollsFullSegmentsAndReadsAcrossThem() throws Exception {
+        try (FrameJournal journal = new FrameJournal(directory, NAME, SEGMENT_BYTES, SEGMENT_MILLIS)) {
+            appendNumbered(journal, 0, 2500);
+            assertEquals(2, journal.getSegmentsRolledCount());
+            assertEquals(2500, journal.getFramesWrittenCount());
+        }
+
+        try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+            assertEquals(3, reader.getSegmentCount());
+            assertEquals(range(0, 2500), readNumbered(reader));
+        }
+    }
+
+    @Test
+    void reopeningAppendsNewSegmentsAfterTheOldOnes() throws Exception {
+        try (FrameJournal journal = new FrameJournal(directory, NAME, SEGMENT_BYTES, SEGMENT_MILLIS)) {
+            appendNumbered(journal, 0, 1500);
+        }
+        try (FrameJournal journal = new FrameJournal(directory, NAME, SEGMENT_BYTES, SEGMENT_MILLIS)) {
+            appendNumbered(journal, 1500, 100);
+        }
+
+        try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+            assertEquals(3, reader.getSegmentCount());
+            assertEquals(range(0, 1600), readNumbered(reader));
+        }
+    }
+
+    @Test
+    void seeksToTheFirstFrameAtOrAfterATime() throws Exception {
+        try (FrameJournal journal = new FrameJournal(directory, NAME, SEGMENT_BYTES, SEGMENT_MILLIS)) {
+            appendNumbered(journal, 0, 2500);
+        }
+        long[] times = readTimes();
+
+        try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+            assertEquals(times[0], reader.getStartEpochNanos());
+            // Within a segment, across index entries, at a segment start and past the end
+            for (int id : new int[]{0, 63, 64, 700, 1032, 1033, 2499}) {
+                reader.seek(times[id]);
+                assertEquals(id, nextNumber(reader), "seek to frame " + id);
+                reader.seek(times[id] - 1);
+                assertEquals(id, nextNumber(reader), "seek to before frame " + id);
+            }
+            reader.seek(times[2499] + 1);
+            assertEquals(-1, nextNumber(reader));
+        }
+    }
+
+    @Test
+    void readsAJournalThatWasNeverClosed() throws Exception {
+        FrameJournal journal = new FrameJournal(directory, NAME, SEGMENT_BYTES, SEGMENT_MILLIS);
+        try {
+            appendNumbered(journal, 0, 1500);
+            long[] times = readTimes();
+            assertEquals(1500, times.length);
+
+            // Segments are still at full size, and the prepared one has no header
+            try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+                assertEquals(3, reader.getSegmentCount());
+                assertEquals(range(0, 1500), readNumbered(reader));
+                reader.seek(times[1200]);
+                assertEquals(1200, nextNumber(reader));
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    // Frames numbered from first, 1ms apart; waits out a roll the roller is not ready for
+    private static void appendNumbered(FrameJournal journal, int first, int count) throws InterruptedException {
+        for (int id = first; id < first + count; id++) {
+            byte[] frame = numbered(id);
+            while (!journal.append(1, id * FRAME_INTERVAL_NANOS, frame, 0, frame.length)) {
+                assertTrue(journal.getUnpreparedDropCount() > 0, "frame " + id + " not recorded");
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    // The number, then its low byte repeated
+    private static byte[] numbered(int id) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE).putInt(id);
+        while (frame.hasRemaining()) {
+            frame.put((byte) id);
+        }
+        return frame.array();
+    }
+
+    // Number of the next frame, checking its contents, or -1 at the end
+    private static int nextNumber(FrameJournalReader reader) throws IOException {
+        int[] id = {-1};
+        reader.next((streamId, epochNanos, buffer, offset, length) -> {
+            assertEquals(FRAME_SIZE, length);
+            id[0] = ByteBuffer.wrap(buffer, offset, length).getInt();
+            for (int i = 4; i < length; i++) {
+                assertEquals((byte) id[0], buffer[offset + i], "byte " + i + " of frame " + id[0]);
+            }
+        });
+        return id[0];
+    }
+
+    private static List<Integer> readNumbered(FrameJournalReader reader) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        int id;
+        while ((id = nextNumber(reader)) >= 0) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> range(int first, int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int id = first; id < first + count; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // Receive time of every frame, by number
+    private long[] readTimes() throws IOException {
+        List<Long> times = new ArrayList<>();
+        try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+            while (reader.next((streamId, epochNanos, buffer, offset, length) -> times.add(epochNanos))) {
+                // Collected by the visitor
+            }
+        }
+        return times.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    static boolean append(FrameJournal journal, int streamId, long receivedNanos, String text) {
+        byte[] frame = bytes(text);
+        return journal.append(streamId, receivedNanos, frame, 0, frame.length);
+    }
+
+    static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Every frame as "streamId:text"
+    private List<String> readAll() throws IOException {
+        List<String> frames = new ArrayList<>();
+        try (FrameJournalReader reader = new FrameJournalReader(directory, NAME)) {
+            while (reader.next((streamId, epochNanos, buffer, offset, length) ->
+                    frames.add(streamId + ":" + new String(buffer, offset, length, StandardCharsets.UTF_8)))) {
+                // Collected by the visitor
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,118 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameRingTest {
+
+    private static final int CAPACITY = 1024;
+
+    @Test
+    void wrapsFramesOfVaryingSizeInOrder() {
+        FrameRing ring = new FrameRing(CAPACITY);
+        Queue<byte[]> expected = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(7);
+        int tag = 0;
+        int fullClaims = 0;
+        long bytes = 0;
+
+        while (tag < 5_000) {
+            int length = random.nextInt(ring.getMaxPayload() + 1);
+            // Claim more than is written now and then, as publishers of unknown length do
+            int claimed = Math.min(ring.getMaxPayload(), length + random.nextInt(2) * random.nextInt(64));
+            int offset = ring.claim(claimed);
+            if (offset < 0) {
+                // Full: the consumer must have something to free
+                fullClaims++;
+                assertTrue(ring.poll(checkNext(expected), random.nextInt(1, 4)) > 0);
+                continue;
+            }
+            byte[] frame = frame(tag, length);
+            System.arraycopy(frame, 0, ring.buffer(), offset, length);
+            ring.commit(tag, tag * 10L, length);
+            expected.add(frame);
+            bytes += length;
+            tag++;
+
+            if (random.nextInt(4) == 0) {
+                ring.poll(checkNext(expected), random.nextInt(1, 4));
+            }
+        }
+        while (ring.poll(checkNext(expected), Integer.MAX_VALUE) > 0) {
+            // Checked by the handler
+        }
+
+        assertTrue(expected.isEmpty());
+        assertTrue(ring.isEmpty());
+        assertTrue(fullClaims > 0);
+        assertTrue(bytes > 100L * CAPACITY);
+    }
+
+    @Test
+    void refusesClaimsWhileFullAndPadsTheWrapOnceFreed() {
+        FrameRing ring = new FrameRing(CAPACITY);
+        Queue<byte[]> expected = new ArrayDeque<>();
+
+        // Records of 120 bytes: eight fill 960 of the 1024, leaving room for 48 bytes
+        for (int tag = 0; tag < 8; tag++) {
+            assertTrue(publish(ring, tag, 100, expected));
+        }
+        assertEquals(-1, ring.claim(100));
+        assertEquals(-1, ring.claim(49));
+        assertEquals(960, ring.getOccupancy());
+
+        // Freeing one record makes room for the 64 byte gap at the end plus a record at the start
+        assertEquals(1, ring.poll(checkNext(expected), 1));
+        assertTrue(publish(ring, 8, 100, expected));
+        assertEquals(CAPACITY, ring.getOccupancy());
+        assertEquals(-1, ring.claim(0));
+
+        assertEquals(8, ring.poll(checkNext(expected), Integer.MAX_VALUE));
+        assertTrue(expected.isEmpty());
+        assertTrue(ring.isEmpty());
+        assertEquals(CAPACITY, ring.getMaxOccupancy());
+    }
+
+    @Test
+    void refusesFramesThatCanNeverFit() {
+        FrameRing ring = new FrameRing(CAPACITY);
+        assertEquals(CAPACITY / 2 - FrameRing.HEADER_SIZE, ring.getMaxPayload());
+        assertEquals(-1, ring.claim(ring.getMaxPayload() + 1));
+        assertEquals(FrameRing.HEADER_SIZE, ring.claim(ring.getMaxPayload()));
+    }
+
+    private static boolean publish(FrameRing ring, int tag, int length, Queue<byte[]> expected) {
+        int offset = ring.claim(length);
+        if (offset < 0) {
+            return false;
+        }
+        byte[] frame = frame(tag, length);
+        System.arraycopy(frame, 0, ring.buffer(), offset, length);
+        ring.commit(tag, tag * 10L, length);
+        expected.add(frame);
+        return true;
+    }
+
+    // Frames are told apart by their length and contents; the tag is their number
+    private static byte[] frame(int tag, int length) {
+        byte[] frame = new byte[length];
+        Arrays.fill(frame, (byte) (tag * 31 + 1));
+        return frame;
+    }
+
+    private static FrameRing.FrameHandler checkNext(Queue<byte[]> expected) {
+        return (tag, receivedNanos, buffer, offset, length) -> {
+            byte[] frame = expected.remove();
+            assertEquals(tag * 10L, receivedNanos);
+            assertArrayEquals(frame, Arrays.copyOfRange(buffer, offset, offset + length), "frame " + tag);
+        };
+    }
+}
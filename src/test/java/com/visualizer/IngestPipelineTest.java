@@ -0,0 +1,117 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Publishes through a small ring to a consumer thread: drops while the ring
+ * is full, then frames of varying size wrapping the ring many times.
+ */
+class IngestPipelineTest {
+
+    private static final int CAPACITY = 1024;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Copies of the frames the consumer thread received, checked on the test thread
+    private final ConcurrentLinkedQueue<byte[]> received = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void dropsAndCountsFramesWhileTheRingIsFull() throws InterruptedException {
+        IngestPipeline pipeline = new IngestPipeline("test", CAPACITY, IngestPipeline.WaitStrategy.BLOCKING);
+        int tag = pipeline.register(this::receive);
+        List<byte[]> published = new ArrayList<>();
+        try {
+            // Nothing consumes until start(), so the ring fills up
+            int id = 0;
+            while (true) {
+                byte[] frame = frame(id++, 100);
+                if (!pipeline.publish(tag, frame, 0, frame.length)) {
+                    break;
+                }
+                published.add(frame);
+            }
+            byte[] dropped = frame(id, 100);
+            assertFalse(pipeline.publish(tag, dropped, 0, dropped.length));
+            assertEquals(2, pipeline.getDroppedFrameCount());
+            assertEquals(published.size(), pipeline.getPublishedFrameCount());
+
+            byte[] oversized = frame(id, CAPACITY);
+            assertFalse(pipeline.publish(tag, oversized, 0, oversized.length));
+            assertEquals(1, pipeline.getOversizedFrameCount());
+            assertEquals(2, pipeline.getDroppedFrameCount());
+
+            pipeline.start();
+            awaitReceived(published.size());
+            assertReceived(published);
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void deliversFramesOfVaryingSizeInOrderAcrossManyWraps() throws InterruptedException {
+        IngestPipeline pipeline = new IngestPipeline("test", CAPACITY, IngestPipeline.WaitStrategy.BLOCKING);
+        int tag = pipeline.register(this::receive);
+        SplittableRandom random = new SplittableRandom(11);
+        List<byte[]> published = new ArrayList<>();
+        pipeline.start();
+        try {
+            for (int id = 0; id < 20_000; id++) {
+                byte[] frame = frame(id, 4 + random.nextInt(300));
+                // Retry drops, so every frame is expected
+                while (!pipeline.publish(tag, frame, 0, frame.length)) {
+                    Thread.onSpinWait();
+                }
+                published.add(frame);
+            }
+            awaitReceived(published.size());
+            assertReceived(published);
+            assertEquals(published.size(), pipeline.getConsumedFrameCount());
+            assertTrue(pipeline.getMaxOccupancy() <= CAPACITY);
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    private void receive(byte[] buffer, int offset, int length, long receivedNanos) {
+        received.add(Arrays.copyOfRange(buffer, offset, offset + length));
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (received.size() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void assertReceived(List<byte[]> published) {
+        assertEquals(published.size(), received.size());
+        int i = 0;
+        for (byte[] frame : received) {
+            assertArrayEquals(published.get(i), frame, "frame " + i);
+            i++;
+        }
+    }
+
+    // The number in the first four bytes, then its low byte repeated
+    private static byte[] frame(int id, int length) {
+        byte[] frame = new byte[length];
+        Arrays.fill(frame, (byte) id);
+        frame[0] = (byte) (id >>> 24);
+        frame[1] = (byte) (id >>> 16);
+        frame[2] = (byte) (id >>> 8);
+        frame[3] = (byte) id;
+        return frame;
+    }
+}
@@ -0,0 +1,10 @@
+package com.visualizer;
+
+class LadderOrderBookTest extends OrderBookConformanceTest {
+
+    // The smallest window, so prices routinely leave it
+    @Override
+    protected OrderBook newBook() {
+        return new LadderOrderBook(64);
+    }
+}
@@ -0,0 +1,229 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Behaviour every {@link OrderBook} engine must share. Each engine runs it
+ * through a subclass; {@link TreeMapOrderBook} is the reference.
+ */
+abstract class OrderBookConformanceTest {
+
+    /**
+     * A new, empty book. Windowed engines should use a small window so the
+     * tests cross its edges.
+     */
+    protected abstract OrderBook newBook();
+
+    @Test
+    void emptyBookHasNoLevels() {
+        OrderBook book = newBook();
+        assertEquals(0, book.bestPrice(true));
+        assertEquals(0, book.bestPrice(false));
+        assertEquals(0, book.levelCount(true));
+        assertEquals(0, book.top(false, 10, new long[10], new long[10]));
+        assertEquals(0, book.quantityAt(true, 1000));
+    }
+
+    @Test
+    void zeroQuantityRemovesLevelAndIsIgnoredForMissingLevel() {
+        OrderBook book = newBook();
+        book.update(true, 1000, 5);
+        book.update(true, 1000, 7);
+        assertEquals(7, book.quantityAt(true, 1000));
+        assertEquals(1, book.levelCount(true));
+
+        book.update(true, 1000, 0);
+        book.update(true, 999, 0);
+        assertEquals(0, book.levelCount(true));
+        assertEquals(0, book.bestPrice(true));
+    }
+
+    @Test
+    void bestPriceMovesInwardAfterDeletingTheTouch() {
+        OrderBook book = newBook();
+        book.update(true, 1000, 1);
+        book.update(true, 999, 2);
+        book.update(true, 990, 3);
+        book.update(false, 1001, 1);
+        book.update(false, 1005, 2);
+
+        book.update(true, 1000, 0);
+        assertEquals(999, book.bestPrice(true));
+        book.update(true, 999, 0);
+        assertEquals(990, book.bestPrice(true));
+        book.update(true, 990, 0);
+        assertEquals(0, book.bestPrice(true));
+
+        book.update(false, 1001, 0);
+        assertEquals(1005, book.bestPrice(false));
+    }
+
+    @Test
+    void recentersWhenTheTouchCrossesTheWindowEdge() {
+        OrderBook book = newBook();
+        for (long price = 1000; price > 980; price--) {
+            book.update(true, price, price);
+        }
+
+        // A new touch far above the old one, then back down as it is lifted
+        book.update(true, 1300, 1);
+        assertEquals(1300, book.bestPrice(true));
+        assertEquals(21, book.levelCount(true));
+        assertEquals(990, book.quantityAt(true, 990));
+
+        book.update(true, 1300, 0);
+        assertEquals(1000, book.bestPrice(true));
+        assertTop(book, true, 3, new long[]{1000, 999, 998}, new long[]{1000, 999, 998});
+
+        // Asks walking down tick by tick across several window widths
+        for (long price = 1500; price > 1100; price--) {
+            book.update(false, price, 1);
+            book.update(false, price + 1, 0);
+        }
+        assertEquals(1101, book.bestPrice(false));
+        assertEquals(1, book.levelCount(false));
+    }
+
+    @Test
+    void farLevelsAreKeptAndRemoved() {
+        OrderBook book = newBook();
+        book.update(false, 10_000, 1);
+        book.update(false, 1_000_000, 4);
+        book.update(false, 50_000, 3);
+
+        assertEquals(3, book.levelCount(false));
+        assertEquals(10_000, book.bestPrice(false));
+        assertEquals(4, book.quantityAt(false, 1_000_000));
+        assertTop(book, false, 5, new long[]{10_000, 50_000, 1_000_000}, new long[]{1, 3, 4});
+
+        // Deleting the touch makes a far level the new touch
+        book.update(false, 10_000, 0);
+        assertEquals(50_000, book.bestPrice(false));
+        book.update(false, 1_000_000, 0);
+        assertEquals(1, book.levelCount(false));
+        assertEquals(0, book.quantityAt(false, 1_000_000));
+    }
+
+    @Test
+    void topSpansWindowAndFarLevelsInOrder() {
+        OrderBook book = newBook();
+        for (long price = 1000; price > 960; price--) {
+            book.update(true, price, 1);
+        }
+        book.update(true, 500, 2);
+        book.update(true, 400, 3);
+
+        long[] prices = new long[50];
+        long[] quantities = new long[50];
+        assertEquals(42, book.top(true, 50, prices, quantities));
+        for (int i = 0; i < 40; i++) {
+            assertEquals(1000 - i, prices[i]);
+        }
+        assertEquals(500, prices[40]);
+        assertEquals(400, prices[41]);
+        assertEquals(3, quantities[41]);
+
+        // Cut off right after the first far level
+        assertEquals(41, book.top(true, 41, prices, quantities));
+        assertEquals(500, prices[40]);
+    }
+
+    @Test
+    void clearEmptiesBothSides() {
+        OrderBook book = newBook();
+        book.update(true, 1000, 1);
+        book.update(false, 5000, 1);
+        book.clear();
+        assertEquals(0, book.levelCount(true));
+        assertEquals(0, book.levelCount(false));
+        assertEquals(0, book.bestPrice(false));
+
+        book.update(false, 7000, 2);
+        assertEquals(7000, book.bestPrice(false));
+    }
+
+    @Test
+    void matchesAReferenceModelUnderRandomUpdates() {
+        assertMatchesReferenceModel(1, 10_000, 100_000);
+    }
+
+    @Test
+    void matchesAReferenceModelAtACoarseTickWithScale8() {
+        // A 0.01 tick at price scale 8: levels are a million scaled units apart
+        assertMatchesReferenceModel(FixedPoint.pow10(6), 6_500_000, 20_000);
+    }
+
+    /**
+     * Random updates around a drifting mid, checked against TreeMaps after
+     * every one. Prices are multiples of {@code tick}; the mid is in ticks.
+     */
+    private void assertMatchesReferenceModel(long tick, long mid, int updates) {
+        OrderBook book = newBook();
+        TreeMap<Long, Long> bids = new TreeMap<>();
+        TreeMap<Long, Long> asks = new TreeMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < updates; i++) {
+            // Drift, with an occasional jump of a few window widths
+            mid += random.nextInt(100) == 0 ? random.nextInt(401) - 200 : random.nextInt(5) - 2;
+            boolean bid = random.nextBoolean();
+            long offset = random.nextInt(4) == 0 ? random.nextInt(300) : random.nextInt(40);
+            long price = (bid ? mid - 1 - offset : mid + 1 + offset) * tick;
+            long quantity = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+            TreeMap<Long, Long> levels = bid ? bids : asks;
+            if (random.nextInt(3) == 0 && !levels.isEmpty()) {
+                // Lift the touch, walking the window outwards through the book
+                price = bid ? levels.lastKey() : levels.firstKey();
+                quantity = 0;
+            }
+
+            book.update(bid, price, quantity);
+            TreeMap<Long, Long> side = bid ? bids : asks;
+            if (quantity == 0) {
+                side.remove(price);
+            } else {
+                side.put(price, quantity);
+            }
+
+            assertEquals(bids.isEmpty() ? 0 : bids.lastKey(), book.bestPrice(true), "best bid at " + i);
+            assertEquals(asks.isEmpty() ? 0 : asks.firstKey(), book.bestPrice(false), "best ask at " + i);
+            assertEquals(side.size(), book.levelCount(bid), "level count at " + i);
+            assertEquals(side.getOrDefault(price, 0L), book.quantityAt(bid, price), "quantity at " + i);
+
+            // Any price, to catch levels stranded on the wrong side of a window edge
+            long probe = (bid ? mid - 1 - random.nextInt(300) : mid + 1 + random.nextInt(300)) * tick;
+            assertEquals(side.getOrDefault(probe, 0L), book.quantityAt(bid, probe), "probe at " + i);
+        }
+
+        assertSameTop(book, true, bids.descendingMap());
+        assertSameTop(book, false, asks);
+    }
+
+    private static void assertSameTop(OrderBook book, boolean bid, Map<Long, Long> expected) {
+        long[] prices = new long[expected.size()];
+        long[] quantities = new long[expected.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> level : expected.entrySet()) {
+            prices[i] = level.getKey();
+            quantities[i++] = level.getValue();
+        }
+        assertTop(book, bid, expected.size(), prices, quantities);
+    }
+
+    private static void assertTop(OrderBook book, boolean bid, int maxLevels, long[] prices, long[] quantities) {
+        long[] actualPrices = new long[maxLevels];
+        long[] actualQuantities = new long[maxLevels];
+        int count = book.top(bid, maxLevels, actualPrices, actualQuantities);
+        assertEquals(prices.length, count);
+        assertArrayEquals(prices, Arrays.copyOf(actualPrices, count));
+        assertArrayEquals(quantities, Arrays.copyOf(actualQuantities, count));
+    }
+}
@@ -0,0 +1,192 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the snapshot + diff protocol with a stub {@link DepthSnapshotSource},
+ * an executor that only runs snapshot fetches when the test says so and a
+ * clock that only moves when the test advances it, and end to end against an {@link ExchangeSimulator} that injects gaps.
+ */
+class OrderBookSynchronizerTest {
+
+    private static final TradingPair PAIR = new TradingPair("BTC", "USDT", 2, 5);
+
+    private final Queue<Runnable> fetches = new ArrayDeque<>();
+    private final Queue<Object> snapshots = new ArrayDeque<>();
+    private final DepthUpdateDecoder decoder = new DepthUpdateDecoder(PAIR.getPriceScale(), PAIR.getQuantityScale());
+
+    // Snapshot requests are throttled against this; nonzero, as 0 means never requested
+    private long nanos = 1;
+
+    private OrderBook book;
+    private OrderBookSynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        DepthSnapshotSource source = tradingPair -> {
+            Object next = snapshots.remove();
+            if (next instanceof IOException e) {
+                throw e;
+            }
+            return (DepthSnapshot) next;
+        };
+        book = new TreeMapOrderBook();
+        synchronizer = new OrderBookSynchronizer(PAIR, book, source, fetches::add, () -> nanos);
+    }
+
+    @Test
+    void dropsStaleDiffsAndAppliesTheOneStraddlingTheSnapshot() throws IOException {
+        snapshots.add(snapshot(100));
+
+        assertFalse(diff(90, 95, "100.00", "1"));
+        assertEquals(OrderBookSynchronizer.State.AWAITING_SNAPSHOT, synchronizer.getState());
+        assertFalse(diff(96, 100, "100.00", "2"));
+        assertFalse(diff(99, 103, "100.01", "3"));
+        runFetches();
+
+        assertTrue(diff(104, 105, "100.02", "4"));
+        assertTrue(synchronizer.isSynced());
+        assertEquals(105, synchronizer.getLastUpdateId());
+        assertEquals(2, synchronizer.getStaleDiffCount());
+
+        // The snapshot's level stands; both diffs after it are applied
+        assertEquals(FixedPoint.parse("5", 5), book.quantityAt(true, FixedPoint.parse("100.00", 2)));
+        assertEquals(FixedPoint.parse("3", 5), book.quantityAt(true, FixedPoint.parse("100.01", 2)));
+        assertEquals(FixedPoint.parse("4", 5), book.quantityAt(true, FixedPoint.parse("100.02", 2)));
+
+        // A late diff once synced is dropped too
+        assertFalse(diff(101, 104, "100.00", "9"));
+        assertEquals(3, synchronizer.getStaleDiffCount());
+        assertEquals(0, synchronizer.getGapCount());
+    }
+
+    @Test
+    void gapDiscardsTheBookAndResyncs() throws IOException {
+        snapshots.add(snapshot(100));
+        diff(99, 101, "100.01", "1");
+        runFetches();
+        assertTrue(diff(102, 102, "100.02", "1"));
+
+        assertFalse(diff(110, 111, "100.03", "1"));
+        assertEquals(1, synchronizer.getGapCount());
+        assertEquals(1, synchronizer.getResyncCount());
+        assertEquals(OrderBookSynchronizer.State.AWAITING_SNAPSHOT, synchronizer.getState());
+        assertEquals(0, book.levelCount(true));
+
+        // The diff after the gap is kept and replayed on the next snapshot
+        nanos += OrderBookSynchronizer.MIN_SNAPSHOT_INTERVAL_NANOS;
+        snapshots.add(snapshot(110));
+        assertFalse(diff(112, 112, "100.04", "1"));
+        runFetches();
+        assertTrue(diff(113, 113, "100.05", "1"));
+
+        assertTrue(synchronizer.isSynced());
+        assertEquals(113, synchronizer.getLastUpdateId());
+        assertEquals(FixedPoint.parse("1", 5), book.quantityAt(true, FixedPoint.parse("100.03", 2)));
+        assertEquals(2, synchronizer.getSnapshotCount());
+    }
+
+    @Test
+    void snapshotOlderThanTheBufferedDiffsIsFetchedAgain() throws IOException {
+        snapshots.add(snapshot(100));
+        diff(105, 106, "100.01", "1");
+        runFetches();
+
+        assertFalse(diff(107, 107, "100.02", "1"));
+        assertEquals(1, synchronizer.getResyncCount());
+        assertEquals(0, synchronizer.getGapCount());
+        assertFalse(synchronizer.isSynced());
+
+        nanos += OrderBookSynchronizer.MIN_SNAPSHOT_INTERVAL_NANOS;
+        snapshots.add(snapshot(105));
+        diff(108, 108, "100.03", "1");
+        runFetches();
+        assertTrue(diff(109, 109, "100.04", "1"));
+        assertEquals(109, synchronizer.getLastUpdateId());
+    }
+
+    @Test
+    void failedSnapshotIsRetriedAfterTheThrottleInterval() throws IOException {
+        snapshots.add(new IOException("HTTP 503"));
+        snapshots.add(snapshot(100));
+
+        diff(99, 101, "100.01", "1");
+        runFetches();
+        assertEquals(1, synchronizer.getSnapshotFailureCount());
+        assertFalse(synchronizer.isSynced());
+
+        // Too soon: no new request
+        nanos += OrderBookSynchronizer.MIN_SNAPSHOT_INTERVAL_NANOS - 1;
+        diff(102, 102, "100.02", "1");
+        assertTrue(fetches.isEmpty());
+
+        nanos++;
+        diff(103, 103, "100.03", "1");
+        assertEquals(1, fetches.size());
+        runFetches();
+        assertTrue(diff(104, 104, "100.04", "1"));
+
+        assertEquals(104, synchronizer.getLastUpdateId());
+        assertEquals(1, synchronizer.getSnapshotCount());
+        assertEquals(1, synchronizer.getSnapshotFailureCount());
+        assertEquals(0, synchronizer.getResyncCount());
+    }
+
+    @Test
+    void resyncsOnGapsInjectedBySimulator() throws Exception {
+        ExchangeSimulator simulator = new ExchangeSimulator(new ExchangeSimulator.Config()
+                .symbols(1).messagesPerSecond(2000).tradeShare(0).gapProbability(0.002));
+        simulator.start();
+        TradingPair pair = simulator.getTradingPairs().get(0);
+        OrderBookHandler handler = new OrderBookHandler(pair, new TreeMapOrderBook(),
+                new BinanceDepthSnapshotSource(SharedClients.httpClient(), simulator.getRestUrl(), 1000));
+        CombinedStreamClient client = new CombinedStreamClient(SharedClients.httpClient(),
+                SharedClients.objectMapper(), simulator.getStreamUrl(), null);
+        client.subscribe(pair.getDepthStream(), handler);
+        try {
+            client.start();
+            Thread.sleep(4000);
+        } finally {
+            client.stop();
+            simulator.close();
+        }
+
+        // Every gap resyncs; the last resync may still be waiting for its snapshot
+        OrderBookSynchronizer synchronizer = handler.getSynchronizer();
+        assertTrue(synchronizer.getGapCount() > 0);
+        assertTrue(synchronizer.getResyncCount() >= synchronizer.getGapCount());
+        assertTrue(synchronizer.getSnapshotCount() >= synchronizer.getResyncCount());
+        assertEquals(0, synchronizer.getSnapshotFailureCount());
+    }
+
+    private boolean diff(long firstUpdateId, long finalUpdateId, String bidPrice, String bidQuantity)
+            throws IOException {
+        decoder.decode("{\"e\":\"depthUpdate\",\"E\":" + (1_700_000_000_000L + finalUpdateId)
+                + ",\"s\":\"BTCUSDT\",\"U\":" + firstUpdateId + ",\"u\":" + finalUpdateId
+                + ",\"b\":[[\"" + bidPrice + "\",\"" + bidQuantity + "\"]],\"a\":[]}");
+        return synchronizer.onDiff(decoder);
+    }
+
+    private void runFetches() {
+        Runnable fetch;
+        while ((fetch = fetches.poll()) != null) {
+            fetch.run();
+        }
+    }
+
+    // One bid at 100.00 and one ask at 101.00
+    private static DepthSnapshot snapshot(long lastUpdateId) {
+        return new DepthSnapshot(lastUpdateId,
+                new long[]{FixedPoint.parse("100.00", 2)}, new long[]{FixedPoint.parse("5", 5)},
+                new long[]{FixedPoint.parse("101.00", 2)}, new long[]{FixedPoint.parse("5", 5)});
+    }
+}
@@ -0,0 +1,99 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ranks a {@link RankWindow} against a sorted copy of the same window.
+ */
+class RankWindowTest {
+
+    private static final int CAPACITY = 200;
+
+    // One bucket: values within this ratio below x may or may not count as below it
+    private static final double BUCKET_GROWTH = 1.001;
+
+    @Test
+    void ranksLikeASortedWindowUpToOneBucket() {
+        RankWindow window = new RankWindow(CAPACITY);
+        ArrayDeque<Double> oracle = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(3);
+
+        for (int i = 0; i < 5_000; i++) {
+            // Several magnitudes, with repeats and near-repeats
+            double value = i % 7 == 0 && !oracle.isEmpty()
+                    ? oracle.peekLast() * (1 + (random.nextDouble() - 0.5) * 1e-3)
+                    : Math.exp(random.nextDouble(-10, 10));
+            window.add(value);
+            oracle.addLast(value);
+            if (oracle.size() > CAPACITY) {
+                oracle.removeFirst();
+            }
+            assertEquals(oracle.size(), window.size());
+
+            double[] sorted = oracle.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            double query = random.nextInt(3) == 0 ? value : Math.exp(random.nextDouble(-11, 11));
+            int rank = window.countBelow(query);
+            int atMost = below(sorted, query);
+            int atLeast = below(sorted, query / BUCKET_GROWTH);
+            assertTrue(rank >= atLeast && rank <= atMost,
+                    "rank of " + query + " after " + i + ": " + rank + " not in [" + atLeast + ", " + atMost + "]");
+        }
+    }
+
+    @Test
+    void ranksExactlyWhenValuesAreFurtherApartThanABucket() {
+        RankWindow window = new RankWindow(CAPACITY);
+        double[] values = new double[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            // A shuffled geometric series with 1% steps
+            values[i] = Math.pow(1.01, (i * 37) % CAPACITY);
+            window.add(values[i]);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(i, window.countBelow(sorted[i]));
+            assertEquals(100.0 * i / CAPACITY, window.percentileOf(sorted[i]), 1e-9);
+        }
+    }
+
+    @Test
+    void clampsValuesOutsideTheRangeAndClears() {
+        RankWindow window = new RankWindow(4);
+        window.add(0);
+        window.add(-1);
+        window.add(1e20);
+        window.add(1);
+        assertEquals(0, window.countBelow(1e-13));
+        assertEquals(2, window.countBelow(0.5));
+        assertEquals(3, window.countBelow(1e15));
+
+        window.clear();
+        assertEquals(0, window.size());
+        assertEquals(0, window.percentileOf(1));
+        window.add(2);
+        assertEquals(1, window.countBelow(3));
+    }
+
+    // Values strictly below x, by binary search
+    private static int below(double[] sorted, double x) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
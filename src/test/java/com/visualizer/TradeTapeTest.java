@@ -0,0 +1,77 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeTapeTest {
+
+    @Test
+    void keepsTheNewestTradesNewestFirstAcrossWraparound() {
+        TradeTape tape = new TradeTape(8);
+        TradeTape.View view = new TradeTape.View(5);
+
+        tape.copyLatest(view);
+        assertEquals(0, view.size());
+        assertEquals(0, view.getSequence());
+
+        for (long id = 0; id < 19; id++) {
+            append(tape, id);
+        }
+        tape.copyLatest(view);
+        assertEquals(19, view.getSequence());
+        assertEquals(5, view.size());
+        for (int i = 0; i < view.size(); i++) {
+            assertTrade(view, i, 18 - i);
+        }
+
+        // A view larger than the tape gets all but the slot the writer fills next
+        TradeTape.View wide = new TradeTape.View(20);
+        tape.copyLatest(wide);
+        assertEquals(7, wide.size());
+        assertTrade(wide, 6, 12);
+    }
+
+    @Test
+    void readersNeverKeepATradeTheWriterLappedWhileCopying() throws InterruptedException {
+        // A tape barely larger than the view, so readers are lapped all the time
+        TradeTape tape = new TradeTape(16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long id = 0; running.get(); id++) {
+                append(tape, id);
+            }
+        }, "tape-writer");
+        writer.start();
+
+        TradeTape.View view = new TradeTape.View(15);
+        try {
+            for (int copy = 0; copy < 200_000; copy++) {
+                tape.copyLatest(view);
+                assertTrue(view.size() <= 15);
+                for (int i = 0; i < view.size(); i++) {
+                    assertTrade(view, i, view.getSequence() - 1 - i);
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    // Every column derives from the id, so a torn slot shows up as a mismatch
+    private static void append(TradeTape tape, long id) {
+        tape.append(id * 10, id * 3, 1_000 + id, id, id % 2 == 0);
+    }
+
+    private static void assertTrade(TradeTape.View view, int i, long id) {
+        assertEquals(id, view.tradeId(i), "trade id at " + i);
+        assertEquals(id * 10, view.price(i), "price of " + id);
+        assertEquals(id * 3, view.quantity(i), "quantity of " + id);
+        assertEquals(1_000 + id, view.tradeTime(i), "time of " + id);
+        assertEquals(id % 2 == 0, view.buyerMaker(i), "side of " + id);
+    }
+}
@@ -0,0 +1,9 @@
+package com.visualizer;
+
+class TreeMapOrderBookTest extends OrderBookConformanceTest {
+
+    @Override
+    protected OrderBook newBook() {
+        return new TreeMapOrderBook();
+    }
+}
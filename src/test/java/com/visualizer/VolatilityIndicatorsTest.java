@@ -0,0 +1,66 @@
+package com.visualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cross-checks the streaming {@link VolatilityIndicators} against
+ * {@link ExactVolatilityIndicators} over a seeded random walk long enough to
+ * wrap the history rings and go through several drift resyncs.
+ */
+class VolatilityIndicatorsTest {
+
+    private static final int HISTORY = 1000;
+    private static final int SAMPLES = 3 * RollingMoments.MIN_RESYNC_INTERVAL;
+    private static final int CHECK_EVERY = 97;
+
+    private static final int ATR_PERIODS = 14;
+    private static final int BOLLINGER_PERIODS = 20;
+    private static final int HV_PERIODS = 60;
+    private static final int LOOKBACK = 500;
+
+    // The reference rounds to 8 significant digits and stops its square roots at 1e-4
+    private static final double RELATIVE_TOLERANCE = 1e-3;
+
+    // Ranks are exact up to the 0.1% width of a RankWindow bucket
+    private static final double PERCENTILE_TOLERANCE = 1.0;
+
+    @Test
+    void matchesTheExactIndicatorsOverARandomWalk() {
+        VolatilityIndicators streaming = new VolatilityIndicators(HISTORY);
+        ExactVolatilityIndicators exact = new ExactVolatilityIndicators(HISTORY);
+        SplittableRandom random = new SplittableRandom(42);
+
+        double price = 65_000;
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < SAMPLES; i++) {
+            // Calm and busy stretches, so the percentile moves across its range
+            double scale = (i / 500) % 2 == 0 ? 5 : 40;
+            price = Math.max(1_000, price + (random.nextDouble() - 0.5) * scale);
+            timestamp += 1_000;
+            streaming.addPriceData(price, timestamp);
+            exact.addPriceData(BigDecimal.valueOf(price), timestamp, BigDecimal.ONE);
+
+            if (i % CHECK_EVERY == 0 || i == SAMPLES - 1) {
+                String at = "sample " + i;
+                assertClose(exact.calculateATR(ATR_PERIODS), streaming.calculateATR(ATR_PERIODS), at + " ATR");
+                assertClose(exact.calculateBollingerBandWidth(BOLLINGER_PERIODS, 2),
+                        streaming.calculateBollingerBandWidth(BOLLINGER_PERIODS, 2), at + " Bollinger width");
+                assertClose(exact.calculateHistoricalVolatility(HV_PERIODS),
+                        streaming.calculateHistoricalVolatility(HV_PERIODS), at + " HV");
+                assertEquals(exact.calculateVolatilityPercentile(LOOKBACK, ATR_PERIODS).doubleValue(),
+                        streaming.calculateVolatilityPercentile(LOOKBACK, ATR_PERIODS), PERCENTILE_TOLERANCE,
+                        at + " percentile");
+            }
+        }
+    }
+
+    private static void assertClose(BigDecimal expected, double actual, String message) {
+        double value = expected.doubleValue();
+        assertEquals(value, actual, Math.abs(value) * RELATIVE_TOLERANCE, message);
+    }
+}